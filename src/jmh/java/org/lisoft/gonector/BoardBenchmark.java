@@ -0,0 +1,109 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link Board} by playing random games to the end.
+ *
+ * @author Emily Björk
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+@SuppressWarnings("javadoc")
+public class BoardBenchmark {
+	private Board board;
+	private Move[] points;
+	private final Random rng = new Random(0);
+
+	@Param({ "9", "19" })
+	public int size;
+
+	/**
+	 * Plays uniformly random legal moves until both players pass.
+	 *
+	 * @return The number of moves played.
+	 */
+	@Benchmark
+	public int playout() {
+		board.clear();
+		Player player = Player.BLACK;
+		int passes = 0;
+		int moves = 0;
+		while (passes < 2 && moves < size * size * 3) {
+			final Move move = pick(player);
+			board.play(move, player);
+			passes = move == Move.PASS ? passes + 1 : 0;
+			player = player.opponent();
+			moves++;
+		}
+		return moves;
+	}
+
+	@Setup
+	public void setup() {
+		board = new Board(size);
+		points = new Move[size * size];
+		for (int i = 0; i < points.length; ++i) {
+			points[i] = Move.valueOf(i % size, i / size);
+		}
+	}
+
+	private Move pick(Player aPlayer) {
+		// Random permutation scan, skipping moves that fill own single point eyes.
+		final int start = rng.nextInt(points.length);
+		for (int i = 0; i < points.length; ++i) {
+			final Move move = points[(start + i) % points.length];
+			if (board.isLegal(move, aPlayer) && !isEye(move, aPlayer)) {
+				return move;
+			}
+		}
+		return Move.PASS;
+	}
+
+	private boolean isEye(Move aMove, Player aPlayer) {
+		for (int i = 0; i < 4; ++i) {
+			final int x = aMove.x + (i == 0 ? 1 : i == 1 ? -1 : 0);
+			final int y = aMove.y + (i == 2 ? 1 : i == 3 ? -1 : 0);
+			if (x >= 0 && y >= 0 && x < size && y < size && board.getStone(x, y) != aPlayer) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,172 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.io.BufferedReader;
+import java.io.CharArrayReader;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end benchmark of {@link GoTextProtocol#call()}. A scripted game is fed
+ * from memory into an engine that does nothing so that only the protocol
+ * overhead is measured. One operation is one command.
+ *
+ * @author Emily Björk
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+@SuppressWarnings("javadoc")
+public class GoTextProtocolBenchmark {
+	/**
+	 * An engine that accepts everything and always passes.
+	 */
+	static class NullEngine implements GoEngine {
+		@Override
+		public boolean addMove(Move aMove, Player aPlayer) {
+			return true;
+		}
+
+		@Override
+		public String getName() {
+			return "Null Engine";
+		}
+
+		@Override
+		public String getVersion() {
+			return "1";
+		}
+
+		@Override
+		public void newGame() {
+			/* No-op */
+		}
+
+		@Override
+		public Move nextMove(Player aPlayer) {
+			return Move.PASS;
+		}
+
+		@Override
+		public boolean resizeBoard(int aSize) {
+			return true;
+		}
+
+		@Override
+		public void setKomi(float aKomi) {
+			/* No-op */
+		}
+	}
+
+	/**
+	 * A writer that discards everything written to it.
+	 */
+	static class NullWriter extends Writer {
+		@Override
+		public void close() {
+			/* No-op */
+		}
+
+		@Override
+		public void flush() {
+			/* No-op */
+		}
+
+		@Override
+		public void write(char[] aBuffer, int aOffset, int aLength) {
+			/* No-op */
+		}
+
+		@Override
+		public void write(int aChar) {
+			/* No-op */
+		}
+
+		@Override
+		public void write(String aString, int aOffset, int aLength) {
+			/* No-op */
+		}
+	}
+
+	/**
+	 * boardsize, clear_board, komi, all plays and one genmove.
+	 */
+	static final int COMMANDS = 3 + 361 + 1;
+
+	/**
+	 * Creates a script that sets up a game and fills a 19x19 board.
+	 */
+	static char[] createScript() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("1 boardsize 19\n");
+		sb.append("2 clear_board\n");
+		sb.append("3 komi 6.5\n");
+		for (int i = 0; i < 361; ++i) {
+			final Move move = Move.valueOf(i % 19, i / 19);
+			sb.append(i + 4).append(" play ").append(i % 2 == 0 ? "b " : "w ").append(move).append('\n');
+		}
+		sb.append("genmove b\n");
+		return sb.toString().toCharArray();
+	}
+
+	@Param({ "false", "true" })
+	public boolean coalescedFlushing;
+
+	private final GoEngine engine = new NullEngine();
+	private char[] script;
+	/**
+	 * Shared between invocations like in {@link GtpServer}, so that the
+	 * histograms are only allocated once.
+	 */
+	private final CommandStatistics statistics = new CommandStatistics();
+	private final Writer writer = new NullWriter();
+
+	@Benchmark
+	@OperationsPerInvocation(COMMANDS)
+	public void call() throws Exception {
+		final BufferedReader reader = new BufferedReader(new CharArrayReader(script));
+		final GoTextProtocol protocol = new GoTextProtocol(reader, writer, engine);
+		protocol.setCoalescedFlushing(coalescedFlushing);
+		protocol.setStatistics(statistics);
+		protocol.call();
+	}
+
+	@Setup
+	public void setup() {
+		script = createScript();
+	}
+}
@@ -0,0 +1,84 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for parsing and formatting {@link Move}s.
+ *
+ * @author Emily Björk
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+@SuppressWarnings("javadoc")
+public class MoveBenchmark {
+	private int index;
+	private Move[] moves;
+	private String[] strings;
+	private StringBuilder[] views;
+
+	@Setup
+	public void setup() throws SyntaxErrorException {
+		moves = new Move[Move.MAX_BOARD_SIZE * Move.MAX_BOARD_SIZE];
+		strings = new String[moves.length];
+		views = new StringBuilder[moves.length];
+		for (int i = 0; i < moves.length; ++i) {
+			moves[i] = Move.valueOf(i % Move.MAX_BOARD_SIZE, i / Move.MAX_BOARD_SIZE);
+			strings[i] = (i % 2 == 0) ? moves[i].toString() : moves[i].toString().toUpperCase();
+			views[i] = new StringBuilder(strings[i]);
+		}
+	}
+
+	@Benchmark
+	public String toGtpString() {
+		return moves[next()].toString();
+	}
+
+	@Benchmark
+	public Move valueOfCharSequence() throws SyntaxErrorException {
+		return Move.valueOf(views[next()]);
+	}
+
+	@Benchmark
+	public Move valueOfString() throws SyntaxErrorException {
+		return Move.valueOf(strings[next()]);
+	}
+
+	private int next() {
+		index = (index + 1) % moves.length;
+		return index;
+	}
+}
@@ -0,0 +1,146 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time from starting a JVM with a GTP engine until the first
+ * response arrives, which is what a GUI or tournament manager that launches
+ * engines on demand waits for. JMH can't measure this as it runs inside an
+ * already started JVM, so this is a plain program that starts
+ * {@link Engine} in a new JVM for every run with a {@link GtpClient}.
+ *
+ * Configured with system properties, see the <code>startupBenchmark</code>
+ * task in <code>build.gradle</code>:
+ * <ul>
+ * <li><code>startup.classpath</code>: the class path of the engine JVM.</li>
+ * <li><code>startup.jvmArgs</code>: extra JVM options separated by spaces,
+ * for example to use a class data sharing archive.</li>
+ * <li><code>startup.runs</code>: the number of measured runs, default
+ * 20.</li>
+ * </ul>
+ *
+ * @author Emily Björk
+ */
+public final class StartupBenchmark {
+	/**
+	 * A minimal engine that speaks GTP on standard in and out.
+	 */
+	public static final class Engine implements GoEngine {
+		/**
+		 * @param aArgs
+		 *            Ignored.
+		 * @throws Exception
+		 *             If the protocol fails.
+		 */
+		public static void main(String[] aArgs) throws Exception {
+			new GoTextProtocol(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.US_ASCII)),
+					new OutputStreamWriter(System.out, StandardCharsets.US_ASCII), new Engine()).call();
+		}
+
+		@Override
+		public boolean addMove(Move aMove, Player aPlayer) {
+			return true;
+		}
+
+		@Override
+		public String getName() {
+			return "Startup Engine";
+		}
+
+		@Override
+		public String getVersion() {
+			return "1";
+		}
+
+		@Override
+		public void newGame() {
+			/* No-op */
+		}
+
+		@Override
+		public Move nextMove(Player aPlayer) {
+			return Move.PASS;
+		}
+
+		@Override
+		public boolean resizeBoard(int aSize) {
+			return true;
+		}
+
+		@Override
+		public void setKomi(float aKomi) {
+			/* No-op */
+		}
+	}
+
+	private static final int WARMUP_RUNS = 3;
+
+	/**
+	 * @param aArgs
+	 *            Ignored, see the class documentation for the options.
+	 * @throws Exception
+	 *             If an engine couldn't be started.
+	 */
+	public static void main(String[] aArgs) throws Exception {
+		final String classPath = System.getProperty("startup.classpath", System.getProperty("java.class.path"));
+		final String jvmArgs = System.getProperty("startup.jvmArgs", "").trim();
+		final int runs = Integer.getInteger("startup.runs", 20);
+
+		final List<String> command = new ArrayList<>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		if (!jvmArgs.isEmpty()) {
+			command.addAll(Arrays.asList(jvmArgs.split("\\s+")));
+		}
+		command.add("-cp");
+		command.add(classPath);
+		command.add(Engine.class.getName());
+
+		final LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 0; i < WARMUP_RUNS + runs; ++i) {
+			final long start = System.nanoTime();
+			try (GtpClient client = GtpClient.start(command)) {
+				client.execute("protocol_version");
+				if (i >= WARMUP_RUNS) {
+					histogram.record(System.nanoTime() - start);
+				}
+			}
+		}
+
+		System.out.println("Command: " + String.join(" ", command));
+		System.out.println("Time to first response over " + runs + " runs: p50 "
+				+ histogram.getValueAtQuantile(0.5, TimeUnit.MILLISECONDS) + " ms, p90 "
+				+ histogram.getValueAtQuantile(0.9, TimeUnit.MILLISECONDS) + " ms, max "
+				+ histogram.getMax(TimeUnit.MILLISECONDS) + " ms");
+	}
+
+	private StartupBenchmark() {
+		// Not instantiable.
+	}
+}
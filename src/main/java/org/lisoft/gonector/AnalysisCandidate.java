@@ -0,0 +1,128 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One candidate move found by {@link GoEngine#analyze(Player, AnalysisSink)}.
+ *
+ * @author Emily Björk
+ */
+public final class AnalysisCandidate {
+	private final Move move;
+	private final List<Move> principalVariation;
+	private final double prior;
+	private final double scoreLead;
+	private final int visits;
+	private final double winrate;
+
+	/**
+	 * Creates a new {@link AnalysisCandidate} without a score estimate.
+	 *
+	 * @param aMove
+	 *            The candidate move.
+	 * @param aVisits
+	 *            The number of visits, or playouts, spent on the move.
+	 * @param aWinrate
+	 *            The probability, between 0 and 1, that the player to move
+	 *            wins after the move.
+	 * @param aPrior
+	 *            The policy prior of the move, between 0 and 1.
+	 * @param aPrincipalVariation
+	 *            The expected continuation, starting with the move.
+	 */
+	public AnalysisCandidate(Move aMove, int aVisits, double aWinrate, double aPrior, List<Move> aPrincipalVariation) {
+		this(aMove, aVisits, aWinrate, aPrior, Double.NaN, aPrincipalVariation);
+	}
+
+	/**
+	 * Creates a new {@link AnalysisCandidate}.
+	 *
+	 * @param aMove
+	 *            The candidate move.
+	 * @param aVisits
+	 *            The number of visits, or playouts, spent on the move.
+	 * @param aWinrate
+	 *            The probability, between 0 and 1, that the player to move
+	 *            wins after the move.
+	 * @param aPrior
+	 *            The policy prior of the move, between 0 and 1.
+	 * @param aScoreLead
+	 *            The expected number of points the player to move leads by
+	 *            after the move, or {@link Double#NaN} if unknown.
+	 * @param aPrincipalVariation
+	 *            The expected continuation, starting with the move.
+	 */
+	public AnalysisCandidate(Move aMove, int aVisits, double aWinrate, double aPrior, double aScoreLead,
+			List<Move> aPrincipalVariation) {
+		move = aMove;
+		visits = aVisits;
+		winrate = aWinrate;
+		prior = aPrior;
+		scoreLead = aScoreLead;
+		principalVariation = Collections.unmodifiableList(aPrincipalVariation);
+	}
+
+	/**
+	 * @return The candidate move.
+	 */
+	public Move getMove() {
+		return move;
+	}
+
+	/**
+	 * @return The expected continuation, starting with the move.
+	 */
+	public List<Move> getPrincipalVariation() {
+		return principalVariation;
+	}
+
+	/**
+	 * @return The policy prior of the move, between 0 and 1.
+	 */
+	public double getPrior() {
+		return prior;
+	}
+
+	/**
+	 * @return The expected lead in points of the player to move, or
+	 *         {@link Double#NaN} if unknown.
+	 */
+	public double getScoreLead() {
+		return scoreLead;
+	}
+
+	/**
+	 * @return The number of visits spent on the move.
+	 */
+	public int getVisits() {
+		return visits;
+	}
+
+	/**
+	 * @return The probability, between 0 and 1, that the player to move wins
+	 *         after the move.
+	 */
+	public double getWinrate() {
+		return winrate;
+	}
+}
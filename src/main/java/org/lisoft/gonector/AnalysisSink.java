@@ -0,0 +1,41 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.util.List;
+
+/**
+ * Receives the candidate moves from
+ * {@link GoEngine#analyze(Player, AnalysisSink)}.
+ *
+ * @author Emily Björk
+ */
+@FunctionalInterface
+public interface AnalysisSink {
+	/**
+	 * Publishes the current candidate moves, replacing the ones published
+	 * before. Never blocks, so it can be called from the search thread.
+	 *
+	 * @param aCandidates
+	 *            The candidates, best first. The list must not be modified
+	 *            after it has been published.
+	 */
+	void publish(List<AnalysisCandidate> aCandidates);
+}
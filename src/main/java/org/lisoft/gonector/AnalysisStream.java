@@ -0,0 +1,144 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Streams the candidates published by an analysing engine to the controller
+ * in the <code>lz-analyze</code> or <code>kata-analyze</code> format.
+ *
+ * The engine publishes to a single slot that the writer thread empties at
+ * every interval, so publishing never blocks the search and a slow
+ * controller only ever sees the latest candidates. While the stream runs
+ * the writer thread owns the output of the transport, it writes and
+ * flushes while holding the transport's write lock which the transports
+ * also take when flushing from the reading thread.
+ *
+ * @author Emily Björk
+ */
+final class AnalysisStream implements AnalysisSink {
+	private static String format(double aValue) {
+		return String.format(Locale.ROOT, "%.6f", aValue);
+	}
+
+	private final StringBuilder buffer = new StringBuilder(1024);
+	private final long intervalNanos;
+	private final boolean kata;
+	private final AtomicReference<List<AnalysisCandidate>> latest = new AtomicReference<>();
+	private final CountDownLatch stopped = new CountDownLatch(1);
+	private final Transport transport;
+
+	/**
+	 * Creates a new {@link AnalysisStream}.
+	 *
+	 * @param aTransport
+	 *            The transport to write to.
+	 * @param aKata
+	 *            <code>true</code> for the <code>kata-analyze</code> format,
+	 *            <code>false</code> for <code>lz-analyze</code>.
+	 * @param aIntervalNanos
+	 *            How often to write the latest candidates.
+	 */
+	AnalysisStream(Transport aTransport, boolean aKata, long aIntervalNanos) {
+		transport = aTransport;
+		kata = aKata;
+		intervalNanos = aIntervalNanos;
+	}
+
+	/**
+	 * Writes the latest candidates, if any were published since the last
+	 * write.
+	 *
+	 * @throws IOException
+	 *             If writing to the transport failed.
+	 */
+	void flush() throws IOException {
+		final List<AnalysisCandidate> candidates = latest.getAndSet(null);
+		if (null == candidates || candidates.isEmpty()) {
+			return;
+		}
+		buffer.setLength(0);
+		for (int i = 0; i < candidates.size(); ++i) {
+			final AnalysisCandidate candidate = candidates.get(i);
+			if (i > 0) {
+				buffer.append(' ');
+			}
+			buffer.append("info move ").append(candidate.getMove()).append(" visits ").append(candidate.getVisits());
+			if (kata) {
+				buffer.append(" winrate ").append(format(candidate.getWinrate()));
+				if (!Double.isNaN(candidate.getScoreLead())) {
+					buffer.append(" scoreLead ").append(format(candidate.getScoreLead()));
+				}
+				buffer.append(" prior ").append(format(candidate.getPrior()));
+			} else {
+				// Leela Zero uses integers in units of 0.01%.
+				buffer.append(" winrate ").append(Math.round(candidate.getWinrate() * 10000));
+				buffer.append(" prior ").append(Math.round(candidate.getPrior() * 10000));
+			}
+			buffer.append(" order ").append(i).append(" pv");
+			for (final Move move : candidate.getPrincipalVariation()) {
+				buffer.append(' ').append(move);
+			}
+		}
+		buffer.append('\n');
+		final Lock lock = transport.getWriteLock();
+		lock.lock();
+		try {
+			transport.write(buffer);
+			transport.flush();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void publish(List<AnalysisCandidate> aCandidates) {
+		latest.set(aCandidates);
+	}
+
+	/**
+	 * Writes the latest candidates at every interval until {@link #stop()}
+	 * is called. Runs on the writer thread.
+	 *
+	 * @throws IOException
+	 *             If writing to the transport failed.
+	 * @throws InterruptedException
+	 *             If the thread was interrupted.
+	 */
+	void run() throws IOException, InterruptedException {
+		while (!stopped.await(intervalNanos, TimeUnit.NANOSECONDS)) {
+			flush();
+		}
+	}
+
+	/**
+	 * Makes {@link #run()} return.
+	 */
+	void stop() {
+		stopped.countDown();
+	}
+}
@@ -0,0 +1,534 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+
+/**
+ * Analyses every position, or every Nth position, of a directory of SGF
+ * files in parallel.
+ *
+ * The calling thread walks the directory and reads one file at a time with
+ * {@link SgfReader}, queueing the files for a pool of worker threads. Every
+ * worker gets its own engine from the factory, so the factory must be thread
+ * safe but the engines need not be. Engines that are {@link AutoCloseable}
+ * are closed when their worker ends. A worker analyses all positions of a
+ * file in order. It sets up the first position with
+ * {@link GoEngine#resizeBoard(int)}, {@link GoEngine#newGame()},
+ * {@link GoEngine#setKomi(float)} and
+ * {@link GoEngine#setPosition(List, List)}, and reaches each following
+ * position by adding the moves in between with
+ * {@link GoEngine#addMove(Move, Player)}. At each position it runs the
+ * {@link Analysis}, by default {@link GoEngine#nextMove(Player, Deadline)}.
+ * The queues between the reader, the workers and the writer are bounded, so
+ * a slow engine throttles reading instead of filling the heap.
+ *
+ * Results are appended to the output file as one line per position:
+ *
+ * <pre>
+ * file	move_number	colour	result
+ * </pre>
+ *
+ * where the file is relative to the directory, the move number is the
+ * number of the next move as in <code>loadsgf</code>, the colour is the
+ * player to move and the fields are separated by tabs. An engine that
+ * rejects the board size or a move gives the result
+ * <code>? unacceptable size</code> or <code>? illegal move</code>, and an
+ * {@link Analysis} that returns null or a result with a tab or line break
+ * gives <code>? invalid result</code> for that position. The lines
+ * of one file are written together in move order once the whole file has
+ * been analysed.
+ *
+ * After each file the length of the output and the name of the file is
+ * appended to a checkpoint file next to the output, named like the output
+ * with <code>.checkpoint</code> added. A run that finds a checkpoint file
+ * truncates the output to the last checkpoint and skips the files that are
+ * listed, so an interrupted run can be resumed by running it again. Delete
+ * the checkpoint file to start over.
+ *
+ * Progress is logged at info level at regular intervals.
+ *
+ * @author Emily Björk
+ */
+public class BatchAnalyzer {
+	/**
+	 * Analyses one position on an engine which has been set up with the
+	 * position. The analysis must leave the engine in the position it was
+	 * given, as the worker plays the moves up to the next position on top of
+	 * it.
+	 *
+	 * @author Emily Björk
+	 */
+	@FunctionalInterface
+	public interface Analysis {
+		/**
+		 * @param aEngine
+		 *            The engine to analyse with.
+		 * @param aPlayer
+		 *            The player to move.
+		 * @param aDeadline
+		 *            When the analysis should be done, see
+		 *            {@link BatchAnalyzer#setMoveTime(long, TimeUnit)}.
+		 * @return The result to write to the output. It must not be null and
+		 *         must not contain tabs or line breaks, those would break the
+		 *         output and the checkpoint.
+		 */
+		String analyse(GoEngine aEngine, Player aPlayer, Deadline aDeadline);
+	}
+
+	/**
+	 * A file that is being analysed, passed on to the writer with the
+	 * results.
+	 */
+	private static final class FileJob {
+		final SgfGame game;
+		final String name;
+		final Position[] positions;
+		boolean unreadable;
+
+		FileJob(String aName, SgfGame aGame, int aPositions) {
+			name = aName;
+			game = aGame;
+			positions = new Position[aPositions];
+		}
+	}
+
+	/**
+	 * A position to analyse and its result.
+	 */
+	private static final class Position {
+		final int entries;
+		final int moveNumber;
+		final Player player;
+		String result;
+
+		Position(int aEntries, int aMoveNumber, Player aPlayer) {
+			entries = aEntries;
+			moveNumber = aMoveNumber;
+			player = aPlayer;
+		}
+	}
+
+	/**
+	 * Counts what the writer has completed.
+	 */
+	private static final class Totals {
+		int files;
+		long positions;
+		int skippedFiles;
+	}
+
+	private static final FileJob END = new FileJob(null, null, 0);
+	private static final long POLL_MILLIS = 100;
+
+	private static void fail(Position[] aPositions, int aFrom, String aResult) {
+		for (int i = aFrom; i < aPositions.length; ++i) {
+			aPositions[i].result = aResult;
+		}
+	}
+
+	private static <T> void put(BlockingQueue<T> aQueue, T aItem, List<Future<?>> aTasks)
+			throws InterruptedException, ExecutionException {
+		// Don't block forever on a full queue if the consumers have died.
+		while (!aQueue.offer(aItem, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+			for (final Future<?> task : aTasks) {
+				if (task.isDone()) {
+					task.get();
+				}
+			}
+		}
+	}
+
+	private Analysis analysis;
+	private final Supplier<? extends GoEngine> factory;
+	private int interval = 1;
+	private final Logger logger = LogManager.getLogger(BatchAnalyzer.class);
+	private long moveTime;
+	private long progressInterval = TimeUnit.SECONDS.toNanos(10);
+	private int queueCapacity = 1024;
+
+	/**
+	 * Creates a new {@link BatchAnalyzer}.
+	 *
+	 * @param aFactory
+	 *            A thread safe factory for the engines, called once per
+	 *            worker thread. {@link AutoCloseable} engines are closed when
+	 *            the worker is done with them.
+	 */
+	public BatchAnalyzer(Supplier<? extends GoEngine> aFactory) {
+		factory = aFactory;
+	}
+
+	/**
+	 * Analyses all files with the extension <code>.sgf</code> in a directory
+	 * and its sub directories.
+	 *
+	 * @param aDirectory
+	 *            The directory to analyse.
+	 * @param aOutput
+	 *            The file to write the results to.
+	 * @param aThreads
+	 *            The number of worker threads, and engines.
+	 * @return The totals of this run, not counting resumed files.
+	 * @throws IOException
+	 *             If the directory couldn't be walked or the output couldn't
+	 *             be written. Files that can't be read or parsed are logged
+	 *             and skipped. Only files that can't be parsed are added to
+	 *             the checkpoint, so a resumed run retries the files that
+	 *             couldn't be read.
+	 * @throws InterruptedException
+	 *             If the thread was interrupted while waiting for the
+	 *             workers.
+	 * @throws ExecutionException
+	 *             If an engine threw an exception. The remaining work is
+	 *             cancelled.
+	 */
+	public BatchResult run(Path aDirectory, Path aOutput, int aThreads)
+			throws IOException, InterruptedException, ExecutionException {
+		if (aThreads < 1) {
+			throw new IllegalArgumentException("Threads must be positive: " + aThreads + "!");
+		}
+		final long start = System.nanoTime();
+		final Path checkpoint = aOutput.resolveSibling(aOutput.getFileName() + ".checkpoint");
+		final Set<String> completed = new HashSet<>();
+		final long offset = readCheckpoint(checkpoint, completed);
+
+		final BlockingQueue<FileJob> files = new ArrayBlockingQueue<>(queueCapacity);
+		final BlockingQueue<FileJob> results = new ArrayBlockingQueue<>(queueCapacity);
+		final ExecutorService executor = Executors.newFixedThreadPool(aThreads + 1);
+		final List<Future<?>> tasks = new ArrayList<>(aThreads + 1);
+		try (FileChannel channel = FileChannel.open(aOutput, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+				Writer checkpointWriter = Files.newBufferedWriter(checkpoint, StandardCharsets.UTF_8,
+						StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+			channel.truncate(offset);
+			channel.position(offset);
+			final Writer output = new BufferedWriter(
+					new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+
+			final Future<Totals> writer = executor
+					.submit(() -> write(results, output, channel, checkpointWriter, start));
+			tasks.add(writer);
+			final List<Future<?>> workers = new ArrayList<>(aThreads);
+			for (int i = 0; i < aThreads; ++i) {
+				workers.add(executor.submit(() -> analyse(files, results)));
+			}
+			tasks.addAll(workers);
+
+			final int resumed = produce(aDirectory, completed, files, results, tasks);
+			for (int i = 0; i < aThreads; ++i) {
+				put(files, END, tasks);
+			}
+			for (final Future<?> worker : workers) {
+				worker.get();
+			}
+			put(results, END, tasks);
+			final Totals totals = writer.get();
+			return new BatchResult(totals.files, totals.skippedFiles, resumed, totals.positions,
+					System.nanoTime() - start);
+		} finally {
+			for (final Future<?> task : tasks) {
+				task.cancel(true);
+			}
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * @param aAnalysis
+	 *            What to do at each position, or <code>null</code> for the
+	 *            default which is to ask the engine for a move, write it and
+	 *            take it back with {@link GoEngine#undo()}. For engines that
+	 *            can't undo, the default sets up every position from
+	 *            scratch.
+	 */
+	public void setAnalysis(Analysis aAnalysis) {
+		analysis = aAnalysis;
+	}
+
+	/**
+	 * @param aInterval
+	 *            Analyse every Nth position of each game, starting with the
+	 *            empty board or the setup position. The default is 1, every
+	 *            position.
+	 */
+	public void setInterval(int aInterval) {
+		if (aInterval < 1) {
+			throw new IllegalArgumentException("Interval must be positive: " + aInterval + "!");
+		}
+		interval = aInterval;
+	}
+
+	/**
+	 * @param aTime
+	 *            The time the engine is given per position through the
+	 *            {@link Deadline} passed to the {@link Analysis}. Zero, the
+	 *            default, means no limit.
+	 * @param aUnit
+	 *            The unit of the time.
+	 */
+	public void setMoveTime(long aTime, TimeUnit aUnit) {
+		moveTime = aUnit.toNanos(aTime);
+	}
+
+	/**
+	 * @param aTime
+	 *            How often progress and throughput is logged, zero disables
+	 *            logging. The default is every 10 seconds.
+	 * @param aUnit
+	 *            The unit of the time.
+	 */
+	public void setProgressInterval(long aTime, TimeUnit aUnit) {
+		progressInterval = aUnit.toNanos(aTime);
+	}
+
+	/**
+	 * @param aCapacity
+	 *            The number of files that can wait for a worker, and the
+	 *            number of analysed files that can wait for the writer. The
+	 *            default is 1024.
+	 */
+	public void setQueueCapacity(int aCapacity) {
+		if (aCapacity < 1) {
+			throw new IllegalArgumentException("Queue capacity must be positive: " + aCapacity + "!");
+		}
+		queueCapacity = aCapacity;
+	}
+
+	private Void analyse(BlockingQueue<FileJob> aFiles, BlockingQueue<FileJob> aResults)
+			throws InterruptedException {
+		final GoEngine engine = factory.get();
+		try {
+			while (true) {
+				final FileJob job = aFiles.take();
+				if (job == END) {
+					return null;
+				}
+				analyse(engine, job);
+				aResults.put(job);
+			}
+		} finally {
+			close(engine);
+		}
+	}
+
+	private void analyse(GoEngine aEngine, FileJob aJob) {
+		final SgfGame game = aJob.game;
+		final Position[] positions = aJob.positions;
+		if (!aEngine.resizeBoard(game.getBoardSize())) {
+			fail(positions, 0, "? unacceptable size");
+			return;
+		}
+		// The number of entries played on the engine, -1 if the next position
+		// must be set up from scratch.
+		int played = -1;
+		for (int i = 0; i < positions.length; ++i) {
+			final Position position = positions[i];
+			if (played < 0) {
+				aEngine.newGame();
+				aEngine.setKomi(game.getKomi());
+				if (!game.replay(aEngine, position.entries)) {
+					fail(positions, i, "? illegal move");
+					return;
+				}
+			} else {
+				for (; played < position.entries; ++played) {
+					if (!aEngine.addMove(game.getMove(played), game.getPlayer(played))) {
+						fail(positions, i, "? illegal move");
+						return;
+					}
+				}
+			}
+			played = position.entries;
+
+			final Deadline deadline = moveTime > 0 ? Deadline.after(moveTime) : Deadline.NONE;
+			if (null == analysis) {
+				final Move move = aEngine.nextMove(position.player, deadline);
+				position.result = move.toString();
+				// The engine has played the move unless it resigned.
+				if (move.toCode() != Move.RESIGN_CODE && !aEngine.undo()) {
+					played = -1;
+				}
+			} else {
+				final String result = analysis.analyse(aEngine, position.player, deadline);
+				if (null == result || result.indexOf('\t') >= 0 || result.indexOf('\n') >= 0
+						|| result.indexOf('\r') >= 0) {
+					logger.warn("Invalid result for move {} of {}: {}", Unbox.box(position.moveNumber), aJob.name,
+							result);
+					position.result = "? invalid result";
+				} else {
+					position.result = result;
+				}
+			}
+		}
+	}
+
+	private void close(GoEngine aEngine) {
+		if (aEngine instanceof AutoCloseable) {
+			try {
+				((AutoCloseable) aEngine).close();
+			} catch (final Exception e) {
+				logger.warn("Couldn't close engine {}.", aEngine, e);
+			}
+		}
+	}
+
+	private int produce(Path aDirectory, Set<String> aCompleted, BlockingQueue<FileJob> aFiles,
+			BlockingQueue<FileJob> aResults, List<Future<?>> aTasks)
+			throws IOException, InterruptedException, ExecutionException {
+		int resumed = 0;
+		try (Stream<Path> files = Files.walk(aDirectory)) {
+			final Iterator<Path> it = files.iterator();
+			while (it.hasNext()) {
+				final Path file = it.next();
+				if (!file.getFileName().toString().toLowerCase().endsWith(".sgf") || !Files.isRegularFile(file)) {
+					continue;
+				}
+				final String name = aDirectory.relativize(file).toString();
+				if (aCompleted.contains(name)) {
+					resumed++;
+					continue;
+				}
+
+				final SgfGame game;
+				try {
+					game = SgfReader.read(file);
+				} catch (final SyntaxErrorException e) {
+					logger.warn("Skipping {}: {}", name, e.getMessage());
+					put(aResults, new FileJob(name, null, 0), aTasks);
+					continue;
+				} catch (final IOException e) {
+					logger.warn("Skipping {} until the next run: {}", name, e.getMessage());
+					final FileJob job = new FileJob(name, null, 0);
+					job.unreadable = true;
+					put(aResults, job, aTasks);
+					continue;
+				}
+
+				// Move numbers 1 to moveCount + 1, the last being the final
+				// position.
+				final FileJob job = new FileJob(name, game, game.getMoveCount() / interval + 1);
+				int entries = 0;
+				int moveNumber = 1;
+				int index = 0;
+				while (true) {
+					while (entries < game.getEntryCount() && game.isSetup(entries)) {
+						entries++;
+					}
+					if ((moveNumber - 1) % interval == 0) {
+						job.positions[index++] = new Position(entries, moveNumber, game.getPlayerToPlay(entries));
+					}
+					if (entries == game.getEntryCount()) {
+						break;
+					}
+					entries++;
+					moveNumber++;
+				}
+				put(aFiles, job, aTasks);
+			}
+		}
+		return resumed;
+	}
+
+	private long readCheckpoint(Path aCheckpoint, Set<String> aCompleted) throws IOException {
+		if (!Files.exists(aCheckpoint)) {
+			return 0;
+		}
+		long offset = 0;
+		for (final String line : Files.readAllLines(aCheckpoint, StandardCharsets.UTF_8)) {
+			final int tab = line.indexOf('\t');
+			if (tab < 0) {
+				continue;
+			}
+			try {
+				offset = Long.parseLong(line.substring(0, tab));
+			} catch (final NumberFormatException e) {
+				throw new IOException("Corrupt checkpoint: " + aCheckpoint + "!", e);
+			}
+			aCompleted.add(line.substring(tab + 1));
+		}
+		return offset;
+	}
+
+	private Totals write(BlockingQueue<FileJob> aResults, Writer aOutput, FileChannel aChannel, Writer aCheckpoint,
+			long aStart) throws InterruptedException, IOException {
+		final Totals totals = new Totals();
+		long nextProgress = aStart + progressInterval;
+		while (true) {
+			final FileJob job = aResults.take();
+			if (job == END) {
+				return totals;
+			}
+			if (job.unreadable) {
+				totals.files++;
+				totals.skippedFiles++;
+				continue;
+			}
+			for (final Position done : job.positions) {
+				aOutput.append(job.name).append('\t').append(Integer.toString(done.moveNumber)).append('\t')
+						.append(done.player == Player.BLACK ? "black" : "white").append('\t').append(done.result)
+						.append('\n');
+			}
+			aOutput.flush();
+			aCheckpoint.append(Long.toString(aChannel.position())).append('\t').append(job.name).append('\n');
+			aCheckpoint.flush();
+			totals.files++;
+			totals.positions += job.positions.length;
+			if (null == job.game) {
+				totals.skippedFiles++;
+			}
+
+			if (progressInterval > 0) {
+				final long now = System.nanoTime();
+				if (now - nextProgress >= 0) {
+					nextProgress = now + progressInterval;
+					logger.info("Analysed {} positions from {} files, {} positions/s", totals.positions,
+							totals.files, (long) (totals.positions * 1e9 / (now - aStart)));
+				}
+			}
+		}
+	}
+}
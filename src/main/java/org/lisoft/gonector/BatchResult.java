@@ -0,0 +1,97 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The totals of one run of a {@link BatchAnalyzer}.
+ *
+ * @author Emily Björk
+ */
+public final class BatchResult {
+	private final long elapsedNanos;
+	private final int files;
+	private final long positions;
+	private final int resumedFiles;
+	private final int skippedFiles;
+
+	BatchResult(int aFiles, int aSkippedFiles, int aResumedFiles, long aPositions, long aElapsedNanos) {
+		files = aFiles;
+		skippedFiles = aSkippedFiles;
+		resumedFiles = aResumedFiles;
+		positions = aPositions;
+		elapsedNanos = aElapsedNanos;
+	}
+
+	/**
+	 * @param aUnit
+	 *            The unit of the result.
+	 * @return The wall clock time the run took.
+	 */
+	public long getElapsed(TimeUnit aUnit) {
+		return aUnit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @return The number of files completed in this run, including skipped
+	 *         files.
+	 */
+	public int getFiles() {
+		return files;
+	}
+
+	/**
+	 * @return The number of positions analysed in this run.
+	 */
+	public long getPositions() {
+		return positions;
+	}
+
+	/**
+	 * @return The number of positions analysed per second of wall clock time.
+	 */
+	public double getPositionsPerSecond() {
+		return elapsedNanos == 0 ? 0 : positions * 1e9 / elapsedNanos;
+	}
+
+	/**
+	 * @return The number of files that were not analysed again because an
+	 *         earlier run had completed them.
+	 */
+	public int getResumedFiles() {
+		return resumedFiles;
+	}
+
+	/**
+	 * @return The number of files that couldn't be read or parsed.
+	 */
+	public int getSkippedFiles() {
+		return skippedFiles;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ENGLISH,
+				"%d positions from %d files in %.1f s (%.1f positions/s), %d files skipped, %d files resumed",
+				positions, files, elapsedNanos / 1e9, getPositionsPerSecond(), skippedFiles, resumedFiles);
+	}
+}
@@ -0,0 +1,751 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.util.Arrays;
+
+/**
+ * A Go board that implements the rules of the game: captures, suicide and
+ * simple ko. {@link GoEngine} implementations can delegate
+ * {@link GoEngine#addMove(Move, Player)} to {@link #play(Move, Player)} and get
+ * correct rules for free.
+ *
+ * Points are indexed by their move code, see {@link Move#toCode()}, that is
+ * <code>y * Move.MAX_BOARD_SIZE + x</code>, regardless of the board size. The
+ * stones of each colour are kept in packed bitboards. Groups are kept as
+ * circular linked lists of stones, and each group keeps a count of its pseudo
+ * liberties (one per adjacent empty point per stone) together with the sum
+ * and the sum of squares of their indices. A group is in atari exactly when
+ * all its pseudo liberties are the same point, which can be decided in
+ * constant time from those three numbers. This makes
+ * {@link #isLegal(Move, Player)} constant time.
+ *
+ * The board also keeps an incremental {@link Zobrist} hash of the position,
+ * and of each group, so that the hash after a move can be computed in
+ * constant time for superko checks together with a {@link PositionHistory}.
+ *
+ * Every move is recorded in a compact history that only stores the point, the
+ * previous ko and the stones it captured. {@link #undo()} uses it to take back
+ * moves in time proportional to the size of the groups around the move,
+ * instead of replaying the game from the start.
+ *
+ * This class is not thread safe.
+ *
+ * @author Emily Björk
+ */
+public class Board {
+	/**
+	 * The number of points in the index space, independent of board size.
+	 */
+	static final int POINTS = Move.MAX_BOARD_SIZE * Move.MAX_BOARD_SIZE;
+
+	/**
+	 * The number of longs needed for one bitboard.
+	 */
+	static final int WORDS = (POINTS + 63) / 64;
+
+	/**
+	 * The number of ints per move in the history: the point and colour of the
+	 * move, the ko before the move and where its captured stones start.
+	 */
+	private static final int HISTORY_STRIDE = 3;
+	private static final int INITIAL_HISTORY = 256;
+	private static final int NONE = -1;
+	private static final Player[] PLAYERS = Player.values();
+
+	private final long[][] bitboards = new long[2][WORDS];
+	private int[] capturedStones = new int[INITIAL_HISTORY];
+	private int capturedStonesSize;
+	private final int[] captures = new int[2];
+	private final int[] colour = new int[POINTS];
+	private final long[] groupHash = new long[POINTS];
+	private long hash;
+	private final int[] head = new int[POINTS];
+	private int[] history = new int[INITIAL_HISTORY * HISTORY_STRIDE];
+	private int koPlayer = NONE;
+	private int koPoint = NONE;
+	private final int[] libertyCount = new int[POINTS];
+	private final long[] libertySquareSum = new long[POINTS];
+	private final long[] libertySum = new long[POINTS];
+	private int moveCount;
+	private final int[] neighbours = new int[POINTS * 4];
+	private final int[] next = new int[POINTS];
+	private final int[] rebuilt = new int[POINTS];
+	private int rebuiltStamp;
+	private final int size;
+	private final int[] stack = new int[POINTS];
+	private final int[] stoneCount = new int[POINTS];
+
+	/**
+	 * Creates a new, empty, board.
+	 *
+	 * @param aSize
+	 *            The size of the board, between {@link Move#MIN_BOARD_SIZE}
+	 *            and {@link Move#MAX_BOARD_SIZE} inclusive.
+	 */
+	public Board(int aSize) {
+		if (aSize < Move.MIN_BOARD_SIZE || aSize > Move.MAX_BOARD_SIZE) {
+			throw new IllegalArgumentException("Unsupported board size: " + aSize + "!");
+		}
+		size = aSize;
+		Arrays.fill(neighbours, NONE);
+		for (int y = 0; y < size; ++y) {
+			for (int x = 0; x < size; ++x) {
+				final int p = index(x, y);
+				int n = 0;
+				if (x > 0) {
+					neighbours[p * 4 + n++] = p - 1;
+				}
+				if (x < size - 1) {
+					neighbours[p * 4 + n++] = p + 1;
+				}
+				if (y > 0) {
+					neighbours[p * 4 + n++] = p - Move.MAX_BOARD_SIZE;
+				}
+				if (y < size - 1) {
+					neighbours[p * 4 + n++] = p + Move.MAX_BOARD_SIZE;
+				}
+			}
+		}
+		clear();
+	}
+
+	/**
+	 * @return The number of longs in a bitboard, see
+	 *         {@link #getBitboard(Player, long[])}.
+	 */
+	public static int getBitboardLength() {
+		return WORDS;
+	}
+
+	private static int index(int aX, int aY) {
+		return Move.encode(aX, aY);
+	}
+
+	/**
+	 * Removes all stones from the board and resets captures, ko and the move
+	 * history.
+	 */
+	public void clear() {
+		Arrays.fill(colour, NONE);
+		for (final long[] bitboard : bitboards) {
+			Arrays.fill(bitboard, 0);
+		}
+		Arrays.fill(captures, 0);
+		hash = 0;
+		koPoint = NONE;
+		koPlayer = NONE;
+		moveCount = 0;
+		capturedStonesSize = 0;
+	}
+
+	/**
+	 * Scores the position with area scoring as in the Tromp-Taylor rules: a
+	 * player's score is the number of their stones plus the number of empty
+	 * points that only reach their stones. No dead stones are removed, so
+	 * this is only accurate for games that were played out.
+	 *
+	 * @param aKomi
+	 *            The komi given to white.
+	 * @return The score of the position.
+	 */
+	public Score getAreaScore(double aKomi) {
+		final int[] area = new int[2];
+		final boolean[] seen = new boolean[POINTS];
+		final int[] stack = new int[POINTS];
+		for (int y = 0; y < size; ++y) {
+			for (int x = 0; x < size; ++x) {
+				final int p = index(x, y);
+				if (colour[p] != NONE) {
+					area[colour[p]]++;
+				} else if (!seen[p]) {
+					int regionSize = 0;
+					int reaches = 0;
+					int top = 0;
+					stack[top++] = p;
+					seen[p] = true;
+					while (top > 0) {
+						final int q = stack[--top];
+						regionSize++;
+						for (int i = q * 4; i < q * 4 + 4 && neighbours[i] != NONE; ++i) {
+							final int n = neighbours[i];
+							if (colour[n] != NONE) {
+								reaches |= 1 << colour[n];
+							} else if (!seen[n]) {
+								seen[n] = true;
+								stack[top++] = n;
+							}
+						}
+					}
+					if (reaches == 1 || reaches == 2) {
+						area[reaches - 1] += regionSize;
+					}
+				}
+			}
+		}
+		final double difference = area[Player.BLACK.ordinal()] - area[Player.WHITE.ordinal()] - aKomi;
+		if (difference > 0) {
+			return new Score(Player.BLACK, difference);
+		} else if (difference < 0) {
+			return new Score(Player.WHITE, -difference);
+		}
+		return Score.DRAW;
+	}
+
+	/**
+	 * @param aPlayer
+	 *            The player whose stones to get.
+	 * @param aBitboard
+	 *            An array of at least {@link #getBitboardLength()} longs. Bit
+	 *            <code>i % 64</code> of word <code>i / 64</code> is set if the
+	 *            point with index <code>i</code> holds a stone of the player.
+	 */
+	public void getBitboard(Player aPlayer, long[] aBitboard) {
+		getBitboard(aPlayer, aBitboard, 0);
+	}
+
+	/**
+	 * Copies the stones of a player into a larger array, for example one
+	 * plane of the input to a neural network.
+	 *
+	 * @param aPlayer
+	 *            The player whose stones to get.
+	 * @param aBitboard
+	 *            The array to copy to, see {@link #getBitboard(Player, long[])}
+	 *            for the layout.
+	 * @param aOffset
+	 *            The index in the array of the first of the
+	 *            {@link #getBitboardLength()} longs to write.
+	 */
+	public void getBitboard(Player aPlayer, long[] aBitboard, int aOffset) {
+		System.arraycopy(bitboards[aPlayer.ordinal()], 0, aBitboard, aOffset, WORDS);
+	}
+
+	/**
+	 * @param aPlayer
+	 *            The player that captured.
+	 * @return The number of stones the player has captured this game.
+	 */
+	public int getCaptures(Player aPlayer) {
+		return captures[aPlayer.ordinal()];
+	}
+
+	/**
+	 * @return The {@link Zobrist} hash of the stones on the board. The empty
+	 *         board has hash 0.
+	 */
+	public long getHash() {
+		return hash;
+	}
+
+	/**
+	 * Computes the hash of the position after a move without playing it. Runs
+	 * in constant time.
+	 *
+	 * @param aMove
+	 *            A legal move, see {@link #isLegal(Move, Player)}.
+	 * @param aPlayer
+	 *            The player making the move.
+	 * @return The value {@link #getHash()} would return after
+	 *         {@link #play(Move, Player)}.
+	 */
+	public long getHashAfter(Move aMove, Player aPlayer) {
+		if (!isOnBoard(aMove)) {
+			return hash;
+		}
+		final int p = index(aMove.x, aMove.y);
+		final int c = aPlayer.ordinal();
+		long ans = hash ^ Zobrist.key(p, c);
+		int capturedFirst = NONE;
+		int capturedSecond = NONE;
+		int capturedThird = NONE;
+		for (int i = p * 4; i < p * 4 + 4; ++i) {
+			final int n = neighbours[i];
+			if (n == NONE) {
+				break;
+			}
+			final int group = head[n];
+			if (colour[n] == 1 - c && isInAtari(group) && group != capturedFirst && group != capturedSecond
+					&& group != capturedThird) {
+				ans ^= groupHash[group];
+				capturedThird = capturedSecond;
+				capturedSecond = capturedFirst;
+				capturedFirst = group;
+			}
+		}
+		return ans;
+	}
+
+	/**
+	 * Adds the codes of all legal moves on the board, not including pass and
+	 * resign, to a list. Does not allocate.
+	 *
+	 * @param aPlayer
+	 *            The player to move.
+	 * @param aMoves
+	 *            The list to add the move codes to.
+	 */
+	public void getLegalMoves(Player aPlayer, MoveList aMoves) {
+		for (int y = 0; y < size; ++y) {
+			for (int x = 0; x < size; ++x) {
+				final int p = index(x, y);
+				if (colour[p] == NONE && isLegal(moveAt(p), aPlayer)) {
+					aMoves.add(p);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return The point that may not be played on the next move because of
+	 *         the ko rule, or <code>null</code> if there is none.
+	 */
+	public Move getKoPoint() {
+		return koPoint == NONE ? null : moveAt(koPoint);
+	}
+
+	/**
+	 * @return The number of moves, including passes, played since the board
+	 *         was created or cleared. Can be used as a snapshot for
+	 *         {@link #rollback(int)}.
+	 */
+	public int getMoveCount() {
+		return moveCount;
+	}
+
+	/**
+	 * @return The size of the board.
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * @param aX
+	 *            The x coordinate.
+	 * @param aY
+	 *            The y coordinate.
+	 * @return The player with a stone on the point or <code>null</code> if it
+	 *         is empty.
+	 */
+	public Player getStone(int aX, int aY) {
+		if (!isOnBoard(aX, aY)) {
+			throw new IllegalArgumentException("Coordinate outside of board: " + aX + ", " + aY + "!");
+		}
+		return toPlayer(colour[index(aX, aY)]);
+	}
+
+	/**
+	 * @param aMove
+	 *            The point to check.
+	 * @return The player with a stone on the point or <code>null</code> if it
+	 *         is empty or not a point on the board.
+	 */
+	public Player getStone(Move aMove) {
+		if (!isOnBoard(aMove)) {
+			return null;
+		}
+		return toPlayer(colour[index(aMove.x, aMove.y)]);
+	}
+
+	/**
+	 * @param aMove
+	 *            A point with a stone on it.
+	 * @return <code>true</code> if the group of the stone has exactly one
+	 *         liberty.
+	 */
+	public boolean isInAtari(Move aMove) {
+		if (null == getStone(aMove)) {
+			return false;
+		}
+		return isInAtari(head[index(aMove.x, aMove.y)]);
+	}
+
+	/**
+	 * Checks if a move is legal without playing it. Occupied points, suicide
+	 * and retaking a ko immediately are illegal, passing is always legal.
+	 * Resigning ends the game rather than being played on the board, so it is
+	 * never legal. Runs in constant time.
+	 *
+	 * @param aMove
+	 *            The move to check.
+	 * @param aPlayer
+	 *            The player making the move.
+	 * @return <code>true</code> if the move is legal.
+	 */
+	public boolean isLegal(Move aMove, Player aPlayer) {
+		if (aMove.x < 0) {
+			return aMove.toCode() == Move.PASS_CODE;
+		}
+		if (!isOnBoard(aMove)) {
+			return false;
+		}
+		final int p = index(aMove.x, aMove.y);
+		if (colour[p] != NONE) {
+			return false;
+		}
+		final int c = aPlayer.ordinal();
+		if (p == koPoint && c == koPlayer) {
+			return false;
+		}
+		for (int i = p * 4; i < p * 4 + 4; ++i) {
+			final int n = neighbours[i];
+			if (n == NONE) {
+				break;
+			}
+			if (colour[n] == NONE) {
+				return true;
+			}
+			final boolean atari = isInAtari(head[n]);
+			if (colour[n] == c ? !atari : atari) {
+				// Connects to a group with liberties to spare or captures.
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param aMove
+	 *            The move to check.
+	 * @return <code>true</code> if the move is a point on this board.
+	 */
+	public boolean isOnBoard(Move aMove) {
+		return isOnBoard(aMove.x, aMove.y);
+	}
+
+	/**
+	 * Plays a move if it is legal, capturing any stones left without
+	 * liberties. {@link Move#RESIGN} is rejected, see
+	 * {@link #isLegal(Move, Player)}.
+	 *
+	 * @param aMove
+	 *            The move to play.
+	 * @param aPlayer
+	 *            The player making the move.
+	 * @return <code>true</code> if the move was legal and has been played,
+	 *         <code>false</code> if it was illegal and the board is
+	 *         unchanged.
+	 */
+	public boolean play(Move aMove, Player aPlayer) {
+		if (!isLegal(aMove, aPlayer)) {
+			return false;
+		}
+		final boolean pass = aMove.x < 0;
+		final int p = pass ? NONE : index(aMove.x, aMove.y);
+		final int c = aPlayer.ordinal();
+		record(p, c);
+		koPoint = NONE;
+		koPlayer = NONE;
+		if (pass) {
+			return true;
+		}
+
+		placeStone(p, c);
+
+		int captured = 0;
+		int capturedPoint = NONE;
+		for (int i = p * 4; i < p * 4 + 4; ++i) {
+			final int n = neighbours[i];
+			if (n == NONE) {
+				break;
+			}
+			if (colour[n] == c) {
+				if (head[n] != head[p]) {
+					merge(head[n], head[p]);
+				}
+			} else if (colour[n] != NONE && libertyCount[head[n]] == 0) {
+				captured += stoneCount[head[n]];
+				capturedPoint = n;
+				removeGroup(head[n]);
+			}
+		}
+		captures[c] += captured;
+
+		if (captured == 1 && stoneCount[head[p]] == 1 && isInAtari(head[p])) {
+			koPoint = capturedPoint;
+			koPlayer = 1 - c;
+		}
+		return true;
+	}
+
+	/**
+	 * Takes back moves with {@link #undo()} until only the given number of
+	 * moves remain.
+	 *
+	 * @param aMoveCount
+	 *            The number of moves to keep, see {@link #getMoveCount()}.
+	 */
+	public void rollback(int aMoveCount) {
+		if (aMoveCount < 0 || aMoveCount > moveCount) {
+			throw new IndexOutOfBoundsException(Integer.toString(aMoveCount));
+		}
+		while (moveCount > aMoveCount) {
+			undo();
+		}
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder((size + 1) * size);
+		for (int y = size - 1; y >= 0; --y) {
+			for (int x = 0; x < size; ++x) {
+				final int c = colour[index(x, y)];
+				sb.append(c == NONE ? '.' : c == Player.BLACK.ordinal() ? 'X' : 'O');
+			}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Takes back the last move, restoring the stones it captured, the capture
+	 * count and the ko. Does not allocate.
+	 *
+	 * @return <code>true</code> if a move was taken back, <code>false</code>
+	 *         if no moves have been played since the board was cleared.
+	 */
+	public boolean undo() {
+		if (moveCount == 0) {
+			return false;
+		}
+		moveCount--;
+		final int base = moveCount * HISTORY_STRIDE;
+		final int move = history[base];
+		final int ko = history[base + 1];
+		final int capturedFrom = history[base + 2];
+		koPoint = ko == NONE ? NONE : ko >> 1;
+		koPlayer = ko == NONE ? NONE : ko & 1;
+		if (move == NONE) {
+			return true;
+		}
+
+		final int p = move >> 1;
+		final int c = move & 1;
+		colour[p] = NONE;
+		bitboards[c][p >>> 6] &= ~(1L << p);
+		hash ^= Zobrist.key(p, c);
+		for (int i = capturedFrom; i < capturedStonesSize; ++i) {
+			final int stone = capturedStones[i];
+			colour[stone] = 1 - c;
+			bitboards[1 - c][stone >>> 6] |= 1L << stone;
+			hash ^= Zobrist.key(stone, 1 - c);
+		}
+		captures[c] -= capturedStonesSize - capturedFrom;
+
+		// Only groups next to the move or the captured stones have changed.
+		// Taking the stone away may split its group so they are rebuilt
+		// rather than patched.
+		nextRebuiltStamp();
+		rebuildNeighbours(p);
+		for (int i = capturedFrom; i < capturedStonesSize; ++i) {
+			rebuildGroup(capturedStones[i]);
+			rebuildNeighbours(capturedStones[i]);
+		}
+		capturedStonesSize = capturedFrom;
+		return true;
+	}
+
+	private void addLiberty(int aGroup, int aPoint) {
+		libertyCount[aGroup]++;
+		libertySum[aGroup] += aPoint;
+		libertySquareSum[aGroup] += (long) aPoint * aPoint;
+	}
+
+	private boolean isInAtari(int aGroup) {
+		final long count = libertyCount[aGroup];
+		return count > 0 && count * libertySquareSum[aGroup] == libertySum[aGroup] * libertySum[aGroup];
+	}
+
+	private boolean isOnBoard(int aX, int aY) {
+		return aX >= 0 && aY >= 0 && aX < size && aY < size;
+	}
+
+	/**
+	 * Merges the smaller group into the larger one.
+	 */
+	private void merge(int aFirst, int aSecond) {
+		int into = aFirst;
+		int from = aSecond;
+		if (stoneCount[into] < stoneCount[from]) {
+			into = aSecond;
+			from = aFirst;
+		}
+		int stone = from;
+		do {
+			head[stone] = into;
+			stone = next[stone];
+		} while (stone != from);
+
+		final int tmp = next[into];
+		next[into] = next[from];
+		next[from] = tmp;
+
+		stoneCount[into] += stoneCount[from];
+		libertyCount[into] += libertyCount[from];
+		libertySum[into] += libertySum[from];
+		libertySquareSum[into] += libertySquareSum[from];
+		groupHash[into] ^= groupHash[from];
+	}
+
+	private Move moveAt(int aPoint) {
+		return Move.fromCode(aPoint);
+	}
+
+	private void nextRebuiltStamp() {
+		rebuiltStamp++;
+		if (rebuiltStamp == 0) {
+			Arrays.fill(rebuilt, 0);
+			rebuiltStamp = 1;
+		}
+	}
+
+	private void placeStone(int aPoint, int aColour) {
+		colour[aPoint] = aColour;
+		bitboards[aColour][aPoint >>> 6] |= 1L << aPoint;
+		head[aPoint] = aPoint;
+		next[aPoint] = aPoint;
+		groupHash[aPoint] = Zobrist.key(aPoint, aColour);
+		hash ^= groupHash[aPoint];
+		stoneCount[aPoint] = 1;
+		libertyCount[aPoint] = 0;
+		libertySum[aPoint] = 0;
+		libertySquareSum[aPoint] = 0;
+		for (int i = aPoint * 4; i < aPoint * 4 + 4; ++i) {
+			final int n = neighbours[i];
+			if (n == NONE) {
+				break;
+			}
+			if (colour[n] == NONE) {
+				addLiberty(aPoint, n);
+			} else {
+				removeLiberty(head[n], aPoint);
+			}
+		}
+	}
+
+	/**
+	 * Recomputes the group containing the stone on a point from scratch with
+	 * a flood fill, unless it has already been rebuilt during this undo.
+	 */
+	private void rebuildGroup(int aStone) {
+		if (rebuilt[aStone] == rebuiltStamp) {
+			return;
+		}
+		final int c = colour[aStone];
+		next[aStone] = aStone;
+		stoneCount[aStone] = 0;
+		libertyCount[aStone] = 0;
+		libertySum[aStone] = 0;
+		libertySquareSum[aStone] = 0;
+		groupHash[aStone] = 0;
+		int top = 0;
+		stack[top++] = aStone;
+		rebuilt[aStone] = rebuiltStamp;
+		while (top > 0) {
+			final int stone = stack[--top];
+			head[stone] = aStone;
+			if (stone != aStone) {
+				next[stone] = next[aStone];
+				next[aStone] = stone;
+			}
+			stoneCount[aStone]++;
+			groupHash[aStone] ^= Zobrist.key(stone, c);
+			for (int i = stone * 4; i < stone * 4 + 4; ++i) {
+				final int n = neighbours[i];
+				if (n == NONE) {
+					break;
+				}
+				if (colour[n] == NONE) {
+					addLiberty(aStone, n);
+				} else if (colour[n] == c && rebuilt[n] != rebuiltStamp) {
+					rebuilt[n] = rebuiltStamp;
+					stack[top++] = n;
+				}
+			}
+		}
+	}
+
+	private void rebuildNeighbours(int aPoint) {
+		for (int i = aPoint * 4; i < aPoint * 4 + 4; ++i) {
+			final int n = neighbours[i];
+			if (n == NONE) {
+				break;
+			}
+			if (colour[n] != NONE) {
+				rebuildGroup(n);
+			}
+		}
+	}
+
+	/**
+	 * Appends a move to the history before it changes the board.
+	 */
+	private void record(int aPoint, int aColour) {
+		if ((moveCount + 1) * HISTORY_STRIDE > history.length) {
+			history = Arrays.copyOf(history, history.length * 2);
+		}
+		final int base = moveCount * HISTORY_STRIDE;
+		history[base] = aPoint == NONE ? NONE : aPoint << 1 | aColour;
+		history[base + 1] = koPoint == NONE ? NONE : koPoint << 1 | koPlayer;
+		history[base + 2] = capturedStonesSize;
+		moveCount++;
+	}
+
+	private void removeGroup(int aGroup) {
+		final long[] bitboard = bitboards[colour[aGroup]];
+		hash ^= groupHash[aGroup];
+		if (capturedStonesSize + stoneCount[aGroup] > capturedStones.length) {
+			capturedStones = Arrays.copyOf(capturedStones,
+					Math.max(capturedStones.length * 2, capturedStonesSize + stoneCount[aGroup]));
+		}
+		int stone = aGroup;
+		do {
+			colour[stone] = NONE;
+			bitboard[stone >>> 6] &= ~(1L << stone);
+			capturedStones[capturedStonesSize++] = stone;
+			stone = next[stone];
+		} while (stone != aGroup);
+
+		// All stones are off the board, give liberties to the neighbours.
+		do {
+			for (int i = stone * 4; i < stone * 4 + 4; ++i) {
+				final int n = neighbours[i];
+				if (n == NONE) {
+					break;
+				}
+				if (colour[n] != NONE) {
+					addLiberty(head[n], stone);
+				}
+			}
+			stone = next[stone];
+		} while (stone != aGroup);
+	}
+
+	private void removeLiberty(int aGroup, int aPoint) {
+		libertyCount[aGroup]--;
+		libertySum[aGroup] -= aPoint;
+		libertySquareSum[aGroup] -= (long) aPoint * aPoint;
+	}
+
+	private Player toPlayer(int aColour) {
+		return aColour == NONE ? null : PLAYERS[aColour];
+	}
+}
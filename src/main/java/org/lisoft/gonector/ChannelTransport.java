@@ -0,0 +1,141 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link Transport} that works directly on bytes read from and written to
+ * NIO channels. GTP is pure ASCII so no charset coding is needed, bytes are
+ * mapped one-to-one to characters. Characters outside of ASCII in responses
+ * are sent as <code>'?'</code>.
+ *
+ * @author Emily Björk
+ */
+class ChannelTransport implements Transport {
+	/**
+	 * Size of the input and output buffers.
+	 */
+	static final int BUFFER_SIZE = 8192;
+
+	private static void assertBlocking(Object aChannel) {
+		if (aChannel instanceof SelectableChannel && !((SelectableChannel) aChannel).isBlocking()) {
+			throw new IllegalArgumentException("Channel must be in blocking mode!");
+		}
+	}
+
+	private final ReadableByteChannel input;
+	private final ByteBuffer inputBuffer;
+	private final WritableByteChannel output;
+	private final ByteBuffer outputBuffer;
+	private boolean skipLineFeed;
+	private final ReentrantLock writeLock = new ReentrantLock();
+
+	/**
+	 * Creates a new {@link ChannelTransport}.
+	 *
+	 * @param aInput
+	 *            The channel to read commands from, must be blocking.
+	 * @param aOutput
+	 *            The channel to write responses to, must be blocking.
+	 */
+	ChannelTransport(ReadableByteChannel aInput, WritableByteChannel aOutput) {
+		assertBlocking(aInput);
+		assertBlocking(aOutput);
+		input = aInput;
+		output = aOutput;
+		inputBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		inputBuffer.flip();
+		outputBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	}
+
+	@Override
+	public boolean readLine(CommandLine aLine) throws IOException {
+		aLine.clear();
+		boolean empty = true;
+		while (true) {
+			if (!inputBuffer.hasRemaining()) {
+				// There is no portable way to tell if a read will block so
+				// always flush when the input buffer runs dry.
+				flush();
+				inputBuffer.clear();
+				final int read = input.read(inputBuffer);
+				inputBuffer.flip();
+				if (read <= 0) {
+					return !empty;
+				}
+			}
+			final char c = (char) (inputBuffer.get() & 0xFF);
+			if (skipLineFeed) {
+				skipLineFeed = false;
+				if (c == '\n') {
+					continue;
+				}
+			}
+			if (c == '\n' || c == '\r') {
+				skipLineFeed = c == '\r';
+				return true;
+			}
+			empty = false;
+			aLine.append(c);
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		writeLock.lock();
+		try {
+			outputBuffer.flip();
+			while (outputBuffer.hasRemaining()) {
+				output.write(outputBuffer);
+			}
+			outputBuffer.clear();
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public Lock getWriteLock() {
+		return writeLock;
+	}
+
+	@Override
+	public void write(char aChar) throws IOException {
+		if (!outputBuffer.hasRemaining()) {
+			flush();
+		}
+		outputBuffer.put(aChar < 0x80 ? (byte) aChar : (byte) '?');
+	}
+
+	@Override
+	public void write(CharSequence aChars) throws IOException {
+		final int length = aChars.length();
+		for (int i = 0; i < length; ++i) {
+			write(aChars.charAt(i));
+		}
+	}
+}
@@ -0,0 +1,123 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+/**
+ * The arguments of a command, with conversions to the types used in the Go
+ * Text Protocol. The arguments are views into the input buffer and are only
+ * valid while the command is running.
+ *
+ * All methods throw {@link SyntaxErrorException} if the argument is missing
+ * or malformed, which the protocol answers with a syntax error.
+ *
+ * @author Emily Björk
+ */
+public interface CommandArguments {
+	/**
+	 * @param aIndex
+	 *            The index of the argument, starting from 0.
+	 * @return The argument as characters.
+	 * @throws SyntaxErrorException
+	 *             If there is no such argument.
+	 */
+	CharSequence get(int aIndex) throws SyntaxErrorException;
+
+	/**
+	 * @param aIndex
+	 *            The index of the argument, starting from 0.
+	 * @return The argument as a double.
+	 * @throws SyntaxErrorException
+	 *             If there is no such argument or it's not a number.
+	 */
+	default double getDouble(int aIndex) throws SyntaxErrorException {
+		final CharSequence argument = get(aIndex);
+		try {
+			return Double.parseDouble(argument.toString());
+		} catch (final NumberFormatException e) {
+			throw new SyntaxErrorException("Not a float: " + argument + "!");
+		}
+	}
+
+	/**
+	 * @param aIndex
+	 *            The index of the argument, starting from 0.
+	 * @return The argument as a float.
+	 * @throws SyntaxErrorException
+	 *             If there is no such argument or it's not a number.
+	 */
+	default float getFloat(int aIndex) throws SyntaxErrorException {
+		return (float) getDouble(aIndex);
+	}
+
+	/**
+	 * @param aIndex
+	 *            The index of the argument, starting from 0.
+	 * @return The argument as an integer.
+	 * @throws SyntaxErrorException
+	 *             If there is no such argument or it's not an integer.
+	 */
+	default int getInt(int aIndex) throws SyntaxErrorException {
+		final CharSequence argument = get(aIndex);
+		try {
+			return Integer.parseInt(argument.toString());
+		} catch (final NumberFormatException e) {
+			throw new SyntaxErrorException("Not an integer: " + argument + "!");
+		}
+	}
+
+	/**
+	 * @param aIndex
+	 *            The index of the argument, starting from 0.
+	 * @return The argument as a vertex, see {@link Move#valueOf(CharSequence)}.
+	 * @throws SyntaxErrorException
+	 *             If there is no such argument or it's not a vertex.
+	 */
+	default Move getMove(int aIndex) throws SyntaxErrorException {
+		return Move.valueOf(get(aIndex));
+	}
+
+	/**
+	 * @param aIndex
+	 *            The index of the argument, starting from 0.
+	 * @return The argument as a colour, see
+	 *         {@link Player#fromString(CharSequence)}.
+	 * @throws SyntaxErrorException
+	 *             If there is no such argument or it's not a colour.
+	 */
+	default Player getPlayer(int aIndex) throws SyntaxErrorException {
+		return Player.fromString(get(aIndex));
+	}
+
+	/**
+	 * @param aIndex
+	 *            The index of the argument, starting from 0.
+	 * @return A copy of the argument.
+	 * @throws SyntaxErrorException
+	 *             If there is no such argument.
+	 */
+	default String getString(int aIndex) throws SyntaxErrorException {
+		return get(aIndex).toString();
+	}
+
+	/**
+	 * @return The number of arguments.
+	 */
+	int size();
+}
@@ -0,0 +1,44 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+/**
+ * Thrown by an extension command, see {@link CommandRegistry.Extension}, to
+ * answer the controller with a failure. The message is sent as the error
+ * message of the response.
+ *
+ * @author Emily Björk
+ */
+public class CommandFailedException extends Exception {
+	/**
+	 * Default generated serial number to keep Eclipse happy.
+	 */
+	private static final long serialVersionUID = -3620427469166420718L;
+
+	/**
+	 * Creates a new command failed exception.
+	 *
+	 * @param aMessage
+	 *            The message to send to the controller.
+	 */
+	public CommandFailedException(String aMessage) {
+		super(aMessage);
+	}
+}
@@ -0,0 +1,282 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.util.Arrays;
+
+import org.apache.logging.log4j.util.StringBuilderFormattable;
+
+/**
+ * A reusable buffer holding one line of GTP input together with a single pass
+ * scanner that splits it into an optional ID, a command name and arguments.
+ *
+ * The scanner accepts exactly the same input as the regular expression
+ * <code>^(\d*)\s*(\S+)\s*([^#]*?)\s*(#.*)?$</code> applied after all control
+ * characters have been removed from the line. The name and arguments are
+ * exposed as {@link CharSequence} views into the internal buffer, they are only
+ * valid until the next call to {@link #clear()}.
+ *
+ * The arguments are also exposed through {@link CommandArguments} to
+ * extension commands.
+ *
+ * The line can be passed directly as a log parameter, log4j will then copy
+ * the characters into its own buffer without creating a string.
+ *
+ * @author Emily Björk
+ */
+final class CommandLine implements CommandArguments, StringBuilderFormattable {
+	/**
+	 * A window into the line buffer.
+	 *
+	 * @author Emily Björk
+	 */
+	private final class View implements CharSequence {
+		int end;
+		int start;
+
+		@Override
+		public char charAt(int aIndex) {
+			if (aIndex < 0 || aIndex >= end - start) {
+				throw new IndexOutOfBoundsException(Integer.toString(aIndex));
+			}
+			return chars[start + aIndex];
+		}
+
+		@Override
+		public int length() {
+			return end - start;
+		}
+
+		@Override
+		public CharSequence subSequence(int aStart, int aEnd) {
+			return toString().subSequence(aStart, aEnd);
+		}
+
+		@Override
+		public String toString() {
+			return new String(chars, start, end - start);
+		}
+	}
+
+	private static final int INITIAL_ARGUMENTS = 4;
+	private static final int INITIAL_CAPACITY = 128;
+
+	private static boolean isControl(char aChar) {
+		return aChar < 0x20 || aChar == 0x7F;
+	}
+
+	private int argc;
+	private View[] args;
+	private char[] chars = new char[INITIAL_CAPACITY];
+	private int id;
+	private int length;
+	private final View name = new View();
+
+	/**
+	 * Creates a new, empty, {@link CommandLine}.
+	 */
+	CommandLine() {
+		args = new View[INITIAL_ARGUMENTS];
+		for (int i = 0; i < args.length; ++i) {
+			args[i] = new View();
+		}
+	}
+
+	/**
+	 * Appends a character to the line. Control characters are discarded as
+	 * mandated by the GTP specification.
+	 *
+	 * @param aChar
+	 *            The character to append.
+	 */
+	void append(char aChar) {
+		if (isControl(aChar)) {
+			return;
+		}
+		if (length == chars.length) {
+			chars = Arrays.copyOf(chars, chars.length * 2);
+		}
+		chars[length++] = aChar;
+	}
+
+	/**
+	 * Resets the line to be empty. Invalidates all views returned from this
+	 * object.
+	 */
+	void clear() {
+		length = 0;
+		argc = 0;
+		id = -1;
+		name.start = name.end = 0;
+	}
+
+	@Override
+	public void formatTo(StringBuilder aBuffer) {
+		aBuffer.append(chars, 0, length);
+	}
+
+	@Override
+	public CharSequence get(int aIndex) throws SyntaxErrorException {
+		if (aIndex < 0 || aIndex >= argc) {
+			throw new SyntaxErrorException("Invalid number of arguments!");
+		}
+		return args[aIndex];
+	}
+
+	/**
+	 * @param aIndex
+	 *            The index of the argument to get.
+	 * @return A view of the argument with the given index.
+	 */
+	CharSequence getArgument(int aIndex) {
+		if (aIndex < 0 || aIndex >= argc) {
+			throw new IndexOutOfBoundsException(Integer.toString(aIndex));
+		}
+		return args[aIndex];
+	}
+
+	/**
+	 * @return The number of arguments on the line.
+	 */
+	int getArgumentCount() {
+		return argc;
+	}
+
+	/**
+	 * @return The ID of the command or a negative number if no ID was given.
+	 */
+	int getId() {
+		return id;
+	}
+
+	/**
+	 * @return A view of the command name.
+	 */
+	CharSequence getName() {
+		return name;
+	}
+
+	/**
+	 * Scans the current contents of the line.
+	 *
+	 * @return <code>true</code> if the line contains a command,
+	 *         <code>false</code> if the line is empty or only whitespace.
+	 * @throws SyntaxErrorException
+	 *             If the ID doesn't fit in an integer.
+	 */
+	boolean parse() throws SyntaxErrorException {
+		argc = 0;
+		id = -1;
+
+		int digits = 0;
+		while (digits < length && isDigit(chars[digits])) {
+			digits++;
+		}
+
+		int pos = skipSpaces(digits);
+		int idEnd = digits;
+		if (pos == length) {
+			if (digits == 0) {
+				return false;
+			}
+			// Only an ID and possibly trailing spaces. The command name must be
+			// at least one character so the last digit is the command name.
+			idEnd = digits - 1;
+			pos = idEnd;
+		}
+		id = parseId(idEnd);
+
+		name.start = pos;
+		while (pos < length && chars[pos] != ' ') {
+			pos++;
+		}
+		name.end = pos;
+
+		pos = skipSpaces(pos);
+		int end = pos;
+		while (end < length && chars[end] != '#') {
+			end++;
+		}
+		while (end > pos && chars[end - 1] == ' ') {
+			end--;
+		}
+
+		while (pos < end) {
+			final View arg = nextArgument();
+			arg.start = pos;
+			while (pos < end && chars[pos] != ' ') {
+				pos++;
+			}
+			arg.end = pos;
+			pos = skipSpaces(pos);
+		}
+		return true;
+	}
+
+	@Override
+	public int size() {
+		return argc;
+	}
+
+	/**
+	 * @return The contents of the line after control characters have been
+	 *         removed.
+	 */
+	@Override
+	public String toString() {
+		return new String(chars, 0, length);
+	}
+
+	private boolean isDigit(char aChar) {
+		return aChar >= '0' && aChar <= '9';
+	}
+
+	private View nextArgument() {
+		if (argc == args.length) {
+			args = Arrays.copyOf(args, args.length * 2);
+			for (int i = argc; i < args.length; ++i) {
+				args[i] = new View();
+			}
+		}
+		return args[argc++];
+	}
+
+	private int parseId(int aEnd) throws SyntaxErrorException {
+		if (aEnd == 0) {
+			return -1;
+		}
+		long value = 0;
+		for (int i = 0; i < aEnd; ++i) {
+			value = value * 10 + (chars[i] - '0');
+			if (value > Integer.MAX_VALUE) {
+				throw new SyntaxErrorException("ID out of range!");
+			}
+		}
+		return (int) value;
+	}
+
+	private int skipSpaces(int aPos) {
+		int pos = aPos;
+		while (pos < length && chars[pos] == ' ') {
+			pos++;
+		}
+		return pos;
+	}
+}
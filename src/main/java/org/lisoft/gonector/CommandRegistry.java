@@ -0,0 +1,333 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * An immutable table of the commands understood by {@link GoTextProtocol}.
+ *
+ * The table is built once and can be shared by any number of protocols, see
+ * {@link GoTextProtocol#setCommandRegistry(CommandRegistry)}. Commands are
+ * found with a perfect hash of the name, so dispatch costs one hash of the
+ * command name and one comparison however many commands there are.
+ *
+ * Engine specific commands are added with {@link #with(String, Extension)},
+ * which returns a new registry:
+ *
+ * <pre>
+ * CommandRegistry commands = CommandRegistry.STANDARD.with("gogui-analyze_commands",
+ * 		(engine, args) -&gt; "dboard/Ownership/ownership");
+ * </pre>
+ *
+ * Extensions are listed by <code>list_commands</code> and known to
+ * <code>known_command</code> like the standard commands.
+ *
+ * @author Emily Björk
+ */
+public final class CommandRegistry {
+	/**
+	 * A command that can be added to a registry.
+	 *
+	 * @author Emily Björk
+	 */
+	@FunctionalInterface
+	public interface Extension {
+		/**
+		 * @param aEngine
+		 *            The engine of the session, cast it to your own engine
+		 *            type to reach its methods.
+		 * @param aArguments
+		 *            The arguments of the command, only valid during the
+		 *            call.
+		 * @return The response to send, may span several lines but must not
+		 *         contain empty lines. <code>null</code> is sent as an empty
+		 *         response.
+		 * @throws SyntaxErrorException
+		 *             If the arguments were malformed, the controller is
+		 *             answered with a syntax error.
+		 * @throws CommandFailedException
+		 *             To answer the controller with a failure.
+		 */
+		String execute(GoEngine aEngine, CommandArguments aArguments)
+				throws SyntaxErrorException, CommandFailedException;
+	}
+
+	/**
+	 * A named command together with the engines it is available for.
+	 */
+	static final class Entry {
+		final Predicate<GoEngine> availability;
+		final Handler handler;
+		final String name;
+
+		/**
+		 * @param aName
+		 *            The name of the command.
+		 * @param aHandler
+		 *            The implementation of the command.
+		 * @param aAvailability
+		 *            Decides if an engine supports the command,
+		 *            <code>null</code> if all engines do.
+		 */
+		Entry(String aName, Handler aHandler, Predicate<GoEngine> aAvailability) {
+			name = aName;
+			handler = aHandler;
+			availability = aAvailability;
+		}
+	}
+
+	/**
+	 * A command with full access to the protocol that runs it.
+	 */
+	@FunctionalInterface
+	interface Handler {
+		/**
+		 * @param aProtocol
+		 *            The protocol running the command.
+		 * @param aId
+		 *            An optional ID as specified in the GTP. Negative if not
+		 *            present.
+		 * @param aArguments
+		 *            The parsed command line, holding all the arguments to
+		 *            the command. Only valid during the call.
+		 * @return <code>true</code> if the client should continue,
+		 *         <code>false</code> if the GTP engine should disconnect.
+		 * @throws SyntaxErrorException
+		 *             Thrown if the input was malformed and no response was
+		 *             sent yet. If the command has already sent a response,
+		 *             then it must not throw this exception.
+		 * @throws Exception
+		 *             A command may throw any exception. Throwing will result
+		 *             in the exception being logged and the Go Text Protocol
+		 *             shutting down.
+		 */
+		boolean process(GoTextProtocol aProtocol, int aId, CommandLine aArguments)
+				throws SyntaxErrorException, Exception;
+	}
+
+	/**
+	 * The commands of the Go Text Protocol version 2 and the extensions
+	 * implemented by this library. Optional commands like
+	 * <code>final_score</code> are only available to engines that support
+	 * them.
+	 */
+	public static final CommandRegistry STANDARD = GoTextProtocol.standardCommands();
+
+	private static final int SEED_ATTEMPTS = 256;
+
+	private static int hash(CharSequence aName, int aSeed) {
+		int h = aSeed;
+		for (int i = 0; i < aName.length(); ++i) {
+			h = (h ^ aName.charAt(i)) * 0x01000193;
+		}
+		return h ^ (h >>> 15);
+	}
+
+	private static boolean isValidName(String aName) {
+		if (aName.isEmpty()) {
+			return false;
+		}
+		for (int i = 0; i < aName.length(); ++i) {
+			final char c = aName.charAt(i);
+			if (c <= ' ' || c == '#' || c >= 0x7F) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private final Entry[] entries;
+	private final int mask;
+	private final List<String> names;
+	private final int seed;
+	private final int[] slots;
+
+	/**
+	 * Builds a perfect hash table over the commands.
+	 *
+	 * @param aEntries
+	 *            The commands, in the order they are listed.
+	 */
+	CommandRegistry(List<Entry> aEntries) {
+		entries = aEntries.toArray(new Entry[aEntries.size()]);
+		final List<String> allNames = new ArrayList<>(entries.length);
+		final Set<String> unique = new HashSet<>();
+		for (final Entry entry : entries) {
+			if (!unique.add(entry.name)) {
+				throw new IllegalArgumentException("Duplicate command: " + entry.name + "!");
+			}
+			allNames.add(entry.name);
+		}
+		names = Collections.unmodifiableList(allNames);
+
+		// Search for a seed that maps every name to its own slot, doubling
+		// the table until one is found. With a load factor of at most one
+		// half this takes a few hundred attempts for typical command sets.
+		int size = Integer.highestOneBit(Math.max(1, entries.length * 2 - 1)) << 1;
+		int found = 0;
+		boolean perfect = false;
+		while (!perfect) {
+			for (int attempt = 0; attempt < SEED_ATTEMPTS && !perfect; ++attempt) {
+				found = 0x811C9DC5 + attempt * 0x9E3779B9;
+				perfect = isPerfect(size - 1, found);
+			}
+			if (!perfect) {
+				size <<= 1;
+			}
+		}
+		mask = size - 1;
+		seed = found;
+		slots = new int[size];
+		Arrays.fill(slots, -1);
+		for (int i = 0; i < entries.length; ++i) {
+			slots[hash(entries[i].name, seed) & mask] = i;
+		}
+	}
+
+	/**
+	 * @param aName
+	 *            The name of a command.
+	 * @return <code>true</code> if the registry has a command with the name.
+	 *         The command may still be unavailable to some engines.
+	 */
+	public boolean contains(CharSequence aName) {
+		return indexOf(aName) >= 0;
+	}
+
+	/**
+	 * @return The names of all commands, in the order they were added.
+	 */
+	public List<String> getNames() {
+		return names;
+	}
+
+	/**
+	 * @return The number of commands in the registry.
+	 */
+	public int size() {
+		return entries.length;
+	}
+
+	/**
+	 * Creates a new registry with an extra command. This registry is not
+	 * changed.
+	 *
+	 * @param aName
+	 *            The name of the command, printable ASCII without spaces or
+	 *            <code>#</code>.
+	 * @param aCommand
+	 *            The implementation of the command. It is shared by all
+	 *            protocols that use the registry and may be called from many
+	 *            threads at once.
+	 * @return A new registry.
+	 * @throws IllegalArgumentException
+	 *             If the name is invalid or the command already exists.
+	 */
+	public CommandRegistry with(String aName, Extension aCommand) {
+		if (!isValidName(aName)) {
+			throw new IllegalArgumentException("Invalid command name: " + aName + "!");
+		}
+		if (contains(aName)) {
+			throw new IllegalArgumentException("Command already registered: " + aName + "!");
+		}
+		final List<Entry> extended = new ArrayList<>(Arrays.asList(entries));
+		extended.add(new Entry(aName, (protocol, id, arguments) -> protocol.execute(id, arguments, aCommand), null));
+		return new CommandRegistry(extended);
+	}
+
+	/**
+	 * Asks an engine which commands it supports. Commands sharing the same
+	 * availability predicate only ask once.
+	 *
+	 * @param aEngine
+	 *            An engine.
+	 * @return For each command index, <code>true</code> if the engine
+	 *         supports the command.
+	 */
+	boolean[] getAvailability(GoEngine aEngine) {
+		final boolean[] available = new boolean[entries.length];
+		final Map<Predicate<GoEngine>, Boolean> answers = new IdentityHashMap<>();
+		for (int i = 0; i < entries.length; ++i) {
+			final Predicate<GoEngine> availability = entries[i].availability;
+			if (null == availability) {
+				available[i] = true;
+				continue;
+			}
+			Boolean answer = answers.get(availability);
+			if (null == answer) {
+				answer = Boolean.valueOf(availability.test(aEngine));
+				answers.put(availability, answer);
+			}
+			available[i] = answer.booleanValue();
+		}
+		return available;
+	}
+
+	/**
+	 * @param aIndex
+	 *            The index of a command.
+	 * @return The implementation of the command.
+	 */
+	Handler getHandler(int aIndex) {
+		return entries[aIndex].handler;
+	}
+
+	/**
+	 * @param aIndex
+	 *            The index of a command.
+	 * @return The name of the command.
+	 */
+	String getName(int aIndex) {
+		return entries[aIndex].name;
+	}
+
+	/**
+	 * Finds a command without allocating.
+	 *
+	 * @param aName
+	 *            The name of a command.
+	 * @return The index of the command, or -1 if there is no such command.
+	 */
+	int indexOf(CharSequence aName) {
+		final int index = slots[hash(aName, seed) & mask];
+		return index >= 0 && entries[index].name.contentEquals(aName) ? index : -1;
+	}
+
+	private boolean isPerfect(int aMask, int aSeed) {
+		final boolean[] used = new boolean[aMask + 1];
+		for (final Entry entry : entries) {
+			final int slot = hash(entry.name, aSeed) & aMask;
+			if (used[slot]) {
+				return false;
+			}
+			used[slot] = true;
+		}
+		return true;
+	}
+}
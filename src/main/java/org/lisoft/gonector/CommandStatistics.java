@@ -0,0 +1,145 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency statistics per GTP command, recorded by {@link GoTextProtocol}.
+ *
+ * For every command two {@link LatencyHistogram}s are kept: the time spent
+ * in the engine, from the command being dispatched until its response is
+ * ready, and the protocol overhead, which is parsing the command and writing
+ * the response. The time spent waiting for the controller to send the next
+ * command is not counted.
+ *
+ * An instance is thread safe and can be shared between many protocol
+ * instances, for example all sessions of a {@link GtpServer}. Histograms are
+ * created the first time a command is recorded, after that recording doesn't
+ * allocate.
+ *
+ * @author Emily Björk
+ */
+public final class CommandStatistics {
+	private static final class Entry {
+		final LatencyHistogram engine = new LatencyHistogram();
+		final LatencyHistogram overhead = new LatencyHistogram();
+	}
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	/**
+	 * @return The names of all commands that have been recorded, in
+	 *         alphabetical order.
+	 */
+	public SortedSet<String> getCommands() {
+		return Collections.unmodifiableSortedSet(new TreeSet<>(entries.keySet()));
+	}
+
+	/**
+	 * @param aCommand
+	 *            The name of the command.
+	 * @return The time spent in the engine for the command, or
+	 *         <code>null</code> if the command has never been recorded.
+	 */
+	public LatencyHistogram getEngineLatency(String aCommand) {
+		final Entry entry = entries.get(aCommand);
+		return entry == null ? null : entry.engine;
+	}
+
+	/**
+	 * @param aCommand
+	 *            The name of the command.
+	 * @return The time spent parsing the command and writing its response, or
+	 *         <code>null</code> if the command has never been recorded.
+	 */
+	public LatencyHistogram getOverheadLatency(String aCommand) {
+		final Entry entry = entries.get(aCommand);
+		return entry == null ? null : entry.overhead;
+	}
+
+	/**
+	 * Records the latency of one command.
+	 *
+	 * @param aCommand
+	 *            The name of the command.
+	 * @param aEngineNanos
+	 *            The time spent in the engine.
+	 * @param aOverheadNanos
+	 *            The time spent in the protocol.
+	 */
+	public void record(String aCommand, long aEngineNanos, long aOverheadNanos) {
+		Entry entry = entries.get(aCommand);
+		if (entry == null) {
+			final Entry created = new Entry();
+			entry = entries.putIfAbsent(aCommand, created);
+			if (entry == null) {
+				entry = created;
+			}
+		}
+		entry.engine.record(aEngineNanos);
+		entry.overhead.record(aOverheadNanos);
+	}
+
+	/**
+	 * Removes all recorded statistics.
+	 */
+	public void reset() {
+		entries.clear();
+	}
+
+	/**
+	 * Formats the statistics with one line per command, in the format used by
+	 * the <code>gonector-stats</code> command:
+	 *
+	 * <pre>
+	 * genmove count=12 engine_p50_us=1503 engine_p99_us=2011 engine_max_us=2032 overhead_p50_us=4 overhead_p99_us=9
+	 * </pre>
+	 *
+	 * @return A string with the statistics, empty if nothing has been
+	 *         recorded.
+	 */
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		for (final String command : getCommands()) {
+			final Entry entry = entries.get(command);
+			if (entry == null) {
+				continue; // Reset concurrently
+			}
+			if (sb.length() > 0) {
+				sb.append('\n');
+			}
+			sb.append(command);
+			sb.append(" count=").append(entry.engine.getCount());
+			sb.append(" engine_p50_us=").append(entry.engine.getValueAtQuantile(0.5, TimeUnit.MICROSECONDS));
+			sb.append(" engine_p99_us=").append(entry.engine.getValueAtQuantile(0.99, TimeUnit.MICROSECONDS));
+			sb.append(" engine_max_us=").append(entry.engine.getMax(TimeUnit.MICROSECONDS));
+			sb.append(" overhead_p50_us=").append(entry.overhead.getValueAtQuantile(0.5, TimeUnit.MICROSECONDS));
+			sb.append(" overhead_p99_us=").append(entry.overhead.getValueAtQuantile(0.99, TimeUnit.MICROSECONDS));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,91 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point in time by which the engine should have answered. Based on
+ * {@link System#nanoTime()}.
+ *
+ * @author Emily Björk
+ */
+public final class Deadline {
+	/**
+	 * A deadline that never expires.
+	 */
+	public static final Deadline NONE = new Deadline(0, false);
+
+	/**
+	 * @param aNanos
+	 *            The time from now until the deadline in nanoseconds.
+	 *            {@link Long#MAX_VALUE} means no deadline.
+	 * @return A new {@link Deadline}.
+	 */
+	public static Deadline after(long aNanos) {
+		if (aNanos == Long.MAX_VALUE) {
+			return NONE;
+		}
+		return new Deadline(System.nanoTime() + Math.max(0, aNanos), true);
+	}
+
+	private final boolean limited;
+	private final long nanoTime;
+
+	private Deadline(long aNanoTime, boolean aLimited) {
+		nanoTime = aNanoTime;
+		limited = aLimited;
+	}
+
+	/**
+	 * @return <code>true</code> if the deadline has passed.
+	 */
+	public boolean isExpired() {
+		return limited && System.nanoTime() - nanoTime >= 0;
+	}
+
+	/**
+	 * @return <code>false</code> if this is {@link #NONE}.
+	 */
+	public boolean isLimited() {
+		return limited;
+	}
+
+	/**
+	 * @param aUnit
+	 *            The unit to return the remaining time in.
+	 * @return The time left until the deadline, zero if it has passed or
+	 *         {@link Long#MAX_VALUE} if there is no deadline.
+	 */
+	public long remaining(TimeUnit aUnit) {
+		if (!limited) {
+			return Long.MAX_VALUE;
+		}
+		return aUnit.convert(Math.max(0, nanoTime - System.nanoTime()), TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public String toString() {
+		if (!limited) {
+			return "Deadline[none]";
+		}
+		return "Deadline[" + remaining(TimeUnit.MILLISECONDS) + " ms]";
+	}
+}
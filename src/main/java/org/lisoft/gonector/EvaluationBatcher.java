@@ -0,0 +1,380 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+
+/**
+ * Collects positions from many search threads and sessions into batches for
+ * a neural network, which evaluates a batch much faster per position than
+ * one position at a time.
+ *
+ * Positions are submitted as a {@link Board} and the player to move, and are
+ * encoded as {@link #PLANES} bitplanes, each in the layout of
+ * {@link Board#getBitboard(Player, long[])}: the stones of the player to move,
+ * the stones of the opponent and the points that are on the board. The
+ * layout has room for the largest board, so without the last plane an
+ * evaluator couldn't tell an empty point from one outside a smaller board.
+ * Positions of different board sizes may be in the same batch. Every
+ * submission returns a future that is completed with the result of the
+ * evaluation.
+ *
+ * A single worker thread takes the queued positions and calls the
+ * {@link Evaluator} with a batch when either it holds the maximum number of
+ * positions, or the oldest position in it has waited for the maximum delay.
+ * Under load batches are full. When lightly loaded no position waits much
+ * longer than the delay.
+ *
+ * The batcher keeps statistics of how full the batches are, how long
+ * positions wait in the queue and how long the evaluations take.
+ *
+ * This class is thread safe.
+ *
+ * @author Emily Björk
+ * @param <R>
+ *            The type of the result of an evaluation.
+ */
+public class EvaluationBatcher<R> implements AutoCloseable {
+	/**
+	 * Evaluates a batch of positions, typically by running a neural network.
+	 *
+	 * @author Emily Björk
+	 * @param <R>
+	 *            The type of the result of an evaluation.
+	 */
+	@FunctionalInterface
+	public interface Evaluator<R> {
+		/**
+		 * @param aPlanes
+		 *            The positions, each is
+		 *            {@link EvaluationBatcher#getPositionLength()} longs and
+		 *            position <code>i</code> starts at index
+		 *            <code>i * getPositionLength()</code>. See
+		 *            {@link EvaluationBatcher} for the order of the planes.
+		 *            The array is reused and only valid during the call.
+		 * @param aCount
+		 *            The number of positions in the batch.
+		 * @param aResults
+		 *            An empty list to add exactly one result per position
+		 *            to, in the order of the positions.
+		 * @throws Exception
+		 *             If the evaluation failed, all futures of the batch are
+		 *             completed with the exception.
+		 */
+		void evaluate(long[] aPlanes, int aCount, List<R> aResults) throws Exception;
+	}
+
+	/**
+	 * A position waiting to be evaluated.
+	 */
+	private final class Request {
+		final long[] planes;
+		final CompletableFuture<R> result = new CompletableFuture<>();
+		final long submitted = System.nanoTime();
+
+		Request(long[] aPlanes) {
+			planes = aPlanes;
+		}
+	}
+
+	/**
+	 * The number of bitplanes per position.
+	 */
+	public static final int PLANES = 3;
+
+	/**
+	 * The on-board plane for each board size, indexed by the size.
+	 */
+	private static final long[][] ON_BOARD = new long[Move.MAX_BOARD_SIZE + 1][];
+
+	static {
+		for (int size = Move.MIN_BOARD_SIZE; size <= Move.MAX_BOARD_SIZE; ++size) {
+			final long[] plane = new long[Board.getBitboardLength()];
+			for (int y = 0; y < size; ++y) {
+				for (int x = 0; x < size; ++x) {
+					final int point = Move.encode(x, y);
+					plane[point / 64] |= 1L << point % 64;
+				}
+			}
+			ON_BOARD[size] = plane;
+		}
+	}
+
+	/**
+	 * @return The number of longs that encode one position.
+	 */
+	public static int getPositionLength() {
+		return PLANES * Board.getBitboardLength();
+	}
+
+	private final AtomicLong batches = new AtomicLong();
+	private volatile boolean closed;
+	private final LatencyHistogram evaluationLatency = new LatencyHistogram();
+	private final Evaluator<R> evaluator;
+	private final Logger logger = LogManager.getLogger(EvaluationBatcher.class);
+	private final int maxBatchSize;
+	private final long maxDelay;
+	private final AtomicLong positions = new AtomicLong();
+	private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+	private final LatencyHistogram queueDelay = new LatencyHistogram();
+	/**
+	 * Queued by {@link #close()} to stop the worker after the positions
+	 * submitted before it.
+	 */
+	private final Request stop = new Request(null);
+	private final Thread worker;
+
+	/**
+	 * Creates a new batcher and starts its worker thread.
+	 *
+	 * @param aEvaluator
+	 *            Evaluates the batches, it is only called from the worker
+	 *            thread.
+	 * @param aMaxBatchSize
+	 *            The largest number of positions in one batch.
+	 * @param aMaxDelay
+	 *            How long the first position of a batch may wait for more
+	 *            positions to arrive.
+	 * @param aUnit
+	 *            The unit of the delay.
+	 */
+	public EvaluationBatcher(Evaluator<R> aEvaluator, int aMaxBatchSize, long aMaxDelay, TimeUnit aUnit) {
+		if (aMaxBatchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be positive: " + aMaxBatchSize + "!");
+		}
+		if (aMaxDelay < 0) {
+			throw new IllegalArgumentException("Negative delay: " + aMaxDelay + "!");
+		}
+		evaluator = aEvaluator;
+		maxBatchSize = aMaxBatchSize;
+		maxDelay = aUnit.toNanos(aMaxDelay);
+		worker = new Thread(this::run, "gonector-batcher");
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/**
+	 * Stops the worker. Positions that were submitted before the call are
+	 * still evaluated, this method waits until they are.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		queue.add(stop);
+		try {
+			worker.join();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		failQueued();
+	}
+
+	/**
+	 * @return The number of batches that have been evaluated.
+	 */
+	public long getBatchCount() {
+		return batches.get();
+	}
+
+	/**
+	 * @return The time spent in the {@link Evaluator} per batch.
+	 */
+	public LatencyHistogram getEvaluationLatency() {
+		return evaluationLatency;
+	}
+
+	/**
+	 * @return The average number of positions per batch as a fraction of the
+	 *         maximum batch size, or 0 if no batch has been evaluated.
+	 */
+	public double getFillRate() {
+		final long count = batches.get();
+		return count == 0 ? 0.0 : (double) positions.get() / (count * maxBatchSize);
+	}
+
+	/**
+	 * @return The number of positions that have been evaluated.
+	 */
+	public long getPositionCount() {
+		return positions.get();
+	}
+
+	/**
+	 * @return The number of positions waiting for a batch.
+	 */
+	public int getQueueLength() {
+		return queue.size();
+	}
+
+	/**
+	 * @return The time from a position being submitted until its batch is
+	 *         passed to the {@link Evaluator}.
+	 */
+	public LatencyHistogram getQueueDelay() {
+		return queueDelay;
+	}
+
+	/**
+	 * Queues a position for evaluation.
+	 *
+	 * @param aBoard
+	 *            The position to evaluate. It is encoded before this method
+	 *            returns, so the board may be changed right away.
+	 * @param aToMove
+	 *            The player to move in the position.
+	 * @return A future that is completed with the result of the evaluation,
+	 *         or exceptionally if the evaluation failed or the batcher was
+	 *         closed before the position was queued.
+	 * @throws IllegalStateException
+	 *             If the batcher has been closed.
+	 */
+	public CompletableFuture<R> submit(Board aBoard, Player aToMove) {
+		if (closed) {
+			throw new IllegalStateException("Batcher closed!");
+		}
+		final long[] planes = new long[getPositionLength()];
+		aBoard.getBitboard(aToMove, planes, 0);
+		aBoard.getBitboard(aToMove.opponent(), planes, Board.getBitboardLength());
+		System.arraycopy(ON_BOARD[aBoard.getSize()], 0, planes, 2 * Board.getBitboardLength(),
+				Board.getBitboardLength());
+		final Request request = new Request(planes);
+		queue.add(request);
+		// If close() raced with this call, the worker may already have
+		// stopped. Take the request back unless it has already been failed.
+		if (closed && queue.remove(request)) {
+			request.result.completeExceptionally(new IllegalStateException("Batcher closed!"));
+		}
+		return request.result;
+	}
+
+	/**
+	 * Takes the next batch from the queue.
+	 *
+	 * @return <code>false</code> if the batcher was stopped, the batch may
+	 *         still hold positions that were queued before the stop.
+	 */
+	private boolean collect(List<Request> aBatch) throws InterruptedException {
+		final Request first = queue.take();
+		if (first == stop) {
+			return false;
+		}
+		aBatch.add(first);
+		final long deadline = first.submitted + maxDelay;
+		while (aBatch.size() < maxBatchSize) {
+			Request next = queue.poll();
+			if (null == next) {
+				final long wait = deadline - System.nanoTime();
+				if (wait <= 0) {
+					break;
+				}
+				next = queue.poll(wait, TimeUnit.NANOSECONDS);
+				if (null == next) {
+					break;
+				}
+			}
+			if (next == stop) {
+				return false;
+			}
+			aBatch.add(next);
+		}
+		return true;
+	}
+
+	private void evaluate(List<Request> aBatch, long[] aPlanes, List<R> aResults) {
+		final int length = getPositionLength();
+		final long start = System.nanoTime();
+		for (int i = 0; i < aBatch.size(); ++i) {
+			final Request request = aBatch.get(i);
+			System.arraycopy(request.planes, 0, aPlanes, i * length, length);
+			queueDelay.record(start - request.submitted);
+		}
+
+		Throwable failure = null;
+		try {
+			evaluator.evaluate(aPlanes, aBatch.size(), aResults);
+			if (aResults.size() != aBatch.size()) {
+				failure = new IllegalStateException(
+						"Expected " + aBatch.size() + " results but got " + aResults.size() + "!");
+			}
+		} catch (final Throwable e) {
+			// Also errors, the worker must survive to complete the futures.
+			failure = e;
+		}
+		// The statistics are updated before any future completes, so that
+		// they include the batch when a waiting thread reads them.
+		evaluationLatency.record(System.nanoTime() - start);
+		batches.incrementAndGet();
+		positions.addAndGet(aBatch.size());
+
+		if (null != failure) {
+			logger.warn("Evaluation of a batch of {} positions failed: {}", Unbox.box(aBatch.size()),
+					failure.toString());
+			for (final Request request : aBatch) {
+				request.result.completeExceptionally(failure);
+			}
+			return;
+		}
+		for (int i = 0; i < aBatch.size(); ++i) {
+			aBatch.get(i).result.complete(aResults.get(i));
+		}
+	}
+
+	/**
+	 * Fails the positions left in the queue once the worker has stopped.
+	 */
+	private void failQueued() {
+		for (Request request = queue.poll(); null != request; request = queue.poll()) {
+			if (request != stop) {
+				request.result.completeExceptionally(new IllegalStateException("Batcher closed!"));
+			}
+		}
+	}
+
+	private void run() {
+		final List<Request> batch = new ArrayList<>(maxBatchSize);
+		final List<R> results = new ArrayList<>(maxBatchSize);
+		final long[] planes = new long[maxBatchSize * getPositionLength()];
+		boolean running = true;
+		while (running) {
+			try {
+				running = collect(batch);
+			} catch (final InterruptedException e) {
+				closed = true;
+				running = false;
+			}
+			if (!batch.isEmpty()) {
+				evaluate(batch, planes, results);
+				batch.clear();
+				results.clear();
+			}
+		}
+		failQueued();
+	}
+}
@@ -0,0 +1,516 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, thread safe cache of position evaluations keyed by a 64 bit
+ * position hash, typically {@link Board#getHash()} or
+ * {@link Zobrist#situational(long, Player)}. One cache can be shared by all
+ * search threads and sessions in a JVM, so that transpositions, repeated
+ * analysis of the same game and common openings are only evaluated once.
+ *
+ * Each evaluation is stored as a compact primitive record: a value, a visit
+ * count and the top moves of the policy with their priors, see
+ * {@link Record}. The size of the cache is given as a memory budget in bytes,
+ * from which the number of entries is derived.
+ *
+ * The entries are split over a number of stripes, each with its own lock,
+ * selected by the hash, so threads rarely contend. Within a stripe, an open
+ * addressing index finds an entry in constant time. When a stripe is full, an
+ * entry is evicted with the CLOCK algorithm using a small reference count
+ * per entry instead of a single bit. Every hit increments the count up to a
+ * limit and the clock hand decrements it, so an entry that is looked up often
+ * survives several sweeps, while entries that are only stored once, for
+ * example from a long search of a position that never recurs, are evicted
+ * first.
+ *
+ * The hit rate is tracked and can be read with {@link #getHitRate()}.
+ *
+ * @author Emily Björk
+ */
+public final class EvaluationCache {
+	/**
+	 * A mutable evaluation, used both to store and to read entries without
+	 * allocating.
+	 *
+	 * This class is not thread safe, use one instance per thread.
+	 *
+	 * @author Emily Björk
+	 */
+	public static final class Record {
+		private final int[] moves;
+		private final float[] priors;
+		private int size;
+		private float value;
+		private int visits;
+
+		/**
+		 * Creates a new, empty, record.
+		 *
+		 * @param aPolicySize
+		 *            The largest number of policy moves the record can hold,
+		 *            normally {@link EvaluationCache#getPolicySize()}.
+		 */
+		public Record(int aPolicySize) {
+			moves = new int[aPolicySize];
+			priors = new float[aPolicySize];
+		}
+
+		/**
+		 * Adds a move to the policy, moves are normally added best first.
+		 *
+		 * @param aMove
+		 *            The move.
+		 * @param aPrior
+		 *            The prior probability of the move.
+		 * @throws IllegalStateException
+		 *             If the policy is full.
+		 */
+		public void addMove(Move aMove, float aPrior) {
+			if (size == moves.length) {
+				throw new IllegalStateException("Policy is full: " + size + " moves!");
+			}
+			moves[size] = aMove.toCode();
+			priors[size] = aPrior;
+			size++;
+		}
+
+		/**
+		 * Resets the record to have no moves, a value of 0 and no visits.
+		 */
+		public void clear() {
+			size = 0;
+			value = 0;
+			visits = 0;
+		}
+
+		/**
+		 * @param aIndex
+		 *            The index of a policy move.
+		 * @return The move.
+		 */
+		public Move getMove(int aIndex) {
+			checkIndex(aIndex);
+			return Move.fromCode(moves[aIndex]);
+		}
+
+		/**
+		 * @return The number of moves in the policy.
+		 */
+		public int getMoveCount() {
+			return size;
+		}
+
+		/**
+		 * @param aIndex
+		 *            The index of a policy move.
+		 * @return The prior probability of the move.
+		 */
+		public float getPrior(int aIndex) {
+			checkIndex(aIndex);
+			return priors[aIndex];
+		}
+
+		/**
+		 * @return The value of the position, typically the win rate of the
+		 *         player to move.
+		 */
+		public float getValue() {
+			return value;
+		}
+
+		/**
+		 * @return The number of visits the evaluation is based on.
+		 */
+		public int getVisits() {
+			return visits;
+		}
+
+		/**
+		 * @param aValue
+		 *            The value of the position, typically the win rate of the
+		 *            player to move.
+		 */
+		public void setValue(float aValue) {
+			value = aValue;
+		}
+
+		/**
+		 * @param aVisits
+		 *            The number of visits the evaluation is based on.
+		 */
+		public void setVisits(int aVisits) {
+			visits = aVisits;
+		}
+
+		private void checkIndex(int aIndex) {
+			if (aIndex < 0 || aIndex >= size) {
+				throw new IndexOutOfBoundsException(Integer.toString(aIndex));
+			}
+		}
+	}
+
+	/**
+	 * The entries that share a lock.
+	 */
+	private static final class Stripe {
+		final int capacity;
+		/**
+		 * For each entry: the value, the visits, the number of moves, the
+		 * priors and then the move codes packed two per int.
+		 */
+		final int[] data;
+		int hand;
+		final int[] index;
+		final long[] keys;
+		final byte[] references;
+		int size;
+
+		Stripe(int aCapacity, int aStride) {
+			capacity = aCapacity;
+			data = new int[aCapacity * aStride];
+			index = new int[indexLength(aCapacity)];
+			keys = new long[aCapacity];
+			references = new byte[aCapacity];
+			Arrays.fill(index, EMPTY);
+		}
+	}
+
+	private static final int EMPTY = -1;
+	private static final int HEADER = 3;
+	private static final int MAX_REFERENCES = 3;
+	/**
+	 * Keeps the index of a stripe within the size of an array.
+	 */
+	private static final int MAX_STRIPE_CAPACITY = 1 << 29;
+	private static final int MAX_STRIPES = 64;
+	/**
+	 * Stripes are not made smaller than this so that the clock has a few
+	 * entries to choose a victim from.
+	 */
+	private static final int MIN_STRIPE_CAPACITY = 16;
+
+	/**
+	 * @param aPolicySize
+	 *            The number of policy moves per entry.
+	 * @return An upper bound of the number of bytes used per entry, the
+	 *         index has at most four slots per entry.
+	 */
+	static int bytesPerEntry(int aPolicySize) {
+		return Long.BYTES + Integer.BYTES * stride(aPolicySize) + 1 + 4 * Integer.BYTES;
+	}
+
+	private static int indexLength(int aCapacity) {
+		return Integer.highestOneBit(aCapacity * 2 - 1) << 1;
+	}
+
+	private static long mix(long aHash) {
+		// The finaliser of MurmurHash3, hashes of related positions may only
+		// differ in a few bits.
+		long h = aHash;
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		return h ^ (h >>> 33);
+	}
+
+	private static int stride(int aPolicySize) {
+		return HEADER + aPolicySize + (aPolicySize + 1) / 2;
+	}
+
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final int policySize;
+	private final int stride;
+	private final int stripeShift;
+	private final Stripe[] stripes;
+
+	/**
+	 * Creates a new, empty, cache.
+	 *
+	 * @param aMaxBytes
+	 *            The memory budget of the entries in bytes.
+	 * @param aPolicySize
+	 *            The largest number of policy moves kept per entry, for
+	 *            example the top 8 moves.
+	 * @throws IllegalArgumentException
+	 *             If the budget doesn't fit a single entry.
+	 */
+	public EvaluationCache(long aMaxBytes, int aPolicySize) {
+		if (aPolicySize < 0) {
+			throw new IllegalArgumentException("Negative policy size: " + aPolicySize + "!");
+		}
+		final long capacity = aMaxBytes / bytesPerEntry(aPolicySize);
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Budget too small for one entry: " + aMaxBytes + " bytes!");
+		}
+		final int stripeCount = (int) Math.max(1,
+				Math.min(MAX_STRIPES, Long.highestOneBit(capacity / MIN_STRIPE_CAPACITY)));
+		final int stripeCapacity = (int) Math.min(capacity / stripeCount,
+				Math.min(MAX_STRIPE_CAPACITY, Integer.MAX_VALUE / stride(aPolicySize)));
+
+		policySize = aPolicySize;
+		stride = stride(aPolicySize);
+		stripeShift = 64 - Integer.numberOfTrailingZeros(stripeCount);
+		stripes = new Stripe[stripeCount];
+		for (int i = 0; i < stripeCount; ++i) {
+			stripes[i] = new Stripe(stripeCapacity, stride);
+		}
+	}
+
+	/**
+	 * Removes all entries, the statistics are kept.
+	 */
+	public void clear() {
+		for (final Stripe stripe : stripes) {
+			synchronized (stripe) {
+				Arrays.fill(stripe.index, EMPTY);
+				stripe.size = 0;
+				stripe.hand = 0;
+			}
+		}
+	}
+
+	/**
+	 * Looks up the evaluation of a position.
+	 *
+	 * @param aHash
+	 *            The hash of the position.
+	 * @param aRecord
+	 *            Where to copy the evaluation to, it must hold at least
+	 *            {@link #getPolicySize()} moves. It is not changed on a miss.
+	 * @return <code>true</code> if the position was found.
+	 */
+	public boolean get(long aHash, Record aRecord) {
+		final long mixed = mix(aHash);
+		final Stripe stripe = stripeOf(mixed);
+		synchronized (stripe) {
+			final int position = find(stripe, aHash, mixed);
+			if (position < 0) {
+				misses.increment();
+				return false;
+			}
+			final int slot = stripe.index[position];
+			if (stripe.references[slot] < MAX_REFERENCES) {
+				stripe.references[slot]++;
+			}
+			read(stripe.data, slot * stride, aRecord);
+		}
+		hits.increment();
+		return true;
+	}
+
+	/**
+	 * @return The largest number of entries the cache can hold.
+	 */
+	public int getCapacity() {
+		return stripes.length * stripes[0].capacity;
+	}
+
+	/**
+	 * @return The number of entries that have been evicted to make room for
+	 *         new ones.
+	 */
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	/**
+	 * @return The number of lookups that found an entry.
+	 */
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return The fraction of lookups that found an entry, or 0 if there have
+	 *         been no lookups.
+	 */
+	public double getHitRate() {
+		final long hitCount = hits.sum();
+		final long lookups = hitCount + misses.sum();
+		return lookups == 0 ? 0.0 : (double) hitCount / lookups;
+	}
+
+	/**
+	 * @return The number of lookups that didn't find an entry.
+	 */
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return The largest number of policy moves kept per entry.
+	 */
+	public int getPolicySize() {
+		return policySize;
+	}
+
+	/**
+	 * Stores the evaluation of a position, replacing any earlier evaluation
+	 * of it. If the cache is full, another entry is evicted.
+	 *
+	 * @param aHash
+	 *            The hash of the position.
+	 * @param aRecord
+	 *            The evaluation. Only the first {@link #getPolicySize()}
+	 *            moves are kept.
+	 */
+	public void put(long aHash, Record aRecord) {
+		final long mixed = mix(aHash);
+		final Stripe stripe = stripeOf(mixed);
+		synchronized (stripe) {
+			final int position = find(stripe, aHash, mixed);
+			final int slot;
+			if (position >= 0) {
+				slot = stripe.index[position];
+			} else {
+				if (stripe.size < stripe.capacity) {
+					slot = stripe.size++;
+				} else {
+					slot = evict(stripe);
+				}
+				stripe.keys[slot] = aHash;
+				stripe.references[slot] = 1;
+				insert(stripe, slot, mixed);
+			}
+			write(aRecord, stripe.data, slot * stride);
+		}
+	}
+
+	/**
+	 * @return The number of entries in the cache.
+	 */
+	public int size() {
+		int size = 0;
+		for (final Stripe stripe : stripes) {
+			synchronized (stripe) {
+				size += stripe.size;
+			}
+		}
+		return size;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d of %d entries, hit rate %.3f (%d hits, %d misses), %d evictions", size(),
+				getCapacity(), getHitRate(), getHitCount(), getMissCount(), getEvictionCount());
+	}
+
+	/**
+	 * Advances the clock hand to an entry that hasn't been used since the
+	 * hand last passed it and removes it from the index.
+	 *
+	 * @return The slot of the evicted entry.
+	 */
+	private int evict(Stripe aStripe) {
+		while (aStripe.references[aStripe.hand] > 0) {
+			aStripe.references[aStripe.hand]--;
+			aStripe.hand = (aStripe.hand + 1) % aStripe.capacity;
+		}
+		final int victim = aStripe.hand;
+		aStripe.hand = (aStripe.hand + 1) % aStripe.capacity;
+		final long key = aStripe.keys[victim];
+		remove(aStripe, find(aStripe, key, mix(key)));
+		evictions.increment();
+		return victim;
+	}
+
+	/**
+	 * @return The position in the index of the entry with the key, or a
+	 *         negative number if there is none.
+	 */
+	private int find(Stripe aStripe, long aKey, long aMixed) {
+		final int[] index = aStripe.index;
+		final int mask = index.length - 1;
+		for (int position = (int) aMixed & mask;; position = (position + 1) & mask) {
+			final int slot = index[position];
+			if (slot == EMPTY) {
+				return EMPTY;
+			}
+			if (aStripe.keys[slot] == aKey) {
+				return position;
+			}
+		}
+	}
+
+	private void insert(Stripe aStripe, int aSlot, long aMixed) {
+		final int[] index = aStripe.index;
+		final int mask = index.length - 1;
+		int position = (int) aMixed & mask;
+		while (index[position] != EMPTY) {
+			position = (position + 1) & mask;
+		}
+		index[position] = aSlot;
+	}
+
+	private void read(int[] aData, int aOffset, Record aRecord) {
+		aRecord.value = Float.intBitsToFloat(aData[aOffset]);
+		aRecord.visits = aData[aOffset + 1];
+		aRecord.size = aData[aOffset + 2];
+		final int priors = aOffset + HEADER;
+		final int codes = priors + policySize;
+		for (int i = 0; i < aRecord.size; ++i) {
+			aRecord.priors[i] = Float.intBitsToFloat(aData[priors + i]);
+			aRecord.moves[i] = (aData[codes + i / 2] >>> (i % 2 * 16)) & 0xFFFF;
+		}
+	}
+
+	/**
+	 * Removes an entry from the index, shifting back the entries after it so
+	 * that linear probing still finds them.
+	 */
+	private void remove(Stripe aStripe, int aPosition) {
+		final int[] index = aStripe.index;
+		final int mask = index.length - 1;
+		int hole = aPosition;
+		for (int position = (hole + 1) & mask; index[position] != EMPTY; position = (position + 1) & mask) {
+			final int home = (int) mix(aStripe.keys[index[position]]) & mask;
+			if (((position - home) & mask) >= ((position - hole) & mask)) {
+				index[hole] = index[position];
+				hole = position;
+			}
+		}
+		index[hole] = EMPTY;
+	}
+
+	private Stripe stripeOf(long aMixed) {
+		return stripes.length == 1 ? stripes[0] : stripes[(int) (aMixed >>> stripeShift)];
+	}
+
+	private void write(Record aRecord, int[] aData, int aOffset) {
+		final int size = Math.min(aRecord.size, policySize);
+		aData[aOffset] = Float.floatToRawIntBits(aRecord.value);
+		aData[aOffset + 1] = aRecord.visits;
+		aData[aOffset + 2] = size;
+		final int priors = aOffset + HEADER;
+		final int codes = priors + policySize;
+		Arrays.fill(aData, codes, codes + (policySize + 1) / 2, 0);
+		for (int i = 0; i < size; ++i) {
+			aData[priors + i] = Float.floatToRawIntBits(aRecord.priors[i]);
+			aData[codes + i / 2] |= aRecord.moves[i] << (i % 2 * 16);
+		}
+	}
+}
@@ -0,0 +1,154 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+/**
+ * Keeps track of the remaining time of both players under the current
+ * {@link TimeSettings}.
+ *
+ * The clock is updated from the <code>time_left</code> command when the
+ * controller sends it, and from the time the engine actually spends on each
+ * <code>genmove</code> so that it stays reasonable if the controller doesn't.
+ *
+ * @author Emily Björk
+ */
+public class GameClock {
+	private TimeSettings settings = TimeSettings.NONE;
+	private final int[] stonesLeft = new int[Player.values().length];
+	private final double[] timeLeft = new double[Player.values().length];
+
+	/**
+	 * Reduces the remaining time of a player after a move.
+	 *
+	 * @param aPlayer
+	 *            The player that made a move.
+	 * @param aSeconds
+	 *            The time spent on the move in seconds.
+	 */
+	public void consume(Player aPlayer, double aSeconds) {
+		final int p = aPlayer.ordinal();
+		if (settings.getType() == TimeSettings.Type.NONE) {
+			return;
+		}
+
+		double spent = aSeconds;
+		if (stonesLeft[p] == 0) {
+			if (spent <= timeLeft[p] || !settings.hasByoYomi()) {
+				timeLeft[p] = Math.max(0, timeLeft[p] - spent);
+				return;
+			}
+			spent -= timeLeft[p];
+			enterByoYomi(p);
+		}
+
+		if (settings.getType() == TimeSettings.Type.CANADIAN) {
+			timeLeft[p] = Math.max(0, timeLeft[p] - spent);
+			if (--stonesLeft[p] == 0) {
+				enterByoYomi(p);
+			}
+		} else {
+			// Japanese byo-yomi, every whole period overrun is lost.
+			while (spent > timeLeft[p] && stonesLeft[p] > 1) {
+				spent -= timeLeft[p];
+				stonesLeft[p]--;
+				timeLeft[p] = settings.getPeriodTime();
+			}
+			timeLeft[p] = settings.getPeriodTime();
+		}
+	}
+
+	/**
+	 * @return The current time settings.
+	 */
+	public TimeSettings getSettings() {
+		return settings;
+	}
+
+	/**
+	 * @param aPlayer
+	 *            The player to get the stones for.
+	 * @return Zero while the player is in main time. In byo-yomi, the stones
+	 *         left to play in the current period for Canadian byo-yomi or the
+	 *         number of periods left for Japanese byo-yomi.
+	 */
+	public int getStonesLeft(Player aPlayer) {
+		return stonesLeft[aPlayer.ordinal()];
+	}
+
+	/**
+	 * @param aPlayer
+	 *            The player to get the time for.
+	 * @return The time left in the main time or the current byo-yomi period
+	 *         in seconds.
+	 */
+	public double getTimeLeft(Player aPlayer) {
+		return timeLeft[aPlayer.ordinal()];
+	}
+
+	/**
+	 * @param aPlayer
+	 *            The player to check.
+	 * @return <code>true</code> if the player has used up the main time and
+	 *         is in byo-yomi.
+	 */
+	public boolean isInByoYomi(Player aPlayer) {
+		return stonesLeft[aPlayer.ordinal()] > 0;
+	}
+
+	/**
+	 * Starts the clocks of both players from new settings.
+	 *
+	 * @param aSettings
+	 *            The new time settings.
+	 */
+	public void reset(TimeSettings aSettings) {
+		settings = aSettings;
+		for (int p = 0; p < timeLeft.length; ++p) {
+			timeLeft[p] = aSettings.getMainTime();
+			stonesLeft[p] = 0;
+			if (timeLeft[p] == 0 && aSettings.hasByoYomi()) {
+				enterByoYomi(p);
+			}
+		}
+	}
+
+	/**
+	 * Sets the remaining time of a player as given by the controller with
+	 * <code>time_left</code>.
+	 *
+	 * @param aPlayer
+	 *            The player to set the time for.
+	 * @param aSeconds
+	 *            The time left in the main time or the current byo-yomi
+	 *            period.
+	 * @param aStones
+	 *            Zero for main time, otherwise see
+	 *            {@link #getStonesLeft(Player)}.
+	 */
+	public void setTimeLeft(Player aPlayer, double aSeconds, int aStones) {
+		timeLeft[aPlayer.ordinal()] = aSeconds;
+		stonesLeft[aPlayer.ordinal()] = aStones;
+	}
+
+	private void enterByoYomi(int aPlayer) {
+		timeLeft[aPlayer] = settings.getPeriodTime();
+		stonesLeft[aPlayer] = Math.max(1, settings.getPeriodCount());
+	}
+}
@@ -0,0 +1,121 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+/**
+ * The state of one game played by a {@link SharedGoEngine}: the board with
+ * its move history and the komi. The protocol of each connection has its own
+ * context, kept up to date by the adapter returned from
+ * {@link SharedGoEngine#newSession()}, so the engine itself only has to hold
+ * the resources shared by all games, such as the weights of a neural network.
+ *
+ * The engine may play moves on the board while searching as long as it takes
+ * them back, for example with {@link Board#rollback(int)}, before it returns.
+ * Anything else the engine wants to keep between moves of a game, such as a
+ * search tree to reuse, can be stored as the attachment, which is cleared
+ * when a new game starts.
+ *
+ * A context is only used by one connection at a time and is not thread safe.
+ *
+ * @author Emily Björk
+ */
+public final class GameContext {
+	private Object attachment;
+	private Board board;
+	private float komi;
+	private volatile boolean stopRequested;
+
+	/**
+	 * Creates a new context with an empty board.
+	 *
+	 * @param aBoardSize
+	 *            The size of the board, between {@link Move#MIN_BOARD_SIZE}
+	 *            and {@link Move#MAX_BOARD_SIZE} inclusive.
+	 */
+	public GameContext(int aBoardSize) {
+		board = new Board(aBoardSize);
+	}
+
+	/**
+	 * @return The object set with {@link #setAttachment(Object)}, or
+	 *         <code>null</code> if none has been set since the game started.
+	 */
+	public Object getAttachment() {
+		return attachment;
+	}
+
+	/**
+	 * @return The board of the game.
+	 */
+	public Board getBoard() {
+		return board;
+	}
+
+	/**
+	 * @return The komi of the game.
+	 */
+	public float getKomi() {
+		return komi;
+	}
+
+	/**
+	 * @return <code>true</code> if the controller has sent a new command and
+	 *         {@link SharedGoEngine#analyze(GameContext, Player, AnalysisSink)}
+	 *         or {@link SharedGoEngine#ponder(GameContext, Player)} must
+	 *         return.
+	 */
+	public boolean isStopRequested() {
+		return stopRequested;
+	}
+
+	/**
+	 * @param aAttachment
+	 *            Per game state of the engine, it is kept until the next game
+	 *            starts.
+	 */
+	public void setAttachment(Object aAttachment) {
+		attachment = aAttachment;
+	}
+
+	/**
+	 * Clears the board and the attachment.
+	 */
+	void newGame() {
+		board.clear();
+		attachment = null;
+	}
+
+	/**
+	 * Replaces the board with an empty board of a new size and clears the
+	 * attachment.
+	 */
+	void resize(int aSize) {
+		board = new Board(aSize);
+		attachment = null;
+	}
+
+	void setKomi(float aKomi) {
+		komi = aKomi;
+	}
+
+	void setStopRequested(boolean aStopRequested) {
+		stopRequested = aStopRequested;
+	}
+}
@@ -20,6 +20,8 @@
 
 package org.lisoft.gonector;
 
+import java.util.List;
+
 /**
  * This interface specifies an API for a Go robot that can be interfaced through
  * GTP.
@@ -49,6 +51,41 @@ public interface GoEngine {
 	 */
 	boolean addMove(Move aMove, Player aPlayer);
 
+	/**
+	 * Analyses the current position until {@link #stopAnalysis()} is called,
+	 * publishing the candidate moves to the sink as the search progresses.
+	 * Called by {@link GoTextProtocol} on a separate thread for the
+	 * <code>lz-analyze</code> and <code>kata-analyze</code> commands, if
+	 * {@link #canAnalyze()} returns <code>true</code>.
+	 *
+	 * The sink never blocks, so the robot may publish as often as it likes,
+	 * the protocol writes the latest candidates to the controller at the
+	 * interval the controller asked for. Like
+	 * {@link #startPondering(Player)}, the method must return promptly once
+	 * {@link #stopAnalysis()} is called, which may happen at any point after
+	 * this method has been entered. The default implementation throws
+	 * {@link UnsupportedOperationException}.
+	 *
+	 * @param aPlayer
+	 *            The player to analyse for.
+	 * @param aSink
+	 *            Where to publish the candidate moves.
+	 */
+	default void analyze(Player aPlayer, AnalysisSink aSink) {
+		throw new UnsupportedOperationException("Engine doesn't support analysis!");
+	}
+
+	/**
+	 * Asks the robot if it supports live analysis, see
+	 * {@link #analyze(Player, AnalysisSink)}. The returned value must be
+	 * constant for the life time of the {@link GoEngine} instance.
+	 *
+	 * @return <code>true</code> if this engine is capable of analysis.
+	 */
+	default boolean canAnalyze() {
+		return false;
+	}
+
 	/**
 	 * Asks the robot if it supports scoring of games. The returned value must
 	 * be constant for the life time of the {@link GoEngine} instance.
@@ -103,6 +140,68 @@ public interface GoEngine {
 	 */
 	Move nextMove(Player aPlayer);
 
+	/**
+	 * Asks the robot for the next move for the given player, to be found
+	 * before the given deadline. The deadline is computed from the time
+	 * control set by the controller using the protocol's
+	 * {@link TimeAllocationPolicy}.
+	 *
+	 * This is the method called by {@link GoTextProtocol}. The default
+	 * implementation ignores the deadline and calls
+	 * {@link #nextMove(Player)}.
+	 *
+	 * @param aPlayer
+	 *            The player that a move should be constructed for.
+	 * @param aDeadline
+	 *            When the robot should have answered by,
+	 *            {@link Deadline#NONE} if there are no time limits.
+	 * @return The move the robot would like to play.
+	 */
+	default Move nextMove(Player aPlayer, Deadline aDeadline) {
+		return nextMove(aPlayer);
+	}
+
+	/**
+	 * Asks the robot to think in the background while the opponent is
+	 * thinking. Called by {@link GoTextProtocol} on a separate thread after
+	 * each <code>genmove</code> response has been sent, but only if a
+	 * pondering executor has been set with
+	 * {@link GoTextProtocol#setPonderingExecutor(java.util.concurrent.ExecutorService)}.
+	 *
+	 * The method may block while pondering but must return promptly once
+	 * {@link #stopPondering()} is called. Note that {@link #stopPondering()}
+	 * may be called at any point after this method has been entered, so any
+	 * stop flag should be reset when this method returns rather than when it
+	 * is entered. The default implementation does nothing.
+	 *
+	 * @param aPlayer
+	 *            The player whose move the robot expects next, i.e. the
+	 *            opponent.
+	 */
+	default void startPondering(Player aPlayer) {
+		// No pondering by default.
+	}
+
+	/**
+	 * Asks the robot to stop analysing. Called on the protocol thread as soon
+	 * as the next command arrives. The protocol waits for
+	 * {@link #analyze(Player, AnalysisSink)} to return before calling any
+	 * other method on the robot. The default implementation does nothing.
+	 */
+	default void stopAnalysis() {
+		// No analysis by default.
+	}
+
+	/**
+	 * Asks the robot to stop pondering. Called on the protocol thread as soon
+	 * as the next command arrives and before it is processed. The protocol
+	 * waits for {@link #startPondering(Player)} to return before calling any
+	 * other method on the robot. The default implementation does nothing.
+	 */
+	default void stopPondering() {
+		// No pondering by default.
+	}
+
 	/**
 	 * This method is called when the board size changes. The robot may return
 	 * false if it doesn't support the given board size.
@@ -116,6 +215,29 @@ public interface GoEngine {
 	 */
 	boolean resizeBoard(int aSize);
 
+	/**
+	 * Places all handicap stones for black in one call, used by the
+	 * <code>fixed_handicap</code>, <code>place_free_handicap</code> and
+	 * <code>set_free_handicap</code> commands. Called on an empty board after
+	 * {@link #newGame()}, white moves next. An engine can use this to tell
+	 * handicap stones apart from moves and to rebuild its state once instead
+	 * of updating it for every stone.
+	 *
+	 * The default implementation returns <code>false</code> and the protocol
+	 * then falls back to calling {@link #addMove(Move, Player)} for each
+	 * stone. If one of them is rejected, the stones already placed are taken
+	 * back with {@link #newGame()}.
+	 *
+	 * @param aStones
+	 *            The points of the handicap stones, all different and on the
+	 *            board.
+	 * @return <code>true</code> if the stones were placed,
+	 *         <code>false</code> if the engine wants them one at a time.
+	 */
+	default boolean setHandicap(List<Move> aStones) {
+		return false;
+	}
+
 	/**
 	 * Inform the robot about the komi value for the game.
 	 *
@@ -123,4 +245,47 @@ public interface GoEngine {
 	 *            The new komi value, any value is allowed.
 	 */
 	void setKomi(float aKomi);
+
+	/**
+	 * Sets up a whole position in one call, used when a game is loaded with
+	 * <code>loadsgf</code>. Called after {@link #resizeBoard(int)},
+	 * {@link #newGame()} and {@link #setKomi(float)}. The stones are in the
+	 * order they were played or placed, an engine can use this to rebuild
+	 * its state once instead of updating it for every move.
+	 *
+	 * The default implementation returns <code>false</code> and the protocol
+	 * then falls back to calling {@link #addMove(Move, Player)} for each
+	 * stone.
+	 *
+	 * @param aMoves
+	 *            The moves and setup stones, in order.
+	 * @param aPlayers
+	 *            The colour of each stone in <code>aMoves</code>.
+	 * @return <code>true</code> if the position was set up,
+	 *         <code>false</code> if the engine wants the stones one at a
+	 *         time.
+	 */
+	default boolean setPosition(List<Move> aMoves, List<Player> aPlayers) {
+		return false;
+	}
+
+	/**
+	 * Takes back the last move added with {@link #addMove(Move, Player)} or
+	 * returned from {@link #nextMove(Player, Deadline)}, restoring any stones
+	 * it captured. Called for the <code>undo</code> command, which controllers
+	 * such as analysis GUIs send often when the user steps back through a
+	 * game. {@link Board#undo()} does this in time proportional to the
+	 * number of stones involved.
+	 *
+	 * The protocol only calls this when at least one move has been added since
+	 * the last {@link #newGame()}. The default implementation returns
+	 * <code>false</code> and the controller is told that the move can't be
+	 * undone, it will then typically start a new game and replay the moves.
+	 *
+	 * @return <code>true</code> if the move was taken back,
+	 *         <code>false</code> otherwise.
+	 */
+	default boolean undo() {
+		return false;
+	}
 }
@@ -22,16 +22,28 @@ package org.lisoft.gonector;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Writer;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
 
 /**
  * This class implements the GTP protocol and links it to a {@link GoEngine}.
@@ -39,43 +51,152 @@ import org.apache.logging.log4j.Logger;
  * The class implements {@link Callable} so that you can submit it to an
  * {@link ExecutorService} to run asynchronously.
  *
+ * All traffic is traced to the logger of this class at debug level. Tracing
+ * costs a level check when disabled, and doesn't allocate when enabled with
+ * log4j's garbage-free asynchronous loggers, see the
+ * <code>log4j2-gonector-trace.xml</code> configuration in the jar.
+ *
  * @author Emily Björk
  */
 public class GoTextProtocol implements Callable<Void> {
 	/**
-	 * This functional interface is used to implement a command in the Go Text
-	 * Protocol.
+	 * Optional engine features that commands depend on.
+	 */
+	private enum Feature implements Predicate<GoEngine> {
+		ANALYZE, SCORE;
+
+		@Override
+		public boolean test(GoEngine aEngine) {
+			return this == ANALYZE ? aEngine.canAnalyze() : aEngine.canScore();
+		}
+	}
+
+	/**
+	 * The commands of {@link CommandRegistry#STANDARD}, in the order they are
+	 * listed.
 	 *
-	 * @author Emily Björk
-	 */
-	@FunctionalInterface
-	private interface Command {
-		/**
-		 * @param aId
-		 *            An optional ID as specified in the GTP. Negative if not
-		 *            present.
-		 * @param aArguments
-		 *            All the arguments to the command.
-		 * @return <code>true</code> if the client should continue,
-		 *         <code>false</code> if the GTP engine should disconnect.
-		 * @throws SyntaxErrorException
-		 *             Thrown if the input was malformed and no response was
-		 *             sent yet. If the command has already sent a response,
-		 *             then it must not throw this exception.
-		 * @throws Exception
-		 *             A command may throw any exception. Throwing will result
-		 *             in the exception being logged and the Go Text Protocol
-		 *             shutting down.
-		 */
-		boolean process(int aId, String[] aArguments) throws SyntaxErrorException, Exception;
-	}
-
-	/**
-	 * A regular expression that is used for matching and splitting commands
-	 * into parts.
-	 */
-	private static final Pattern COMMAND_PATTERN = Pattern.compile("^(\\d*)\\s*(\\S+)\\s*([^#]*?)\\s*(#.*)?$");
-	private static final String[] EMPTY_ARGS = new String[0];
+	 * These are dispatched with a switch rather than with method references
+	 * as bootstrapping a lambda for each command added tens of milliseconds
+	 * to the time until an engine answers its first command.
+	 */
+	private enum StandardCommand implements CommandRegistry.Handler {
+		PROTOCOL_VERSION("protocol_version", null),
+		NAME("name", null),
+		VERSION("version", null),
+		KNOWN_COMMAND("known_command", null),
+		LIST_COMMANDS("list_commands", null),
+		QUIT("quit", null),
+		BOARDSIZE("boardsize", null),
+		CLEAR_BOARD("clear_board", null),
+		KOMI("komi", null),
+		PLAY("play", null),
+		UNDO("undo", null),
+		FIXED_HANDICAP("fixed_handicap", null),
+		PLACE_FREE_HANDICAP("place_free_handicap", null),
+		SET_FREE_HANDICAP("set_free_handicap", null),
+		LOADSGF("loadsgf", null),
+		GENMOVE("genmove", null),
+		TIME_SETTINGS("time_settings", null),
+		KGS_TIME_SETTINGS("kgs-time_settings", null),
+		TIME_LEFT("time_left", null),
+		GONECTOR_STATS("gonector-stats", null),
+		FINAL_SCORE("final_score", Feature.SCORE),
+		LZ_ANALYZE("lz-analyze", Feature.ANALYZE),
+		KATA_ANALYZE("kata-analyze", Feature.ANALYZE);
+
+		final Feature availability;
+		final String command;
+
+		StandardCommand(String aCommand, Feature aAvailability) {
+			command = aCommand;
+			availability = aAvailability;
+		}
+
+		@Override
+		public boolean process(GoTextProtocol aProtocol, int aId, CommandLine aArguments) throws Exception {
+			switch (this) {
+			case PROTOCOL_VERSION:
+				return aProtocol.protocolVersion(aId, aArguments);
+			case NAME:
+				return aProtocol.name(aId, aArguments);
+			case VERSION:
+				return aProtocol.version(aId, aArguments);
+			case KNOWN_COMMAND:
+				return aProtocol.knownCommand(aId, aArguments);
+			case LIST_COMMANDS:
+				return aProtocol.listCommands(aId, aArguments);
+			case QUIT:
+				return aProtocol.quit(aId, aArguments);
+			case BOARDSIZE:
+				return aProtocol.boardsize(aId, aArguments);
+			case CLEAR_BOARD:
+				return aProtocol.clearBoard(aId, aArguments);
+			case KOMI:
+				return aProtocol.komi(aId, aArguments);
+			case PLAY:
+				return aProtocol.play(aId, aArguments);
+			case UNDO:
+				return aProtocol.undo(aId, aArguments);
+			case FIXED_HANDICAP:
+				return aProtocol.fixedHandicap(aId, aArguments);
+			case PLACE_FREE_HANDICAP:
+				return aProtocol.placeFreeHandicap(aId, aArguments);
+			case SET_FREE_HANDICAP:
+				return aProtocol.setFreeHandicap(aId, aArguments);
+			case LOADSGF:
+				return aProtocol.loadsgf(aId, aArguments);
+			case GENMOVE:
+				return aProtocol.genmove(aId, aArguments);
+			case TIME_SETTINGS:
+				return aProtocol.timeSettings(aId, aArguments);
+			case KGS_TIME_SETTINGS:
+				return aProtocol.kgsTimeSettings(aId, aArguments);
+			case TIME_LEFT:
+				return aProtocol.timeLeft(aId, aArguments);
+			case GONECTOR_STATS:
+				return aProtocol.gonectorStats(aId, aArguments);
+			case FINAL_SCORE:
+				return aProtocol.finalScore(aId, aArguments);
+			case LZ_ANALYZE:
+				return aProtocol.startAnalysis(aId, aArguments, false);
+			case KATA_ANALYZE:
+				return aProtocol.startAnalysis(aId, aArguments, true);
+			default:
+				throw new AssertionError(this);
+			}
+		}
+	}
+
+	/**
+	 * Special error message defined in the GTP specification.
+	 */
+	private static final String BAD_VERTEX_LIST = "bad vertex list";
+
+	/**
+	 * Special error message defined in the GTP specification.
+	 */
+	private static final String BOARD_NOT_EMPTY = "board not empty";
+
+	/**
+	 * Special error message defined in the GTP specification.
+	 */
+	private static final String CANNOT_LOAD_FILE = "cannot load file";
+
+	/**
+	 * Special error message defined in the GTP specification.
+	 */
+	private static final String CANNOT_UNDO = "cannot undo";
+
+	/**
+	 * How often analysis is written if the controller doesn't say, in
+	 * centiseconds.
+	 */
+	private static final int DEFAULT_ANALYSIS_INTERVAL = 100;
+
+	/**
+	 * The board size before the controller has sent <code>boardsize</code>.
+	 */
+	private static final int DEFAULT_BOARD_SIZE = 19;
 
 	/**
 	 * The version of the GTP protocol that is implemented.
@@ -87,6 +208,11 @@ public class GoTextProtocol implements Callable<Void> {
 	 */
 	private static final String ILLEGAL_MOVE = "illegal move";
 
+	/**
+	 * Special error message defined in the GTP specification.
+	 */
+	private static final String INVALID_NUMBER_OF_STONES = "invalid number of stones";
+
 	/**
 	 * Special error message defined in the GTP specification.
 	 */
@@ -97,19 +223,105 @@ public class GoTextProtocol implements Callable<Void> {
 	 */
 	private static final String UNKNOWN_COMMAND = "unknown command";
 
-	private static void assertArguments(int aNumArguments, String[] aArguments) throws SyntaxErrorException {
-		if (aArguments.length < aNumArguments) {
+	private static void assertArguments(int aNumArguments, CommandLine aArguments) throws SyntaxErrorException {
+		if (aArguments.getArgumentCount() < aNumArguments) {
 			throw new SyntaxErrorException("Invalid number of arguments!");
 		}
 	}
 
-	private final Map<String, Command> commands;
-	private final GoEngine engine;
-	private final Logger logger = LogManager.getLogger(GoTextProtocol.class);
+	private static void await(Future<?> aTask) throws Exception {
+		try {
+			aTask.get();
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		}
+	}
 
-	private final BufferedReader reader;
+	private static double parseDouble(CharSequence aArgument) throws SyntaxErrorException {
+		try {
+			return Double.parseDouble(aArgument.toString());
+		} catch (final NumberFormatException e) {
+			throw new SyntaxErrorException("Not a float: " + aArgument + "!");
+		}
+	}
 
-	private final Writer writer;
+	private static int parseInt(CharSequence aArgument) throws SyntaxErrorException {
+		try {
+			return Integer.parseInt(aArgument.toString());
+		} catch (final NumberFormatException e) {
+			throw new SyntaxErrorException("Not an integer: " + aArgument + "!");
+		}
+	}
+
+	private static TimeSettings parseKgsTimeSettings(CommandLine aArguments) throws SyntaxErrorException {
+		assertArguments(1, aArguments);
+		final CharSequence system = aArguments.getArgument(0);
+		if (Move.equalsIgnoreCase("none", system)) {
+			return TimeSettings.NONE;
+		} else if (Move.equalsIgnoreCase("absolute", system)) {
+			assertArguments(2, aArguments);
+			return TimeSettings.absolute(parseInt(aArguments.getArgument(1)));
+		} else if (Move.equalsIgnoreCase("byoyomi", system)) {
+			assertArguments(4, aArguments);
+			return TimeSettings.byoYomi(parseInt(aArguments.getArgument(1)), parseInt(aArguments.getArgument(2)),
+					parseInt(aArguments.getArgument(3)));
+		} else if (Move.equalsIgnoreCase("canadian", system)) {
+			assertArguments(4, aArguments);
+			return TimeSettings.canadian(parseInt(aArguments.getArgument(1)), parseInt(aArguments.getArgument(2)),
+					parseInt(aArguments.getArgument(3)));
+		}
+		throw new SyntaxErrorException("Unknown time system: " + system + "!");
+	}
+
+	/**
+	 * @return The commands of the Go Text Protocol version 2 and the
+	 *         extensions implemented by this library, see
+	 *         {@link CommandRegistry#STANDARD}.
+	 */
+	static CommandRegistry standardCommands() {
+		final List<CommandRegistry.Entry> entries = new ArrayList<>();
+		for (final StandardCommand command : StandardCommand.values()) {
+			entries.add(new CommandRegistry.Entry(command.command, command, command.availability));
+		}
+		return new CommandRegistry(entries);
+	}
+
+	private AnalysisStream analysis;
+	private volatile FutureTask<Void> analysisTask;
+	private FutureTask<Void> analysisWriter;
+	private boolean[] available;
+	private int boardSize = DEFAULT_BOARD_SIZE;
+	private final GameClock clock = new GameClock();
+	private boolean coalescedFlushing;
+	private final GoEngine engine;
+	/**
+	 * The colour of each move the engine has been told about, used to know
+	 * who is to move after <code>undo</code>.
+	 */
+	private final Deque<Player> history = new ArrayDeque<>();
+	private boolean handicapPlaced;
+	private final char[] idDigits = new char[10];
+	private final CommandLine line = new CommandLine();
+	private final Logger logger = LogManager.getLogger(GoTextProtocol.class);
+	/**
+	 * Claimed by whoever comes first of the pondering task and
+	 * {@link #stopPondering()}. Every task gets its own, so a task that is
+	 * still queued can't start pondering after a later genmove.
+	 */
+	private AtomicBoolean ponderingClaim;
+	private ExecutorService ponderingExecutor;
+	private volatile Future<?> ponderingTask;
+	private CommandRegistry registry;
+	private long respondEnd;
+	private long respondStart;
+	private Path sgfDirectory;
+	private CommandStatistics statistics = new CommandStatistics();
+	private TimeAllocationPolicy timeAllocationPolicy = TimeAllocationPolicy.DEFAULT;
+	private Player toMove = Player.BLACK;
+	private final Transport transport;
 
 	/**
 	 * Creates a new {@link GoTextProtocol} instance.
@@ -127,93 +339,55 @@ public class GoTextProtocol implements Callable<Void> {
 	 *            the controller.
 	 */
 	public GoTextProtocol(BufferedReader aReader, Writer aWriter, GoEngine aEngine) {
-		reader = aReader;
-		writer = aWriter;
+		this(new ReaderTransport(aReader, aWriter), aEngine);
+	}
+
+	/**
+	 * Creates a new {@link GoTextProtocol} instance that communicates with the
+	 * controller over a bidirectional byte channel, for example a
+	 * {@link java.nio.channels.SocketChannel}.
+	 *
+	 * @param aChannel
+	 *            The channel to read commands from and write responses to. It
+	 *            must be in blocking mode. It is the responsibility of the
+	 *            caller to close this channel when {@link #call()} exits.
+	 * @param aEngine
+	 *            A {@link GoEngine} that is used for serving the requests from
+	 *            the controller.
+	 */
+	public GoTextProtocol(ByteChannel aChannel, GoEngine aEngine) {
+		this(aChannel, aChannel, aEngine);
+	}
+
+	/**
+	 * Creates a new {@link GoTextProtocol} instance that reads and writes
+	 * ASCII bytes directly from and to NIO channels, bypassing charset
+	 * decoding and encoding. This works with sockets, pipes and any other
+	 * channel type.
+	 *
+	 * @param aInput
+	 *            The channel to read input from the controller from. It must
+	 *            be in blocking mode. It is the responsibility of the caller
+	 *            to close this channel when {@link #call()} exits.
+	 * @param aOutput
+	 *            The channel to send output to the controller to. It must be
+	 *            in blocking mode. It is the responsibility of the caller to
+	 *            close this channel when {@link #call()} exits.
+	 * @param aEngine
+	 *            A {@link GoEngine} that is used for serving the requests from
+	 *            the controller.
+	 * @throws IllegalArgumentException
+	 *             If either channel is a non-blocking
+	 *             {@link java.nio.channels.SelectableChannel}.
+	 */
+	public GoTextProtocol(ReadableByteChannel aInput, WritableByteChannel aOutput, GoEngine aEngine) {
+		this(new ChannelTransport(aInput, aOutput), aEngine);
+	}
+
+	private GoTextProtocol(Transport aTransport, GoEngine aEngine) {
+		transport = aTransport;
 		engine = aEngine;
-		commands = new HashMap<>();
-		commands.put("protocol_version", (id, arg) -> {
-			respond(true, id, GTP_VERSION);
-			return true;
-		});
-		commands.put("name", (id, arg) -> {
-			respond(true, id, engine.getName());
-			return true;
-		});
-		commands.put("version", (id, arg) -> {
-			respond(true, id, engine.getVersion());
-			return true;
-		});
-		commands.put("known_command", (id, arg) -> {
-			assertArguments(1, arg);
-			respond(true, id, Boolean.toString(commands.containsKey(arg[0])));
-			return true;
-		});
-		commands.put("list_commands", (id, arg) -> {
-			final String ans = commands.keySet().stream().collect(Collectors.joining("\n"));
-			respond(true, id, ans);
-			return true;
-		});
-		commands.put("quit", (id, arg) -> {
-			respond(true, id, "");
-			return false;
-		});
-		commands.put("boardsize", (id, arg) -> {
-			assertArguments(1, arg);
-			final int size;
-			try {
-				size = Integer.parseInt(arg[0]);
-			} catch (final NumberFormatException e) {
-				throw new SyntaxErrorException("Not an integer: " + arg[0] + "!");
-			}
-			boolean success = false;
-			if (size >= Move.MIN_BOARD_SIZE && size <= Move.MAX_BOARD_SIZE) {
-				success = engine.resizeBoard(size);
-			}
-			respond(success, id, success ? "" : UNACCEPTABLE_SIZE);
-			return true;
-		});
-		commands.put("clear_board", (id, arg) -> {
-			engine.newGame();
-			respond(true, id, "");
-			return true;
-		});
-		commands.put("komi", (id, arg) -> {
-			assertArguments(1, arg);
-			final float komi;
-			try {
-				komi = Float.parseFloat(arg[0]);
-			} catch (final NumberFormatException e) {
-				throw new SyntaxErrorException("Not a float: " + arg[0] + "!");
-			}
-			engine.setKomi(komi);
-			respond(true, id, "");
-			return true;
-		});
-		commands.put("play", (id, arg) -> {
-			assertArguments(2, arg);
-			final Player player = Player.fromString(arg[0]);
-			final boolean success = engine.addMove(Move.valueOf(arg[1]), player);
-			respond(success, id, success ? "" : ILLEGAL_MOVE);
-			return true;
-		});
-		commands.put("genmove", (id, arg) -> {
-			assertArguments(1, arg);
-			final Player player = Player.fromString(arg[0]);
-			final Move move = engine.nextMove(player);
-			respond(true, id, move.toString());
-			return true;
-		});
-		if (engine.canScore()) {
-			commands.put("final_score", (id, arg) -> {
-				final Score score = engine.getScore();
-				if (null != score) {
-					respond(true, id, score.toString());
-					return true;
-				}
-				logger.fatal("getScore() returned null!");
-				return false;
-			});
-		}
+		setCommandRegistry(CommandRegistry.STANDARD);
 	}
 
 	/**
@@ -230,36 +404,39 @@ public class GoTextProtocol implements Callable<Void> {
 	public Void call() throws Exception {
 		try {
 			while (true) {
-				int id = -1;
-				String line = null;
-
-				try {
-					line = reader.readLine();
+				final boolean connected = transport.readLine(line);
+				stopPondering();
+				stopAnalysis(connected);
+				// Waiting for the engine to stop is engine time, not protocol
+				// overhead, so the clock starts after it.
+				final long received = System.nanoTime();
+				if (!connected) {
+					transport.flush();
+					break;// Remote disconnected
+				}
+				if (logger.isDebugEnabled()) {
 					logger.debug("Remote sent: {}", line);
+				}
 
-					if (null == line) {
-						break;// Remote disconnected
-					}
-					// Remove any non newline control characters per protocol
-					// specification. We use regexp that is insensitive to \t
-					// and " " so we don't need to replace \t by " ", the regexp
-					// also takes care of comments so we don't need to do that
-					// either.
-					line = line.replaceAll("[\\p{Cntrl}&&[^\\n]]", "");
-
-					final Matcher m = COMMAND_PATTERN.matcher(line);
-					// The regular expression is designed so that everything
-					// except whitespace only lines match.
-					if (m.matches()) {
-						if (!m.group(1).isEmpty()) {
-							id = Integer.parseInt(m.group(1));
-						}
-						final String cmdName = m.group(2);
-						final String[] args = m.group(3).isEmpty() ? EMPTY_ARGS : m.group(3).split("\\s+");
-						final Command cmd = commands.get(cmdName);
+				int id = -1;
+				try {
+					// Control characters have already been removed by the
+					// command line buffer, the scanner takes care of comments
+					// and blank lines.
+					if (line.parse()) {
+						id = line.getId();
+						final int index = indexOf(line.getName());
 
-						if (null != cmd) {
-							if (!cmd.process(id, args)) {
+						if (index >= 0) {
+							final long dispatched = System.nanoTime();
+							respondStart = 0;
+							final boolean proceed = registry.getHandler(index).process(this, id, line);
+							if (null != statistics && respondStart != 0) {
+								statistics.record(registry.getName(index), respondStart - dispatched,
+										(dispatched - received) + (respondEnd - respondStart));
+							}
+							if (!proceed) {
+								transport.flush();
 								break;
 							}
 						} else {
@@ -271,15 +448,606 @@ public class GoTextProtocol implements Callable<Void> {
 				}
 			}
 		} catch (final IOException e) {
+			stopPondering();
+			stopAnalysis(false);
 			logger.error("An IO error occurred: {}", e.getMessage());
 			logger.error("Closing connection.");
 		} catch (final Exception e) {
 			logger.fatal("Terminating due to unknown exception!", e);
+			stopQuietly(e);
 			throw e;
 		}
 		return null;
 	}
 
+	/**
+	 * @return The clock tracking the time left for both players.
+	 */
+	public GameClock getClock() {
+		return clock;
+	}
+
+	/**
+	 * @return The latency statistics recorded by this protocol, or
+	 *         <code>null</code> if recording has been disabled.
+	 */
+	public CommandStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Tells if the engine is analysing or pondering in the background while
+	 * the protocol waits for the next command. Safe to call from any thread.
+	 *
+	 * @return <code>true</code> if a background task is running.
+	 */
+	boolean isEngineBusy() {
+		final Future<?> pondering = ponderingTask;
+		final Future<?> analysing = analysisTask;
+		return null != pondering && !pondering.isDone() || null != analysing && !analysing.isDone();
+	}
+
+	/**
+	 * Enables or disables coalesced flushing. By default every response is
+	 * flushed to the controller as soon as it has been written.
+	 *
+	 * When coalesced flushing is enabled, responses are buffered for as long
+	 * as more input from the controller is already available, so that a
+	 * controller that pipelines many commands only pays for one flush.
+	 * Buffered responses are always flushed before blocking on a read and
+	 * before running a potentially long command such as
+	 * <code>genmove</code>. Responses are always sent in order and the data
+	 * sent is identical in both modes.
+	 *
+	 * @param aEnabled
+	 *            <code>true</code> to enable coalesced flushing.
+	 */
+	public void setCoalescedFlushing(boolean aEnabled) {
+		coalescedFlushing = aEnabled;
+	}
+
+	/**
+	 * Sets the commands this protocol understands. The default is
+	 * {@link CommandRegistry#STANDARD}. Commands that the engine doesn't
+	 * support, such as <code>final_score</code> if it can't score, are left
+	 * out of <code>list_commands</code> and answered as unknown.
+	 *
+	 * @param aRegistry
+	 *            The commands, may be shared between many protocols.
+	 */
+	public void setCommandRegistry(CommandRegistry aRegistry) {
+		if (aRegistry == registry) {
+			return;
+		}
+		registry = aRegistry;
+		available = aRegistry.getAvailability(engine);
+	}
+
+	/**
+	 * Enables pondering. After every <code>genmove</code> response
+	 * {@link GoEngine#startPondering(Player)} is submitted to the given
+	 * executor, and {@link GoEngine#stopPondering()} is called as soon as the
+	 * next command arrives.
+	 *
+	 * @param aExecutor
+	 *            The executor to ponder on or <code>null</code> to disable
+	 *            pondering, which is the default. The caller owns the executor
+	 *            and is responsible for shutting it down.
+	 */
+	public void setPonderingExecutor(ExecutorService aExecutor) {
+		ponderingExecutor = aExecutor;
+	}
+
+	/**
+	 * Restricts the files that can be loaded with <code>loadsgf</code>. By
+	 * default the controller may load any file the process can read, which is
+	 * rarely what you want when serving engines over a network.
+	 *
+	 * @param aDirectory
+	 *            The directory that files are resolved against and must be
+	 *            inside of, or <code>null</code> to allow any file.
+	 */
+	public void setSgfDirectory(Path aDirectory) {
+		sgfDirectory = null == aDirectory ? null : aDirectory.toAbsolutePath().normalize();
+	}
+
+	/**
+	 * Sets where command latencies are recorded. By default every protocol
+	 * records to its own {@link CommandStatistics}. The statistics can also be
+	 * read by the controller with the <code>gonector-stats</code> command.
+	 *
+	 * @param aStatistics
+	 *            The statistics to record to, may be shared between many
+	 *            protocols. <code>null</code> disables recording.
+	 */
+	public void setStatistics(CommandStatistics aStatistics) {
+		statistics = aStatistics;
+	}
+
+	/**
+	 * Sets the policy that decides how much time the engine may spend on each
+	 * <code>genmove</code>. See {@link GoEngine#nextMove(Player, Deadline)}.
+	 *
+	 * @param aPolicy
+	 *            The new policy, {@link TimeAllocationPolicy#DEFAULT} is used
+	 *            if not set.
+	 */
+	public void setTimeAllocationPolicy(TimeAllocationPolicy aPolicy) {
+		timeAllocationPolicy = aPolicy;
+	}
+
+	private boolean boardsize(int aId, CommandLine aArguments) throws SyntaxErrorException, IOException {
+		assertArguments(1, aArguments);
+		final int size = parseInt(aArguments.getArgument(0));
+		boolean success = false;
+		if (size >= Move.MIN_BOARD_SIZE && size <= Move.MAX_BOARD_SIZE) {
+			success = engine.resizeBoard(size);
+		}
+		if (success) {
+			boardSize = size;
+			history.clear();
+			handicapPlaced = false;
+			toMove = Player.BLACK;
+		}
+		respond(success, aId, success ? "" : UNACCEPTABLE_SIZE);
+		return true;
+	}
+
+	private boolean clearBoard(int aId, CommandLine aArguments) throws IOException {
+		engine.newGame();
+		history.clear();
+		handicapPlaced = false;
+		toMove = Player.BLACK;
+		respond(true, aId, "");
+		return true;
+	}
+
+	/**
+	 * Runs an extension command from the {@link CommandRegistry}.
+	 */
+	boolean execute(int aId, CommandLine aArguments, CommandRegistry.Extension aExtension)
+			throws SyntaxErrorException, IOException {
+		final String result;
+		try {
+			result = aExtension.execute(engine, aArguments);
+		} catch (final CommandFailedException e) {
+			respond(false, aId, e.getMessage());
+			return true;
+		}
+		respond(true, aId, null == result ? "" : result);
+		return true;
+	}
+
+	private boolean finalScore(int aId, CommandLine aArguments) throws IOException {
+		transport.flush();
+		final Score score = engine.getScore();
+		if (null != score) {
+			respond(true, aId, score.toString());
+			return true;
+		}
+		logger.fatal("getScore() returned null!");
+		return false;
+	}
+
+	private boolean fixedHandicap(int aId, CommandLine aArguments) throws SyntaxErrorException, IOException {
+		assertArguments(1, aArguments);
+		final int stones = parseInt(aArguments.getArgument(0));
+		if (!isBoardEmpty()) {
+			respond(false, aId, BOARD_NOT_EMPTY);
+		} else if (stones < 2 || stones > Handicap.getMaxFixedStones(boardSize)) {
+			respond(false, aId, INVALID_NUMBER_OF_STONES);
+		} else {
+			placeHandicap(aId, Handicap.getFixedPlacement(boardSize, stones), true);
+		}
+		return true;
+	}
+
+	private boolean genmove(int aId, CommandLine aArguments) throws SyntaxErrorException, IOException {
+		assertArguments(1, aArguments);
+		final Player player = Player.fromString(aArguments.getArgument(0));
+		final long start = System.nanoTime();
+		final Deadline deadline = Deadline.after(timeAllocationPolicy.allocate(clock, player));
+		// Don't keep the controller waiting for earlier responses while
+		// the engine thinks.
+		transport.flush();
+		final Move move = engine.nextMove(player, deadline);
+		clock.consume(player, (System.nanoTime() - start) / 1E9);
+		if (move.toCode() != Move.RESIGN_CODE) {
+			history.push(player);
+		}
+		toMove = player.opponent();
+		respond(true, aId, move.toString());
+		if (null != ponderingExecutor && move.toCode() != Move.RESIGN_CODE) {
+			transport.flush();
+			final AtomicBoolean claim = new AtomicBoolean();
+			ponderingClaim = claim;
+			ponderingTask = ponderingExecutor.submit(() -> {
+				if (claim.compareAndSet(false, true)) {
+					engine.startPondering(player.opponent());
+				}
+			});
+		}
+		return true;
+	}
+
+	private boolean gonectorStats(int aId, CommandLine aArguments) throws IOException {
+		respond(true, aId, null == statistics ? "" : statistics.toString());
+		return true;
+	}
+
+	private int indexOf(CharSequence aName) {
+		final int index = registry.indexOf(aName);
+		return index >= 0 && available[index] ? index : -1;
+	}
+
+	private boolean kgsTimeSettings(int aId, CommandLine aArguments) throws SyntaxErrorException, IOException {
+		try {
+			clock.reset(parseKgsTimeSettings(aArguments));
+		} catch (final IllegalArgumentException e) {
+			throw new SyntaxErrorException(e.getMessage());
+		}
+		respond(true, aId, "");
+		return true;
+	}
+
+	private boolean knownCommand(int aId, CommandLine aArguments) throws SyntaxErrorException, IOException {
+		assertArguments(1, aArguments);
+		respond(true, aId, Boolean.toString(indexOf(aArguments.getArgument(0)) >= 0));
+		return true;
+	}
+
+	private boolean komi(int aId, CommandLine aArguments) throws SyntaxErrorException, IOException {
+		assertArguments(1, aArguments);
+		final float komi;
+		try {
+			komi = Float.parseFloat(aArguments.getArgument(0).toString());
+		} catch (final NumberFormatException e) {
+			throw new SyntaxErrorException("Not a float: " + aArguments.getArgument(0) + "!");
+		}
+		engine.setKomi(komi);
+		respond(true, aId, "");
+		return true;
+	}
+
+	private boolean listCommands(int aId, CommandLine aArguments) throws IOException {
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < available.length; ++i) {
+			if (available[i]) {
+				if (sb.length() > 0) {
+					sb.append('\n');
+				}
+				sb.append(registry.getName(i));
+			}
+		}
+		respond(true, aId, sb);
+		return true;
+	}
+
+	private boolean loadsgf(int aId, CommandLine aArguments) throws SyntaxErrorException, IOException {
+		assertArguments(1, aArguments);
+		final int moveNumber = aArguments.getArgumentCount() > 1 ? parseInt(aArguments.getArgument(1))
+				: Integer.MAX_VALUE;
+		if (moveNumber < 1) {
+			throw new SyntaxErrorException("Move number must be positive!");
+		}
+		final SgfGame game;
+		try {
+			game = SgfReader.read(resolveSgf(aArguments.getArgument(0).toString()));
+		} catch (final IOException | InvalidPathException | SyntaxErrorException e) {
+			logger.warn("Couldn't load SGF {}: {}", aArguments.getArgument(0), e.getMessage());
+			respond(false, aId, CANNOT_LOAD_FILE);
+			return true;
+		}
+		if (!engine.resizeBoard(game.getBoardSize())) {
+			respond(false, aId, CANNOT_LOAD_FILE);
+			return true;
+		}
+		boardSize = game.getBoardSize();
+		engine.newGame();
+		engine.setKomi(game.getKomi());
+		history.clear();
+		handicapPlaced = false;
+		final int entries = game.getEntriesBefore(moveNumber);
+		if (!game.replay(engine, entries)) {
+			// Leave an empty board rather than half of the game.
+			engine.newGame();
+			toMove = Player.BLACK;
+			respond(false, aId, ILLEGAL_MOVE);
+			return true;
+		}
+		// Setup stones can't be undone, they are the floor of the history
+		// like the handicap stones.
+		for (int i = 0; i < entries; ++i) {
+			if (game.isSetup(i)) {
+				history.clear();
+				handicapPlaced = true;
+			} else {
+				history.push(game.getPlayer(i));
+			}
+		}
+		toMove = game.getPlayerToPlay(entries);
+		respond(true, aId, toMove == Player.BLACK ? "black" : "white");
+		return true;
+	}
+
+	private boolean name(int aId, CommandLine aArguments) throws IOException {
+		respond(true, aId, engine.getName());
+		return true;
+	}
+
+	private boolean isBoardEmpty() {
+		return history.isEmpty() && !handicapPlaced;
+	}
+
+	private boolean placeFreeHandicap(int aId, CommandLine aArguments) throws SyntaxErrorException, IOException {
+		assertArguments(1, aArguments);
+		final int stones = parseInt(aArguments.getArgument(0));
+		if (!isBoardEmpty()) {
+			respond(false, aId, BOARD_NOT_EMPTY);
+		} else if (stones < 2 || stones >= boardSize * boardSize) {
+			respond(false, aId, INVALID_NUMBER_OF_STONES);
+		} else {
+			placeHandicap(aId, Handicap.getFreePlacement(boardSize, stones), true);
+		}
+		return true;
+	}
+
+	private void placeHandicap(int aId, List<Move> aStones, boolean aRespondVertices) throws IOException {
+		boolean success = engine.setHandicap(aStones);
+		if (!success) {
+			success = true;
+			for (final Move stone : aStones) {
+				if (!engine.addMove(stone, Player.BLACK)) {
+					// Take back the stones that were already placed.
+					engine.newGame();
+					success = false;
+					break;
+				}
+			}
+		}
+		if (!success) {
+			respond(false, aId, aRespondVertices ? ILLEGAL_MOVE : BAD_VERTEX_LIST);
+			return;
+		}
+		handicapPlaced = true;
+		toMove = Player.WHITE;
+		if (aRespondVertices) {
+			final StringBuilder sb = new StringBuilder(aStones.size() * 4);
+			for (final Move stone : aStones) {
+				if (sb.length() > 0) {
+					sb.append(' ');
+				}
+				sb.append(stone);
+			}
+			respond(true, aId, sb);
+		} else {
+			respond(true, aId, "");
+		}
+	}
+
+	private boolean play(int aId, CommandLine aArguments) throws SyntaxErrorException, IOException {
+		assertArguments(2, aArguments);
+		final Player player = Player.fromString(aArguments.getArgument(0));
+		final boolean success = engine.addMove(Move.valueOf(aArguments.getArgument(1)), player);
+		if (success) {
+			history.push(player);
+			toMove = player.opponent();
+		}
+		respond(success, aId, success ? "" : ILLEGAL_MOVE);
+		return true;
+	}
+
+	private boolean protocolVersion(int aId, CommandLine aArguments) throws IOException {
+		respond(true, aId, GTP_VERSION);
+		return true;
+	}
+
+	private boolean quit(int aId, CommandLine aArguments) throws IOException {
+		respond(true, aId, "");
+		return false;
+	}
+
+	private Path resolveSgf(String aName) throws IOException {
+		if (null == sgfDirectory) {
+			return Paths.get(aName);
+		}
+		final Path file = sgfDirectory.resolve(aName).normalize();
+		if (!file.startsWith(sgfDirectory)) {
+			throw new IOException("Outside of SGF directory: " + aName);
+		}
+		return file;
+	}
+
+	private boolean setFreeHandicap(int aId, CommandLine aArguments) throws SyntaxErrorException, IOException {
+		assertArguments(1, aArguments);
+		if (!isBoardEmpty()) {
+			respond(false, aId, BOARD_NOT_EMPTY);
+			return true;
+		}
+		final int count = aArguments.getArgumentCount();
+		final List<Move> stones = new ArrayList<>(count);
+		for (int i = 0; i < count; ++i) {
+			final Move stone = Move.valueOf(aArguments.getArgument(i));
+			if (stone.x < 0 || stone.y < 0 || stone.x >= boardSize || stone.y >= boardSize
+					|| stones.contains(stone)) {
+				respond(false, aId, BAD_VERTEX_LIST);
+				return true;
+			}
+			stones.add(stone);
+		}
+		if (count < 2 || count >= boardSize * boardSize) {
+			respond(false, aId, BAD_VERTEX_LIST);
+			return true;
+		}
+		placeHandicap(aId, stones, false);
+		return true;
+	}
+
+	private boolean startAnalysis(int aId, CommandLine aArguments, boolean aKata)
+			throws IOException, SyntaxErrorException {
+		// Arguments as in Leela Zero: an optional colour and an optional
+		// interval, with or without the "interval" keyword.
+		Player player = toMove;
+		int interval = DEFAULT_ANALYSIS_INTERVAL;
+		for (int i = 0; i < aArguments.getArgumentCount(); ++i) {
+			final CharSequence argument = aArguments.getArgument(i);
+			if (Move.equalsIgnoreCase("interval", argument)) {
+				assertArguments(i + 2, aArguments);
+				interval = parseInt(aArguments.getArgument(++i));
+			} else if (Character.isDigit(argument.charAt(0))) {
+				interval = parseInt(argument);
+			} else {
+				player = Player.fromString(argument);
+			}
+		}
+		if (interval < 1) {
+			throw new SyntaxErrorException("Interval must be positive!");
+		}
+
+		// The response stays open with one line per interval until the next
+		// command arrives.
+		if (logger.isDebugEnabled()) {
+			logger.debug("Local streaming analysis: [={}]", aId >= 0 ? Unbox.box(aId) : "");
+		}
+		transport.write('=');
+		if (aId >= 0) {
+			writeId(aId);
+		}
+		transport.write('\n');
+		transport.flush();
+
+		final Player analysed = player;
+		final AnalysisStream stream = new AnalysisStream(transport, aKata,
+				TimeUnit.MILLISECONDS.toNanos(10L * interval));
+		analysis = stream;
+		analysisTask = new FutureTask<>(() -> {
+			engine.analyze(analysed, stream);
+			return null;
+		});
+		analysisWriter = new FutureTask<>(() -> {
+			stream.run();
+			return null;
+		});
+		startThread(analysisTask, "gonector-analysis");
+		startThread(analysisWriter, "gonector-analysis-writer");
+		return true;
+	}
+
+	private void startThread(Runnable aTask, String aName) {
+		final Thread thread = new Thread(aTask, aName);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops any analysis in progress and waits for the engine and the writer
+	 * to finish.
+	 *
+	 * @param aEndResponse
+	 *            <code>true</code> to write the last candidates and end the
+	 *            response, <code>false</code> if the controller has gone.
+	 * @throws Exception
+	 *             Whatever the engine threw while analysing, or the writer
+	 *             threw while writing.
+	 */
+	private void stopAnalysis(boolean aEndResponse) throws Exception {
+		final AnalysisStream stream = analysis;
+		if (null == stream) {
+			return;
+		}
+		analysis = null;
+		engine.stopAnalysis();
+		try {
+			await(analysisTask);
+		} finally {
+			stream.stop();
+			await(analysisWriter);
+		}
+		if (aEndResponse) {
+			stream.flush();
+			transport.write('\n');
+			if (!coalescedFlushing) {
+				transport.flush();
+			}
+		}
+	}
+
+	/**
+	 * Stops any pondering in progress and waits for it to finish so that the
+	 * engine is never used from two threads at once.
+	 *
+	 * @throws Exception
+	 *             Whatever the engine threw while pondering.
+	 */
+	private void stopPondering() throws Exception {
+		if (null == ponderingTask) {
+			return;
+		}
+		final Future<?> task = ponderingTask;
+		ponderingTask = null;
+		// If the task hasn't started yet, claiming it prevents it from ever
+		// starting.
+		if (!ponderingClaim.compareAndSet(false, true)) {
+			engine.stopPondering();
+			await(task);
+		}
+	}
+
+	/**
+	 * Stops pondering and analysis when terminating due to an exception.
+	 * Failures while stopping are added to the exception as suppressed.
+	 *
+	 * @param aFailure
+	 *            The exception that terminates the protocol.
+	 */
+	private void stopQuietly(Exception aFailure) {
+		try {
+			stopPondering();
+		} catch (final Exception e) {
+			aFailure.addSuppressed(e);
+		}
+		try {
+			stopAnalysis(false);
+		} catch (final Exception e) {
+			aFailure.addSuppressed(e);
+		}
+	}
+
+	private boolean timeLeft(int aId, CommandLine aArguments) throws SyntaxErrorException, IOException {
+		assertArguments(3, aArguments);
+		final Player player = Player.fromString(aArguments.getArgument(0));
+		clock.setTimeLeft(player, parseDouble(aArguments.getArgument(1)), parseInt(aArguments.getArgument(2)));
+		respond(true, aId, "");
+		return true;
+	}
+
+	private boolean timeSettings(int aId, CommandLine aArguments) throws SyntaxErrorException, IOException {
+		assertArguments(3, aArguments);
+		final int mainTime = parseInt(aArguments.getArgument(0));
+		final int byoYomiTime = parseInt(aArguments.getArgument(1));
+		final int byoYomiStones = parseInt(aArguments.getArgument(2));
+		if (mainTime < 0 || byoYomiTime < 0 || byoYomiStones < 0) {
+			throw new SyntaxErrorException("Time settings must not be negative!");
+		}
+		clock.reset(TimeSettings.fromGtp(mainTime, byoYomiTime, byoYomiStones));
+		respond(true, aId, "");
+		return true;
+	}
+
+	private boolean undo(int aId, CommandLine aArguments) throws IOException {
+		final boolean success = !history.isEmpty() && engine.undo();
+		if (success) {
+			toMove = history.pop();
+		}
+		respond(success, aId, success ? "" : CANNOT_UNDO);
+		return true;
+	}
+
+	private boolean version(int aId, CommandLine aArguments) throws IOException {
+		respond(true, aId, engine.getVersion());
+		return true;
+	}
+
 	/**
 	 * Writes a response to the controller.
 	 *
@@ -287,25 +1055,47 @@ public class GoTextProtocol implements Callable<Void> {
 	 *            Whether or not the command being responded to was successful.
 	 * @param aId
 	 *            The optional ID of the command being responded to, negative if
-	 *            not present. Note, simply pass through the ID from
-	 *            {@link Command#process(int, String[])}.
+	 *            not present. Note, simply pass through the ID given to the
+	 *            command.
 	 * @param aMessage
 	 *            The message to send, must not be null.
 	 * @throws IOException
 	 */
-	private void respond(boolean aSuccess, int aId, String aMessage) throws IOException {
-		final StringBuilder sb = new StringBuilder();
-
-		sb.append(aSuccess ? '=' : '?');
+	private void respond(boolean aSuccess, int aId, CharSequence aMessage) throws IOException {
+		if (null != statistics) {
+			respondStart = System.nanoTime();
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Local sending...: [{}{}{}{}]", aSuccess ? "=" : "?", aId >= 0 ? Unbox.box(aId) : "",
+					aMessage.length() > 0 ? " " : "", aMessage);
+		}
+		transport.write(aSuccess ? '=' : '?');
 		if (aId >= 0) {
-			sb.append(Integer.toString(aId));
+			writeId(aId);
 		}
-		if (!aMessage.isEmpty()) {
-			sb.append(' ').append(aMessage);
+		if (aMessage.length() > 0) {
+			transport.write(' ');
+			transport.write(aMessage);
+		}
+		transport.write('\n');
+		transport.write('\n');
+		if (!coalescedFlushing) {
+			transport.flush();
+		}
+		if (null != statistics) {
+			respondEnd = System.nanoTime();
+		}
+	}
+
+	private void writeId(int aId) throws IOException {
+		int value = aId;
+		int start = idDigits.length;
+		do {
+			idDigits[--start] = (char) ('0' + value % 10);
+			value /= 10;
+		} while (value > 0);
+		for (int i = start; i < idDigits.length; ++i) {
+			transport.write(idDigits[i]);
 		}
-		logger.debug("Local sending...: [{}]", sb.toString());
-		writer.append(sb.toString()).append("\n\n");
-		writer.flush();
-		logger.debug("Local sent OK");
 	}
 }
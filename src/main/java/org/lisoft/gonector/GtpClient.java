@@ -0,0 +1,466 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The controller side of the Go Text Protocol, used to drive external GTP
+ * engines such as GnuGo, KataGo or another bot built on
+ * {@link GoTextProtocol}.
+ *
+ * Commands are pipelined: {@link #send(String)} writes the command with a
+ * unique ID and returns immediately, many commands may be in flight at the
+ * same time. A reader thread matches the responses to the commands and checks
+ * that the IDs the engine echoes back agree. Failure responses complete the
+ * future with a {@link CommandFailedException}, a broken connection with an
+ * {@link IOException}.
+ *
+ * The typed methods such as {@link #genmove(Player)} block until the response
+ * arrives and parse it with {@link Move}, {@link Player} and {@link Score}.
+ *
+ * This class is thread safe.
+ *
+ * @author Emily Björk
+ */
+public class GtpClient implements AutoCloseable {
+	/**
+	 * A command waiting for its response.
+	 */
+	private static final class Pending {
+		final int id;
+		final CompletableFuture<String> result = new CompletableFuture<>();
+
+		Pending(int aId) {
+			id = aId;
+		}
+	}
+
+	/**
+	 * How long {@link #close()} waits for the engine to exit, in
+	 * milliseconds.
+	 */
+	private static final long CLOSE_TIMEOUT = 1000;
+
+	/**
+	 * Starts an engine in a new process and connects to its standard input and
+	 * output. The standard error of the engine is inherited from this
+	 * process.
+	 *
+	 * @param aCommand
+	 *            The program to run followed by its arguments.
+	 * @return A client connected to the engine.
+	 * @throws IOException
+	 *             If the process couldn't be started.
+	 */
+	public static GtpClient start(List<String> aCommand) throws IOException {
+		final Process process = new ProcessBuilder(aCommand).redirectError(Redirect.INHERIT).start();
+		return new GtpClient(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8),
+				new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8), process,
+				String.join(" ", aCommand));
+	}
+
+	/**
+	 * Starts an engine in a new process, see {@link #start(List)}.
+	 *
+	 * @param aCommand
+	 *            The program to run followed by its arguments.
+	 * @return A client connected to the engine.
+	 * @throws IOException
+	 *             If the process couldn't be started.
+	 */
+	public static GtpClient start(String... aCommand) throws IOException {
+		return start(Arrays.asList(aCommand));
+	}
+
+	private static String firstWord(String aResponse) {
+		final int space = aResponse.indexOf(' ');
+		return space < 0 ? aResponse : aResponse.substring(0, space);
+	}
+
+	private static void validate(String aCommand) {
+		for (int i = 0; i < aCommand.length(); ++i) {
+			final char c = aCommand.charAt(i);
+			if (c == '\n' || c == '\r' || c == '#') {
+				throw new IllegalArgumentException("Not a single command: " + aCommand);
+			}
+		}
+		if (aCommand.trim().isEmpty()) {
+			throw new IllegalArgumentException("Empty command!");
+		}
+	}
+
+	private IOException failure;
+	private final Logger logger = LogManager.getLogger(GtpClient.class);
+	private final String name;
+	private int nextId = 1;
+	private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+	private final Process process;
+	private final BufferedReader reader;
+	private final Thread readerThread;
+	private final Writer writer;
+
+	/**
+	 * Creates a new client talking to an engine over the given streams and
+	 * starts the reader thread.
+	 *
+	 * @param aInput
+	 *            Where the responses of the engine are read from.
+	 * @param aOutput
+	 *            Where the commands are written to.
+	 */
+	public GtpClient(Reader aInput, Writer aOutput) {
+		this(aInput, aOutput, null, "gtp");
+	}
+
+	private GtpClient(Reader aInput, Writer aOutput, Process aProcess, String aName) {
+		reader = aInput instanceof BufferedReader ? (BufferedReader) aInput : new BufferedReader(aInput);
+		writer = aOutput;
+		process = aProcess;
+		name = aName;
+		readerThread = new Thread(this::readResponses, "gonector-client");
+		readerThread.setDaemon(true);
+		readerThread.start();
+	}
+
+	/**
+	 * Asks the engine to quit and releases the connection. Commands still in
+	 * flight fail with an {@link IOException}. If the engine runs in a process
+	 * started with {@link #start(List)} that doesn't exit within a second, it
+	 * is killed. The engine's output is closed once the reader thread ends;
+	 * a thread still blocked after a second is interrupted.
+	 */
+	@Override
+	public void close() {
+		final CompletableFuture<String> quit = isAlive() ? send("quit") : null;
+		try {
+			if (null != quit) {
+				quit.get(CLOSE_TIMEOUT, TimeUnit.MILLISECONDS);
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (final ExecutionException | TimeoutException e) {
+			logger.debug("{} didn't quit cleanly: {}", name, e.toString());
+		}
+		synchronized (writer) {
+			synchronized (pending) {
+				if (null == failure) {
+					failure = new IOException("Connection closed!");
+				}
+			}
+			try {
+				writer.close();
+			} catch (final IOException e) {
+				logger.debug("Couldn't close connection to {}: {}", name, e.toString());
+			}
+		}
+		if (null != process) {
+			try {
+				if (!process.waitFor(CLOSE_TIMEOUT, TimeUnit.MILLISECONDS)) {
+					process.destroyForcibly().waitFor(CLOSE_TIMEOUT, TimeUnit.MILLISECONDS);
+				}
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		try {
+			readerThread.join(CLOSE_TIMEOUT);
+			if (readerThread.isAlive()) {
+				// Unblocks readers on interruptible channels such as pipes and sockets.
+				readerThread.interrupt();
+				readerThread.join(CLOSE_TIMEOUT);
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		failAll(failure);
+	}
+
+	/**
+	 * Sends a command and waits for the response.
+	 *
+	 * @param aCommand
+	 *            The command and its arguments, without ID.
+	 * @return The response without the leading "=" and ID. Multi line
+	 *         responses are separated by '\n'.
+	 * @throws IOException
+	 *             If the connection to the engine is broken.
+	 * @throws CommandFailedException
+	 *             If the engine responded with a failure, the message is the
+	 *             error message of the engine.
+	 */
+	public String execute(String aCommand) throws IOException, CommandFailedException {
+		return await(send(aCommand));
+	}
+
+	/**
+	 * Sends <code>final_score</code>.
+	 *
+	 * @return The score as computed by the engine.
+	 * @throws IOException
+	 *             If the connection is broken or the response isn't a score.
+	 * @throws CommandFailedException
+	 *             If the engine can't score the game.
+	 */
+	public Score finalScore() throws IOException, CommandFailedException {
+		final String response = execute("final_score");
+		try {
+			return Score.valueOf(firstWord(response));
+		} catch (final SyntaxErrorException e) {
+			throw new IOException("Invalid response from " + name + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Sends <code>genmove</code>.
+	 *
+	 * @param aPlayer
+	 *            The player to generate a move for.
+	 * @return The move the engine played, possibly {@link Move#PASS} or
+	 *         {@link Move#RESIGN}.
+	 * @throws IOException
+	 *             If the connection is broken or the response isn't a move.
+	 * @throws CommandFailedException
+	 *             If the engine failed to generate a move.
+	 */
+	public Move genmove(Player aPlayer) throws IOException, CommandFailedException {
+		final String response = execute("genmove " + aPlayer.toShortString());
+		try {
+			return Move.valueOf(firstWord(response));
+		} catch (final SyntaxErrorException e) {
+			throw new IOException("Invalid response from " + name + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the connection is open and, if the engine
+	 *         runs in a process, the process is running.
+	 */
+	public boolean isAlive() {
+		synchronized (pending) {
+			if (null != failure) {
+				return false;
+			}
+		}
+		return null == process || process.isAlive();
+	}
+
+	/**
+	 * Sends <code>known_command</code>.
+	 *
+	 * @param aCommand
+	 *            The name of the command.
+	 * @return <code>true</code> if the engine knows the command.
+	 * @throws IOException
+	 *             If the connection is broken.
+	 * @throws CommandFailedException
+	 *             If the engine failed.
+	 */
+	public boolean knownCommand(String aCommand) throws IOException, CommandFailedException {
+		return "true".equals(execute("known_command " + aCommand).trim());
+	}
+
+	/**
+	 * Sends <code>list_commands</code>.
+	 *
+	 * @return The commands the engine knows, in the order it listed them.
+	 * @throws IOException
+	 *             If the connection is broken.
+	 * @throws CommandFailedException
+	 *             If the engine failed.
+	 */
+	public List<String> listCommands() throws IOException, CommandFailedException {
+		final List<String> ans = new ArrayList<>();
+		for (final String command : execute("list_commands").split("\n")) {
+			if (!command.trim().isEmpty()) {
+				ans.add(command.trim());
+			}
+		}
+		return Collections.unmodifiableList(ans);
+	}
+
+	/**
+	 * Sends <code>play</code>.
+	 *
+	 * @param aPlayer
+	 *            The player making the move.
+	 * @param aMove
+	 *            The move.
+	 * @throws IOException
+	 *             If the connection is broken.
+	 * @throws CommandFailedException
+	 *             If the engine rejected the move.
+	 */
+	public void play(Player aPlayer, Move aMove) throws IOException, CommandFailedException {
+		execute("play " + aPlayer.toShortString() + " " + aMove);
+	}
+
+	/**
+	 * Sends a command without waiting for the response. Commands are written
+	 * in the order this method is called and the engine responds in the same
+	 * order.
+	 *
+	 * @param aCommand
+	 *            The command and its arguments, without ID.
+	 * @return A future that completes with the response, see
+	 *         {@link #execute(String)}.
+	 */
+	public CompletableFuture<String> send(String aCommand) {
+		validate(aCommand);
+		// The reader thread only takes the lock on the queue, so it keeps
+		// draining responses while a write blocks on a full pipe.
+		synchronized (writer) {
+			final Pending command;
+			synchronized (pending) {
+				command = new Pending(nextId++);
+				if (null != failure) {
+					command.result.completeExceptionally(failure);
+					return command.result;
+				}
+				pending.addLast(command);
+			}
+			try {
+				writer.write(Integer.toString(command.id));
+				writer.write(' ');
+				writer.write(aCommand);
+				writer.write('\n');
+				writer.flush();
+			} catch (final IOException e) {
+				synchronized (pending) {
+					pending.remove(command);
+				}
+				failAll(e);
+				command.result.completeExceptionally(e);
+			}
+			return command.result;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	private String await(CompletableFuture<String> aResult) throws IOException, CommandFailedException {
+		try {
+			return aResult.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for " + name + "!");
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof CommandFailedException) {
+				throw new CommandFailedException(cause.getMessage());
+			}
+			if (cause instanceof IOException) {
+				throw new IOException(cause.getMessage(), cause);
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	private void failAll(IOException aFailure) {
+		final List<Pending> failed;
+		synchronized (pending) {
+			if (null == failure) {
+				failure = aFailure;
+			}
+			failed = new ArrayList<>(pending);
+			pending.clear();
+		}
+		for (final Pending command : failed) {
+			command.result.completeExceptionally(failure);
+		}
+	}
+
+	private void complete(boolean aSuccess, String aId, String aResponse) {
+		final Pending command;
+		synchronized (pending) {
+			command = pending.pollFirst();
+		}
+		if (null == command) {
+			logger.warn("Unexpected response from {}: {}", name, aResponse);
+		} else if (!aId.isEmpty() && !aId.equals(Integer.toString(command.id))) {
+			command.result.completeExceptionally(
+					new IOException("Expected response " + command.id + " from " + name + " but got " + aId + "!"));
+		} else if (aSuccess) {
+			command.result.complete(aResponse);
+		} else {
+			command.result.completeExceptionally(new CommandFailedException(aResponse));
+		}
+	}
+
+	private void readResponses() {
+		IOException end = new EOFException(name + " closed the connection!");
+		try {
+			String line;
+			while (null != (line = reader.readLine())) {
+				if (line.isEmpty()) {
+					continue;
+				}
+				final char status = line.charAt(0);
+				if (status != '=' && status != '?') {
+					logger.warn("Unexpected output from {}: {}", name, line);
+					continue;
+				}
+				int digits = 1;
+				while (digits < line.length() && Character.isDigit(line.charAt(digits))) {
+					digits++;
+				}
+				final String id = line.substring(1, digits);
+				final StringBuilder response = new StringBuilder(line.substring(digits).trim());
+				while (null != (line = reader.readLine()) && !line.isEmpty()) {
+					response.append('\n').append(line);
+				}
+				complete(status == '=', id, response.toString());
+			}
+		} catch (final IOException e) {
+			end = e;
+		} finally {
+			try {
+				reader.close();
+			} catch (final IOException e) {
+				logger.debug("Couldn't close output of {}: {}", name, e.toString());
+			}
+		}
+		failAll(end);
+	}
+}
@@ -0,0 +1,331 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A pool of warm external GTP engines. Starting an engine such as KataGo can
+ * take seconds, the pool keeps engines running between games and leases them
+ * out one game at a time.
+ *
+ * An idle engine is health checked with <code>protocol_version</code> before
+ * it is leased out, engines that have died or don't answer in time are closed
+ * and replaced by a fresh one. {@link #checkHealth()} does the same for all
+ * idle engines and can be scheduled to find dead engines between games. At
+ * most the given number of engines are leased out at the same time, further
+ * leases wait until one is returned.
+ *
+ * <pre>
+ * try (GtpEnginePool pool = GtpEnginePool.forCommand(8, "gnugo", "--mode", "gtp")) {
+ * 	pool.warmUp(8);
+ * 	MatchRunner runner = new MatchRunner(MyGoEngine::new, pool.supplier(), 19, 7.5f);
+ * 	System.out.println(runner.run(100, 8));
+ * }
+ * </pre>
+ *
+ * This class is thread safe.
+ *
+ * @author Emily Björk
+ */
+public class GtpEnginePool implements AutoCloseable {
+	private static final long DEFAULT_HEALTH_CHECK_TIMEOUT = TimeUnit.SECONDS.toNanos(5);
+
+	/**
+	 * Creates a pool of engines running in their own processes.
+	 *
+	 * @param aMaxEngines
+	 *            The largest number of engines leased out at the same time.
+	 * @param aCommand
+	 *            The program to run followed by its arguments.
+	 * @return A new, empty, pool.
+	 */
+	public static GtpEnginePool forCommand(int aMaxEngines, String... aCommand) {
+		final List<String> command = Arrays.asList(aCommand.clone());
+		return new GtpEnginePool(() -> GtpClient.start(command), aMaxEngines);
+	}
+
+	private boolean closed;
+	private final Callable<GtpClient> factory;
+	private long healthCheckTimeout = DEFAULT_HEALTH_CHECK_TIMEOUT;
+	private final ArrayDeque<GtpClient> idle = new ArrayDeque<>();
+	private final Logger logger = LogManager.getLogger(GtpEnginePool.class);
+	private final Semaphore permits;
+
+	/**
+	 * Creates a new, empty, pool.
+	 *
+	 * @param aFactory
+	 *            Connects to a new engine, for example with
+	 *            {@link GtpClient#start(List)}.
+	 * @param aMaxEngines
+	 *            The largest number of engines leased out at the same time.
+	 */
+	public GtpEnginePool(Callable<GtpClient> aFactory, int aMaxEngines) {
+		if (aMaxEngines < 1) {
+			throw new IllegalArgumentException("At least one engine is needed!");
+		}
+		factory = aFactory;
+		permits = new Semaphore(aMaxEngines, true);
+	}
+
+	/**
+	 * Leases a healthy engine from the pool, waiting for one to be released if
+	 * the maximum number is already leased out. Return it with
+	 * {@link #release(GtpClient)}.
+	 *
+	 * @return A connection to an engine.
+	 * @throws IOException
+	 *             If a new engine couldn't be started.
+	 * @throws InterruptedException
+	 *             If interrupted while waiting.
+	 */
+	public GtpClient acquire() throws IOException, InterruptedException {
+		permits.acquire();
+		try {
+			synchronized (idle) {
+				if (closed) {
+					throw new IllegalStateException("Pool is closed!");
+				}
+			}
+			GtpClient client;
+			while (null != (client = pollIdle())) {
+				if (isHealthy(client)) {
+					return client;
+				}
+				logger.warn("Replacing unhealthy engine {}.", client);
+				client.close();
+			}
+			return create();
+		} catch (final IOException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Health checks all idle engines and replaces the ones that fail.
+	 *
+	 * @return The number of engines that were replaced.
+	 * @throws IOException
+	 *             If a replacement couldn't be started. The engines that
+	 *             weren't checked yet are returned to the pool unchecked.
+	 */
+	public int checkHealth() throws IOException {
+		final List<GtpClient> checked = new ArrayList<>();
+		synchronized (idle) {
+			checked.addAll(idle);
+			idle.clear();
+		}
+		int replaced = 0;
+		int next = 0;
+		try {
+			while (next < checked.size()) {
+				final GtpClient client = checked.get(next++);
+				if (isHealthy(client)) {
+					if (!addIdle(client)) {
+						client.close();
+					}
+				} else {
+					logger.warn("Replacing unhealthy engine {}.", client);
+					client.close();
+					final GtpClient replacement = create();
+					if (!addIdle(replacement)) {
+						replacement.close();
+					}
+					replaced++;
+				}
+			}
+		} finally {
+			for (final GtpClient client : checked.subList(next, checked.size())) {
+				if (!addIdle(client)) {
+					client.close();
+				}
+			}
+		}
+		return replaced;
+	}
+
+	/**
+	 * Closes all idle engines. Leased engines are closed when they are
+	 * released.
+	 */
+	@Override
+	public void close() {
+		final List<GtpClient> clients;
+		synchronized (idle) {
+			closed = true;
+			clients = new ArrayList<>(idle);
+			idle.clear();
+		}
+		for (final GtpClient client : clients) {
+			client.close();
+		}
+	}
+
+	/**
+	 * @return The number of engines running but not leased out.
+	 */
+	public int getIdleCount() {
+		synchronized (idle) {
+			return idle.size();
+		}
+	}
+
+	/**
+	 * Leases an engine and wraps it as a {@link GoEngine}, closing the
+	 * returned engine releases it back to the pool.
+	 *
+	 * @return A leased engine.
+	 * @throws IOException
+	 *             If a new engine couldn't be started.
+	 * @throws InterruptedException
+	 *             If interrupted while waiting.
+	 */
+	public RemoteGoEngine lease() throws IOException, InterruptedException {
+		return new RemoteGoEngine(acquire(), this);
+	}
+
+	/**
+	 * Returns an engine to the pool. Engines that have died, or that are
+	 * returned after the pool was closed, are closed.
+	 *
+	 * @param aClient
+	 *            An engine from {@link #acquire()}.
+	 */
+	public void release(GtpClient aClient) {
+		try {
+			if (!aClient.isAlive() || !addIdle(aClient)) {
+				aClient.close();
+			}
+		} finally {
+			permits.release();
+		}
+	}
+
+	/**
+	 * @param aTime
+	 *            How long an engine may take to answer a health check before
+	 *            it is replaced.
+	 * @param aUnit
+	 *            The unit of the time.
+	 */
+	public void setHealthCheckTimeout(long aTime, TimeUnit aUnit) {
+		healthCheckTimeout = aUnit.toNanos(aTime);
+	}
+
+	/**
+	 * Adapts the pool to the engine factories used by {@link MatchRunner}
+	 * and {@link BatchAnalyzer}. Engines from the supplier must be closed to
+	 * be returned to the pool, which {@link MatchRunner} does after each game.
+	 *
+	 * @return A supplier that leases engines, failures are thrown as
+	 *         {@link UncheckedIOException}.
+	 */
+	public Supplier<RemoteGoEngine> supplier() {
+		return () -> {
+			try {
+				return lease();
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while leasing an engine!", e);
+			}
+		};
+	}
+
+	/**
+	 * Starts engines until the given number are idle, so that the first games
+	 * don't have to wait for them.
+	 *
+	 * @param aEngines
+	 *            The number of idle engines wanted.
+	 * @throws IOException
+	 *             If an engine couldn't be started.
+	 */
+	public void warmUp(int aEngines) throws IOException {
+		while (getIdleCount() < aEngines) {
+			final GtpClient client = create();
+			if (!addIdle(client)) {
+				client.close();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return <code>false</code> if the pool has been closed.
+	 */
+	private boolean addIdle(GtpClient aClient) {
+		synchronized (idle) {
+			if (closed) {
+				return false;
+			}
+			idle.addLast(aClient);
+			return true;
+		}
+	}
+
+	private GtpClient create() throws IOException {
+		try {
+			return factory.call();
+		} catch (final IOException | RuntimeException e) {
+			throw e;
+		} catch (final Exception e) {
+			throw new IOException("Couldn't start engine!", e);
+		}
+	}
+
+	private boolean isHealthy(GtpClient aClient) {
+		if (!aClient.isAlive()) {
+			return false;
+		}
+		try {
+			aClient.send("protocol_version").get(healthCheckTimeout, TimeUnit.NANOSECONDS);
+			return true;
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (final ExecutionException | TimeoutException e) {
+			return false;
+		}
+	}
+
+	private GtpClient pollIdle() {
+		synchronized (idle) {
+			return idle.pollFirst();
+		}
+	}
+}
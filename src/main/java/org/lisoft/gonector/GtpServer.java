@@ -0,0 +1,373 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A server that hosts many concurrent GTP sessions in one JVM. Every accepted
+ * connection gets its own {@link GoTextProtocol} and its own {@link GoEngine}
+ * from a user supplied factory. Engines that are {@link AutoCloseable} are
+ * closed when their session ends.
+ *
+ * Sessions run on virtual threads when the JDK supports them and on ordinary
+ * threads otherwise. The number of concurrent sessions is bounded, connections
+ * beyond the limit wait in the listen backlog until a session ends. Sessions
+ * that sit waiting for a command for longer than the idle timeout are closed,
+ * time spent in the engine does not count as idle. This includes streaming
+ * analysis and pondering while the session waits for the next command.
+ *
+ * The class implements {@link Callable} so that the accept loop can be
+ * submitted to an {@link ExecutorService}, just like {@link GoTextProtocol}.
+ *
+ * @author Emily Björk
+ */
+public class GtpServer implements Callable<Void>, AutoCloseable {
+	/**
+	 * A connection to one controller. Wraps the socket to keep track of when
+	 * the session is blocked waiting for input.
+	 *
+	 * @author Emily Björk
+	 */
+	private final class Session implements ByteChannel, Runnable {
+		private final SocketChannel channel;
+		/**
+		 * When the watchdog last saw the engine busy, only used by the
+		 * watchdog thread.
+		 */
+		private long lastBusy;
+		private boolean lastBusyValid;
+		private volatile GoTextProtocol protocol;
+		private volatile long readingSince = -1;
+
+		Session(SocketChannel aChannel) {
+			channel = aChannel;
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+
+		@Override
+		public boolean isOpen() {
+			return channel.isOpen();
+		}
+
+		@Override
+		public int read(ByteBuffer aBuffer) throws IOException {
+			readingSince = System.nanoTime();
+			try {
+				return channel.read(aBuffer);
+			} finally {
+				readingSince = -1;
+			}
+		}
+
+		@Override
+		public void run() {
+			GoEngine engine = null;
+			try {
+				engine = engineFactory.get();
+				final GoTextProtocol session = new GoTextProtocol(this, engine);
+				session.setCoalescedFlushing(true);
+				session.setStatistics(statistics);
+				session.setCommandRegistry(commands);
+				protocol = session;
+				session.call();
+			} catch (final Exception e) {
+				logger.error("Session terminated abnormally.", e);
+			} finally {
+				if (engine instanceof AutoCloseable) {
+					closeQuietly((AutoCloseable) engine);
+				}
+				closeQuietly(this);
+				sessions.remove(this);
+				permits.release();
+			}
+		}
+
+		@Override
+		public int write(ByteBuffer aBuffer) throws IOException {
+			return channel.write(aBuffer);
+		}
+
+		boolean isIdle(long aNow) {
+			final long since = readingSince;
+			if (since < 0) {
+				return false;
+			}
+			final GoTextProtocol current = protocol;
+			if (null != current && current.isEngineBusy()) {
+				// Idle time counts from when the engine stops.
+				lastBusy = aNow;
+				lastBusyValid = true;
+				return false;
+			}
+			final long start = lastBusyValid && lastBusy - since > 0 ? lastBusy : since;
+			return aNow - start > idleTimeoutNanos;
+		}
+	}
+
+	/**
+	 * Opens a server socket channel bound to the given address. Unix domain
+	 * socket addresses are supported on JDKs that have them (16 and later).
+	 *
+	 * @param aAddress
+	 *            The address to bind to.
+	 * @return A new, bound {@link ServerSocketChannel}.
+	 * @throws IOException
+	 *             If the channel could not be opened or bound.
+	 */
+	public static ServerSocketChannel open(SocketAddress aAddress) throws IOException {
+		final ServerSocketChannel channel;
+		if ("java.net.UnixDomainSocketAddress".equals(aAddress.getClass().getName())) {
+			try {
+				final Class<?> familyType = Class.forName("java.net.ProtocolFamily");
+				final Object unix = Class.forName("java.net.StandardProtocolFamily").getField("UNIX").get(null);
+				channel = (ServerSocketChannel) ServerSocketChannel.class.getMethod("open", familyType).invoke(null,
+						unix);
+			} catch (final ReflectiveOperationException e) {
+				throw new IOException("Unix domain sockets are not supported by this JDK!", e);
+			}
+		} else {
+			channel = ServerSocketChannel.open();
+		}
+		try {
+			channel.bind(aAddress);
+		} catch (final IOException e) {
+			channel.close();
+			throw e;
+		}
+		return channel;
+	}
+
+	private static ExecutorService newSessionExecutor() {
+		try {
+			final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (final ReflectiveOperationException e) {
+			final AtomicInteger threadNumber = new AtomicInteger();
+			return Executors.newCachedThreadPool(r -> {
+				final Thread thread = new Thread(r, "gtp-session-" + threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	private volatile CommandRegistry commands = CommandRegistry.STANDARD;
+	private final Supplier<? extends GoEngine> engineFactory;
+	private final long idleTimeoutNanos;
+	private final Logger logger = LogManager.getLogger(GtpServer.class);
+	private final Semaphore permits;
+	private final ServerSocketChannel serverChannel;
+	private final ExecutorService sessionExecutor;
+	private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+	private final CommandStatistics statistics = new CommandStatistics();
+	private final ScheduledExecutorService watchdog;
+
+	/**
+	 * Creates a new {@link GtpServer}. Call {@link #call()} to start accepting
+	 * connections.
+	 *
+	 * @param aServerChannel
+	 *            A bound server channel to accept controllers on. See
+	 *            {@link #open(SocketAddress)}. The server takes ownership of
+	 *            the channel and closes it on shutdown.
+	 * @param aEngineFactory
+	 *            Called once per accepted connection to create the
+	 *            {@link GoEngine} for that session.
+	 * @param aMaxSessions
+	 *            The maximum number of concurrent sessions, must be positive.
+	 * @param aIdleTimeout
+	 *            The time a session may wait for the next command before it
+	 *            is closed, zero or negative to never time out.
+	 * @param aUnit
+	 *            The unit of <code>aIdleTimeout</code>.
+	 */
+	public GtpServer(ServerSocketChannel aServerChannel, Supplier<? extends GoEngine> aEngineFactory,
+			int aMaxSessions, long aIdleTimeout, TimeUnit aUnit) {
+		if (aMaxSessions <= 0) {
+			throw new IllegalArgumentException("Max sessions must be positive!");
+		}
+		serverChannel = aServerChannel;
+		engineFactory = aEngineFactory;
+		permits = new Semaphore(aMaxSessions);
+		idleTimeoutNanos = aUnit.toNanos(aIdleTimeout);
+		sessionExecutor = newSessionExecutor();
+		if (idleTimeoutNanos > 0) {
+			watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+				final Thread thread = new Thread(r, "gtp-idle-watchdog");
+				thread.setDaemon(true);
+				return thread;
+			});
+			final long period = Math.max(TimeUnit.MILLISECONDS.toNanos(10), idleTimeoutNanos / 4);
+			watchdog.scheduleAtFixedRate(this::closeIdleSessions, period, period, TimeUnit.NANOSECONDS);
+		} else {
+			watchdog = null;
+		}
+	}
+
+	/**
+	 * Accepts connections until the server is closed.
+	 *
+	 * @throws IOException
+	 *             If accepting a connection failed for any other reason than
+	 *             the server being closed.
+	 * @throws InterruptedException
+	 *             If interrupted while waiting for a free session slot.
+	 */
+	@Override
+	public Void call() throws IOException, InterruptedException {
+		try {
+			while (true) {
+				permits.acquire();
+				final SocketChannel channel;
+				try {
+					channel = serverChannel.accept();
+				} catch (final IOException e) {
+					permits.release();
+					throw e;
+				}
+				final Session session = new Session(channel);
+				sessions.add(session);
+				logger.debug("Accepted connection, {} active sessions.", sessions.size());
+				try {
+					sessionExecutor.execute(session);
+				} catch (final RejectedExecutionException e) {
+					// Shut down between accept() and here.
+					sessions.remove(session);
+					closeQuietly(session);
+					permits.release();
+				}
+			}
+		} catch (final ClosedChannelException e) {
+			logger.debug("Server channel closed, no longer accepting connections.");
+		}
+		return null;
+	}
+
+	/**
+	 * Closes the server immediately, all open sessions are disconnected.
+	 */
+	@Override
+	public void close() {
+		try {
+			shutdown(0, TimeUnit.NANOSECONDS);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return The number of currently connected sessions.
+	 */
+	public int getActiveSessions() {
+		return sessions.size();
+	}
+
+	/**
+	 * @return The command latency statistics, aggregated over all sessions.
+	 */
+	public CommandStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Sets the commands understood by sessions started after this call. The
+	 * registry is shared by all sessions.
+	 *
+	 * @param aRegistry
+	 *            The commands, {@link CommandRegistry#STANDARD} by default.
+	 */
+	public void setCommandRegistry(CommandRegistry aRegistry) {
+		commands = aRegistry;
+	}
+
+	/**
+	 * Stops accepting new connections and waits for the existing sessions to
+	 * finish. Sessions that are still open when the timeout expires are
+	 * disconnected.
+	 *
+	 * @param aTimeout
+	 *            The maximum time to wait for sessions to end on their own.
+	 * @param aUnit
+	 *            The unit of <code>aTimeout</code>.
+	 * @return <code>true</code> if all sessions ended before the timeout.
+	 * @throws InterruptedException
+	 *             If interrupted while waiting.
+	 */
+	public boolean shutdown(long aTimeout, TimeUnit aUnit) throws InterruptedException {
+		closeQuietly(serverChannel);
+		if (null != watchdog) {
+			watchdog.shutdownNow();
+		}
+		sessionExecutor.shutdown();
+		final boolean graceful = sessionExecutor.awaitTermination(aTimeout, aUnit);
+		if (!graceful) {
+			logger.warn("Closing {} sessions that did not end in time.", sessions.size());
+			for (final Session session : sessions) {
+				closeQuietly(session);
+			}
+			sessionExecutor.shutdownNow();
+		}
+		return graceful;
+	}
+
+	private void closeIdleSessions() {
+		final long now = System.nanoTime();
+		for (final Session session : sessions) {
+			if (session.isIdle(now)) {
+				logger.info("Closing idle session.");
+				closeQuietly(session);
+			}
+		}
+	}
+
+	private void closeQuietly(AutoCloseable aCloseable) {
+		try {
+			aCloseable.close();
+		} catch (final Exception e) {
+			logger.debug("Ignoring exception on close: {}", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,186 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Handicap stone placements for every board size between
+ * {@link Move#MIN_BOARD_SIZE} and {@link Move#MAX_BOARD_SIZE}.
+ *
+ * The fixed placements are the ones defined in the GTP specification for the
+ * <code>fixed_handicap</code> command: on the third line for boards smaller
+ * than 13x13 and on the fourth line otherwise, with the sides and the centre
+ * only used on odd boards larger than 7x7. All placements are computed once
+ * when the class is loaded.
+ *
+ * @author Emily Björk
+ */
+public final class Handicap {
+	/**
+	 * The largest number of handicap stones with a fixed placement on any
+	 * board.
+	 */
+	public static final int MAX_FIXED_STONES = 9;
+
+	private static final List<List<Move>> FIXED = new ArrayList<>();
+	private static final int[][] FREE_ORDER = new int[Move.MAX_BOARD_SIZE + 1][];
+
+	static {
+		for (int size = 0; size <= Move.MAX_BOARD_SIZE; ++size) {
+			for (int stones = 0; stones <= MAX_FIXED_STONES; ++stones) {
+				FIXED.add(size >= Move.MIN_BOARD_SIZE && stones >= 2 && stones <= getMaxFixedStones(size)
+						? Collections.unmodifiableList(Arrays.asList(fixed(size, stones))) : null);
+			}
+			if (size >= Move.MIN_BOARD_SIZE) {
+				FREE_ORDER[size] = freeOrder(size);
+			}
+		}
+	}
+
+	/**
+	 * @param aSize
+	 *            The size of the board.
+	 * @param aStones
+	 *            The number of handicap stones, between 2 and
+	 *            {@link #getMaxFixedStones(int)} inclusive.
+	 * @return The fixed placement of the stones as defined by the GTP
+	 *         specification, as an unmodifiable list.
+	 */
+	public static List<Move> getFixedPlacement(int aSize, int aStones) {
+		checkSize(aSize);
+		if (aStones < 2 || aStones > getMaxFixedStones(aSize)) {
+			throw new IllegalArgumentException("No fixed placement of " + aStones + " stones on size " + aSize + "!");
+		}
+		return FIXED.get(aSize * (MAX_FIXED_STONES + 1) + aStones);
+	}
+
+	/**
+	 * A placement of any number of handicap stones. Uses the fixed placement
+	 * where there is one. Stones beyond that are spread out over the board
+	 * away from the edges, without any two stones being adjacent for as long
+	 * as possible.
+	 *
+	 * @param aSize
+	 *            The size of the board.
+	 * @param aStones
+	 *            The number of handicap stones, at least 2 and less than the
+	 *            number of points on the board.
+	 * @return The points to place the stones on.
+	 */
+	public static List<Move> getFreePlacement(int aSize, int aStones) {
+		checkSize(aSize);
+		if (aStones < 2 || aStones >= aSize * aSize) {
+			throw new IllegalArgumentException("Can't place " + aStones + " stones on size " + aSize + "!");
+		}
+		final int fixed = Math.min(aStones, getMaxFixedStones(aSize));
+		if (fixed == aStones) {
+			return getFixedPlacement(aSize, aStones);
+		}
+		final List<Move> ans = new ArrayList<>(aStones);
+		if (fixed >= 2) {
+			ans.addAll(getFixedPlacement(aSize, fixed));
+		}
+		final int[] order = FREE_ORDER[aSize];
+		for (int i = 0; ans.size() < aStones; ++i) {
+			ans.add(Move.fromCode(order[i]));
+		}
+		return ans;
+	}
+
+	/**
+	 * @param aSize
+	 *            The size of the board.
+	 * @return The largest number of stones that have a fixed placement on a
+	 *         board of the given size, 0 if fixed handicap isn't defined for
+	 *         the size.
+	 */
+	public static int getMaxFixedStones(int aSize) {
+		if (aSize < 7) {
+			return 0;
+		}
+		if (aSize == 7 || aSize % 2 == 0) {
+			return 4;
+		}
+		return MAX_FIXED_STONES;
+	}
+
+	private static void checkSize(int aSize) {
+		if (aSize < Move.MIN_BOARD_SIZE || aSize > Move.MAX_BOARD_SIZE) {
+			throw new IllegalArgumentException("Unsupported board size: " + aSize + "!");
+		}
+	}
+
+	private static Move[] fixed(int aSize, int aStones) {
+		final int edge = aSize < 13 ? 2 : 3;
+		final int low = edge;
+		final int high = aSize - 1 - edge;
+		final int middle = aSize / 2;
+		// In the order of the specification: corners, sides, then top and
+		// bottom. The centre is added for odd numbers of stones above 3.
+		final Move[] order = { Move.valueOf(low, low), Move.valueOf(high, high), Move.valueOf(low, high),
+				Move.valueOf(high, low), Move.valueOf(low, middle), Move.valueOf(high, middle),
+				Move.valueOf(middle, low), Move.valueOf(middle, high) };
+		final boolean centre = aStones >= 5 && aStones % 2 == 1;
+		final Move[] ans = Arrays.copyOf(order, aStones);
+		if (centre) {
+			ans[aStones - 1] = Move.valueOf(middle, middle);
+		}
+		return ans;
+	}
+
+	/**
+	 * The order in which points are used after the largest fixed placement:
+	 * first every other point away from the edge, then the remaining points
+	 * away from the edge and finally the edge.
+	 */
+	private static int[] freeOrder(int aSize) {
+		final boolean[] used = new boolean[Board.POINTS];
+		final int maxFixed = getMaxFixedStones(aSize);
+		if (maxFixed > 0) {
+			for (final Move move : fixed(aSize, maxFixed)) {
+				used[move.toCode()] = true;
+			}
+		}
+		final int[] ans = new int[aSize * aSize - maxFixed];
+		int n = 0;
+		for (int pass = 0; pass < 3; ++pass) {
+			for (int y = 0; y < aSize; ++y) {
+				for (int x = 0; x < aSize; ++x) {
+					final boolean edge = x == 0 || y == 0 || x == aSize - 1 || y == aSize - 1;
+					final boolean even = (x + y) % 2 == 0;
+					final int wanted = edge ? 2 : even ? 0 : 1;
+					final int code = Move.encode(x, y);
+					if (wanted == pass && !used[code]) {
+						ans[n++] = code;
+					}
+				}
+			}
+		}
+		return ans;
+	}
+
+	private Handicap() {
+		// Not instantiable.
+	}
+}
@@ -0,0 +1,169 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies with log-linear buckets in the style of
+ * HdrHistogram.
+ *
+ * Values below 64 ns are counted exactly. Larger values are counted in
+ * buckets whose width is 1/32 of their magnitude, so any quantile is
+ * reported with a relative error of at most about 3%. Values of 2^40 ns
+ * (about 18 minutes) and above share the last bucket, the maximum is still
+ * tracked exactly.
+ *
+ * Recording is lock free and doesn't allocate, so it can be called from any
+ * number of threads on a hot path. Reads are not atomic with respect to
+ * concurrent recording, a quantile may be computed while a few values are
+ * still being recorded.
+ *
+ * @author Emily Björk
+ */
+public final class LatencyHistogram {
+	/**
+	 * The number of bits of each value that are kept, values below
+	 * <code>2 * SUB_BUCKETS</code> are exact.
+	 */
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final long MAX_TRACKABLE = (1L << 40) - 1;
+	private static final int BUCKETS = bucketOf(MAX_TRACKABLE) + 1;
+
+	private static int bucketOf(long aValue) {
+		if (aValue < 2 * SUB_BUCKETS) {
+			return (int) aValue;
+		}
+		final int shift = 63 - Long.numberOfLeadingZeros(aValue) - SUB_BUCKET_BITS;
+		return shift * SUB_BUCKETS + (int) (aValue >>> shift);
+	}
+
+	/**
+	 * @return The largest value that is counted in the given bucket.
+	 */
+	private static long highestValueIn(int aBucket) {
+		if (aBucket < 2 * SUB_BUCKETS) {
+			return aBucket;
+		}
+		final int shift = aBucket / SUB_BUCKETS - 1;
+		final long mantissa = aBucket % SUB_BUCKETS + SUB_BUCKETS;
+		return ((mantissa + 1) << shift) - 1;
+	}
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong max = new AtomicLong();
+	private final AtomicLong total = new AtomicLong();
+
+	/**
+	 * @return The number of recorded values.
+	 */
+	public long getCount() {
+		long ans = 0;
+		for (int i = 0; i < BUCKETS; ++i) {
+			ans += counts.get(i);
+		}
+		return ans;
+	}
+
+	/**
+	 * @param aUnit
+	 *            The unit of the result.
+	 * @return The largest recorded value or 0 if nothing has been recorded.
+	 */
+	public long getMax(TimeUnit aUnit) {
+		return aUnit.convert(max.get(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @param aUnit
+	 *            The unit of the result.
+	 * @return The mean of the recorded values or 0 if nothing has been
+	 *         recorded.
+	 */
+	public long getMean(TimeUnit aUnit) {
+		final long count = getCount();
+		return count == 0 ? 0 : aUnit.convert(total.get() / count, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @param aQuantile
+	 *            A number between 0 and 1, for example 0.99 for the 99th
+	 *            percentile.
+	 * @param aUnit
+	 *            The unit of the result.
+	 * @return The smallest value such that at least the given fraction of the
+	 *         recorded values are less than or equal to it, within the
+	 *         precision of the histogram. 0 if nothing has been recorded.
+	 */
+	public long getValueAtQuantile(double aQuantile, TimeUnit aUnit) {
+		if (aQuantile < 0 || aQuantile > 1) {
+			throw new IllegalArgumentException("Quantile must be between 0 and 1: " + aQuantile + "!");
+		}
+		final long[] snapshot = new long[BUCKETS];
+		long count = 0;
+		for (int i = 0; i < BUCKETS; ++i) {
+			snapshot[i] = counts.get(i);
+			count += snapshot[i];
+		}
+		if (count == 0) {
+			return 0;
+		}
+		final long rank = Math.max(1, (long) Math.ceil(aQuantile * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; ++i) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return aUnit.convert(Math.min(highestValueIn(i), max.get()), TimeUnit.NANOSECONDS);
+			}
+		}
+		return getMax(aUnit);
+	}
+
+	/**
+	 * Records one value.
+	 *
+	 * @param aNanos
+	 *            The latency in nanoseconds, negative values are counted as 0.
+	 */
+	public void record(long aNanos) {
+		final long value = Math.max(0, aNanos);
+		counts.incrementAndGet(bucketOf(Math.min(value, MAX_TRACKABLE)));
+		total.addAndGet(value);
+		long current = max.get();
+		while (value > current && !max.compareAndSet(current, value)) {
+			current = max.get();
+		}
+	}
+
+	/**
+	 * Removes all recorded values. Values recorded concurrently with the
+	 * reset may or may not be kept.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; ++i) {
+			counts.set(i, 0);
+		}
+		total.set(0);
+		max.set(0);
+	}
+}
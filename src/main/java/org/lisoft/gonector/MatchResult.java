@@ -0,0 +1,196 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The aggregated outcome of a match played by {@link MatchRunner}. The two
+ * engines are called <em>first</em> and <em>second</em> after the order they
+ * were given to the runner, independently of which colour they played.
+ *
+ * @author Emily Björk
+ */
+public final class MatchResult {
+	private final int draws;
+	private final long elapsedNanos;
+	private final int firstForfeits;
+	private final long[] firstLatencies;
+	private final int firstWins;
+	private final int games;
+	private final int secondForfeits;
+	private final long[] secondLatencies;
+	private final int secondWins;
+
+	MatchResult(int aGames, int aFirstWins, int aSecondWins, int aFirstForfeits, int aSecondForfeits,
+			long[] aFirstLatencies, long[] aSecondLatencies, long aElapsedNanos) {
+		games = aGames;
+		firstWins = aFirstWins;
+		secondWins = aSecondWins;
+		draws = aGames - aFirstWins - aSecondWins;
+		firstForfeits = aFirstForfeits;
+		secondForfeits = aSecondForfeits;
+		firstLatencies = aFirstLatencies;
+		secondLatencies = aSecondLatencies;
+		elapsedNanos = aElapsedNanos;
+		Arrays.sort(firstLatencies);
+		Arrays.sort(secondLatencies);
+	}
+
+	/**
+	 * @return The number of drawn games.
+	 */
+	public int getDraws() {
+		return draws;
+	}
+
+	/**
+	 * @param aUnit
+	 *            The unit of the result.
+	 * @return The wall clock time the match took.
+	 */
+	public long getElapsed(TimeUnit aUnit) {
+		return aUnit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @return The number of games the first engine lost by playing an
+	 *         illegal move or rejecting a legal one.
+	 */
+	public int getFirstForfeits() {
+		return firstForfeits;
+	}
+
+	/**
+	 * @param aQuantile
+	 *            A number between 0 and 1, for example 0.99 for the 99th
+	 *            percentile.
+	 * @param aUnit
+	 *            The unit of the result.
+	 * @return The time the first engine took to generate a move at the given
+	 *         quantile, over all moves in the match.
+	 */
+	public long getFirstMoveLatency(double aQuantile, TimeUnit aUnit) {
+		return quantile(firstLatencies, aQuantile, aUnit);
+	}
+
+	/**
+	 * @return The number of moves the first engine generated.
+	 */
+	public int getFirstMoves() {
+		return firstLatencies.length;
+	}
+
+	/**
+	 * @return The fraction of games won by the first engine, counting draws as
+	 *         half a win.
+	 */
+	public double getFirstWinRate() {
+		return games == 0 ? 0 : (firstWins + 0.5 * draws) / games;
+	}
+
+	/**
+	 * @return The number of games won by the first engine.
+	 */
+	public int getFirstWins() {
+		return firstWins;
+	}
+
+	/**
+	 * @return The number of games played.
+	 */
+	public int getGames() {
+		return games;
+	}
+
+	/**
+	 * @return The number of games finished per second of wall clock time.
+	 */
+	public double getGamesPerSecond() {
+		return elapsedNanos == 0 ? 0 : games * 1e9 / elapsedNanos;
+	}
+
+	/**
+	 * @return The number of games the second engine lost by playing an
+	 *         illegal move or rejecting a legal one.
+	 */
+	public int getSecondForfeits() {
+		return secondForfeits;
+	}
+
+	/**
+	 * @param aQuantile
+	 *            A number between 0 and 1, for example 0.99 for the 99th
+	 *            percentile.
+	 * @param aUnit
+	 *            The unit of the result.
+	 * @return The time the second engine took to generate a move at the
+	 *         given quantile, over all moves in the match.
+	 */
+	public long getSecondMoveLatency(double aQuantile, TimeUnit aUnit) {
+		return quantile(secondLatencies, aQuantile, aUnit);
+	}
+
+	/**
+	 * @return The number of moves the second engine generated.
+	 */
+	public int getSecondMoves() {
+		return secondLatencies.length;
+	}
+
+	/**
+	 * @return The fraction of games won by the second engine, counting draws
+	 *         as half a win.
+	 */
+	public double getSecondWinRate() {
+		return games == 0 ? 0 : (secondWins + 0.5 * draws) / games;
+	}
+
+	/**
+	 * @return The number of games won by the second engine.
+	 */
+	public int getSecondWins() {
+		return secondWins;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ENGLISH,
+				"%d games in %.1f s (%.1f games/s): first %d wins (%.1f%%), second %d wins (%.1f%%), %d draws, "
+						+ "move latency p50/p99 first %d/%d us, second %d/%d us",
+				games, elapsedNanos / 1e9, getGamesPerSecond(), firstWins, 100 * getFirstWinRate(), secondWins,
+				100 * getSecondWinRate(), draws, getFirstMoveLatency(0.5, TimeUnit.MICROSECONDS),
+				getFirstMoveLatency(0.99, TimeUnit.MICROSECONDS), getSecondMoveLatency(0.5, TimeUnit.MICROSECONDS),
+				getSecondMoveLatency(0.99, TimeUnit.MICROSECONDS));
+	}
+
+	private long quantile(long[] aSorted, double aQuantile, TimeUnit aUnit) {
+		if (aQuantile < 0 || aQuantile > 1) {
+			throw new IllegalArgumentException("Quantile must be between 0 and 1: " + aQuantile + "!");
+		}
+		if (aSorted.length == 0) {
+			return 0;
+		}
+		final int index = (int) Math.ceil(aQuantile * aSorted.length) - 1;
+		return aUnit.convert(aSorted[Math.max(0, index)], TimeUnit.NANOSECONDS);
+	}
+}
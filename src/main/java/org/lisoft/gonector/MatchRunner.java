@@ -0,0 +1,305 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Plays matches between two {@link GoEngine}s in the same JVM.
+ *
+ * This is an in-process alternative to running two engine processes under a
+ * GTP referee such as gogui-twogtp. Moves are passed between the engines
+ * directly through {@link GoEngine#nextMove(Player, Deadline)} and
+ * {@link GoEngine#addMove(Move, Player)} without any text conversion, and
+ * games are played in parallel.
+ *
+ * Every game gets fresh engine instances from the factories, so the
+ * factories must be thread safe but the engines need not be. Engines that
+ * implement {@link AutoCloseable} are closed after their game, so external
+ * engines from {@link GtpEnginePool#supplier()} go back to the pool. The
+ * engines alternate colours, the first engine plays black in even numbered
+ * games. A {@link Board} referees the game: a player that generates an
+ * illegal move or rejects a legal move from the opponent forfeits. A game
+ * ends when a player resigns, after two consecutive passes or after a
+ * maximum number of moves. When a game doesn't end by resignation it is
+ * scored by the engines if both can score and agree on the winner,
+ * otherwise by area scoring on the referee board.
+ *
+ * @author Emily Björk
+ */
+public class MatchRunner {
+	/**
+	 * The outcome of one game.
+	 */
+	private static final class GameRecord {
+		boolean forfeit;
+		final long[][] latencies;
+		final int[] moves = new int[2];
+		int winner = NONE;
+
+		GameRecord(int aMaxMoves) {
+			latencies = new long[2][(aMaxMoves + 1) / 2];
+		}
+	}
+
+	private static final int NONE = -1;
+
+	private final int boardSize;
+	private final Supplier<? extends GoEngine> first;
+	private final float komi;
+	private final Logger logger = LogManager.getLogger(MatchRunner.class);
+	private int maxMoves;
+	private long moveTime;
+	private final Supplier<? extends GoEngine> second;
+
+	/**
+	 * Creates a new {@link MatchRunner}.
+	 *
+	 * @param aFirst
+	 *            A thread safe factory for the first engine.
+	 * @param aSecond
+	 *            A thread safe factory for the second engine.
+	 * @param aBoardSize
+	 *            The size of the board to play on.
+	 * @param aKomi
+	 *            The komi to play with.
+	 */
+	public MatchRunner(Supplier<? extends GoEngine> aFirst, Supplier<? extends GoEngine> aSecond, int aBoardSize,
+			float aKomi) {
+		if (aBoardSize < Move.MIN_BOARD_SIZE || aBoardSize > Move.MAX_BOARD_SIZE) {
+			throw new IllegalArgumentException("Unsupported board size: " + aBoardSize + "!");
+		}
+		first = aFirst;
+		second = aSecond;
+		boardSize = aBoardSize;
+		komi = aKomi;
+		maxMoves = aBoardSize * aBoardSize * 3;
+	}
+
+	/**
+	 * Plays a number of games on a new thread pool which is shut down when the
+	 * match is over.
+	 *
+	 * @param aGames
+	 *            The number of games to play.
+	 * @param aThreads
+	 *            The number of games to play in parallel.
+	 * @return The result of the match.
+	 * @throws InterruptedException
+	 *             If the thread was interrupted while waiting for the games.
+	 * @throws ExecutionException
+	 *             If an engine threw an exception.
+	 */
+	public MatchResult run(int aGames, int aThreads) throws InterruptedException, ExecutionException {
+		final ExecutorService executor = Executors.newFixedThreadPool(aThreads);
+		try {
+			return run(aGames, executor);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Plays a number of games, each game is one task on the given executor.
+	 *
+	 * @param aGames
+	 *            The number of games to play.
+	 * @param aExecutor
+	 *            The executor to play the games on.
+	 * @return The result of the match.
+	 * @throws InterruptedException
+	 *             If the thread was interrupted while waiting for the games.
+	 * @throws ExecutionException
+	 *             If an engine threw an exception. The remaining games are
+	 *             cancelled.
+	 */
+	public MatchResult run(int aGames, ExecutorService aExecutor) throws InterruptedException, ExecutionException {
+		final long start = System.nanoTime();
+		final List<Future<GameRecord>> futures = new ArrayList<>(aGames);
+		for (int i = 0; i < aGames; ++i) {
+			final int game = i;
+			futures.add(aExecutor.submit(() -> play(game)));
+		}
+
+		final List<GameRecord> records = new ArrayList<>(aGames);
+		try {
+			for (final Future<GameRecord> future : futures) {
+				records.add(future.get());
+			}
+		} finally {
+			for (final Future<GameRecord> future : futures) {
+				future.cancel(true);
+			}
+		}
+		final long elapsed = System.nanoTime() - start;
+
+		final int[] wins = new int[2];
+		final int[] forfeits = new int[2];
+		final int[] moves = new int[2];
+		for (final GameRecord record : records) {
+			if (record.winner != NONE) {
+				wins[record.winner]++;
+				if (record.forfeit) {
+					forfeits[1 - record.winner]++;
+				}
+			}
+			moves[0] += record.moves[0];
+			moves[1] += record.moves[1];
+		}
+		final long[][] latencies = { new long[moves[0]], new long[moves[1]] };
+		final int[] offsets = new int[2];
+		for (final GameRecord record : records) {
+			for (int engine = 0; engine < 2; ++engine) {
+				System.arraycopy(record.latencies[engine], 0, latencies[engine], offsets[engine],
+						record.moves[engine]);
+				offsets[engine] += record.moves[engine];
+			}
+		}
+		return new MatchResult(aGames, wins[0], wins[1], forfeits[0], forfeits[1], latencies[0], latencies[1],
+				elapsed);
+	}
+
+	/**
+	 * @param aMaxMoves
+	 *            The number of moves, including passes, after which a game
+	 *            is stopped and scored. Defaults to three times the number of
+	 *            points on the board.
+	 */
+	public void setMaxMoves(int aMaxMoves) {
+		if (aMaxMoves < 1) {
+			throw new IllegalArgumentException("Max moves must be positive: " + aMaxMoves + "!");
+		}
+		maxMoves = aMaxMoves;
+	}
+
+	/**
+	 * @param aTime
+	 *            The time each engine is given per move through the
+	 *            {@link Deadline} passed to
+	 *            {@link GoEngine#nextMove(Player, Deadline)}, which
+	 *            {@link RemoteGoEngine} passes on as byo-yomi. Zero, the
+	 *            default, means no limit.
+	 * @param aUnit
+	 *            The unit of the time.
+	 */
+	public void setMoveTime(long aTime, TimeUnit aUnit) {
+		moveTime = aUnit.toNanos(aTime);
+	}
+
+	/**
+	 * Engines that hold resources, such as a {@link RemoteGoEngine} leased
+	 * from a {@link GtpEnginePool}, are closed after each game.
+	 */
+	private void close(GoEngine aEngine) {
+		if (aEngine instanceof AutoCloseable) {
+			try {
+				((AutoCloseable) aEngine).close();
+			} catch (final Exception e) {
+				logger.warn("Couldn't close engine {}.", aEngine, e);
+			}
+		}
+	}
+
+	private GameRecord play(int aGame) {
+		final GoEngine firstEngine = first.get();
+		final GoEngine secondEngine;
+		try {
+			secondEngine = second.get();
+		} catch (final RuntimeException | Error e) {
+			// A lease from a pool must go back even if the game never starts.
+			close(firstEngine);
+			throw e;
+		}
+		try {
+			return play(aGame, new GoEngine[] { firstEngine, secondEngine });
+		} finally {
+			close(firstEngine);
+			close(secondEngine);
+		}
+	}
+
+	private GameRecord play(int aGame, GoEngine[] aEngines) {
+		final int black = aGame % 2;
+		for (final GoEngine engine : aEngines) {
+			if (!engine.resizeBoard(boardSize)) {
+				throw new IllegalStateException(
+						"Engine " + engine.getName() + " doesn't support board size " + boardSize + "!");
+			}
+			engine.newGame();
+			engine.setKomi(komi);
+		}
+
+		final GameRecord record = new GameRecord(maxMoves);
+		final Board board = new Board(boardSize);
+		Player player = Player.BLACK;
+		int passes = 0;
+		for (int i = 0; i < maxMoves && passes < 2; ++i) {
+			final int mover = player == Player.BLACK ? black : 1 - black;
+			final Deadline deadline = moveTime > 0 ? Deadline.after(moveTime) : Deadline.NONE;
+			final long start = System.nanoTime();
+			final Move move = aEngines[mover].nextMove(player, deadline);
+			record.latencies[mover][record.moves[mover]++] = System.nanoTime() - start;
+
+			if (move != null && move.toCode() == Move.RESIGN_CODE) {
+				record.winner = 1 - mover;
+				return record;
+			}
+			if (move == null || !board.play(move, player)) {
+				record.winner = 1 - mover;
+				record.forfeit = true;
+				return record;
+			}
+			if (!aEngines[1 - mover].addMove(move, player)) {
+				record.winner = mover;
+				record.forfeit = true;
+				return record;
+			}
+			passes = move.toCode() == Move.PASS_CODE ? passes + 1 : 0;
+			player = player.opponent();
+		}
+
+		final Player winner = score(aEngines, board).getWinner();
+		if (winner != null) {
+			record.winner = winner == Player.BLACK ? black : 1 - black;
+		}
+		return record;
+	}
+
+	private Score score(GoEngine[] aEngines, Board aBoard) {
+		if (aEngines[0].canScore() && aEngines[1].canScore()) {
+			final Score firstScore = aEngines[0].getScore();
+			final Score secondScore = aEngines[1].getScore();
+			if (null != firstScore && null != secondScore && firstScore.getWinner() == secondScore.getWinner()) {
+				return firstScore;
+			}
+		}
+		return aBoard.getAreaScore(komi);
+	}
+}
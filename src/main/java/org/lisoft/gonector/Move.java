@@ -22,6 +22,22 @@ package org.lisoft.gonector;
 /**
  * Represents one move as defined by the GTP.
  *
+ * Moves are interned flyweights, there is exactly one instance for every
+ * coordinate on the largest board and one each for {@link #PASS} and
+ * {@link #RESIGN}. This means that moves can be compared by identity and that
+ * neither parsing nor formatting moves allocates any memory. The only
+ * exception are moves created with the deprecated {@link #Move(int, int)}
+ * constructor, which are equal to but not the same as the interned ones. Code
+ * that accepts moves from engines should therefore compare them by code.
+ *
+ * Every move also has a packed integer code, see {@link #toCode()}, for
+ * engines that want to store moves in primitive collections such as
+ * {@link MoveList} and {@link PointSet}. The code of a point is
+ * <code>y * MAX_BOARD_SIZE + x</code>, independent of the board size, and
+ * the special moves have the codes {@link #PASS_CODE} and
+ * {@link #RESIGN_CODE}. All codes are between zero and {@link #CODES}
+ * exclusive.
+ *
  * @author Emily Björk
  */
 public class Move {
@@ -36,21 +52,153 @@ public class Move {
 	 */
 	public static final int MIN_BOARD_SIZE = 2;
 
+	/**
+	 * The code of {@link #PASS}.
+	 */
+	public static final int PASS_CODE = MAX_BOARD_SIZE * MAX_BOARD_SIZE;
+
+	/**
+	 * The code of {@link #RESIGN}.
+	 */
+	public static final int RESIGN_CODE = PASS_CODE + 1;
+
+	/**
+	 * The number of distinct move codes.
+	 */
+	public static final int CODES = RESIGN_CODE + 1;
+
 	/**
 	 * A special move that should be used when the {@link GoEngine} wants to
 	 * pass.
 	 */
-	public static final Move PASS = new Move(-2, 0);
+	public static final Move PASS = new Move(-2, 0, PASS_CODE, "pass");
 
 	/**
 	 * A special move that should be used when the {@link GoEngine} wants to
 	 * resign.
 	 */
-	public static final Move RESIGN = new Move(-1, 0);
+	public static final Move RESIGN = new Move(-1, 0, RESIGN_CODE, "resign");
 
 	private static final String LETTERS = "abcdefghjklmnopqrstuvwxyz";
-	private static final String PASS_STRING = "pass";
-	private static final String RESIGN_STRING = "resign";
+
+	/**
+	 * All moves on the board indexed by <code>y * MAX_BOARD_SIZE + x</code>.
+	 */
+	private static final Move[] MOVES;
+	static {
+		MOVES = new Move[MAX_BOARD_SIZE * MAX_BOARD_SIZE];
+		for (int y = 0; y < MAX_BOARD_SIZE; ++y) {
+			for (int x = 0; x < MAX_BOARD_SIZE; ++x) {
+				final int code = encode(x, y);
+				MOVES[code] = new Move(x, y, code, LETTERS.charAt(x) + Integer.toString(y + 1));
+			}
+		}
+	}
+
+	/**
+	 * @param aCode
+	 *            The code of a point, see {@link #encode(int, int)}.
+	 * @return The x coordinate of the point.
+	 */
+	public static int decodeX(int aCode) {
+		return aCode % MAX_BOARD_SIZE;
+	}
+
+	/**
+	 * @param aCode
+	 *            The code of a point, see {@link #encode(int, int)}.
+	 * @return The y coordinate of the point.
+	 */
+	public static int decodeY(int aCode) {
+		return aCode / MAX_BOARD_SIZE;
+	}
+
+	/**
+	 * Computes the code of a point without looking up the {@link Move}. Does
+	 * no range checks.
+	 *
+	 * @param aX
+	 *            The x coordinate, between 0 and {@link #MAX_BOARD_SIZE}
+	 *            exclusive.
+	 * @param aY
+	 *            The y coordinate, between 0 and {@link #MAX_BOARD_SIZE}
+	 *            exclusive.
+	 * @return The code of the point, the same as {@link #toCode()} of the
+	 *         corresponding move.
+	 */
+	public static int encode(int aX, int aY) {
+		return aY * MAX_BOARD_SIZE + aX;
+	}
+
+	/**
+	 * @param aCode
+	 *            A move code as returned by {@link #toCode()}.
+	 * @return The unique {@link Move} instance with the given code.
+	 * @throws IllegalArgumentException
+	 *             If the code isn't a valid move code.
+	 */
+	public static Move fromCode(int aCode) {
+		if (aCode >= 0 && aCode < PASS_CODE) {
+			return MOVES[aCode];
+		} else if (aCode == PASS_CODE) {
+			return PASS;
+		} else if (aCode == RESIGN_CODE) {
+			return RESIGN;
+		}
+		throw new IllegalArgumentException("Invalid move code: " + aCode + "!");
+	}
+
+	/**
+	 * Converts a GTP move ("R14" for example) into a move object. The GTP
+	 * string is case insensitive.
+	 *
+	 * This overload doesn't allocate any intermediate strings and can be used
+	 * directly on views into an input buffer.
+	 *
+	 * @param aMove
+	 *            The characters to convert.
+	 * @return A {@link Move} object that represents the move.
+	 * @throws SyntaxErrorException
+	 *             Thrown if the move is invalid.
+	 */
+	public static Move valueOf(CharSequence aMove) throws SyntaxErrorException {
+		if (null == aMove || aMove.length() == 0) {
+			throw new SyntaxErrorException("No move given!");
+		}
+
+		if (equalsIgnoreCase(PASS.gtpString, aMove)) {
+			return PASS;
+		}
+		if (equalsIgnoreCase(RESIGN.gtpString, aMove)) {
+			return RESIGN;
+		}
+
+		final int x = LETTERS.indexOf(Character.toLowerCase(aMove.charAt(0)));
+		final int y = parseRow(aMove) - 1;
+		if (x < 0 || y < 0 || y >= MAX_BOARD_SIZE) {
+			throw new SyntaxErrorException("Invalid move: " + lowerCase(aMove) + ", coordinate out of range!");
+		}
+		return MOVES[encode(x, y)];
+	}
+
+	/**
+	 * Gets the move at the given coordinates.
+	 *
+	 * @param aX
+	 *            The value of the x position, 0 is to the left.
+	 * @param aY
+	 *            The value of the y position, 0 is at the bottom.
+	 * @return The unique {@link Move} instance for the coordinates.
+	 * @throws IllegalArgumentException
+	 *             If the coordinates are outside of the largest supported
+	 *             board.
+	 */
+	public static Move valueOf(int aX, int aY) {
+		if (aX < 0 || aY < 0 || aX >= MAX_BOARD_SIZE || aY >= MAX_BOARD_SIZE) {
+			throw new IllegalArgumentException("Coordinate out of range: " + aX + ", " + aY + "!");
+		}
+		return MOVES[encode(aX, aY)];
+	}
 
 	/**
 	 * Converts a GTP move string ("R14" for example) into a move object. The
@@ -63,29 +211,80 @@ public class Move {
 	 *             Thrown if the move is invalid.
 	 */
 	public static Move valueOf(String aMove) throws SyntaxErrorException {
-		if (null == aMove || aMove.isEmpty()) {
-			throw new SyntaxErrorException("No move given!");
+		return valueOf((CharSequence) aMove);
+	}
+
+	/**
+	 * Compares a lower case ASCII string to a sequence of characters ignoring
+	 * the case of the latter.
+	 */
+	static boolean equalsIgnoreCase(String aLowerCase, CharSequence aChars) {
+		final int length = aLowerCase.length();
+		if (aChars.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; ++i) {
+			if (Character.toLowerCase(aChars.charAt(i)) != aLowerCase.charAt(i)) {
+				return false;
+			}
 		}
-		final String str = aMove.toLowerCase();
+		return true;
+	}
+
+	/**
+	 * Only used for error messages.
+	 */
+	private static String lowerCase(CharSequence aChars) {
+		return aChars.toString().toLowerCase();
+	}
 
-		if (PASS_STRING.equals(str)) {
+	/**
+	 * Looks up the interned move for the deprecated constructor, negative x
+	 * coordinates are special moves as they used to be.
+	 */
+	private static Move intern(int aX, int aY) {
+		if (aX == RESIGN.x) {
+			return RESIGN;
+		} else if (aX < 0) {
 			return PASS;
 		}
-		if (RESIGN_STRING.equals(str)) {
-			return RESIGN;
+		return valueOf(aX, aY);
+	}
+
+	/**
+	 * Parses the row number following the column letter with the same rules
+	 * as {@link Integer#parseInt(String)}.
+	 */
+	private static int parseRow(CharSequence aMove) throws SyntaxErrorException {
+		final int length = aMove.length();
+		int i = 1;
+		boolean negative = false;
+		if (i < length && (aMove.charAt(i) == '-' || aMove.charAt(i) == '+')) {
+			negative = aMove.charAt(i) == '-';
+			i++;
+		}
+		if (i == length) {
+			throw new SyntaxErrorException(
+					"Invalid move: " + lowerCase(aMove) + ", expected integer after first character!");
 		}
 
-		final int x = LETTERS.indexOf(str.charAt(0));
-		final int y;
-		try {
-			y = Integer.parseInt(str.substring(1)) - 1;
-		} catch (final Exception e) {
-			throw new SyntaxErrorException("Invalid move: " + str + ", expected integer after first character!", e);
+		long value = 0;
+		for (; i < length; ++i) {
+			final int digit = Character.digit(aMove.charAt(i), 10);
+			value = value * 10 + digit;
+			if (digit < 0 || value > Integer.MAX_VALUE + 1L) {
+				throw new SyntaxErrorException(
+						"Invalid move: " + lowerCase(aMove) + ", expected integer after first character!");
+			}
 		}
-		if (x < 0 || y < 0 || y >= MAX_BOARD_SIZE) {
-			throw new SyntaxErrorException("Invalid move: " + str + ", coordinate out of range!");
+		if (negative) {
+			value = -value;
+		}
+		if (value > Integer.MAX_VALUE) {
+			throw new SyntaxErrorException(
+					"Invalid move: " + lowerCase(aMove) + ", expected integer after first character!");
 		}
-		return new Move(x, y);
+		return (int) value;
 	}
 
 	/**
@@ -101,17 +300,44 @@ public class Move {
 	 */
 	public final int y;
 
+	private final int code;
+	private final String gtpString;
+
 	/**
-	 * Creates a new immutable Move.
+	 * Creates a new Move that is equal to, but not the same instance as, the
+	 * interned move at the given coordinates. A negative x coordinate creates
+	 * a copy of {@link #RESIGN} for -1 and of {@link #PASS} otherwise.
+	 *
+	 * Copies have the same code as the interned move, compare them with
+	 * {@link #equals(Object)} or {@link #toCode()} rather than by identity.
+	 * Earlier versions accepted any coordinates, now coordinates outside of
+	 * the largest supported board are rejected.
 	 *
 	 * @param aX
 	 *            The value of the x position.
 	 * @param aY
 	 *            The value of the y position.
+	 * @throws IllegalArgumentException
+	 *             If the coordinates are outside of the largest supported
+	 *             board.
+	 * @deprecated Use {@link #valueOf(int, int)} instead, which returns the
+	 *             interned instance. Comparing moves by identity only works
+	 *             for interned moves.
 	 */
+	@Deprecated
 	public Move(int aX, int aY) {
+		this(intern(aX, aY));
+	}
+
+	private Move(int aX, int aY, int aCode, String aGtpString) {
 		x = aX;
 		y = aY;
+		code = aCode;
+		gtpString = aGtpString;
+	}
+
+	private Move(Move aInterned) {
+		this(aInterned.x, aInterned.y, aInterned.code, aInterned.gtpString);
 	}
 
 	@Override
@@ -126,18 +352,25 @@ public class Move {
 		return false;
 	}
 
+	/**
+	 * Equal to {@link #toCode()}.
+	 */
 	@Override
 	public int hashCode() {
-		return y * MAX_BOARD_SIZE + x;
+		return code;
+	}
+
+	/**
+	 * @return The packed integer code of this move.
+	 *         <code>Move.fromCode(move.toCode()) == move</code> holds for all
+	 *         moves.
+	 */
+	public int toCode() {
+		return code;
 	}
 
 	@Override
 	public String toString() {
-		if (x == -1) {
-			return RESIGN_STRING;
-		} else if (x < 0) {
-			return PASS_STRING;
-		}
-		return LETTERS.charAt(x) + Integer.toString(y + 1);
+		return gtpString;
 	}
 }
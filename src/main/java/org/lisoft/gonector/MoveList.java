@@ -0,0 +1,188 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A growable list of move codes backed by an <code>int[]</code>, for storing
+ * candidate moves without boxing. See {@link Move#toCode()} for the encoding.
+ *
+ * This class is not thread safe.
+ *
+ * @author Emily Björk
+ */
+public final class MoveList {
+	private static final int DEFAULT_CAPACITY = 32;
+
+	private int[] codes;
+	private int size;
+
+	/**
+	 * Creates a new, empty, list.
+	 */
+	public MoveList() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new, empty, list.
+	 *
+	 * @param aCapacity
+	 *            The number of moves the list can hold before it has to grow.
+	 */
+	public MoveList(int aCapacity) {
+		codes = new int[Math.max(1, aCapacity)];
+	}
+
+	/**
+	 * Appends a move code to the list.
+	 *
+	 * @param aCode
+	 *            The code of the move to add.
+	 */
+	public void add(int aCode) {
+		if (size == codes.length) {
+			codes = Arrays.copyOf(codes, size * 2);
+		}
+		codes[size++] = aCode;
+	}
+
+	/**
+	 * Appends a move to the list.
+	 *
+	 * @param aMove
+	 *            The move to add.
+	 */
+	public void add(Move aMove) {
+		add(aMove.toCode());
+	}
+
+	/**
+	 * Removes all moves from the list, keeps the capacity.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * @param aCode
+	 *            The code to look for.
+	 * @return <code>true</code> if the list contains the code. Takes linear
+	 *         time, use a {@link PointSet} for fast lookups.
+	 */
+	public boolean contains(int aCode) {
+		for (int i = 0; i < size; ++i) {
+			if (codes[i] == aCode) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param aIndex
+	 *            The index of the move.
+	 * @return The code of the move at the given index.
+	 */
+	public int get(int aIndex) {
+		checkIndex(aIndex);
+		return codes[aIndex];
+	}
+
+	/**
+	 * @param aIndex
+	 *            The index of the move.
+	 * @return The move at the given index.
+	 */
+	public Move getMove(int aIndex) {
+		return Move.fromCode(get(aIndex));
+	}
+
+	/**
+	 * @return <code>true</code> if the list is empty.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes the move at the given index in constant time by moving the last
+	 * move into its place. This doesn't preserve the order of the list.
+	 *
+	 * @param aIndex
+	 *            The index of the move to remove.
+	 * @return The code of the removed move.
+	 */
+	public int removeAt(int aIndex) {
+		checkIndex(aIndex);
+		final int code = codes[aIndex];
+		codes[aIndex] = codes[--size];
+		return code;
+	}
+
+	/**
+	 * Randomly permutes the list.
+	 *
+	 * @param aRandom
+	 *            The source of randomness.
+	 */
+	public void shuffle(Random aRandom) {
+		for (int i = size - 1; i > 0; --i) {
+			final int j = aRandom.nextInt(i + 1);
+			final int tmp = codes[i];
+			codes[i] = codes[j];
+			codes[j] = tmp;
+		}
+	}
+
+	/**
+	 * @return The number of moves in the list.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return A copy of the codes in the list.
+	 */
+	public int[] toArray() {
+		return Arrays.copyOf(codes, size);
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < size; ++i) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(Move.fromCode(codes[i]));
+		}
+		return sb.append(']').toString();
+	}
+
+	private void checkIndex(int aIndex) {
+		if (aIndex < 0 || aIndex >= size) {
+			throw new IndexOutOfBoundsException(Integer.toString(aIndex));
+		}
+	}
+}
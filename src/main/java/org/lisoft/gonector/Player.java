@@ -38,24 +38,40 @@ public enum Player {
 	 * Converts from a GTP string to an enumeration. The GTP strings are case
 	 * insensitive.
 	 *
+	 * This overload doesn't allocate any intermediate strings and can be used
+	 * directly on views into an input buffer.
+	 *
 	 * @param aPlayer
-	 *            The string to convert.
+	 *            The characters to convert.
 	 * @return An enumeration representing the player.
 	 * @throws SyntaxErrorException
 	 *             If the string is malformed.
 	 */
-	public static Player fromString(String aPlayer) throws SyntaxErrorException {
-		if (aPlayer == null || aPlayer.isEmpty()) {
+	public static Player fromString(CharSequence aPlayer) throws SyntaxErrorException {
+		if (aPlayer == null || aPlayer.length() == 0) {
 			throw new SyntaxErrorException("Not a valid player string!");
 		}
 
-		final String str = aPlayer.toLowerCase();
-		if ("b".equals(str) || "black".equals(str)) {
+		if (Move.equalsIgnoreCase("b", aPlayer) || Move.equalsIgnoreCase("black", aPlayer)) {
 			return BLACK;
-		} else if ("w".equals(str) || "white".equals(str)) {
+		} else if (Move.equalsIgnoreCase("w", aPlayer) || Move.equalsIgnoreCase("white", aPlayer)) {
 			return WHITE;
 		}
-		throw new SyntaxErrorException("Unknown player: " + str + "!");
+		throw new SyntaxErrorException("Unknown player: " + aPlayer.toString().toLowerCase() + "!");
+	}
+
+	/**
+	 * Converts from a GTP string to an enumeration. The GTP strings are case
+	 * insensitive.
+	 *
+	 * @param aPlayer
+	 *            The string to convert.
+	 * @return An enumeration representing the player.
+	 * @throws SyntaxErrorException
+	 *             If the string is malformed.
+	 */
+	public static Player fromString(String aPlayer) throws SyntaxErrorException {
+		return fromString((CharSequence) aPlayer);
 	}
 
 	private String shortName;
@@ -64,6 +80,13 @@ public enum Player {
 		shortName = aShortName;
 	}
 
+	/**
+	 * @return The other player.
+	 */
+	public Player opponent() {
+		return this == BLACK ? WHITE : BLACK;
+	}
+
 	/**
 	 * @return The short name of the player. I.e. "B" or "W".
 	 */
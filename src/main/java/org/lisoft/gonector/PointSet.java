@@ -0,0 +1,226 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.util.Arrays;
+
+/**
+ * A set of move codes backed by a <code>long[]</code> bitset, for marking
+ * points without boxing. Any move code, including {@link Move#PASS_CODE} and
+ * {@link Move#RESIGN_CODE}, can be stored. See {@link Move#toCode()} for the
+ * encoding.
+ *
+ * For points on the board the bit layout is the same as the bitboards from
+ * {@link Board#getBitboard(Player, long[])}.
+ *
+ * This class is not thread safe.
+ *
+ * @author Emily Björk
+ */
+public final class PointSet {
+	private static final int WORDS = (Move.CODES + 63) / 64;
+
+	private final long[] words = new long[WORDS];
+
+	/**
+	 * Adds a code to the set.
+	 *
+	 * @param aCode
+	 *            The code to add.
+	 * @return <code>true</code> if the code wasn't already in the set.
+	 */
+	public boolean add(int aCode) {
+		checkCode(aCode);
+		final long before = words[aCode >>> 6];
+		words[aCode >>> 6] = before | 1L << aCode;
+		return before != words[aCode >>> 6];
+	}
+
+	/**
+	 * Adds a move to the set.
+	 *
+	 * @param aMove
+	 *            The move to add.
+	 * @return <code>true</code> if the move wasn't already in the set.
+	 */
+	public boolean add(Move aMove) {
+		return add(aMove.toCode());
+	}
+
+	/**
+	 * Adds all codes in another set to this set.
+	 *
+	 * @param aThat
+	 *            The set to add.
+	 */
+	public void addAll(PointSet aThat) {
+		for (int i = 0; i < WORDS; ++i) {
+			words[i] |= aThat.words[i];
+		}
+	}
+
+	/**
+	 * Removes all codes.
+	 */
+	public void clear() {
+		Arrays.fill(words, 0);
+	}
+
+	/**
+	 * @param aCode
+	 *            The code to look for.
+	 * @return <code>true</code> if the set contains the code.
+	 */
+	public boolean contains(int aCode) {
+		checkCode(aCode);
+		return (words[aCode >>> 6] & 1L << aCode) != 0;
+	}
+
+	/**
+	 * @param aMove
+	 *            The move to look for.
+	 * @return <code>true</code> if the set contains the move.
+	 */
+	public boolean contains(Move aMove) {
+		return contains(aMove.toCode());
+	}
+
+	/**
+	 * @return <code>true</code> if the set is empty.
+	 */
+	public boolean isEmpty() {
+		for (final long word : words) {
+			if (word != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the smallest code in the set that is greater than or equal to the
+	 * given code. Iterate over the set like so:
+	 *
+	 * <pre>
+	 * for (int code = set.next(0); code &gt;= 0; code = set.next(code + 1)) {
+	 * 	...
+	 * }
+	 * </pre>
+	 *
+	 * @param aFrom
+	 *            The code to start searching from.
+	 * @return The next code in the set or -1 if there are none.
+	 */
+	public int next(int aFrom) {
+		if (aFrom < 0) {
+			throw new IllegalArgumentException("Invalid move code: " + aFrom + "!");
+		}
+		int word = aFrom >>> 6;
+		if (word >= WORDS) {
+			return -1;
+		}
+		long bits = words[word] & -1L << aFrom;
+		while (bits == 0) {
+			if (++word == WORDS) {
+				return -1;
+			}
+			bits = words[word];
+		}
+		return word * 64 + Long.numberOfTrailingZeros(bits);
+	}
+
+	/**
+	 * Removes a code from the set.
+	 *
+	 * @param aCode
+	 *            The code to remove.
+	 * @return <code>true</code> if the code was in the set.
+	 */
+	public boolean remove(int aCode) {
+		checkCode(aCode);
+		final long before = words[aCode >>> 6];
+		words[aCode >>> 6] = before & ~(1L << aCode);
+		return before != words[aCode >>> 6];
+	}
+
+	/**
+	 * Removes a move from the set.
+	 *
+	 * @param aMove
+	 *            The move to remove.
+	 * @return <code>true</code> if the move was in the set.
+	 */
+	public boolean remove(Move aMove) {
+		return remove(aMove.toCode());
+	}
+
+	/**
+	 * Removes all codes that are in another set from this set.
+	 *
+	 * @param aThat
+	 *            The set of codes to remove.
+	 */
+	public void removeAll(PointSet aThat) {
+		for (int i = 0; i < WORDS; ++i) {
+			words[i] &= ~aThat.words[i];
+		}
+	}
+
+	/**
+	 * Removes all codes that are not in another set from this set.
+	 *
+	 * @param aThat
+	 *            The set of codes to keep.
+	 */
+	public void retainAll(PointSet aThat) {
+		for (int i = 0; i < WORDS; ++i) {
+			words[i] &= aThat.words[i];
+		}
+	}
+
+	/**
+	 * @return The number of codes in the set.
+	 */
+	public int size() {
+		int ans = 0;
+		for (final long word : words) {
+			ans += Long.bitCount(word);
+		}
+		return ans;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder("[");
+		for (int code = next(0); code >= 0; code = next(code + 1)) {
+			if (sb.length() > 1) {
+				sb.append(", ");
+			}
+			sb.append(Move.fromCode(code));
+		}
+		return sb.append(']').toString();
+	}
+
+	private void checkCode(int aCode) {
+		if (aCode < 0 || aCode >= Move.CODES) {
+			throw new IllegalArgumentException("Invalid move code: " + aCode + "!");
+		}
+	}
+}
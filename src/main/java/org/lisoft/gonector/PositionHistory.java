@@ -0,0 +1,199 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.util.Arrays;
+
+/**
+ * A set of position hashes for detecting superko.
+ *
+ * Hashes are kept in a primitive open addressing table so adding and looking
+ * up a position is constant time and allocation free. The hashes are also kept
+ * in the order they were added so the history can be rolled back to an
+ * earlier length, for example when a search takes back moves or when the
+ * controller sends <code>undo</code>.
+ *
+ * A typical engine adds the hash of the current position after each move and
+ * checks the hash that a candidate move would result in before playing it:
+ *
+ * <pre>
+ * if (!board.isLegal(move, player) || history.contains(board.getHashAfter(move, player)))
+ *     return false;
+ * board.play(move, player);
+ * history.add(board.getHash());
+ * </pre>
+ *
+ * For situational superko use the hashes from
+ * {@link Zobrist#situational(long, Player)} instead.
+ *
+ * This class is not thread safe.
+ *
+ * @author Emily Björk
+ */
+public final class PositionHistory {
+	private static final int INITIAL_CAPACITY = 512;
+
+	private boolean[] added = new boolean[INITIAL_CAPACITY];
+	private long[] order = new long[INITIAL_CAPACITY];
+	private int size;
+	private long[] table = new long[INITIAL_CAPACITY * 2];
+	private boolean zeroAdded;
+
+	/**
+	 * Adds a hash to the end of the history.
+	 *
+	 * @param aHash
+	 *            The hash to add.
+	 * @return <code>true</code> if this is the first occurrence of the hash,
+	 *         <code>false</code> if the position has occurred before.
+	 */
+	public boolean add(long aHash) {
+		if (size == order.length) {
+			order = Arrays.copyOf(order, size * 2);
+			added = Arrays.copyOf(added, size * 2);
+			rehash(table.length * 2);
+		}
+		final boolean fresh = insert(aHash);
+		order[size] = aHash;
+		added[size] = fresh;
+		size++;
+		return fresh;
+	}
+
+	/**
+	 * Removes all hashes.
+	 */
+	public void clear() {
+		Arrays.fill(table, 0);
+		zeroAdded = false;
+		size = 0;
+	}
+
+	/**
+	 * @param aHash
+	 *            The hash to look for.
+	 * @return <code>true</code> if the hash has been added.
+	 */
+	public boolean contains(long aHash) {
+		if (aHash == 0) {
+			return zeroAdded;
+		}
+		final int mask = table.length - 1;
+		for (int i = slot(aHash, mask); table[i] != 0; i = (i + 1) & mask) {
+			if (table[i] == aHash) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param aIndex
+	 *            The index in the history.
+	 * @return The hash that was added at the given index.
+	 */
+	public long get(int aIndex) {
+		if (aIndex < 0 || aIndex >= size) {
+			throw new IndexOutOfBoundsException(Integer.toString(aIndex));
+		}
+		return order[aIndex];
+	}
+
+	/**
+	 * Removes the most recently added hashes until only the given number of
+	 * hashes remain. Takes time proportional to the number of removed hashes.
+	 *
+	 * @param aSize
+	 *            The length of the history to keep, see {@link #size()}.
+	 */
+	public void rollback(int aSize) {
+		if (aSize < 0 || aSize > size) {
+			throw new IndexOutOfBoundsException(Integer.toString(aSize));
+		}
+		while (size > aSize) {
+			size--;
+			if (added[size]) {
+				remove(order[size]);
+			}
+		}
+	}
+
+	/**
+	 * @return The number of hashes in the history, including repetitions.
+	 */
+	public int size() {
+		return size;
+	}
+
+	private boolean insert(long aHash) {
+		if (aHash == 0) {
+			final boolean fresh = !zeroAdded;
+			zeroAdded = true;
+			return fresh;
+		}
+		final int mask = table.length - 1;
+		int i = slot(aHash, mask);
+		while (table[i] != 0) {
+			if (table[i] == aHash) {
+				return false;
+			}
+			i = (i + 1) & mask;
+		}
+		table[i] = aHash;
+		return true;
+	}
+
+	/**
+	 * Re-inserts the hashes in the order they were added so that the
+	 * invariant {@link #remove(long)} relies on still holds.
+	 */
+	private void rehash(int aCapacity) {
+		table = new long[aCapacity];
+		for (int i = 0; i < size; ++i) {
+			if (added[i] && order[i] != 0) {
+				insert(order[i]);
+			}
+		}
+	}
+
+	/**
+	 * Removes a hash from the table. As hashes are only ever removed in the
+	 * reverse order they were added, no hash that was added after this one is
+	 * still in the table. Therefore no probe sequence can pass through the
+	 * slot and it can simply be emptied without tombstones.
+	 */
+	private void remove(long aHash) {
+		if (aHash == 0) {
+			zeroAdded = false;
+			return;
+		}
+		final int mask = table.length - 1;
+		int i = slot(aHash, mask);
+		while (table[i] != aHash) {
+			i = (i + 1) & mask;
+		}
+		table[i] = 0;
+	}
+
+	private int slot(long aHash, int aMask) {
+		// Zobrist hashes are already uniformly distributed.
+		return (int) (aHash ^ (aHash >>> 32)) & aMask;
+	}
+}
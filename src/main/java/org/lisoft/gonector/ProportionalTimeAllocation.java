@@ -0,0 +1,80 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link TimeAllocationPolicy} that divides the main time evenly over an
+ * expected number of remaining moves and uses the byo-yomi periods as a safety
+ * net. In byo-yomi the period is divided evenly over the stones that must be
+ * played in it.
+ *
+ * @author Emily Björk
+ */
+public class ProportionalTimeAllocation implements TimeAllocationPolicy {
+	private final int movesToGo;
+	private final double safetyMargin;
+
+	/**
+	 * Creates a new {@link ProportionalTimeAllocation}.
+	 *
+	 * @param aMovesToGo
+	 *            The number of moves the main time should last for.
+	 * @param aSafetyMargin
+	 *            Seconds kept in reserve on every move for network and
+	 *            controller latency.
+	 */
+	public ProportionalTimeAllocation(int aMovesToGo, double aSafetyMargin) {
+		if (aMovesToGo <= 0 || aSafetyMargin < 0) {
+			throw new IllegalArgumentException("Invalid allocation parameters!");
+		}
+		movesToGo = aMovesToGo;
+		safetyMargin = aSafetyMargin;
+	}
+
+	@Override
+	public long allocate(GameClock aClock, Player aPlayer) {
+		final TimeSettings settings = aClock.getSettings();
+		if (settings.getType() == TimeSettings.Type.NONE) {
+			return Long.MAX_VALUE;
+		}
+
+		final double timeLeft = aClock.getTimeLeft(aPlayer);
+		final double perByoYomiMove;
+		if (settings.getType() == TimeSettings.Type.CANADIAN) {
+			perByoYomiMove = settings.getPeriodTime() / Math.max(1, settings.getPeriodCount());
+		} else if (settings.getType() == TimeSettings.Type.BYOYOMI) {
+			perByoYomiMove = settings.getPeriodTime();
+		} else {
+			perByoYomiMove = 0;
+		}
+
+		final double seconds;
+		if (!aClock.isInByoYomi(aPlayer)) {
+			seconds = Math.min(timeLeft / movesToGo + perByoYomiMove / 2, timeLeft + perByoYomiMove);
+		} else if (settings.getType() == TimeSettings.Type.CANADIAN) {
+			seconds = timeLeft / aClock.getStonesLeft(aPlayer);
+		} else {
+			seconds = timeLeft;
+		}
+		return (long) (Math.max(0, seconds - safetyMargin) * TimeUnit.SECONDS.toNanos(1));
+	}
+}
@@ -0,0 +1,135 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link Transport} on top of a {@link BufferedReader} and a {@link Writer}.
+ *
+ * @author Emily Björk
+ */
+class ReaderTransport implements Transport {
+	/**
+	 * Size of the buffers used for reading from and writing to the
+	 * controller.
+	 */
+	static final int BUFFER_SIZE = 4096;
+
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private int limit;
+	private final char[] output = new char[BUFFER_SIZE];
+	private int outputLength;
+	private boolean pending;
+	private int position;
+	private final BufferedReader reader;
+	private boolean skipLineFeed;
+	private final ReentrantLock writeLock = new ReentrantLock();
+	private final Writer writer;
+
+	/**
+	 * Creates a new {@link ReaderTransport}.
+	 *
+	 * @param aReader
+	 *            The reader to read commands from.
+	 * @param aWriter
+	 *            The writer to write responses to.
+	 */
+	ReaderTransport(BufferedReader aReader, Writer aWriter) {
+		reader = aReader;
+		writer = aWriter;
+	}
+
+	@Override
+	public boolean readLine(CommandLine aLine) throws IOException {
+		aLine.clear();
+		boolean empty = true;
+		while (true) {
+			if (position == limit) {
+				if (pending && !reader.ready()) {
+					flush();
+				}
+				position = 0;
+				limit = Math.max(0, reader.read(buffer));
+				if (limit == 0) {
+					return !empty;
+				}
+			}
+			final char c = buffer[position++];
+			if (skipLineFeed) {
+				skipLineFeed = false;
+				if (c == '\n') {
+					continue;
+				}
+			}
+			if (c == '\n' || c == '\r') {
+				skipLineFeed = c == '\r';
+				return true;
+			}
+			empty = false;
+			aLine.append(c);
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		writeLock.lock();
+		try {
+			drain();
+			writer.flush();
+			pending = false;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public Lock getWriteLock() {
+		return writeLock;
+	}
+
+	@Override
+	public void write(char aChar) throws IOException {
+		if (outputLength == output.length) {
+			drain();
+		}
+		output[outputLength++] = aChar;
+		pending = true;
+	}
+
+	@Override
+	public void write(CharSequence aChars) throws IOException {
+		final int length = aChars.length();
+		for (int i = 0; i < length; ++i) {
+			write(aChars.charAt(i));
+		}
+	}
+
+	private void drain() throws IOException {
+		if (outputLength > 0) {
+			writer.write(output, 0, outputLength);
+			outputLength = 0;
+		}
+	}
+}
@@ -0,0 +1,239 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Exposes an external GTP engine, reached through a {@link GtpClient}, as a
+ * local {@link GoEngine}. This lets tools such as {@link MatchRunner} treat
+ * external engines like any other engine, for example to play the current bot
+ * against GnuGo or an older release running in its own process.
+ *
+ * Commands that the remote engine rejects are reported through the return
+ * values of {@link GoEngine} where there are any. Broken connections are
+ * thrown as {@link UncheckedIOException}.
+ *
+ * A limited {@link Deadline} passed to
+ * {@link #nextMove(Player, Deadline)} is sent to the remote engine as
+ * byo-yomi of one stone per period with <code>time_settings</code> and
+ * <code>time_left</code>, rounded down to whole seconds. Engines that ignore
+ * time commands may take longer.
+ *
+ * Closing the engine closes the client, or returns it to the
+ * {@link GtpEnginePool} it was leased from. Only the first call to
+ * {@link #close()} has any effect.
+ *
+ * @author Emily Björk
+ */
+public class RemoteGoEngine implements GoEngine, AutoCloseable {
+	private Boolean canScore;
+	private final GtpClient client;
+	private final AtomicBoolean closed = new AtomicBoolean();
+	private String name;
+	private final GtpEnginePool pool;
+	/**
+	 * The byo-yomi period last sent with <code>time_settings</code>, in
+	 * seconds.
+	 */
+	private long timeSettings = -1;
+	private String version;
+
+	/**
+	 * Creates a new engine that owns the given client.
+	 *
+	 * @param aClient
+	 *            The connection to the remote engine.
+	 */
+	public RemoteGoEngine(GtpClient aClient) {
+		this(aClient, null);
+	}
+
+	/**
+	 * Creates a new engine leased from a pool.
+	 */
+	RemoteGoEngine(GtpClient aClient, GtpEnginePool aPool) {
+		client = aClient;
+		pool = aPool;
+	}
+
+	@Override
+	public boolean addMove(Move aMove, Player aPlayer) {
+		try {
+			client.play(aPlayer, aMove);
+			return true;
+		} catch (final CommandFailedException e) {
+			return false;
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public boolean canScore() {
+		if (null == canScore) {
+			canScore = known("final_score");
+		}
+		return canScore;
+	}
+
+	@Override
+	public void close() {
+		if (!closed.compareAndSet(false, true)) {
+			return;
+		}
+		if (null != pool) {
+			pool.release(client);
+		} else {
+			client.close();
+		}
+	}
+
+	/**
+	 * @return The connection to the remote engine, for commands that
+	 *         {@link GoEngine} doesn't cover.
+	 */
+	public GtpClient getClient() {
+		return client;
+	}
+
+	@Override
+	public String getName() {
+		if (null == name) {
+			name = query("name");
+		}
+		return name;
+	}
+
+	@Override
+	public Score getScore() {
+		try {
+			return client.finalScore();
+		} catch (final CommandFailedException e) {
+			throw new IllegalStateException(client + " couldn't score the game: " + e.getMessage(), e);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public String getVersion() {
+		if (null == version) {
+			version = query("version");
+		}
+		return version;
+	}
+
+	@Override
+	public void newGame() {
+		command("clear_board");
+	}
+
+	@Override
+	public Move nextMove(Player aPlayer) {
+		try {
+			return client.genmove(aPlayer);
+		} catch (final CommandFailedException e) {
+			throw new IllegalStateException(client + " couldn't generate a move: " + e.getMessage(), e);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public Move nextMove(Player aPlayer, Deadline aDeadline) {
+		if (aDeadline.isLimited()) {
+			final long seconds = Math.max(1, aDeadline.remaining(TimeUnit.SECONDS));
+			if (seconds != timeSettings) {
+				command("time_settings 0 " + seconds + " 1");
+				timeSettings = seconds;
+			}
+			command("time_left " + aPlayer.toShortString() + " " + seconds + " 1");
+		}
+		return nextMove(aPlayer);
+	}
+
+	@Override
+	public boolean resizeBoard(int aSize) {
+		return command("boardsize " + aSize);
+	}
+
+	@Override
+	public boolean setHandicap(List<Move> aStones) {
+		final StringBuilder sb = new StringBuilder("set_free_handicap");
+		for (final Move stone : aStones) {
+			sb.append(' ').append(stone);
+		}
+		return command(sb.toString());
+	}
+
+	@Override
+	public void setKomi(float aKomi) {
+		command("komi " + aKomi);
+	}
+
+	@Override
+	public String toString() {
+		return client.toString();
+	}
+
+	@Override
+	public boolean undo() {
+		return command("undo");
+	}
+
+	/**
+	 * @return <code>true</code> if the remote engine accepted the command.
+	 */
+	private boolean command(String aCommand) {
+		try {
+			client.execute(aCommand);
+			return true;
+		} catch (final CommandFailedException e) {
+			return false;
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private boolean known(String aCommand) {
+		try {
+			return client.knownCommand(aCommand);
+		} catch (final CommandFailedException e) {
+			return false;
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private String query(String aCommand) {
+		try {
+			return client.execute(aCommand);
+		} catch (final CommandFailedException e) {
+			return "";
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
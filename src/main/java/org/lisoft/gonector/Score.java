@@ -23,6 +23,37 @@ public class Score {
 		NF.setMaximumFractionDigits(1);
 	}
 
+	/**
+	 * Parses a score in the format of the GTP <code>final_score</code>
+	 * response, for example "B+3.5", "W+12" or "0" for a draw.
+	 *
+	 * @param aScore
+	 *            The characters to parse.
+	 * @return The score.
+	 * @throws SyntaxErrorException
+	 *             If the characters aren't a valid score.
+	 */
+	public static Score valueOf(CharSequence aScore) throws SyntaxErrorException {
+		final String score = aScore.toString().trim();
+		if (score.equals("0")) {
+			return DRAW;
+		}
+		final int plus = score.indexOf('+');
+		if (plus < 0) {
+			throw new SyntaxErrorException("Not a valid score: " + score + "!");
+		}
+		final Player winner = Player.fromString(score.subSequence(0, plus));
+		try {
+			final double margin = Double.parseDouble(score.substring(plus + 1));
+			if (!(margin >= 0)) {
+				throw new SyntaxErrorException("Not a valid score: " + score + "!");
+			}
+			return margin == 0 ? DRAW : new Score(winner, margin);
+		} catch (final NumberFormatException e) {
+			throw new SyntaxErrorException("Not a valid score: " + score + "!");
+		}
+	}
+
 	private final double score;
 	private final Player winner;
 
@@ -45,6 +76,21 @@ public class Score {
 		score = aScore;
 	}
 
+	/**
+	 * @return The score difference in favour of the winner, zero for a draw.
+	 */
+	public double getMargin() {
+		return score;
+	}
+
+	/**
+	 * @return The player that won or <code>null</code> if the game was a
+	 *         draw.
+	 */
+	public Player getWinner() {
+		return winner;
+	}
+
 	@Override
 	public String toString() {
 		if (winner == null) {
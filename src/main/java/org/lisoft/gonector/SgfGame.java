@@ -0,0 +1,186 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The main line of a game read from an SGF file by {@link SgfReader}.
+ *
+ * The game is stored as a flat sequence of stones in the order they appear
+ * in the file. Each entry is either a move (the <code>B</code> and
+ * <code>W</code> properties) or a setup stone (<code>AB</code> and
+ * <code>AW</code>), for example handicap stones. Moves are kept as packed
+ * move codes, see {@link Move#toCode()}, so even long games take little
+ * memory.
+ *
+ * @author Emily Björk
+ */
+public final class SgfGame {
+	private final int boardSize;
+	private final MoveList codes;
+	private final byte[] colours;
+	private final float komi;
+	private final int moveCount;
+	private final Player playerToPlay;
+	private final BitSet setup;
+
+	SgfGame(int aBoardSize, float aKomi, Player aPlayerToPlay, MoveList aCodes, byte[] aColours, BitSet aSetup) {
+		boardSize = aBoardSize;
+		komi = aKomi;
+		playerToPlay = aPlayerToPlay;
+		codes = aCodes;
+		colours = Arrays.copyOf(aColours, aCodes.size());
+		setup = aSetup;
+		moveCount = aCodes.size() - aSetup.cardinality();
+	}
+
+	/**
+	 * @return The size of the board, 19 if the file didn't say.
+	 */
+	public int getBoardSize() {
+		return boardSize;
+	}
+
+	/**
+	 * Counts the entries that make up the position before a move, that is all
+	 * earlier moves and all setup stones placed before the move.
+	 *
+	 * @param aMoveNumber
+	 *            The number of the move, starting from 1. Numbers past the
+	 *            last move give the final position.
+	 * @return The number of entries to play to reach the position.
+	 */
+	public int getEntriesBefore(int aMoveNumber) {
+		int entries = 0;
+		int moves = 0;
+		while (entries < codes.size() && (setup.get(entries) || ++moves < aMoveNumber)) {
+			entries++;
+		}
+		return entries;
+	}
+
+	/**
+	 * @return The number of entries, moves and setup stones, in the game.
+	 */
+	public int getEntryCount() {
+		return codes.size();
+	}
+
+	/**
+	 * @return The komi, 0 if the file didn't say.
+	 */
+	public float getKomi() {
+		return komi;
+	}
+
+	/**
+	 * @param aEntry
+	 *            The index of an entry.
+	 * @return The move or setup stone of the entry.
+	 */
+	public Move getMove(int aEntry) {
+		return codes.getMove(aEntry);
+	}
+
+	/**
+	 * @return The number of moves in the game, not counting setup stones.
+	 */
+	public int getMoveCount() {
+		return moveCount;
+	}
+
+	/**
+	 * @param aEntry
+	 *            The index of an entry.
+	 * @return The colour of the move or setup stone.
+	 */
+	public Player getPlayer(int aEntry) {
+		return colours[aEntry] == 0 ? Player.BLACK : Player.WHITE;
+	}
+
+	/**
+	 * Figures out whose turn it is after a number of entries.
+	 *
+	 * @param aEntries
+	 *            The number of entries that have been played.
+	 * @return The opponent of the last move played, or if no move has been
+	 *         played, the player from the <code>PL</code> property. If there
+	 *         is no such property, white if only black setup stones have been
+	 *         placed (a handicap game) and black otherwise.
+	 */
+	public Player getPlayerToPlay(int aEntries) {
+		boolean anySetup = false;
+		boolean whiteSetup = false;
+		for (int i = aEntries - 1; i >= 0; --i) {
+			if (!setup.get(i)) {
+				return getPlayer(i).opponent();
+			}
+			anySetup = true;
+			whiteSetup |= getPlayer(i) == Player.WHITE;
+		}
+		if (playerToPlay != null) {
+			return playerToPlay;
+		}
+		return anySetup && !whiteSetup ? Player.WHITE : Player.BLACK;
+	}
+
+	/**
+	 * @param aEntry
+	 *            The index of an entry.
+	 * @return <code>true</code> if the entry is a setup stone rather than a
+	 *         move.
+	 */
+	public boolean isSetup(int aEntry) {
+		return setup.get(aEntry);
+	}
+
+	/**
+	 * Plays the first entries of the game on an engine that has already been
+	 * resized and cleared, through {@link GoEngine#setPosition(List, List)}
+	 * if the engine supports it and move by move otherwise.
+	 *
+	 * @param aEngine
+	 *            The engine to set up.
+	 * @param aEntries
+	 *            The number of entries to play.
+	 * @return <code>false</code> if the engine rejected a move.
+	 */
+	boolean replay(GoEngine aEngine, int aEntries) {
+		final List<Move> moves = new ArrayList<>(aEntries);
+		final List<Player> players = new ArrayList<>(aEntries);
+		for (int i = 0; i < aEntries; ++i) {
+			moves.add(getMove(i));
+			players.add(getPlayer(i));
+		}
+		if (aEngine.setPosition(moves, players)) {
+			return true;
+		}
+		for (int i = 0; i < aEntries; ++i) {
+			if (!aEngine.addMove(moves.get(i), players.get(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,341 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A streaming reader for the main line of games in the Smart Game Format
+ * (SGF), version 4 and earlier.
+ *
+ * The file is scanned one byte at a time without building a game tree. The
+ * main line of a game tree is the root sequence followed by the first
+ * variation at every branch, so it ends at the first closing parenthesis and
+ * the rest of the file is never read. Only the properties that describe the
+ * position are decoded: board size (<code>SZ</code>), komi (<code>KM</code>),
+ * player to play (<code>PL</code>), moves (<code>B</code>, <code>W</code>)
+ * and setup stones (<code>AB</code>, <code>AW</code>). The values of all
+ * other properties, such as comments, are skipped without being stored.
+ *
+ * @author Emily Björk
+ */
+public final class SgfReader {
+	private static final int BUFFER_SIZE = 8192;
+	private static final int DEFAULT_BOARD_SIZE = 19;
+	private static final int EOF = -1;
+	private static final int MAX_VALUE_LENGTH = 64;
+	private static final int NONE = -2;
+
+	/**
+	 * Reads the main line of the first game in a buffer, for example a
+	 * memory-mapped file.
+	 *
+	 * @param aBuffer
+	 *            The buffer to read from its position to its limit.
+	 * @return The main line of the game.
+	 * @throws SyntaxErrorException
+	 *             If the buffer doesn't contain a valid game.
+	 */
+	public static SgfGame read(ByteBuffer aBuffer) throws SyntaxErrorException {
+		try {
+			return new SgfReader(null, aBuffer).parse();
+		} catch (final IOException e) {
+			throw new IllegalStateException("Buffers don't do I/O!", e);
+		}
+	}
+
+	/**
+	 * Reads the main line of the first game in a file. The file is memory
+	 * mapped.
+	 *
+	 * @param aFile
+	 *            The file to read.
+	 * @return The main line of the game.
+	 * @throws IOException
+	 *             If the file couldn't be read.
+	 * @throws SyntaxErrorException
+	 *             If the file doesn't contain a valid game.
+	 */
+	public static SgfGame read(Path aFile) throws IOException, SyntaxErrorException {
+		try (FileChannel channel = FileChannel.open(aFile, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("SGF file too large: " + aFile + "!");
+			}
+			return read(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Reads the main line of the first game from a channel. Reading stops at
+	 * the end of the main line, the channel is left open.
+	 *
+	 * @param aChannel
+	 *            The channel to read from, in blocking mode.
+	 * @return The main line of the game.
+	 * @throws IOException
+	 *             If reading from the channel failed.
+	 * @throws SyntaxErrorException
+	 *             If the channel doesn't contain a valid game.
+	 */
+	public static SgfGame read(ReadableByteChannel aChannel) throws IOException, SyntaxErrorException {
+		final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		buffer.flip();
+		return new SgfReader(aChannel, buffer).parse();
+	}
+
+	private int boardSize = DEFAULT_BOARD_SIZE;
+	private final ByteBuffer buffer;
+	private final ReadableByteChannel channel;
+	private final MoveList codes = new MoveList(256);
+	private byte[] colours = new byte[256];
+	private final StringBuilder identifier = new StringBuilder();
+	private float komi;
+	private Player playerToPlay;
+	private int pushback = NONE;
+	private final BitSet setup = new BitSet();
+	private final StringBuilder value = new StringBuilder();
+
+	private SgfReader(ReadableByteChannel aChannel, ByteBuffer aBuffer) {
+		channel = aChannel;
+		buffer = aBuffer;
+	}
+
+	private void add(int aCode, Player aPlayer, boolean aSetup) {
+		final int index = codes.size();
+		if (index == colours.length) {
+			colours = Arrays.copyOf(colours, index * 2);
+		}
+		codes.add(aCode);
+		colours[index] = (byte) aPlayer.ordinal();
+		setup.set(index, aSetup);
+	}
+
+	private void addSetup(Player aPlayer) throws SyntaxErrorException {
+		final int colon = value.indexOf(":");
+		if (colon < 0) {
+			final int code = point(0, value.length());
+			if (code != Move.PASS_CODE) {
+				add(code, aPlayer, true);
+			}
+			return;
+		}
+		// Compressed point list, a rectangle given by two corners.
+		final int first = point(0, colon);
+		final int second = point(colon + 1, value.length());
+		if (first == Move.PASS_CODE || second == Move.PASS_CODE) {
+			throw new SyntaxErrorException("Invalid point list in SGF: " + value + "!");
+		}
+		final int minX = Math.min(Move.decodeX(first), Move.decodeX(second));
+		final int maxX = Math.max(Move.decodeX(first), Move.decodeX(second));
+		final int minY = Math.min(Move.decodeY(first), Move.decodeY(second));
+		final int maxY = Math.max(Move.decodeY(first), Move.decodeY(second));
+		for (int y = maxY; y >= minY; --y) {
+			for (int x = minX; x <= maxX; ++x) {
+				add(Move.encode(x, y), aPlayer, true);
+			}
+		}
+	}
+
+	private boolean fill() throws IOException {
+		if (null == channel) {
+			return false;
+		}
+		buffer.clear();
+		int read;
+		do {
+			read = channel.read(buffer);
+		} while (read == 0);
+		buffer.flip();
+		return read > 0;
+	}
+
+	private boolean isIdentifier(String aName) {
+		return aName.contentEquals(identifier);
+	}
+
+	private boolean isNeeded() {
+		return isIdentifier("B") || isIdentifier("W") || isIdentifier("AB") || isIdentifier("AW")
+				|| isIdentifier("SZ") || isIdentifier("KM") || isIdentifier("PL");
+	}
+
+	private SgfGame parse() throws IOException, SyntaxErrorException {
+		// Anything before the first game tree is ignored, like a mail header.
+		int c;
+		do {
+			c = read();
+		} while (c != '(' && c != EOF);
+		if (c == EOF) {
+			throw new SyntaxErrorException("No game found in SGF!");
+		}
+
+		while (true) {
+			c = readNonSpace();
+			if (c == ';') {
+				parseNode();
+			} else if (c == '(') {
+				continue; // The first variation continues the main line
+			} else if (c == ')' || c == EOF) {
+				break; // End of the main line, or a truncated file
+			} else {
+				throw new SyntaxErrorException("Unexpected character in SGF: " + (char) c + "!");
+			}
+		}
+		return new SgfGame(boardSize, komi, playerToPlay, codes, colours, setup);
+	}
+
+	private void parseNode() throws IOException, SyntaxErrorException {
+		while (true) {
+			int c = readNonSpace();
+			if (c < 'A' || c > 'Z') {
+				pushback = c;
+				return;
+			}
+			identifier.setLength(0);
+			// Old versions allow lower case letters in identifiers, they are
+			// not significant.
+			while ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')) {
+				if (c <= 'Z') {
+					identifier.append((char) c);
+				}
+				c = read();
+			}
+			if (c != '[') {
+				c = skipSpace(c);
+			}
+			if (c != '[') {
+				throw new SyntaxErrorException("Property without value in SGF: " + identifier + "!");
+			}
+			final boolean needed = isNeeded();
+			do {
+				readValue(needed);
+				if (needed) {
+					property();
+				}
+				c = readNonSpace();
+			} while (c == '[');
+			pushback = c;
+		}
+	}
+
+	private int point(int aStart, int aEnd) throws SyntaxErrorException {
+		if (aStart == aEnd) {
+			return Move.PASS_CODE;
+		}
+		if (aEnd - aStart != 2) {
+			throw new SyntaxErrorException("Invalid point in SGF: " + value + "!");
+		}
+		final int x = value.charAt(aStart) - 'a';
+		final int y = value.charAt(aStart + 1) - 'a';
+		if (boardSize <= 19 && x == 19 && y == 19) {
+			return Move.PASS_CODE; // "tt" is an old way of writing pass
+		}
+		if (x < 0 || y < 0 || x >= boardSize || y >= boardSize) {
+			throw new SyntaxErrorException("Point outside of board in SGF: " + value + "!");
+		}
+		// SGF counts rows from the top.
+		return Move.encode(x, boardSize - 1 - y);
+	}
+
+	private void property() throws SyntaxErrorException {
+		if (isIdentifier("B") || isIdentifier("W")) {
+			add(point(0, value.length()), isIdentifier("B") ? Player.BLACK : Player.WHITE, false);
+		} else if (isIdentifier("AB") || isIdentifier("AW")) {
+			addSetup(isIdentifier("AB") ? Player.BLACK : Player.WHITE);
+		} else if (isIdentifier("SZ")) {
+			if (codes.size() > 0) {
+				throw new SyntaxErrorException("Board size after moves in SGF!");
+			}
+			try {
+				boardSize = Integer.parseInt(value.toString().trim());
+			} catch (final NumberFormatException e) {
+				throw new SyntaxErrorException("Unsupported board size in SGF: " + value + "!");
+			}
+			if (boardSize < Move.MIN_BOARD_SIZE || boardSize > Move.MAX_BOARD_SIZE) {
+				throw new SyntaxErrorException("Unsupported board size in SGF: " + value + "!");
+			}
+		} else if (isIdentifier("KM")) {
+			try {
+				komi = Float.parseFloat(value.toString().trim());
+			} catch (final NumberFormatException e) {
+				throw new SyntaxErrorException("Not a float: " + value + "!");
+			}
+		} else if (isIdentifier("PL")) {
+			playerToPlay = Player.fromString(value.toString().trim());
+		}
+	}
+
+	private int read() throws IOException {
+		if (pushback != NONE) {
+			final int c = pushback;
+			pushback = NONE;
+			return c;
+		}
+		if (!buffer.hasRemaining() && !fill()) {
+			return EOF;
+		}
+		return buffer.get() & 0xFF;
+	}
+
+	private int readNonSpace() throws IOException {
+		return skipSpace(read());
+	}
+
+	/**
+	 * Reads a property value after the opening bracket up to and including
+	 * the closing bracket. The value is kept only if needed.
+	 */
+	private void readValue(boolean aKeep) throws IOException, SyntaxErrorException {
+		value.setLength(0);
+		while (true) {
+			int c = read();
+			if (c == ']') {
+				return;
+			}
+			if (c == '\\') {
+				c = read();
+			}
+			if (c == EOF) {
+				throw new SyntaxErrorException("Unterminated property value in SGF: " + identifier + "!");
+			}
+			if (aKeep) {
+				if (value.length() == MAX_VALUE_LENGTH) {
+					throw new SyntaxErrorException("Property value too long in SGF: " + identifier + "!");
+				}
+				value.append((char) c);
+			}
+		}
+	}
+
+	private int skipSpace(int aChar) throws IOException {
+		int c = aChar;
+		while (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == 0x0B) {
+			c = read();
+		}
+		return c;
+	}
+}
@@ -0,0 +1,204 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.util.List;
+
+/**
+ * Adapts a {@link SharedGoEngine} to a {@link GoEngine} that plays one game,
+ * tracking the game in its own {@link GameContext}.
+ *
+ * Like {@link GoTextProtocol}, the session expects exactly one call to
+ * {@link #stopAnalysis()} for each call to
+ * {@link #analyze(Player, AnalysisSink)} and at most one call to
+ * {@link #stopPondering()} for each call to {@link #startPondering(Player)}.
+ * The stop may arrive before the call has been entered or after it has
+ * returned. The calls and stops of each kind are counted so that a stop is
+ * only seen by the call it belongs to, and never by a later one.
+ *
+ * @author Emily Björk
+ */
+final class SharedEngineSession implements GoEngine {
+	private static final int ANALYZING = 1;
+	private static final int DEFAULT_BOARD_SIZE = 19;
+	private static final int IDLE = 0;
+	private static final int PONDERING = 2;
+
+	private int analysisCalls;
+	private int analysisStops;
+	private final GameContext context = new GameContext(DEFAULT_BOARD_SIZE);
+	private final SharedGoEngine engine;
+	private int ponderingCalls;
+	private int ponderingStops;
+	/**
+	 * What the engine is doing in the background, {@link #IDLE},
+	 * {@link #ANALYZING} or {@link #PONDERING}.
+	 */
+	private int running = IDLE;
+
+	/**
+	 * @param aEngine
+	 *            The engine to pick moves with.
+	 */
+	SharedEngineSession(SharedGoEngine aEngine) {
+		engine = aEngine;
+	}
+
+	@Override
+	public boolean addMove(Move aMove, Player aPlayer) {
+		return context.getBoard().play(aMove, aPlayer);
+	}
+
+	@Override
+	public void analyze(Player aPlayer, AnalysisSink aSink) {
+		synchronized (this) {
+			analysisCalls++;
+			enter(ANALYZING, analysisStops >= analysisCalls);
+		}
+		try {
+			engine.analyze(context, aPlayer, aSink);
+		} finally {
+			exit();
+		}
+	}
+
+	@Override
+	public boolean canAnalyze() {
+		return engine.canAnalyze();
+	}
+
+	@Override
+	public boolean canScore() {
+		return engine.canScore();
+	}
+
+	/**
+	 * @return The game played by this session.
+	 */
+	GameContext getContext() {
+		return context;
+	}
+
+	@Override
+	public String getName() {
+		return engine.getName();
+	}
+
+	@Override
+	public Score getScore() {
+		return engine.getScore(context);
+	}
+
+	@Override
+	public String getVersion() {
+		return engine.getVersion();
+	}
+
+	@Override
+	public void newGame() {
+		context.newGame();
+	}
+
+	@Override
+	public Move nextMove(Player aPlayer) {
+		return nextMove(aPlayer, Deadline.NONE);
+	}
+
+	@Override
+	public Move nextMove(Player aPlayer, Deadline aDeadline) {
+		final Move move = engine.nextMove(context, aPlayer, aDeadline);
+		// Resigning doesn't change the board, the controller won't undo it.
+		if (move.toCode() != Move.RESIGN_CODE && !context.getBoard().play(move, aPlayer)) {
+			throw new IllegalStateException(engine.getName() + " played an illegal move: " + move + "!");
+		}
+		return move;
+	}
+
+	@Override
+	public boolean resizeBoard(int aSize) {
+		if (aSize < Move.MIN_BOARD_SIZE || aSize > Move.MAX_BOARD_SIZE || !engine.isBoardSizeSupported(aSize)) {
+			return false;
+		}
+		context.resize(aSize);
+		return true;
+	}
+
+	@Override
+	public boolean setHandicap(List<Move> aStones) {
+		final Board board = context.getBoard();
+		final int moveCount = board.getMoveCount();
+		for (final Move stone : aStones) {
+			if (!board.play(stone, Player.BLACK)) {
+				board.rollback(moveCount);
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void setKomi(float aKomi) {
+		context.setKomi(aKomi);
+	}
+
+	@Override
+	public void startPondering(Player aPlayer) {
+		synchronized (this) {
+			ponderingCalls++;
+			enter(PONDERING, ponderingStops >= ponderingCalls);
+		}
+		try {
+			engine.ponder(context, aPlayer);
+		} finally {
+			exit();
+		}
+	}
+
+	@Override
+	public synchronized void stopAnalysis() {
+		analysisStops++;
+		if (running == ANALYZING && analysisStops >= analysisCalls) {
+			context.setStopRequested(true);
+		}
+	}
+
+	@Override
+	public synchronized void stopPondering() {
+		ponderingStops++;
+		if (running == PONDERING && ponderingStops >= ponderingCalls) {
+			context.setStopRequested(true);
+		}
+	}
+
+	@Override
+	public boolean undo() {
+		return context.getBoard().undo();
+	}
+
+	private void enter(int aRunning, boolean aStopped) {
+		running = aRunning;
+		context.setStopRequested(aStopped);
+	}
+
+	private synchronized void exit() {
+		running = IDLE;
+		context.setStopRequested(false);
+	}
+}
@@ -0,0 +1,153 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+/**
+ * A Go robot that serves many games at once from one instance, so that heavy
+ * resources like the weights of a neural network are loaded only once.
+ *
+ * Unlike {@link GoEngine}, which holds the state of a single game, every call
+ * is passed the {@link GameContext} of the game it is for. Gonector keeps the
+ * context up to date with the moves, board size and komi sent by the
+ * controller, including captures, ko, handicap stones and <code>undo</code>.
+ * All the engine has to do is to pick moves.
+ *
+ * Use {@link #newSession()} to get a {@link GoEngine} with its own context
+ * for each connection, for example for a {@link GtpServer}:
+ *
+ * <pre>
+ * SharedGoEngine model = new MyNeuralNetworkEngine(weights);
+ * GtpServer server = new GtpServer(channel, model::newSession, 200, 10, TimeUnit.MINUTES);
+ * </pre>
+ *
+ * All methods may be called from many threads at once, for different
+ * contexts, so implementations must be thread safe.
+ *
+ * @author Emily Björk
+ */
+public interface SharedGoEngine {
+	/**
+	 * Analyses a position until {@link GameContext#isStopRequested()}
+	 * returns <code>true</code>, see
+	 * {@link GoEngine#analyze(Player, AnalysisSink)}. The default
+	 * implementation throws {@link UnsupportedOperationException}.
+	 *
+	 * @param aGame
+	 *            The game to analyse.
+	 * @param aPlayer
+	 *            The player to analyse for.
+	 * @param aSink
+	 *            Where to publish the candidate moves.
+	 */
+	default void analyze(GameContext aGame, Player aPlayer, AnalysisSink aSink) {
+		throw new UnsupportedOperationException("Engine doesn't support analysis!");
+	}
+
+	/**
+	 * @return <code>true</code> if this engine implements
+	 *         {@link #analyze(GameContext, Player, AnalysisSink)}. Must be
+	 *         constant.
+	 */
+	default boolean canAnalyze() {
+		return false;
+	}
+
+	/**
+	 * @return <code>true</code> if this engine implements
+	 *         {@link #getScore(GameContext)}. Must be constant.
+	 */
+	default boolean canScore() {
+		return false;
+	}
+
+	/**
+	 * @return The name of the robot. Must be ASCII only.
+	 */
+	String getName();
+
+	/**
+	 * Computes the score of a game, see {@link GoEngine#getScore()}. The
+	 * default implementation throws {@link UnsupportedOperationException}.
+	 *
+	 * @param aGame
+	 *            The game to score.
+	 * @return The score of the game.
+	 */
+	default Score getScore(GameContext aGame) {
+		throw new UnsupportedOperationException("Engine doesn't support scoring!");
+	}
+
+	/**
+	 * @return The version of the robot. Must be ASCII only.
+	 */
+	String getVersion();
+
+	/**
+	 * @param aSize
+	 *            A board size between {@link Move#MIN_BOARD_SIZE} and
+	 *            {@link Move#MAX_BOARD_SIZE}.
+	 * @return <code>true</code> if the robot can play on boards of the size.
+	 *         The default implementation supports all sizes.
+	 */
+	default boolean isBoardSizeSupported(int aSize) {
+		return true;
+	}
+
+	/**
+	 * Asks the robot for the next move in a game. The move is played on the
+	 * board of the context when this method returns.
+	 *
+	 * @param aGame
+	 *            The game to play in.
+	 * @param aPlayer
+	 *            The player to find a move for.
+	 * @param aDeadline
+	 *            When the robot should have answered by,
+	 *            {@link Deadline#NONE} if there are no time limits.
+	 * @return The move to play, it must be legal on the board of the
+	 *         context.
+	 */
+	Move nextMove(GameContext aGame, Player aPlayer, Deadline aDeadline);
+
+	/**
+	 * Creates a {@link GoEngine} that plays one game at a time with this
+	 * robot, with its own {@link GameContext}. Creating a session is cheap.
+	 *
+	 * @return A new session with a 19x19 board.
+	 */
+	default GoEngine newSession() {
+		return new SharedEngineSession(this);
+	}
+
+	/**
+	 * Thinks in the background while the opponent is thinking, until
+	 * {@link GameContext#isStopRequested()} returns <code>true</code>, see
+	 * {@link GoEngine#startPondering(Player)}. The default implementation
+	 * does nothing.
+	 *
+	 * @param aGame
+	 *            The game to ponder.
+	 * @param aPlayer
+	 *            The player whose move the robot expects next.
+	 */
+	default void ponder(GameContext aGame, Player aPlayer) {
+		// No pondering by default.
+	}
+}
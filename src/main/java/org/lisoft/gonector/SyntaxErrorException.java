@@ -21,7 +21,7 @@ package org.lisoft.gonector;
 
 /**
  * An exception that is thrown when parsing of the input command from GTP
- * failed.
+ * failed, or when an SGF file could not be parsed.
  *
  * @author Emily Björk
  */
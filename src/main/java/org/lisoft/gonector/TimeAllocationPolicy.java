@@ -0,0 +1,44 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+/**
+ * Decides how much of the remaining time the engine may spend on one move.
+ *
+ * @author Emily Björk
+ */
+@FunctionalInterface
+public interface TimeAllocationPolicy {
+	/**
+	 * The policy used unless another one is set.
+	 */
+	TimeAllocationPolicy DEFAULT = new ProportionalTimeAllocation(30, 0.5);
+
+	/**
+	 * @param aClock
+	 *            The clock of the game, holds the time settings and the time
+	 *            left for both players.
+	 * @param aPlayer
+	 *            The player that is about to move.
+	 * @return The time the engine may think in nanoseconds, or
+	 *         {@link Long#MAX_VALUE} if there is no limit.
+	 */
+	long allocate(GameClock aClock, Player aPlayer);
+}
@@ -0,0 +1,175 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+/**
+ * The time control of a game as set by the <code>time_settings</code> and
+ * <code>kgs-time_settings</code> commands. All times are in seconds.
+ *
+ * @author Emily Björk
+ */
+public final class TimeSettings {
+	/**
+	 * The kinds of time control that GTP controllers may ask for.
+	 *
+	 * @author Emily Björk
+	 */
+	public enum Type {
+		/**
+		 * No time limit.
+		 */
+		NONE,
+		/**
+		 * Sudden death, only main time.
+		 */
+		ABSOLUTE,
+		/**
+		 * Main time followed by Canadian byo-yomi, a number of stones must be
+		 * played in each byo-yomi period.
+		 */
+		CANADIAN,
+		/**
+		 * Main time followed by Japanese byo-yomi, one stone must be played in
+		 * each of a number of byo-yomi periods.
+		 */
+		BYOYOMI
+	}
+
+	/**
+	 * No time limits, the default for a new game.
+	 */
+	public static final TimeSettings NONE = new TimeSettings(Type.NONE, 0, 0, 0);
+
+	/**
+	 * @param aMainTime
+	 *            The main time in seconds.
+	 * @return Sudden death time settings.
+	 */
+	public static TimeSettings absolute(double aMainTime) {
+		return new TimeSettings(Type.ABSOLUTE, aMainTime, 0, 0);
+	}
+
+	/**
+	 * @param aMainTime
+	 *            The main time in seconds.
+	 * @param aPeriodTime
+	 *            The length of each byo-yomi period in seconds.
+	 * @param aPeriods
+	 *            The number of byo-yomi periods.
+	 * @return Japanese byo-yomi time settings.
+	 */
+	public static TimeSettings byoYomi(double aMainTime, double aPeriodTime, int aPeriods) {
+		return new TimeSettings(Type.BYOYOMI, aMainTime, aPeriodTime, aPeriods);
+	}
+
+	/**
+	 * @param aMainTime
+	 *            The main time in seconds.
+	 * @param aPeriodTime
+	 *            The length of each byo-yomi period in seconds.
+	 * @param aPeriodStones
+	 *            The number of stones that must be played in each period.
+	 * @return Canadian byo-yomi time settings.
+	 */
+	public static TimeSettings canadian(double aMainTime, double aPeriodTime, int aPeriodStones) {
+		return new TimeSettings(Type.CANADIAN, aMainTime, aPeriodTime, aPeriodStones);
+	}
+
+	/**
+	 * Interprets the arguments of the standard GTP <code>time_settings</code>
+	 * command.
+	 *
+	 * @param aMainTime
+	 *            The main time in seconds.
+	 * @param aByoYomiTime
+	 *            The length of a byo-yomi period in seconds, zero for sudden
+	 *            death.
+	 * @param aByoYomiStones
+	 *            The number of stones per byo-yomi period. Zero together with
+	 *            a positive period time means no time limit.
+	 * @return The corresponding time settings.
+	 */
+	public static TimeSettings fromGtp(int aMainTime, int aByoYomiTime, int aByoYomiStones) {
+		if (aByoYomiTime > 0 && aByoYomiStones == 0) {
+			return NONE;
+		}
+		if (aByoYomiTime == 0) {
+			return absolute(aMainTime);
+		}
+		return canadian(aMainTime, aByoYomiTime, aByoYomiStones);
+	}
+
+	private final double mainTime;
+	private final int periodCount;
+	private final double periodTime;
+	private final Type type;
+
+	private TimeSettings(Type aType, double aMainTime, double aPeriodTime, int aPeriodCount) {
+		if (aMainTime < 0 || aPeriodTime < 0 || aPeriodCount < 0) {
+			throw new IllegalArgumentException("Time settings must not be negative!");
+		}
+		type = aType;
+		mainTime = aMainTime;
+		periodTime = aPeriodTime;
+		periodCount = aPeriodCount;
+	}
+
+	/**
+	 * @return The main time in seconds.
+	 */
+	public double getMainTime() {
+		return mainTime;
+	}
+
+	/**
+	 * @return The number of stones per period for {@link Type#CANADIAN}, the
+	 *         number of periods for {@link Type#BYOYOMI}, zero otherwise.
+	 */
+	public int getPeriodCount() {
+		return periodCount;
+	}
+
+	/**
+	 * @return The length of one byo-yomi period in seconds.
+	 */
+	public double getPeriodTime() {
+		return periodTime;
+	}
+
+	/**
+	 * @return The kind of time control.
+	 */
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * @return <code>true</code> if the time control has a byo-yomi phase after
+	 *         the main time.
+	 */
+	public boolean hasByoYomi() {
+		return type == Type.CANADIAN || type == Type.BYOYOMI;
+	}
+
+	@Override
+	public String toString() {
+		return type + "[main=" + mainTime + ", period=" + periodTime + ", count=" + periodCount + "]";
+	}
+}
@@ -0,0 +1,89 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import java.io.IOException;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Abstracts the connection to the controller so that {@link GoTextProtocol}
+ * can run on top of character streams as well as byte channels.
+ *
+ * @author Emily Björk
+ */
+interface Transport {
+	/**
+	 * Reads the next line from the controller. Lines may be terminated by
+	 * <code>"\n"</code>, <code>"\r"</code> or <code>"\r\n"</code>. Pending
+	 * output is flushed before this method blocks waiting for input.
+	 *
+	 * @param aLine
+	 *            The {@link CommandLine} to read into, it is cleared first.
+	 * @return <code>false</code> if the end of the stream was reached before
+	 *         any character was read.
+	 * @throws IOException
+	 *             If the underlying stream throws.
+	 */
+	boolean readLine(CommandLine aLine) throws IOException;
+
+	/**
+	 * Writes any buffered output to the controller. Holds the
+	 * {@link #getWriteLock()} so that another thread can own the output while
+	 * the protocol thread blocks in {@link #readLine(CommandLine)}, see
+	 * {@link AnalysisStream}.
+	 *
+	 * @throws IOException
+	 *             If the underlying stream throws.
+	 */
+	void flush() throws IOException;
+
+	/**
+	 * The lock held while writing to the controller. It is a {@link Lock}
+	 * rather than the transport's monitor because blocking writes while
+	 * holding a monitor pin virtual threads to their carrier on JDK 21 to 23,
+	 * and a few slow controllers would then stall every session of a
+	 * {@link GtpServer}.
+	 *
+	 * @return The reentrant lock that {@link #flush()} holds.
+	 */
+	Lock getWriteLock();
+
+	/**
+	 * Writes one character to the output buffer. Buffered output is sent when
+	 * {@link #flush()} is called, when the buffer is full or before
+	 * {@link #readLine(CommandLine)} has to block waiting for input.
+	 *
+	 * @param aChar
+	 *            The character to write.
+	 * @throws IOException
+	 *             If the underlying stream throws.
+	 */
+	void write(char aChar) throws IOException;
+
+	/**
+	 * Writes characters to the output buffer, see {@link #write(char)}.
+	 *
+	 * @param aChars
+	 *            The characters to write.
+	 * @throws IOException
+	 *             If the underlying stream throws.
+	 */
+	void write(CharSequence aChars) throws IOException;
+}
@@ -0,0 +1,103 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+/**
+ * Zobrist keys for hashing Go positions.
+ *
+ * Every combination of point and player has a random 64 bit key, the hash of
+ * a position is the exclusive or of the keys of all stones on the board. This
+ * makes it possible to update the hash incrementally as stones are placed and
+ * captured, see {@link Board#getHash()}.
+ *
+ * The keys are generated from a fixed seed so the same position has the same
+ * hash in every JVM, which makes the hashes usable as stable keys for caches
+ * and opening books.
+ *
+ * @author Emily Björk
+ */
+public final class Zobrist {
+	/**
+	 * Key to combine with a positional hash when it is white's turn to move.
+	 * See {@link #situational(long, Player)}.
+	 */
+	public static final long WHITE_TO_MOVE;
+
+	private static final long[] KEYS = new long[Board.POINTS * 2];
+	private static final long SEED = 0x676f6e6563746f72L;
+
+	static {
+		long state = SEED;
+		for (int i = 0; i < KEYS.length; ++i) {
+			state += 0x9e3779b97f4a7c15L;
+			KEYS[i] = mix(state);
+		}
+		state += 0x9e3779b97f4a7c15L;
+		WHITE_TO_MOVE = mix(state);
+	}
+
+	/**
+	 * @param aMove
+	 *            The point of the stone.
+	 * @param aPlayer
+	 *            The owner of the stone.
+	 * @return The key for a stone of the given player on the given point.
+	 *         Passing and resigning have the key 0 as they don't change the
+	 *         position.
+	 */
+	public static long key(Move aMove, Player aPlayer) {
+		if (aMove.x < 0) {
+			return 0;
+		}
+		return key(aMove.toCode(), aPlayer.ordinal());
+	}
+
+	/**
+	 * Converts a positional hash into a situational hash, that is one which
+	 * also accounts for the player to move. Use this for situational superko.
+	 *
+	 * @param aPositionalHash
+	 *            A hash as returned by {@link Board#getHash()}.
+	 * @param aToMove
+	 *            The player to move next in the position.
+	 * @return A hash of the position and the player to move.
+	 */
+	public static long situational(long aPositionalHash, Player aToMove) {
+		return aToMove == Player.WHITE ? aPositionalHash ^ WHITE_TO_MOVE : aPositionalHash;
+	}
+
+	static long key(int aPoint, int aColour) {
+		return KEYS[aColour * Board.POINTS + aPoint];
+	}
+
+	/**
+	 * The SplitMix64 finalizer.
+	 */
+	private static long mix(long aValue) {
+		long z = aValue;
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	private Zobrist() {
+		// Not instantiable.
+	}
+}
@@ -0,0 +1,93 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Test suite for {@link AnalysisStream}.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class AnalysisStreamTest {
+	private final StringWriter output = new StringWriter();
+	private final Transport transport = new ReaderTransport(new BufferedReader(new StringReader("")), output);
+
+	@Test
+	public void testEmptyCandidatesNotWritten() throws Exception {
+		final AnalysisStream cut = new AnalysisStream(transport, false, 1);
+		cut.publish(Collections.emptyList());
+		cut.flush();
+		assertEquals("", output.toString());
+	}
+
+	@Test
+	public void testKataWithoutScore() throws Exception {
+		final AnalysisStream cut = new AnalysisStream(transport, true, 1);
+		cut.publish(Arrays.asList(candidate("d4", 3)));
+		cut.flush();
+		assertEquals("info move d4 visits 3 winrate 0.500000 prior 0.100000 order 0 pv d4\n", output.toString());
+	}
+
+	@Test
+	public void testLatestWins() throws Exception {
+		final AnalysisStream cut = new AnalysisStream(transport, false, 1);
+		cut.publish(Arrays.asList(candidate("d4", 1)));
+		cut.publish(Arrays.asList(candidate("q16", 2)));
+		cut.flush();
+		cut.flush();
+		assertEquals("info move q16 visits 2 winrate 5000 prior 1000 order 0 pv q16\n", output.toString());
+	}
+
+	@Test(timeout = 10000)
+	public void testRunUntilStopped() throws Exception {
+		final AnalysisStream cut = new AnalysisStream(transport, false, TimeUnit.MILLISECONDS.toNanos(1));
+		final Thread writer = new Thread(() -> {
+			try {
+				cut.run();
+			} catch (final Exception e) {
+				throw new AssertionError(e);
+			}
+		});
+		writer.start();
+		cut.publish(Arrays.asList(candidate("d4", 1)));
+		while (output.toString().isEmpty()) {
+			Thread.yield();
+		}
+		cut.stop();
+		writer.join();
+		assertEquals("info move d4 visits 1 winrate 5000 prior 1000 order 0 pv d4\n", output.toString());
+	}
+
+	private AnalysisCandidate candidate(String aMove, int aVisits) throws SyntaxErrorException {
+		final Move move = Move.valueOf(aMove);
+		return new AnalysisCandidate(move, aVisits, 0.5, 0.1, Arrays.asList(move));
+	}
+}
@@ -0,0 +1,329 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test suite for {@link BatchAnalyzer}.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class BatchAnalyzerTest {
+	/**
+	 * A {@link TestEngine} that counts how often engines are closed.
+	 */
+	private static class CloseableTestEngine extends TestEngine implements AutoCloseable {
+		private final AtomicInteger closed;
+
+		CloseableTestEngine(AtomicInteger aClosed) {
+			closed = aClosed;
+		}
+
+		@Override
+		public void close() {
+			closed.incrementAndGet();
+		}
+	}
+
+	/**
+	 * An engine that counts the stones it has been given and passes.
+	 */
+	private static class TestEngine implements GoEngine {
+		int size;
+		int stones;
+
+		@Override
+		public boolean addMove(Move aMove, Player aPlayer) {
+			stones++;
+			return true;
+		}
+
+		@Override
+		public String getName() {
+			return "test";
+		}
+
+		@Override
+		public String getVersion() {
+			return "1";
+		}
+
+		@Override
+		public void newGame() {
+			stones = 0;
+		}
+
+		@Override
+		public Move nextMove(Player aPlayer) {
+			return Move.PASS;
+		}
+
+		@Override
+		public boolean resizeBoard(int aSize) {
+			size = aSize;
+			return aSize != 13;
+		}
+
+		@Override
+		public void setKomi(float aKomi) {
+			// Ignored
+		}
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final BatchAnalyzer cut = new BatchAnalyzer(TestEngine::new);
+	private Path directory;
+	private Path output;
+
+	@Before
+	public void setup() throws Exception {
+		directory = folder.newFolder("games").toPath();
+		output = folder.getRoot().toPath().resolve("out.txt");
+		cut.setAnalysis((engine, player, deadline) -> Integer.toString(((TestEngine) engine).stones));
+		cut.setProgressInterval(0, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void testAllPositions() throws Exception {
+		writeSgf("a.sgf", "(;SZ[9];B[ee];W[cc])");
+
+		final BatchResult result = cut.run(directory, output, 2);
+
+		assertEquals(1, result.getFiles());
+		assertEquals(3, result.getPositions());
+		assertEquals(Arrays.asList("a.sgf\t1\tblack\t0", "a.sgf\t2\twhite\t1", "a.sgf\t3\tblack\t2"), readOutput());
+	}
+
+	@Test
+	public void testClosesEngines() throws Exception {
+		writeSgf("a.sgf", "(;SZ[9];B[ee];W[cc])");
+		final AtomicInteger closed = new AtomicInteger();
+		final BatchAnalyzer closing = new BatchAnalyzer(() -> new CloseableTestEngine(closed));
+		closing.run(directory, output, 3);
+		assertEquals(3, closed.get());
+	}
+
+	@Test
+	public void testDefaultAnalysisAsksForMove() throws Exception {
+		writeSgf("a.sgf", "(;SZ[9])");
+		final BatchAnalyzer defaultAnalysis = new BatchAnalyzer(TestEngine::new);
+		defaultAnalysis.run(directory, output, 1);
+		assertEquals(Arrays.asList("a.sgf\t1\tblack\tpass"), readOutput());
+	}
+
+	@Test
+	public void testDefaultAnalysisPlaysEachMoveOnce() throws Exception {
+		writeSgf("a.sgf", "(;SZ[9]AB[cc];W[ee];B[gg];W[])");
+		final AtomicInteger added = new AtomicInteger();
+		final AtomicInteger newGames = new AtomicInteger();
+		final AtomicInteger undone = new AtomicInteger();
+		final BatchAnalyzer defaultAnalysis = new BatchAnalyzer(() -> new TestEngine() {
+			@Override
+			public boolean addMove(Move aMove, Player aPlayer) {
+				added.incrementAndGet();
+				return super.addMove(aMove, aPlayer);
+			}
+
+			@Override
+			public void newGame() {
+				newGames.incrementAndGet();
+				super.newGame();
+			}
+
+			@Override
+			public boolean undo() {
+				undone.incrementAndGet();
+				return true;
+			}
+		});
+
+		final BatchResult result = defaultAnalysis.run(directory, output, 1);
+
+		assertEquals(4, result.getPositions());
+		assertEquals(4, added.get());
+		assertEquals(1, newGames.get());
+		assertEquals(4, undone.get());
+	}
+
+	@Test
+	public void testDefaultAnalysisWithoutUndo() throws Exception {
+		writeSgf("a.sgf", "(;SZ[9];B[ee];W[cc])");
+		final AtomicInteger newGames = new AtomicInteger();
+		final BatchAnalyzer defaultAnalysis = new BatchAnalyzer(() -> new TestEngine() {
+			@Override
+			public void newGame() {
+				newGames.incrementAndGet();
+				super.newGame();
+			}
+		});
+
+		defaultAnalysis.run(directory, output, 1);
+
+		assertEquals(3, newGames.get());
+		assertEquals(Arrays.asList("a.sgf\t1\tblack\tpass", "a.sgf\t2\twhite\tpass", "a.sgf\t3\tblack\tpass"),
+				readOutput());
+	}
+
+	@Test
+	public void testEngineThrows() throws Exception {
+		final StringBuilder sgf = new StringBuilder("(;SZ[9]");
+		for (int i = 0; i < 50; ++i) {
+			sgf.append(";B[]");
+		}
+		writeSgf("a.sgf", sgf.append(')').toString());
+		cut.setQueueCapacity(1);
+		cut.setAnalysis((engine, player, deadline) -> {
+			throw new IllegalStateException("Boom");
+		});
+		try {
+			cut.run(directory, output, 2);
+			fail("Expected exception");
+		} catch (final ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+	}
+
+	@Test
+	public void testInterval() throws Exception {
+		writeSgf("a.sgf", "(;SZ[9];B[ee];W[cc];B[gg])");
+		cut.setInterval(2);
+
+		final BatchResult result = cut.run(directory, output, 1);
+
+		assertEquals(2, result.getPositions());
+		assertEquals(Arrays.asList("a.sgf\t1\tblack\t0", "a.sgf\t3\tblack\t2"), readOutput());
+	}
+
+	@Test
+	public void testInvalidResults() throws Exception {
+		writeSgf("a.sgf", "(;SZ[9];B[ee];W[cc];B[gg];W[])");
+		cut.setAnalysis((engine, player, deadline) -> {
+			switch (((TestEngine) engine).stones) {
+				case 0:
+					return null;
+				case 1:
+					return "a\tb";
+				case 2:
+					return "a\nb";
+				case 3:
+					return "a\r";
+				default:
+					return "ok";
+			}
+		});
+
+		cut.run(directory, output, 1);
+		// Resuming truncates the output to the checkpoint, which must still
+		// match it.
+		cut.run(directory, output, 1);
+
+		assertEquals(Arrays.asList("a.sgf\t1\tblack\t? invalid result", "a.sgf\t2\twhite\t? invalid result",
+				"a.sgf\t3\tblack\t? invalid result", "a.sgf\t4\twhite\t? invalid result", "a.sgf\t5\tblack\tok"),
+				readOutput());
+	}
+
+	@Test
+	public void testManyFilesInSubDirectories() throws Exception {
+		Files.createDirectories(directory.resolve("sub"));
+		for (int i = 0; i < 20; ++i) {
+			writeSgf((i % 2 == 0 ? "sub/" : "") + i + ".sgf", "(;SZ[9];B[ee];W[cc];B[gg];W[])");
+		}
+		writeSgf("readme.txt", "(;SZ[9])");
+		cut.setQueueCapacity(3);
+
+		final BatchResult result = cut.run(directory, output, 4);
+
+		assertEquals(20, result.getFiles());
+		assertEquals(100, result.getPositions());
+		final List<String> lines = readOutput();
+		assertEquals(100, lines.size());
+		assertTrue(lines.contains("sub/4.sgf\t5\tblack\t4"));
+		assertTrue(lines.contains("5.sgf\t2\twhite\t1"));
+	}
+
+	@Test
+	public void testResume() throws Exception {
+		writeSgf("a.sgf", "(;SZ[9];B[ee])");
+		cut.run(directory, output, 1);
+		// Simulate a crash after writing output for a file that wasn't
+		// checkpointed.
+		Files.write(output, "b.sgf\t1\tblack\t0\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+		writeSgf("b.sgf", "(;SZ[9];B[ee])");
+
+		final BatchResult result = cut.run(directory, output, 1);
+
+		assertEquals(1, result.getResumedFiles());
+		assertEquals(1, result.getFiles());
+		assertEquals(Arrays.asList("a.sgf\t1\tblack\t0", "a.sgf\t2\twhite\t1", "b.sgf\t1\tblack\t0",
+				"b.sgf\t2\twhite\t1"), readOutput());
+	}
+
+	@Test
+	public void testSetupStones() throws Exception {
+		writeSgf("a.sgf", "(;SZ[9]AB[cc][gg];W[ee])");
+		cut.run(directory, output, 1);
+		assertEquals(Arrays.asList("a.sgf\t1\twhite\t2", "a.sgf\t2\tblack\t3"), readOutput());
+	}
+
+	@Test
+	public void testSkipsBadFiles() throws Exception {
+		writeSgf("bad.sgf", "(;SZ[99])");
+		writeSgf("big.sgf", "(;SZ[13];B[aa])");
+
+		final BatchResult result = cut.run(directory, output, 1);
+
+		assertEquals(2, result.getFiles());
+		assertEquals(1, result.getSkippedFiles());
+		assertEquals(Arrays.asList("big.sgf\t1\tblack\t? unacceptable size", "big.sgf\t2\twhite\t? unacceptable size"),
+				readOutput());
+		assertFalse(result.toString().isEmpty());
+	}
+
+	private List<String> readOutput() throws Exception {
+		return Files.readAllLines(output, StandardCharsets.UTF_8).stream().sorted().collect(Collectors.toList());
+	}
+
+	private void writeSgf(String aName, String aContents) throws Exception {
+		Files.write(directory.resolve(aName), aContents.getBytes(StandardCharsets.US_ASCII));
+	}
+}
@@ -0,0 +1,57 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Test suite for {@link BatchResult}.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class BatchResultTest {
+	@Test
+	public void testGetters() {
+		final BatchResult cut = new BatchResult(10, 2, 3, 500, TimeUnit.SECONDS.toNanos(2));
+		assertEquals(10, cut.getFiles());
+		assertEquals(2, cut.getSkippedFiles());
+		assertEquals(3, cut.getResumedFiles());
+		assertEquals(500, cut.getPositions());
+		assertEquals(2000, cut.getElapsed(TimeUnit.MILLISECONDS));
+		assertEquals(250.0, cut.getPositionsPerSecond(), 0.0);
+	}
+
+	@Test
+	public void testNoTimeElapsed() {
+		assertEquals(0.0, new BatchResult(0, 0, 0, 0, 0).getPositionsPerSecond(), 0.0);
+	}
+
+	@Test
+	public void testToString() {
+		final BatchResult cut = new BatchResult(10, 2, 3, 500, TimeUnit.SECONDS.toNanos(2));
+		assertEquals("500 positions from 10 files in 2.0 s (250.0 positions/s), 2 files skipped, 3 files resumed",
+				cut.toString());
+	}
+}
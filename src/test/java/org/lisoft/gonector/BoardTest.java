@@ -0,0 +1,600 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test suite for {@link Board}.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class BoardTest {
+	/**
+	 * A slow but obviously correct implementation of the rules to compare
+	 * against.
+	 */
+	private static class ReferenceBoard {
+		final Player[][] stones;
+		final int size;
+
+		ReferenceBoard(int aSize) {
+			size = aSize;
+			stones = new Player[aSize][aSize];
+		}
+
+		long hash() {
+			long ans = 0;
+			for (int x = 0; x < size; ++x) {
+				for (int y = 0; y < size; ++y) {
+					if (stones[x][y] != null) {
+						ans ^= Zobrist.key(Move.valueOf(x, y), stones[x][y]);
+					}
+				}
+			}
+			return ans;
+		}
+
+		boolean hasLiberties(int aX, int aY) {
+			final Player p = stones[aX][aY];
+			final boolean[][] seen = new boolean[size][size];
+			final Deque<int[]> open = new ArrayDeque<>();
+			open.push(new int[] { aX, aY });
+			seen[aX][aY] = true;
+			while (!open.isEmpty()) {
+				final int[] c = open.pop();
+				for (final int[] d : new int[][] { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } }) {
+					final int x = c[0] + d[0];
+					final int y = c[1] + d[1];
+					if (x < 0 || y < 0 || x >= size || y >= size || seen[x][y]) {
+						continue;
+					}
+					if (stones[x][y] == null) {
+						return true;
+					}
+					if (stones[x][y] == p) {
+						seen[x][y] = true;
+						open.push(new int[] { x, y });
+					}
+				}
+			}
+			return false;
+		}
+
+		void removeGroup(int aX, int aY) {
+			final Player p = stones[aX][aY];
+			stones[aX][aY] = null;
+			for (final int[] d : new int[][] { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } }) {
+				final int x = aX + d[0];
+				final int y = aY + d[1];
+				if (x >= 0 && y >= 0 && x < size && y < size && stones[x][y] == p) {
+					removeGroup(x, y);
+				}
+			}
+		}
+
+		/**
+		 * @return true if legal ignoring ko.
+		 */
+		boolean play(int aX, int aY, Player aPlayer) {
+			if (stones[aX][aY] != null) {
+				return false;
+			}
+			stones[aX][aY] = aPlayer;
+			for (final int[] d : new int[][] { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } }) {
+				final int x = aX + d[0];
+				final int y = aY + d[1];
+				if (x >= 0 && y >= 0 && x < size && y < size && stones[x][y] == aPlayer.opponent()
+						&& !hasLiberties(x, y)) {
+					removeGroup(x, y);
+				}
+			}
+			if (!hasLiberties(aX, aY)) {
+				stones[aX][aY] = null;
+				return false;
+			}
+			return true;
+		}
+	}
+
+	private static void play(Board aBoard, String aMove, Player aPlayer) throws SyntaxErrorException {
+		assertTrue(aMove, aBoard.play(Move.valueOf(aMove), aPlayer));
+	}
+
+	@Test
+	public void testAreaScore() throws Exception {
+		final Board cut = new Board(5);
+		assertSame(Score.DRAW, cut.getAreaScore(0));
+		assertEquals("W+0.5", cut.getAreaScore(0.5).toString());
+
+		// Black wall on column b, white wall on column d, neutral column c.
+		for (int y = 1; y <= 5; ++y) {
+			play(cut, "b" + y, Player.BLACK);
+			play(cut, "d" + y, Player.WHITE);
+		}
+		assertSame(Score.DRAW, cut.getAreaScore(0));
+		play(cut, "c3", Player.BLACK);
+		// Black: 10 + c3, White: 10. The rest of column c reaches both.
+		final Score score = cut.getAreaScore(0.5);
+		assertSame(Player.BLACK, score.getWinner());
+		assertEquals(0.5, score.getMargin(), 0.0);
+	}
+
+	@Test
+	public void testBitboard() throws Exception {
+		final Board cut = new Board(19);
+		play(cut, "b1", Player.BLACK);
+		play(cut, "t19", Player.WHITE);
+
+		final long[] black = new long[Board.getBitboardLength()];
+		final long[] white = new long[Board.getBitboardLength()];
+		cut.getBitboard(Player.BLACK, black);
+		cut.getBitboard(Player.WHITE, white);
+
+		assertEquals(1L << 1, black[0]);
+		final int t19 = Move.valueOf("t19").toCode();
+		assertEquals(1L << t19, white[t19 / 64]);
+	}
+
+	@Test
+	public void testBitboardOffset() throws Exception {
+		final Board cut = new Board(9);
+		play(cut, "a1", Player.BLACK);
+
+		final int length = Board.getBitboardLength();
+		final long[] planes = new long[length * 2];
+		cut.getBitboard(Player.WHITE, planes, 0);
+		cut.getBitboard(Player.BLACK, planes, length);
+
+		assertEquals(0L, planes[0]);
+		assertEquals(1L, planes[length]);
+	}
+
+	@Test
+	public void testCaptureCorner() throws Exception {
+		final Board cut = new Board(9);
+		play(cut, "a1", Player.WHITE);
+		play(cut, "a2", Player.BLACK);
+		assertTrue(cut.isInAtari(Move.valueOf("a1")));
+		play(cut, "b1", Player.BLACK);
+		assertNull(cut.getStone(Move.valueOf("a1")));
+		assertEquals(1, cut.getCaptures(Player.BLACK));
+		assertEquals(0, cut.getCaptures(Player.WHITE));
+	}
+
+	@Test
+	public void testCaptureGroup() throws Exception {
+		final Board cut = new Board(9);
+		play(cut, "c3", Player.WHITE);
+		play(cut, "d3", Player.WHITE);
+		for (final String m : new String[] { "b3", "e3", "c2", "d2", "c4" }) {
+			play(cut, m, Player.BLACK);
+		}
+		assertTrue(cut.isInAtari(Move.valueOf("c3")));
+		play(cut, "d4", Player.BLACK);
+		assertNull(cut.getStone(Move.valueOf("c3")));
+		assertNull(cut.getStone(Move.valueOf("d3")));
+		assertEquals(2, cut.getCaptures(Player.BLACK));
+		// Not a ko, two stones were captured.
+		assertNull(cut.getKoPoint());
+	}
+
+	@Test
+	public void testClear() throws Exception {
+		final Board cut = new Board(5);
+		play(cut, "c3", Player.BLACK);
+		cut.clear();
+		assertNull(cut.getStone(2, 2));
+		assertEquals(".....\n.....\n.....\n.....\n.....\n", cut.toString());
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testCopiedSpecialMoves() throws Exception {
+		final Board cut = new Board(5);
+		play(cut, "c3", Player.BLACK);
+		final long hash = cut.getHash();
+		assertTrue(cut.isLegal(new Move(-2, 0), Player.WHITE));
+		assertTrue(cut.play(new Move(-2, 0), Player.WHITE));
+		assertFalse(cut.play(new Move(-1, 0), Player.BLACK));
+		assertEquals(hash, cut.getHash());
+		assertEquals(0, Zobrist.key(new Move(-2, 0), Player.WHITE));
+	}
+
+	@Test
+	public void testHash() throws Exception {
+		final Board cut = new Board(9);
+		assertEquals(0, cut.getHash());
+		play(cut, "a1", Player.WHITE);
+		assertEquals(Zobrist.key(Move.valueOf("a1"), Player.WHITE), cut.getHash());
+		play(cut, "a2", Player.BLACK);
+		assertEquals(cut.getHash(), cut.getHashAfter(Move.PASS, Player.WHITE));
+		// Capturing a1 leaves only the two black stones.
+		final long expected = Zobrist.key(Move.valueOf("a2"), Player.BLACK)
+				^ Zobrist.key(Move.valueOf("b1"), Player.BLACK);
+		assertEquals(expected, cut.getHashAfter(Move.valueOf("b1"), Player.BLACK));
+		play(cut, "b1", Player.BLACK);
+		assertEquals(expected, cut.getHash());
+		cut.clear();
+		assertEquals(0, cut.getHash());
+	}
+
+	@Test
+	public void testHashCaptureSameGroupTwice() throws Exception {
+		// a1 touches the captured white group from two sides.
+		final Board cut = new Board(9);
+		play(cut, "b1", Player.WHITE);
+		play(cut, "b2", Player.WHITE);
+		play(cut, "a2", Player.WHITE);
+		play(cut, "c1", Player.BLACK);
+		play(cut, "c2", Player.BLACK);
+		play(cut, "b3", Player.BLACK);
+		play(cut, "a3", Player.BLACK);
+		final long expected = cut.getHashAfter(Move.valueOf("a1"), Player.BLACK);
+		play(cut, "a1", Player.BLACK);
+		assertEquals(expected, cut.getHash());
+		assertEquals(3, cut.getCaptures(Player.BLACK));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalSize() {
+		new Board(Move.MAX_BOARD_SIZE + 1);
+	}
+
+	@Test
+	public void testKo() throws Exception {
+		final Board cut = new Board(9);
+		// Black: c4 b3 c2, White: d4 e3 d2 and c3
+		play(cut, "c4", Player.BLACK);
+		play(cut, "b3", Player.BLACK);
+		play(cut, "c2", Player.BLACK);
+		play(cut, "d4", Player.WHITE);
+		play(cut, "e3", Player.WHITE);
+		play(cut, "d2", Player.WHITE);
+		play(cut, "c3", Player.WHITE);
+		play(cut, "d3", Player.BLACK);
+
+		assertSame(Move.valueOf("c3"), cut.getKoPoint());
+		assertFalse(cut.isLegal(Move.valueOf("c3"), Player.WHITE));
+		assertFalse(cut.play(Move.valueOf("c3"), Player.WHITE));
+
+		// Ko threat and answer.
+		play(cut, "h8", Player.WHITE);
+		assertNull(cut.getKoPoint());
+		play(cut, "h7", Player.BLACK);
+		play(cut, "c3", Player.WHITE);
+		assertSame(Move.valueOf("d3"), cut.getKoPoint());
+	}
+
+	@Test
+	public void testLegalMoves() throws Exception {
+		final Board cut = new Board(3);
+		final MoveList moves = new MoveList();
+		cut.getLegalMoves(Player.WHITE, moves);
+		assertEquals(9, moves.size());
+
+		play(cut, "a2", Player.BLACK);
+		play(cut, "b1", Player.BLACK);
+		moves.clear();
+		cut.getLegalMoves(Player.WHITE, moves);
+		// Two occupied and a1 is suicide.
+		assertEquals(6, moves.size());
+		assertFalse(moves.contains(Move.valueOf("a1").toCode()));
+	}
+
+	@Test
+	public void testOccupied() throws Exception {
+		final Board cut = new Board(9);
+		play(cut, "e5", Player.BLACK);
+		assertFalse(cut.isLegal(Move.valueOf("e5"), Player.WHITE));
+		assertFalse(cut.isLegal(Move.valueOf("e5"), Player.BLACK));
+		assertSame(Player.BLACK, cut.getStone(4, 4));
+	}
+
+	@Test
+	public void testOutsideBoard() throws Exception {
+		final Board cut = new Board(9);
+		assertFalse(cut.isLegal(Move.valueOf("k10"), Player.BLACK));
+		assertFalse(cut.play(Move.valueOf("a10"), Player.BLACK));
+		assertNull(cut.getStone(Move.valueOf("a10")));
+		assertTrue(cut.isLegal(Move.PASS, Player.BLACK));
+		assertFalse(cut.isLegal(Move.RESIGN, Player.BLACK));
+	}
+
+	@Test
+	public void testRandomGamesMatchReference() {
+		final Random rng = new Random(17);
+		for (int game = 0; game < 40; ++game) {
+			final int size = Move.MIN_BOARD_SIZE + rng.nextInt(8);
+			final Board cut = new Board(size);
+			final ReferenceBoard reference = new ReferenceBoard(size);
+			Player player = Player.BLACK;
+			for (int moveNumber = 0; moveNumber < size * size * 3; ++moveNumber) {
+				final int x = rng.nextInt(size);
+				final int y = rng.nextInt(size);
+				final Move move = Move.valueOf(x, y);
+				final boolean ko = move == cut.getKoPoint();
+				final boolean legal = cut.isLegal(move, player);
+				final Player[][] before = copy(reference.stones);
+
+				final boolean referenceLegal = reference.play(x, y, player);
+				if (ko && referenceLegal) {
+					assertFalse(legal);
+					restore(reference.stones, before);
+				} else {
+					assertEquals(referenceLegal, legal);
+				}
+				final long expectedHash = legal ? cut.getHashAfter(move, player) : cut.getHash();
+				assertEquals(legal, cut.play(move, player));
+				assertEquals(expectedHash, cut.getHash());
+				assertEquals(reference.hash(), cut.getHash());
+
+				for (int i = 0; i < size; ++i) {
+					for (int j = 0; j < size; ++j) {
+						assertSame(reference.stones[i][j], cut.getStone(i, j));
+					}
+				}
+				if (legal) {
+					player = player.opponent();
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testResignIsNotPlayed() throws Exception {
+		final Board cut = new Board(9);
+		play(cut, "e5", Player.BLACK);
+		assertTrue(cut.isLegal(Move.PASS, Player.WHITE));
+		assertFalse(cut.isLegal(Move.RESIGN, Player.WHITE));
+		assertFalse(cut.play(Move.RESIGN, Player.WHITE));
+		assertEquals(1, cut.getMoveCount());
+		assertTrue(cut.undo());
+		assertNull(cut.getStone(Move.valueOf("e5")));
+	}
+
+	@Test
+	public void testRollback() throws Exception {
+		final Board cut = new Board(9);
+		play(cut, "e5", Player.BLACK);
+		final int snapshot = cut.getMoveCount();
+		final long hash = cut.getHash();
+		play(cut, "d5", Player.WHITE);
+		cut.play(Move.PASS, Player.BLACK);
+		play(cut, "c5", Player.WHITE);
+		assertEquals(4, cut.getMoveCount());
+
+		cut.rollback(snapshot);
+
+		assertEquals(1, cut.getMoveCount());
+		assertEquals(hash, cut.getHash());
+		assertNull(cut.getStone(Move.valueOf("d5")));
+		assertSame(Player.BLACK, cut.getStone(Move.valueOf("e5")));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testRollbackBeyondHistory() throws Exception {
+		final Board cut = new Board(9);
+		play(cut, "e5", Player.BLACK);
+		cut.rollback(2);
+	}
+
+	@Test
+	public void testSuperko() throws Exception {
+		final Board cut = new Board(9);
+		final PositionHistory history = new PositionHistory();
+		for (final String m : new String[] { "c4", "b3", "c2" }) {
+			play(cut, m, Player.BLACK);
+		}
+		for (final String m : new String[] { "d4", "e3", "d2", "c3" }) {
+			play(cut, m, Player.WHITE);
+		}
+		history.add(cut.getHash());
+		play(cut, "d3", Player.BLACK);
+		history.add(cut.getHash());
+		play(cut, "pass", Player.WHITE);
+		play(cut, "pass", Player.BLACK);
+
+		// The passes lifted the simple ko but retaking repeats the position.
+		final Move retake = Move.valueOf("c3");
+		assertTrue(cut.isLegal(retake, Player.WHITE));
+		assertTrue(history.contains(cut.getHashAfter(retake, Player.WHITE)));
+
+		// After rolling back the history it is no longer a repetition.
+		history.rollback(1);
+		assertFalse(history.contains(cut.getHash()));
+		history.rollback(0);
+		assertFalse(history.contains(cut.getHashAfter(retake, Player.WHITE)));
+	}
+
+	@Test
+	public void testSuicide() throws Exception {
+		final Board cut = new Board(9);
+		play(cut, "a2", Player.BLACK);
+		play(cut, "b1", Player.BLACK);
+		assertFalse(cut.isLegal(Move.valueOf("a1"), Player.WHITE));
+		// Filling your own eye is legal though.
+		assertTrue(cut.isLegal(Move.valueOf("a1"), Player.BLACK));
+	}
+
+	@Test
+	public void testSuicideOfGroup() throws Exception {
+		final Board cut = new Board(9);
+		play(cut, "a1", Player.WHITE);
+		play(cut, "a2", Player.BLACK);
+		play(cut, "b2", Player.BLACK);
+		play(cut, "c1", Player.BLACK);
+		// Connecting to a group in atari without gaining liberties.
+		assertFalse(cut.isLegal(Move.valueOf("b1"), Player.WHITE));
+		// But it is legal if it captures.
+		play(cut, "a3", Player.WHITE);
+		play(cut, "b3", Player.WHITE);
+		play(cut, "c2", Player.WHITE);
+		play(cut, "d1", Player.WHITE);
+		assertTrue(cut.isLegal(Move.valueOf("b1"), Player.WHITE));
+		play(cut, "b1", Player.WHITE);
+		assertEquals(3, cut.getCaptures(Player.WHITE));
+	}
+
+	@Test
+	public void testUndoCapture() throws Exception {
+		final Board cut = new Board(9);
+		final Board expected = new Board(9);
+		for (final Board board : new Board[] { cut, expected }) {
+			play(board, "a1", Player.WHITE);
+			play(board, "a2", Player.BLACK);
+			play(board, "b2", Player.BLACK);
+			play(board, "c1", Player.BLACK);
+			play(board, "a3", Player.WHITE);
+			play(board, "b3", Player.WHITE);
+			play(board, "c2", Player.WHITE);
+			play(board, "d1", Player.WHITE);
+		}
+		play(cut, "b1", Player.WHITE);
+		assertEquals(3, cut.getCaptures(Player.WHITE));
+
+		assertTrue(cut.undo());
+
+		assertSameState(expected, cut);
+		assertTrue(cut.isInAtari(Move.valueOf("b2")));
+		play(cut, "b1", Player.WHITE);
+		assertEquals(3, cut.getCaptures(Player.WHITE));
+	}
+
+	@Test
+	public void testUndoEmpty() {
+		final Board cut = new Board(9);
+		assertFalse(cut.undo());
+		cut.play(Move.PASS, Player.BLACK);
+		assertTrue(cut.undo());
+		assertFalse(cut.undo());
+	}
+
+	@Test
+	public void testUndoKo() throws Exception {
+		final Board cut = new Board(9);
+		play(cut, "c4", Player.BLACK);
+		play(cut, "b3", Player.BLACK);
+		play(cut, "c2", Player.BLACK);
+		play(cut, "d4", Player.WHITE);
+		play(cut, "e3", Player.WHITE);
+		play(cut, "d2", Player.WHITE);
+		play(cut, "c3", Player.WHITE);
+		final String before = cut.toString();
+		play(cut, "d3", Player.BLACK);
+		assertEquals(1, cut.getCaptures(Player.BLACK));
+		play(cut, "h8", Player.WHITE);
+		assertNull(cut.getKoPoint());
+
+		assertTrue(cut.undo());
+		assertSame(Move.valueOf("c3"), cut.getKoPoint());
+		assertFalse(cut.isLegal(Move.valueOf("c3"), Player.WHITE));
+
+		assertTrue(cut.undo());
+		assertEquals(before, cut.toString());
+		assertEquals(0, cut.getCaptures(Player.BLACK));
+		assertNull(cut.getKoPoint());
+		assertTrue(cut.isInAtari(Move.valueOf("c3")));
+		assertTrue(cut.isLegal(Move.valueOf("d3"), Player.BLACK));
+	}
+
+	@Test
+	public void testUndoMatchesReplay() {
+		final Random rng = new Random(19);
+		for (int game = 0; game < 20; ++game) {
+			final int size = Move.MIN_BOARD_SIZE + rng.nextInt(8);
+			final Board cut = new Board(size);
+			final Deque<Move> moves = new ArrayDeque<>();
+			final Deque<Player> players = new ArrayDeque<>();
+			Player player = Player.BLACK;
+			for (int moveNumber = 0; moveNumber < size * size * 3; ++moveNumber) {
+				final Move move = rng.nextInt(20) == 0 ? Move.PASS
+						: Move.valueOf(rng.nextInt(size), rng.nextInt(size));
+				if (cut.play(move, player)) {
+					moves.addLast(move);
+					players.addLast(player);
+					player = player.opponent();
+				}
+			}
+
+			while (!moves.isEmpty()) {
+				moves.removeLast();
+				players.removeLast();
+				assertTrue(cut.undo());
+				assertEquals(moves.size(), cut.getMoveCount());
+				if (rng.nextInt(10) == 0) {
+					final Board replay = new Board(size);
+					final Iterator<Player> it = players.iterator();
+					for (final Move move : moves) {
+						assertTrue(replay.play(move, it.next()));
+					}
+					assertSameState(replay, cut);
+				}
+			}
+			assertEquals(0, cut.getHash());
+			assertFalse(cut.undo());
+		}
+	}
+
+	private void assertSameState(Board aExpected, Board aActual) {
+		assertEquals(aExpected.toString(), aActual.toString());
+		assertEquals(aExpected.getHash(), aActual.getHash());
+		assertSame(aExpected.getKoPoint(), aActual.getKoPoint());
+		for (final Player player : Player.values()) {
+			assertEquals(aExpected.getCaptures(player), aActual.getCaptures(player));
+			for (int x = 0; x < aExpected.getSize(); ++x) {
+				for (int y = 0; y < aExpected.getSize(); ++y) {
+					final Move move = Move.valueOf(x, y);
+					assertEquals(aExpected.isInAtari(move), aActual.isInAtari(move));
+					assertEquals(aExpected.isLegal(move, player), aActual.isLegal(move, player));
+					if (aExpected.isLegal(move, player)) {
+						assertEquals(aExpected.getHashAfter(move, player), aActual.getHashAfter(move, player));
+					}
+				}
+			}
+		}
+	}
+
+	private Player[][] copy(Player[][] aStones) {
+		final Player[][] ans = new Player[aStones.length][];
+		for (int i = 0; i < aStones.length; ++i) {
+			ans[i] = aStones[i].clone();
+		}
+		return ans;
+	}
+
+	private void restore(Player[][] aTarget, Player[][] aSource) {
+		for (int i = 0; i < aTarget.length; ++i) {
+			System.arraycopy(aSource[i], 0, aTarget[i], 0, aSource[i].length);
+		}
+	}
+}
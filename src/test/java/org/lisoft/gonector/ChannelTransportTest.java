@@ -0,0 +1,158 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.Lock;
+
+import org.junit.Test;
+
+/**
+ * Test suite for {@link ChannelTransport}.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class ChannelTransportTest {
+	private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+	@Test
+	public void testFlushBeforeRead() throws Exception {
+		final ChannelTransport cut = create("a\nb\n");
+		final CommandLine line = new CommandLine();
+		cut.write('x');
+		assertEquals(0, output.size());
+
+		assertTrue(cut.readLine(line));
+		assertEquals(1, output.size());
+
+		// Input is buffered, no flush needed.
+		cut.write('y');
+		assertTrue(cut.readLine(line));
+		assertEquals(1, output.size());
+
+		assertFalse(cut.readLine(line));
+		assertEquals(2, output.size());
+	}
+
+	@Test
+	public void testFlushHoldsWriteLock() throws Exception {
+		final ChannelTransport cut = create("");
+		final Lock lock = cut.getWriteLock();
+		cut.write('x');
+		lock.lock();
+		final Thread flusher;
+		try {
+			flusher = new Thread(() -> {
+				try {
+					cut.flush();
+				} catch (final Exception e) {
+					throw new AssertionError(e);
+				}
+			});
+			flusher.start();
+			flusher.join(50);
+			assertTrue(flusher.isAlive());
+			assertEquals(0, output.size());
+		} finally {
+			lock.unlock();
+		}
+		flusher.join();
+		assertEquals(1, output.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNonBlockingRejected() throws Exception {
+		final Pipe pipe = Pipe.open();
+		try {
+			pipe.source().configureBlocking(false);
+			new ChannelTransport(pipe.source(), pipe.sink());
+		} finally {
+			pipe.source().close();
+			pipe.sink().close();
+		}
+	}
+
+	@Test
+	public void testReadLines() throws Exception {
+		final ChannelTransport cut = create("a\r\nb\rc\n\nlast");
+		final CommandLine line = new CommandLine();
+
+		assertTrue(cut.readLine(line));
+		assertEquals("a", line.toString());
+		assertTrue(cut.readLine(line));
+		assertEquals("b", line.toString());
+		assertTrue(cut.readLine(line));
+		assertEquals("c", line.toString());
+		assertTrue(cut.readLine(line));
+		assertEquals("", line.toString());
+		assertTrue(cut.readLine(line));
+		assertEquals("last", line.toString());
+		assertFalse(cut.readLine(line));
+	}
+
+	@Test
+	public void testReadLongLine() throws Exception {
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < ChannelTransport.BUFFER_SIZE * 2; ++i) {
+			sb.append((char) ('a' + i % 26));
+		}
+		final ChannelTransport cut = create(sb.toString() + "\n");
+		final CommandLine line = new CommandLine();
+
+		assertTrue(cut.readLine(line));
+		assertEquals(sb.toString(), line.toString());
+		assertFalse(cut.readLine(line));
+	}
+
+	@Test
+	public void testSendLongResponse() throws Exception {
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < ChannelTransport.BUFFER_SIZE * 2 + 1; ++i) {
+			sb.append((char) ('a' + i % 26));
+		}
+		final ChannelTransport cut = create("");
+		cut.write(sb);
+		cut.flush();
+		assertEquals(sb.toString(), new String(output.toByteArray(), StandardCharsets.US_ASCII));
+	}
+
+	@Test
+	public void testSendNonAscii() throws Exception {
+		final ChannelTransport cut = create("");
+		cut.write("= Björk");
+		cut.flush();
+		assertEquals("= Bj?rk", new String(output.toByteArray(), StandardCharsets.US_ASCII));
+	}
+
+	private ChannelTransport create(String aInput) {
+		return new ChannelTransport(
+				Channels.newChannel(new ByteArrayInputStream(aInput.getBytes(StandardCharsets.US_ASCII))),
+				Channels.newChannel(output));
+	}
+}
@@ -0,0 +1,172 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/**
+ * Test suite for the {@link CommandLine} scanner.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class CommandLineTest {
+	/**
+	 * The regular expression that the scanner replaces.
+	 */
+	private static final Pattern REFERENCE = Pattern.compile("^(\\d*)\\s*(\\S+)\\s*([^#]*?)\\s*(#.*)?$");
+
+	private final CommandLine cut = new CommandLine();
+
+	@Test
+	public void testArguments() throws Exception {
+		scan("12 play  black  r10   # a comment");
+		assertEquals(12, cut.getId());
+		assertEquals("play", cut.getName().toString());
+		assertEquals(2, cut.getArgumentCount());
+		assertEquals("black", cut.getArgument(0).toString());
+		assertEquals("r10", cut.getArgument(1).toString());
+	}
+
+	@Test
+	public void testArgumentConversions() throws Exception {
+		scan("cmd 12 -1.5 w q16 text");
+		assertEquals(5, cut.size());
+		assertEquals(12, cut.getInt(0));
+		assertEquals(-1.5, cut.getDouble(1), 0.0);
+		assertEquals(-1.5f, cut.getFloat(1), 0.0f);
+		assertEquals(Player.WHITE, cut.getPlayer(2));
+		assertEquals(Move.valueOf("q16"), cut.getMove(3));
+		assertEquals("text", cut.getString(4));
+	}
+
+	@Test(expected = SyntaxErrorException.class)
+	public void testArgumentMissing() throws Exception {
+		scan("cmd 1");
+		cut.get(1);
+	}
+
+	@Test(expected = SyntaxErrorException.class)
+	public void testArgumentNotAnInteger() throws Exception {
+		scan("cmd 1.5");
+		cut.getInt(0);
+	}
+
+	@Test
+	public void testBlank() throws Exception {
+		assertFalse(scan(""));
+		assertFalse(scan("   "));
+		assertFalse(scan("\t\u0001"));
+	}
+
+	@Test
+	public void testControlCharactersRemoved() throws Exception {
+		scan("na\u007fme\u0000");
+		assertEquals("name", cut.toString());
+		assertEquals("name", cut.getName().toString());
+	}
+
+	@Test
+	public void testFormatTo() throws Exception {
+		scan("1 play b\u0001 a1");
+		final StringBuilder sb = new StringBuilder("Remote sent: ");
+		cut.formatTo(sb);
+		assertEquals("Remote sent: 1 play b a1", sb.toString());
+	}
+
+	@Test
+	public void testIdOnly() throws Exception {
+		assertTrue(scan("123  "));
+		assertEquals(12, cut.getId());
+		assertEquals("3", cut.getName().toString());
+		assertEquals(0, cut.getArgumentCount());
+	}
+
+	@Test(expected = SyntaxErrorException.class)
+	public void testIdOverflow() throws Exception {
+		scan("99999999999 name");
+	}
+
+	@Test
+	public void testManyArguments() throws Exception {
+		scan("cmd 1 2 3 4 5 6 7 8 9");
+		assertEquals(9, cut.getArgumentCount());
+		assertEquals("9", cut.getArgument(8).toString());
+	}
+
+	@Test
+	public void testMatchesRegularExpression() throws Exception {
+		final Random rng = new Random(1);
+		final String alphabet = "0123 \t#ab\u0002";
+		for (int i = 0; i < 20000; ++i) {
+			final StringBuilder sb = new StringBuilder();
+			final int length = rng.nextInt(12);
+			for (int j = 0; j < length; ++j) {
+				sb.append(alphabet.charAt(rng.nextInt(alphabet.length())));
+			}
+			assertSameAsReference(sb.toString());
+		}
+	}
+
+	@Test
+	public void testTabsAreRemoved() throws Exception {
+		scan("play\tb a1");
+		assertEquals("playb", cut.getName().toString());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testViewOutOfRange() throws Exception {
+		scan("play b");
+		cut.getArgument(0).charAt(1);
+	}
+
+	private void assertSameAsReference(String aLine) throws SyntaxErrorException {
+		final String stripped = aLine.replaceAll("[\\p{Cntrl}&&[^\\n]]", "");
+		final Matcher m = REFERENCE.matcher(stripped);
+		final boolean matches = m.matches();
+		assertEquals(aLine, matches, scan(aLine));
+		if (matches) {
+			final int id = m.group(1).isEmpty() ? -1 : Integer.parseInt(m.group(1));
+			final String[] args = m.group(3).isEmpty() ? new String[0] : m.group(3).split("\\s+");
+			assertEquals(aLine, id, cut.getId());
+			assertEquals(aLine, m.group(2), cut.getName().toString());
+			assertEquals(aLine, args.length, cut.getArgumentCount());
+			for (int i = 0; i < args.length; ++i) {
+				assertEquals(aLine, args[i], cut.getArgument(i).toString());
+			}
+		}
+	}
+
+	private boolean scan(String aLine) throws SyntaxErrorException {
+		cut.clear();
+		for (int i = 0; i < aLine.length(); ++i) {
+			cut.append(aLine.charAt(i));
+		}
+		return cut.parse();
+	}
+}
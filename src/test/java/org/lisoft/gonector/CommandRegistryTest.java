@@ -0,0 +1,113 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test suite for {@link CommandRegistry}.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class CommandRegistryTest {
+	private static final CommandRegistry.Extension ECHO = (engine, args) -> args.getString(0);
+
+	@Test
+	public void testAvailability() {
+		final GoEngine engine = new GoEngineTest.TestEngine();
+		final boolean[] available = CommandRegistry.STANDARD.getAvailability(engine);
+		assertFalse(available[CommandRegistry.STANDARD.indexOf("final_score")]);
+		assertFalse(available[CommandRegistry.STANDARD.indexOf("lz-analyze")]);
+		assertTrue(available[CommandRegistry.STANDARD.indexOf("play")]);
+	}
+	@Test(expected = IllegalArgumentException.class)
+	public void testDuplicate() {
+		CommandRegistry.STANDARD.with("play", ECHO);
+	}
+
+	@Test
+	public void testEmpty() {
+		final CommandRegistry cut = new CommandRegistry(new ArrayList<>());
+		assertEquals(0, cut.size());
+		assertFalse(cut.contains("play"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidNameComment() {
+		CommandRegistry.STANDARD.with("foo#bar", ECHO);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidNameEmpty() {
+		CommandRegistry.STANDARD.with("", ECHO);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidNameSpace() {
+		CommandRegistry.STANDARD.with("foo bar", ECHO);
+	}
+
+	@Test
+	public void testManyCommands() {
+		final List<CommandRegistry.Entry> entries = new ArrayList<>();
+		for (int i = 0; i < 1000; ++i) {
+			entries.add(new CommandRegistry.Entry("command-" + i, (protocol, id, args) -> true, null));
+		}
+		final CommandRegistry cut = new CommandRegistry(entries);
+		for (int i = 0; i < 1000; ++i) {
+			assertEquals(i, cut.indexOf("command-" + i));
+		}
+		assertEquals(-1, cut.indexOf("command-1000"));
+	}
+
+	@Test
+	public void testStandard() {
+		final CommandRegistry cut = CommandRegistry.STANDARD;
+		for (int i = 0; i < cut.size(); ++i) {
+			assertEquals(i, cut.indexOf(cut.getName(i)));
+		}
+		assertTrue(cut.contains("genmove"));
+		assertTrue(cut.contains("final_score"));
+		assertEquals("protocol_version", cut.getNames().get(0));
+		assertEquals(-1, cut.indexOf("genmov"));
+		assertEquals(-1, cut.indexOf("genmovee"));
+		assertEquals(-1, cut.indexOf("GENMOVE"));
+		assertEquals(-1, cut.indexOf(""));
+	}
+
+	@Test
+	public void testWith() {
+		final CommandRegistry cut = CommandRegistry.STANDARD.with("echo", ECHO);
+		assertEquals(CommandRegistry.STANDARD.size() + 1, cut.size());
+		assertTrue(cut.contains("echo"));
+		assertTrue(cut.contains("play"));
+		assertEquals("echo", cut.getNames().get(cut.size() - 1));
+		assertFalse(CommandRegistry.STANDARD.contains("echo"));
+	}
+
+}
@@ -0,0 +1,70 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Test suite for {@link CommandStatistics}.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class CommandStatisticsTest {
+	private final CommandStatistics cut = new CommandStatistics();
+
+	@Test
+	public void testEmpty() {
+		assertEquals("", cut.toString());
+		assertNull(cut.getEngineLatency("genmove"));
+		assertNull(cut.getOverheadLatency("genmove"));
+		assertEquals(0, cut.getCommands().size());
+	}
+
+	@Test
+	public void testRecord() {
+		cut.record("play", 5000, 1000);
+		cut.record("genmove", 2000000, 3000);
+		cut.record("genmove", 4000000, 5000);
+
+		assertEquals(Arrays.asList("genmove", "play"), Arrays.asList(cut.getCommands().toArray()));
+		assertEquals(2, cut.getEngineLatency("genmove").getCount());
+		assertEquals(4000, cut.getEngineLatency("genmove").getMax(TimeUnit.MICROSECONDS));
+		assertEquals(5, cut.getOverheadLatency("genmove").getMax(TimeUnit.MICROSECONDS));
+		// Quantiles are reported as the upper bound of their bucket.
+		assertEquals(
+				"genmove count=2 engine_p50_us=2031 engine_p99_us=4000 engine_max_us=4000 overhead_p50_us=3 overhead_p99_us=5\n"
+						+ "play count=1 engine_p50_us=5 engine_p99_us=5 engine_max_us=5 overhead_p50_us=1 overhead_p99_us=1",
+				cut.toString());
+	}
+
+	@Test
+	public void testReset() {
+		cut.record("play", 5000, 1000);
+		cut.reset();
+		assertEquals("", cut.toString());
+	}
+}
@@ -0,0 +1,60 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Test suite for {@link Deadline}.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class DeadlineTest {
+	@Test
+	public void testAfter() {
+		final Deadline cut = Deadline.after(TimeUnit.HOURS.toNanos(1));
+		assertTrue(cut.isLimited());
+		assertFalse(cut.isExpired());
+		assertTrue(cut.remaining(TimeUnit.MINUTES) >= 59);
+	}
+
+	@Test
+	public void testExpired() {
+		final Deadline cut = Deadline.after(-5);
+		assertTrue(cut.isExpired());
+		assertEquals(0, cut.remaining(TimeUnit.NANOSECONDS));
+	}
+
+	@Test
+	public void testNone() {
+		assertSame(Deadline.NONE, Deadline.after(Long.MAX_VALUE));
+		assertFalse(Deadline.NONE.isLimited());
+		assertFalse(Deadline.NONE.isExpired());
+		assertEquals(Long.MAX_VALUE, Deadline.NONE.remaining(TimeUnit.SECONDS));
+	}
+}
@@ -0,0 +1,233 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Test suite for {@link EvaluationBatcher}.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class EvaluationBatcherTest {
+	private final List<Integer> batchSizes = new ArrayList<>();
+	private EvaluationBatcher<Integer> cut;
+
+	@After
+	public void tearDown() {
+		if (null != cut) {
+			cut.close();
+		}
+	}
+
+	@Test
+	public void testBatchesUpToMaxSize() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		cut = new EvaluationBatcher<>((planes, count, results) -> {
+			release.await();
+			countStones(planes, count, results);
+		}, 4, 1, TimeUnit.MINUTES);
+
+		final Board board = new Board(9);
+		final List<CompletableFuture<Integer>> futures = new ArrayList<>();
+		for (int i = 0; i < 10; ++i) {
+			board.play(Move.valueOf(i % 9, i / 9), Player.BLACK);
+			futures.add(cut.submit(board, Player.BLACK));
+		}
+		release.countDown();
+
+		// The last batch is only 2 positions and waits for more until close.
+		cut.close();
+		for (int i = 0; i < futures.size(); ++i) {
+			assertEquals(Integer.valueOf(i + 1), futures.get(i).get());
+		}
+		assertEquals(Arrays.asList(4, 4, 2), batchSizes);
+		assertEquals(3, cut.getBatchCount());
+		assertEquals(10, cut.getPositionCount());
+		assertEquals(10.0 / 12.0, cut.getFillRate(), 1e-9);
+		assertEquals(10, cut.getQueueDelay().getCount());
+		assertEquals(3, cut.getEvaluationLatency().getCount());
+	}
+
+	@Test
+	public void testClosedRejectsPositions() throws Exception {
+		cut = new EvaluationBatcher<>(this::countStones, 4, 1, TimeUnit.MILLISECONDS);
+		cut.close();
+		try {
+			cut.submit(new Board(9), Player.BLACK);
+			fail("Expected an exception!");
+		} catch (final IllegalStateException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testDeadline() throws Exception {
+		cut = new EvaluationBatcher<>(this::countStones, 64, 5, TimeUnit.MILLISECONDS);
+		final Board board = new Board(19);
+		board.play(Move.valueOf("d4"), Player.WHITE);
+
+		assertEquals(Integer.valueOf(1), cut.submit(board, Player.WHITE).get(10, TimeUnit.SECONDS));
+		assertEquals(1, cut.getBatchCount());
+		assertEquals(1.0 / 64, cut.getFillRate(), 1e-9);
+		assertTrue(cut.getQueueDelay().getMax(TimeUnit.MILLISECONDS) >= 4);
+	}
+
+	@Test
+	public void testEncoding() throws Exception {
+		final List<long[]> seen = new ArrayList<>();
+		cut = new EvaluationBatcher<>((planes, count, results) -> {
+			seen.add(planes.clone());
+			results.add(Integer.valueOf(count));
+		}, 1, 0, TimeUnit.MILLISECONDS);
+		final Board board = new Board(9);
+		board.play(Move.valueOf("a1"), Player.BLACK);
+		board.play(Move.valueOf("b1"), Player.WHITE);
+
+		cut.submit(board, Player.WHITE).get();
+
+		final int length = Board.getBitboardLength();
+		assertEquals(EvaluationBatcher.getPositionLength(), seen.get(0).length);
+		assertEquals(1L << 1, seen.get(0)[0]);
+		assertEquals(1L, seen.get(0)[length]);
+		// 9x9 has 81 points on the board, row 1 starts at index 25.
+		int onBoard = 0;
+		for (int i = 0; i < length; ++i) {
+			onBoard += Long.bitCount(seen.get(0)[2 * length + i]);
+		}
+		assertEquals(81, onBoard);
+		assertEquals(0x1ffL | 0x1ffL << 25, seen.get(0)[2 * length] & (1L << 50) - 1);
+	}
+
+	@Test
+	public void testEvaluatorFails() throws Exception {
+		final IOException failure = new IOException("No model");
+		cut = new EvaluationBatcher<>((planes, count, results) -> {
+			throw failure;
+		}, 2, 0, TimeUnit.MILLISECONDS);
+
+		try {
+			cut.submit(new Board(9), Player.BLACK).get();
+			fail("Expected an exception!");
+		} catch (final ExecutionException e) {
+			assertEquals(failure, e.getCause());
+		}
+		assertEquals(1, cut.getBatchCount());
+	}
+
+	@Test
+	public void testEvaluatorThrowsError() throws Exception {
+		final AtomicBoolean thrown = new AtomicBoolean();
+		cut = new EvaluationBatcher<>((planes, count, results) -> {
+			if (thrown.compareAndSet(false, true)) {
+				throw new OutOfMemoryError("Batch too large");
+			}
+			countStones(planes, count, results);
+		}, 2, 0, TimeUnit.MILLISECONDS);
+
+		try {
+			cut.submit(new Board(9), Player.BLACK).get();
+			fail("Expected an exception!");
+		} catch (final ExecutionException e) {
+			assertTrue(e.getCause() instanceof OutOfMemoryError);
+		}
+		// The worker survives the error.
+		assertEquals(Integer.valueOf(0), cut.submit(new Board(9), Player.BLACK).get(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testMixedBoardSizes() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<Integer> onBoard = new ArrayList<>();
+		cut = new EvaluationBatcher<>((planes, count, results) -> {
+			release.await();
+			final int length = EvaluationBatcher.getPositionLength();
+			for (int i = 0; i < count; ++i) {
+				int points = 0;
+				for (int j = 0; j < Board.getBitboardLength(); ++j) {
+					points += Long.bitCount(planes[i * length + 2 * Board.getBitboardLength() + j]);
+				}
+				onBoard.add(Integer.valueOf(points));
+				results.add(Integer.valueOf(count));
+			}
+		}, 3, 1, TimeUnit.MINUTES);
+
+		final List<CompletableFuture<Integer>> futures = new ArrayList<>();
+		for (final int size : new int[] { 9, 19, 13 }) {
+			futures.add(cut.submit(new Board(size), Player.BLACK));
+		}
+		release.countDown();
+
+		for (final CompletableFuture<Integer> future : futures) {
+			assertEquals(Integer.valueOf(3), future.get(10, TimeUnit.SECONDS));
+		}
+		assertEquals(Arrays.asList(81, 361, 169), onBoard);
+	}
+
+	@Test
+	public void testMissingResults() throws Exception {
+		cut = new EvaluationBatcher<>((planes, count, results) -> {
+			// No results
+		}, 2, 0, TimeUnit.MILLISECONDS);
+
+		try {
+			cut.submit(new Board(9), Player.BLACK).get();
+			fail("Expected an exception!");
+		} catch (final ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroBatchSize() throws Exception {
+		cut = new EvaluationBatcher<>(this::countStones, 0, 1, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Evaluates each position to the number of stones of the player to move.
+	 */
+	private void countStones(long[] aPlanes, int aCount, List<Integer> aResults) {
+		batchSizes.add(Integer.valueOf(aCount));
+		final int length = EvaluationBatcher.getPositionLength();
+		for (int i = 0; i < aCount; ++i) {
+			int stones = 0;
+			for (int j = 0; j < Board.getBitboardLength(); ++j) {
+				stones += Long.bitCount(aPlanes[i * length + j]);
+			}
+			aResults.add(Integer.valueOf(stones));
+		}
+	}
+}
@@ -0,0 +1,216 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * Test suite for {@link EvaluationCache}.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class EvaluationCacheTest {
+	private static final int POLICY = 3;
+
+	private static void set(EvaluationCache.Record aRecord, long aHash) {
+		aRecord.clear();
+		aRecord.setValue(aHash % 1000 / 1000.0f);
+		aRecord.setVisits((int) (aHash & 0xFFFF));
+		aRecord.addMove(Move.fromCode((int) ((aHash >>> 16) % Move.PASS_CODE)), 0.5f);
+	}
+
+	private final EvaluationCache.Record record = new EvaluationCache.Record(POLICY);
+
+	@Test
+	public void testBudget() throws Exception {
+		final long budget = 1 << 20;
+		final EvaluationCache cut = new EvaluationCache(budget, 8);
+		assertTrue(cut.getCapacity() > 0);
+		assertTrue((long) cut.getCapacity() * EvaluationCache.bytesPerEntry(8) <= budget);
+		assertEquals(8, cut.getPolicySize());
+
+		final EvaluationCache.Record large = new EvaluationCache.Record(8);
+		for (long hash = 0; hash < cut.getCapacity() * 3L; ++hash) {
+			cut.put(hash, large);
+		}
+		assertEquals(cut.getCapacity(), cut.size());
+		assertEquals(cut.getCapacity() * 2L, cut.getEvictionCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBudgetTooSmall() throws Exception {
+		new EvaluationCache(EvaluationCache.bytesPerEntry(POLICY) - 1, POLICY);
+	}
+
+	@Test
+	public void testClear() throws Exception {
+		final EvaluationCache cut = new EvaluationCache(1 << 16, POLICY);
+		cut.put(5, record);
+		cut.clear();
+		assertEquals(0, cut.size());
+		assertFalse(cut.get(5, record));
+	}
+
+	@Test
+	public void testConcurrentAccess() throws Exception {
+		final EvaluationCache cut = new EvaluationCache(200 * EvaluationCache.bytesPerEntry(POLICY), POLICY);
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			final List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < 8; ++t) {
+				final int seed = t;
+				futures.add(executor.submit(() -> {
+					final Random rng = new Random(seed);
+					final EvaluationCache.Record local = new EvaluationCache.Record(POLICY);
+					final EvaluationCache.Record expected = new EvaluationCache.Record(POLICY);
+					for (int i = 0; i < 20000; ++i) {
+						final long hash = rng.nextInt(500) * 0x9E3779B97F4A7C15L;
+						if (cut.get(hash, local)) {
+							set(expected, hash);
+							assertEquals(expected.getVisits(), local.getVisits());
+							assertEquals(expected.getValue(), local.getValue(), 0.0f);
+							assertSame(expected.getMove(0), local.getMove(0));
+						} else {
+							set(local, hash);
+							cut.put(hash, local);
+						}
+					}
+					return null;
+				}));
+			}
+			for (final Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertTrue(cut.size() <= cut.getCapacity());
+		assertEquals(8 * 20000, cut.getHitCount() + cut.getMissCount());
+	}
+
+	@Test
+	public void testFrequentEntriesSurvive() throws Exception {
+		final EvaluationCache cut = new EvaluationCache(8 * EvaluationCache.bytesPerEntry(POLICY), POLICY);
+		assertEquals(8, cut.getCapacity());
+		cut.put(-1, record);
+		for (int i = 0; i < 3; ++i) {
+			assertTrue(cut.get(-1, record));
+		}
+
+		// A scan of positions that are only seen once.
+		for (long hash = 0; hash < 14; ++hash) {
+			cut.put(hash, record);
+		}
+		assertTrue(cut.get(-1, record));
+		assertFalse(cut.get(0, record));
+	}
+
+	@Test
+	public void testHitRate() throws Exception {
+		final EvaluationCache cut = new EvaluationCache(1 << 16, POLICY);
+		assertEquals(0.0, cut.getHitRate(), 0.0);
+
+		cut.put(1, record);
+		assertTrue(cut.get(1, record));
+		assertFalse(cut.get(2, record));
+		assertTrue(cut.get(1, record));
+
+		assertEquals(2, cut.getHitCount());
+		assertEquals(1, cut.getMissCount());
+		assertEquals(2.0 / 3.0, cut.getHitRate(), 1e-9);
+	}
+
+	@Test
+	public void testPutGet() throws Exception {
+		final EvaluationCache cut = new EvaluationCache(1 << 16, POLICY);
+		record.setValue(0.75f);
+		record.setVisits(800);
+		record.addMove(Move.valueOf("d4"), 0.5f);
+		record.addMove(Move.PASS, 0.25f);
+		record.addMove(Move.valueOf("y25"), 0.125f);
+		cut.put(0, record);
+
+		final EvaluationCache.Record read = new EvaluationCache.Record(POLICY);
+		assertFalse(cut.get(1, read));
+		assertTrue(cut.get(0, read));
+		assertEquals(0.75f, read.getValue(), 0.0f);
+		assertEquals(800, read.getVisits());
+		assertEquals(3, read.getMoveCount());
+		assertSame(Move.valueOf("d4"), read.getMove(0));
+		assertSame(Move.PASS, read.getMove(1));
+		assertSame(Move.valueOf("y25"), read.getMove(2));
+		assertEquals(0.125f, read.getPrior(2), 0.0f);
+	}
+
+	@Test
+	public void testPutReplaces() throws Exception {
+		final EvaluationCache cut = new EvaluationCache(1 << 16, POLICY);
+		record.addMove(Move.valueOf("d4"), 0.5f);
+		record.addMove(Move.valueOf("c3"), 0.5f);
+		cut.put(7, record);
+		record.clear();
+		record.setVisits(2);
+		record.addMove(Move.valueOf("q16"), 1.0f);
+		cut.put(7, record);
+
+		record.clear();
+		assertTrue(cut.get(7, record));
+		assertEquals(1, cut.size());
+		assertEquals(2, record.getVisits());
+		assertEquals(1, record.getMoveCount());
+		assertSame(Move.valueOf("q16"), record.getMove(0));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testRecordFull() throws Exception {
+		final EvaluationCache.Record cut = new EvaluationCache.Record(1);
+		cut.addMove(Move.PASS, 1.0f);
+		cut.addMove(Move.PASS, 1.0f);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testRecordIndex() throws Exception {
+		record.getMove(0);
+	}
+
+	@Test
+	public void testSmallerPolicyIsTruncated() throws Exception {
+		final EvaluationCache cut = new EvaluationCache(1 << 16, 1);
+		record.addMove(Move.valueOf("d4"), 0.5f);
+		record.addMove(Move.valueOf("c3"), 0.5f);
+		cut.put(3, record);
+
+		assertTrue(cut.get(3, record));
+		assertEquals(1, record.getMoveCount());
+	}
+}
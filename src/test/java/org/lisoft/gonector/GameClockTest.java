@@ -0,0 +1,105 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Test suite for {@link GameClock}.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class GameClockTest {
+	private static final double EPSILON = 1E-9;
+
+	private final GameClock cut = new GameClock();
+
+	@Test
+	public void testAbsolute() {
+		cut.reset(TimeSettings.absolute(10));
+		cut.consume(Player.BLACK, 4);
+		assertEquals(6, cut.getTimeLeft(Player.BLACK), EPSILON);
+		assertEquals(10, cut.getTimeLeft(Player.WHITE), EPSILON);
+
+		cut.consume(Player.BLACK, 7);
+		assertEquals(0, cut.getTimeLeft(Player.BLACK), EPSILON);
+		assertFalse(cut.isInByoYomi(Player.BLACK));
+	}
+
+	@Test
+	public void testByoYomi() {
+		cut.reset(TimeSettings.byoYomi(10, 30, 3));
+		cut.consume(Player.WHITE, 15);
+		assertTrue(cut.isInByoYomi(Player.WHITE));
+		assertEquals(3, cut.getStonesLeft(Player.WHITE));
+		assertEquals(30, cut.getTimeLeft(Player.WHITE), EPSILON);
+
+		// A period is only lost when overrun.
+		cut.consume(Player.WHITE, 29);
+		assertEquals(3, cut.getStonesLeft(Player.WHITE));
+		cut.consume(Player.WHITE, 65);
+		assertEquals(1, cut.getStonesLeft(Player.WHITE));
+		assertEquals(30, cut.getTimeLeft(Player.WHITE), EPSILON);
+	}
+
+	@Test
+	public void testCanadian() {
+		cut.reset(TimeSettings.canadian(10, 60, 2));
+		cut.consume(Player.BLACK, 12);
+		assertTrue(cut.isInByoYomi(Player.BLACK));
+		assertEquals(1, cut.getStonesLeft(Player.BLACK));
+		assertEquals(58, cut.getTimeLeft(Player.BLACK), EPSILON);
+
+		// Period completed, a new one starts.
+		cut.consume(Player.BLACK, 8);
+		assertEquals(2, cut.getStonesLeft(Player.BLACK));
+		assertEquals(60, cut.getTimeLeft(Player.BLACK), EPSILON);
+	}
+
+	@Test
+	public void testNoMainTime() {
+		cut.reset(TimeSettings.canadian(0, 60, 5));
+		assertTrue(cut.isInByoYomi(Player.BLACK));
+		assertEquals(5, cut.getStonesLeft(Player.BLACK));
+		assertEquals(60, cut.getTimeLeft(Player.BLACK), EPSILON);
+	}
+
+	@Test
+	public void testNone() {
+		assertEquals(TimeSettings.NONE, cut.getSettings());
+		cut.consume(Player.BLACK, 100);
+		assertEquals(0, cut.getTimeLeft(Player.BLACK), EPSILON);
+	}
+
+	@Test
+	public void testSetTimeLeft() {
+		cut.reset(TimeSettings.canadian(600, 60, 10));
+		cut.setTimeLeft(Player.WHITE, 42.5, 3);
+		assertEquals(42.5, cut.getTimeLeft(Player.WHITE), EPSILON);
+		assertEquals(3, cut.getStonesLeft(Player.WHITE));
+		assertTrue(cut.isInByoYomi(Player.WHITE));
+		assertFalse(cut.isInByoYomi(Player.BLACK));
+	}
+}
@@ -0,0 +1,74 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+/**
+ * Test suite for {@link GameContext}.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class GameContextTest {
+	private final GameContext cut = new GameContext(13);
+
+	@Test
+	public void testNewGame() throws Exception {
+		final Board board = cut.getBoard();
+		board.play(Move.valueOf("c3"), Player.BLACK);
+		cut.setAttachment(Integer.valueOf(1));
+
+		cut.newGame();
+
+		assertEquals(board, cut.getBoard());
+		assertEquals(0, board.getMoveCount());
+		assertNull(board.getStone(Move.valueOf("c3")));
+		assertNull(cut.getAttachment());
+	}
+
+	@Test
+	public void testResize() throws Exception {
+		final Board board = cut.getBoard();
+		cut.setAttachment(Integer.valueOf(1));
+
+		cut.resize(9);
+
+		assertNotSame(board, cut.getBoard());
+		assertEquals(9, cut.getBoard().getSize());
+		assertNull(cut.getAttachment());
+	}
+
+	@Test
+	public void testState() throws Exception {
+		assertEquals(13, cut.getBoard().getSize());
+		assertEquals(0.0f, cut.getKomi(), 0.0f);
+
+		cut.setKomi(7.5f);
+		cut.setAttachment("tree");
+
+		assertEquals(7.5f, cut.getKomi(), 0.0f);
+		assertEquals("tree", cut.getAttachment());
+	}
+}
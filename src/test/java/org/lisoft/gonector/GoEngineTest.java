@@ -1,6 +1,9 @@
 package org.lisoft.gonector;
 
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
 
 import org.junit.Test;
 
@@ -41,7 +44,7 @@ public class GoEngineTest {
 
 		@Override
 		public Move nextMove(Player aPlayer) {
-			return null;
+			return Move.PASS;
 		}
 
 		@Override
@@ -55,6 +58,18 @@ public class GoEngineTest {
 		}
 	}
 
+	@Test(expected = UnsupportedOperationException.class)
+	public void testDefaultAnalyze() {
+		new TestEngine().analyze(Player.BLACK, aCandidates -> {
+			/* No-op */
+		});
+	}
+
+	@Test
+	public void testDefaultCanAnalyze() {
+		assertFalse(new TestEngine().canAnalyze());
+	}
+
 	@Test
 	public void testDefaultCanScore() {
 		assertFalse(new TestEngine().canScore());
@@ -64,4 +79,25 @@ public class GoEngineTest {
 	public void testDefaultGetScore() {
 		new TestEngine().getScore();
 	}
+
+	@Test
+	public void testDefaultNextMoveDeadline() {
+		assertSame(Move.PASS, new TestEngine().nextMove(Player.BLACK, Deadline.after(1000)));
+	}
+
+	@Test
+	public void testDefaultSetHandicap() {
+		assertFalse(new TestEngine().setHandicap(Collections.singletonList(Move.valueOf(3, 3))));
+	}
+
+	@Test
+	public void testDefaultSetPosition() {
+		assertFalse(new TestEngine().setPosition(Collections.singletonList(Move.PASS),
+				Collections.singletonList(Player.BLACK)));
+	}
+
+	@Test
+	public void testDefaultUndo() {
+		assertFalse(new TestEngine().undo());
+	}
 }
@@ -22,11 +22,15 @@ package org.lisoft.gonector;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyChar;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -34,15 +38,36 @@ import static org.mockito.Mockito.when;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 
 /**
  * A test suite for the {@link GoTextProtocol} class.
@@ -52,6 +77,31 @@ import org.junit.Test;
 @SuppressWarnings({ "boxing", "javadoc" })
 public class GoTextProtocolTest {
 	final GoEngine engine = mock(GoEngine.class);
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testAnalyzeBadInterval() throws Exception {
+		when(engine.canAnalyze()).thenReturn(true);
+		assertEquals("? syntax error in command: lz-analyze interval 0\nError was: Interval must be positive!\n\n",
+				runCommand("lz-analyze interval 0\n"));
+		verify(engine, never()).analyze(any(), any());
+	}
+
+	@Test
+	public void testAnalyzeDefaultsToPlayerToMove() throws Exception {
+		when(engine.canAnalyze()).thenReturn(true);
+		when(engine.addMove(any(), any())).thenReturn(true);
+		assertEquals("=\n\n=\n", runCommand("play b d4\nlz-analyze\n"));
+		verify(engine).analyze(eq(Player.WHITE), any());
+		verify(engine).stopAnalysis();
+	}
+
+	@Test
+	public void testAnalyzeUnsupported() throws Exception {
+		assertEquals("? unknown command\n\n", runCommand("lz-analyze b 10\n"));
+		assertEquals("? unknown command\n\n", runCommand("kata-analyze b 10\n"));
+	}
 
 	@Test
 	public void testBoardSize() throws Exception {
@@ -76,14 +126,27 @@ public class GoTextProtocolTest {
 		verify(engine).resizeBoard(Move.MIN_BOARD_SIZE);
 		verify(engine).resizeBoard(Move.MAX_BOARD_SIZE);
 		verify(engine, times(4)).canScore();
+		verify(engine, times(4)).canAnalyze();
 		verifyNoMoreInteractions(engine);
 	}
 
+	@Test
+	public void testBoardSizeStartsNewGame() throws Exception {
+		when(engine.resizeBoard(9)).thenReturn(true);
+		when(engine.setHandicap(any())).thenReturn(true);
+		when(engine.addMove(any(), any())).thenReturn(true);
+		when(engine.undo()).thenReturn(true);
+		assertEquals("= d4 q16\n\n=\n\n= c3 g7\n\n=\n\n=\n\n? cannot undo\n\n",
+				runCommand("fixed_handicap 2\nboardsize 9\nfixed_handicap 2\nplay w e5\nboardsize 9\nundo\n"));
+		verify(engine, never()).undo();
+	}
+
 	@Test
 	public void testBoardSizeTooFewArgs() throws Exception {
 		assertEquals("? syntax error in command: boardsize\nError was: Invalid number of arguments!\n\n",
 				runCommand("boardsize\n"));
 		verify(engine).canScore();
+		verify(engine).canAnalyze();
 		verifyNoMoreInteractions(engine);
 	}
 
@@ -94,15 +157,88 @@ public class GoTextProtocolTest {
 		assertEquals("?32 syntax error in command: 32 boardsize ninteen\nError was: Not an integer: ninteen!\n\n",
 				runCommand("32 boardsize ninteen\n"));
 		verify(engine, times(2)).canScore();
+		verify(engine, times(2)).canAnalyze();
 		verifyNoMoreInteractions(engine);
 	}
 
+	@Test
+	public void testChannels() throws Exception {
+		when(engine.getName()).thenReturn("abc");
+		when(engine.addMove(Move.valueOf("d4"), Player.WHITE)).thenReturn(true);
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		final byte[] input = "1 name\r\n2 play w d4\nbad\n".getBytes(StandardCharsets.US_ASCII);
+
+		new GoTextProtocol(Channels.newChannel(new ByteArrayInputStream(input)), Channels.newChannel(output), engine)
+				.call();
+
+		assertEquals("=1 abc\n\n=2\n\n? unknown command\n\n",
+				new String(output.toByteArray(), StandardCharsets.US_ASCII));
+	}
+
+	@Test
+	public void testChannelsPipe() throws Exception {
+		final Pipe commands = Pipe.open();
+		final Pipe responses = Pipe.open();
+		try {
+			commands.sink().write(StandardCharsets.US_ASCII.encode("protocol_version\nquit\n"));
+			new GoTextProtocol(commands.source(), responses.sink(), engine).call();
+
+			final ByteBuffer buffer = ByteBuffer.allocate(64);
+			responses.source().read(buffer);
+			buffer.flip();
+			assertEquals("= 2\n\n=\n\n", StandardCharsets.US_ASCII.decode(buffer).toString());
+		} finally {
+			commands.sink().close();
+			commands.source().close();
+			responses.sink().close();
+			responses.source().close();
+		}
+	}
+
 	@Test
 	public void testClearBoard() throws Exception {
 		assertEquals("=\n\n", runCommand("clear_board\n"));
 		verify(engine).newGame();
 	}
 
+	@Test
+	public void testCoalescedFlushing() throws Exception {
+		when(engine.addMove(any(), any())).thenReturn(true);
+		when(engine.nextMove(eq(Player.WHITE), any())).thenReturn(Move.PASS);
+		final Writer w = mock(Writer.class);
+		final String input = "1 play b a1\n2 play w b2\n3 genmove w\n4 play b c3\n";
+
+		try (StringReader stringReader = new StringReader(input);
+				final BufferedReader br = new BufferedReader(stringReader);) {
+			final GoTextProtocol cut = new GoTextProtocol(br, w, engine);
+			cut.setCoalescedFlushing(true);
+			cut.call();
+		}
+
+		// One flush before genmove and one at the end.
+		final InOrder inOrder = inOrder(w, engine);
+		inOrder.verify(w).write(any(char[].class), eq(0), eq(8));
+		inOrder.verify(w).flush();
+		inOrder.verify(engine).nextMove(eq(Player.WHITE), any());
+		inOrder.verify(w).write(any(char[].class), eq(0), eq(13));
+		inOrder.verify(w).flush();
+		verify(w, times(2)).flush();
+	}
+
+	@Test
+	public void testCoalescedFlushingOutput() throws Exception {
+		when(engine.getName()).thenReturn("abc");
+		try (StringReader stringReader = new StringReader("1 name\n2 name\nquit\n");
+				final BufferedReader br = new BufferedReader(stringReader);
+				StringWriter stringWriter = new StringWriter();
+				final BufferedWriter bw = new BufferedWriter(stringWriter);) {
+			final GoTextProtocol cut = new GoTextProtocol(br, bw, engine);
+			cut.setCoalescedFlushing(true);
+			cut.call();
+			assertEquals("=1 abc\n\n=2 abc\n\n=\n\n", stringWriter.toString());
+		}
+	}
+
 	@Test
 	public void testEmptyLine() throws Exception {
 		assertEquals("", runCommand("\n\r\n"));
@@ -120,6 +256,23 @@ public class GoTextProtocolTest {
 		assertEquals("", runCommand("komi 3.2\n"));
 	}
 
+	@Test
+	public void testExtensionCommand() throws Exception {
+		final CommandRegistry registry = CommandRegistry.STANDARD
+				.with("add", (e, args) -> Integer.toString(args.getInt(0) + args.getInt(1)))
+				.with("fail", (e, args) -> {
+					throw new CommandFailedException("no can do");
+				}).with("engine-name", (e, args) -> e.getName());
+		when(engine.getName()).thenReturn("abc");
+
+		final String output = runCommand(registry,
+				"1 add 2 3\nadd x 3\nfail\nengine-name\nknown_command add\nlist_commands\n");
+
+		assertEquals("=1 5\n\n? syntax error in command: add x 3\nError was: Not an integer: x!\n\n? no can do\n\n"
+				+ "= abc\n\n= true\n\n", output.substring(0, output.indexOf("= protocol_version")));
+		assertTrue(output.endsWith("\nadd\nfail\nengine-name\n\n"));
+	}
+
 	@Test
 	public void testFinalScoreCannotScore() throws Exception {
 		when(engine.canScore()).thenReturn(false);
@@ -169,11 +322,85 @@ public class GoTextProtocolTest {
 		assertEquals("", runCommand("final_score\n"));
 	}
 
+	@Test
+	public void testFixedHandicap() throws Exception {
+		when(engine.setHandicap(any())).thenReturn(true);
+		assertEquals("= d4 q16 d16\n\n", runCommand("fixed_handicap 3\n"));
+		verify(engine).setHandicap(Arrays.asList(Move.valueOf("D4"), Move.valueOf("Q16"), Move.valueOf("D16")));
+		verify(engine, never()).addMove(any(), any());
+	}
+
+	@Test
+	public void testFixedHandicapBoardNotEmpty() throws Exception {
+		when(engine.setHandicap(any())).thenReturn(true);
+		when(engine.addMove(any(), any())).thenReturn(true);
+		assertEquals("= d4 q16\n\n? board not empty\n\n=\n\n=\n\n? board not empty\n\n=\n\n= d4 q16\n\n",
+				runCommand("fixed_handicap 2\nfixed_handicap 2\nclear_board\nplay b a1\nfixed_handicap 2\nclear_board\n"
+						+ "fixed_handicap 2\n"));
+	}
+
+	@Test
+	public void testFixedHandicapFallsBackToAddMove() throws Exception {
+		when(engine.resizeBoard(9)).thenReturn(true);
+		when(engine.addMove(any(), any())).thenReturn(true);
+		assertEquals("=\n\n= c3 g7\n\n", runCommand("boardsize 9\nfixed_handicap 2\n"));
+		verify(engine).addMove(Move.valueOf("C3"), Player.BLACK);
+		verify(engine).addMove(Move.valueOf("G7"), Player.BLACK);
+	}
+
+	@Test
+	public void testFixedHandicapFallbackFails() throws Exception {
+		when(engine.addMove(any(), any())).thenReturn(true, false, true);
+		assertEquals("? illegal move\n\n= d4 q16 d16\n\n", runCommand("fixed_handicap 3\nfixed_handicap 3\n"));
+		verify(engine).newGame();
+		verify(engine, times(5)).addMove(any(), eq(Player.BLACK));
+	}
+
+	@Test
+	public void testFixedHandicapInvalidNumber() throws Exception {
+		assertEquals("? invalid number of stones\n\n? invalid number of stones\n\n",
+				runCommand("fixed_handicap 1\nfixed_handicap 10\n"));
+		verify(engine, never()).setHandicap(any());
+	}
+
 	@Test
 	public void testGenMove() throws Exception {
-		when(engine.nextMove(Player.BLACK)).thenReturn(Move.RESIGN);
+		when(engine.nextMove(eq(Player.BLACK), any())).thenReturn(Move.RESIGN);
 		assertEquals("= resign\n\n", runCommand("genmove black\n"));
-		verify(engine).nextMove(Player.BLACK);
+		verify(engine).nextMove(Player.BLACK, Deadline.NONE);
+		verify(engine, never()).startPondering(any());
+	}
+
+	@Test
+	public void testGenMoveDeadline() throws Exception {
+		when(engine.nextMove(eq(Player.WHITE), any())).thenReturn(Move.PASS);
+		final String input = "time_settings 300 30 10\ntime_left b 100 0\ntime_left w 20 5\ngenmove w\n";
+		assertEquals("=\n\n=\n\n=\n\n= pass\n\n", runCommand(input));
+
+		final ArgumentCaptor<Deadline> deadline = ArgumentCaptor.forClass(Deadline.class);
+		verify(engine).nextMove(eq(Player.WHITE), deadline.capture());
+		assertTrue(deadline.getValue().isLimited());
+		// 20 seconds for 5 stones minus safety margin
+		assertTrue(deadline.getValue().remaining(TimeUnit.MILLISECONDS) <= 3500);
+		assertTrue(deadline.getValue().remaining(TimeUnit.MILLISECONDS) > 3000);
+	}
+
+	@Test
+	public void testGenMoveTimePolicy() throws Exception {
+		when(engine.nextMove(eq(Player.BLACK), any())).thenReturn(Move.PASS);
+		final TimeAllocationPolicy policy = mock(TimeAllocationPolicy.class);
+		when(policy.allocate(any(), eq(Player.BLACK))).thenReturn(Long.MAX_VALUE);
+
+		try (StringReader stringReader = new StringReader("time_settings 10 0 0\ngenmove b\n");
+				final BufferedReader br = new BufferedReader(stringReader);
+				StringWriter stringWriter = new StringWriter();) {
+			final GoTextProtocol cut = new GoTextProtocol(br, stringWriter, engine);
+			cut.setTimeAllocationPolicy(policy);
+			cut.call();
+			assertEquals(TimeSettings.Type.ABSOLUTE, cut.getClock().getSettings().getType());
+			verify(policy).allocate(cut.getClock(), Player.BLACK);
+		}
+		verify(engine).nextMove(Player.BLACK, Deadline.NONE);
 	}
 
 	@Test
@@ -181,6 +408,7 @@ public class GoTextProtocolTest {
 		assertEquals("? syntax error in command: genmove who\nError was: Unknown player: who!\n\n",
 				runCommand("genmove who\n"));
 		verify(engine).canScore();
+		verify(engine).canAnalyze();
 		verifyNoMoreInteractions(engine);
 	}
 
@@ -189,9 +417,19 @@ public class GoTextProtocolTest {
 		assertEquals("? syntax error in command: genmove\nError was: Invalid number of arguments!\n\n",
 				runCommand("genmove\n"));
 		verify(engine).canScore();
+		verify(engine).canAnalyze();
 		verifyNoMoreInteractions(engine);
 	}
 
+	@Test
+	public void testKataAnalyze() throws Exception {
+		final AnalysisCandidate candidate = new AnalysisCandidate(Move.valueOf("d4"), 10, 0.55, 0.1234, 2.5,
+				Arrays.asList(Move.valueOf("d4")));
+		assertEquals("=5\ninfo move d4 visits 10 winrate 0.550000 scoreLead 2.500000 prior 0.123400 order 0 pv d4\n\n"
+				+ "= abc\n\n", runAnalysis("5 kata-analyze w interval 1\n", candidate));
+		verify(engine).analyze(eq(Player.WHITE), any());
+	}
+
 	@Test
 	public void testKnownCommand() throws Exception {
 		// Required commands:
@@ -226,6 +464,7 @@ public class GoTextProtocolTest {
 		assertEquals("? syntax error in command: komi\nError was: Invalid number of arguments!\n\n",
 				runCommand("komi\n"));
 		verify(engine).canScore();
+		verify(engine).canAnalyze();
 		verifyNoMoreInteractions(engine);
 	}
 
@@ -233,6 +472,7 @@ public class GoTextProtocolTest {
 	public void testKomiNonNumberArg() throws Exception {
 		assertEquals("? syntax error in command: komi foo\nError was: Not a float: foo!\n\n", runCommand("komi foo\n"));
 		verify(engine).canScore();
+		verify(engine).canAnalyze();
 		verifyNoMoreInteractions(engine);
 	}
 
@@ -254,7 +494,126 @@ public class GoTextProtocolTest {
 		assertTrue(commandSet.contains("komi"));
 		assertTrue(commandSet.contains("play"));
 		assertTrue(commandSet.contains("genmove"));
+		assertTrue(commandSet.contains("gonector-stats"));
+		assertTrue(commandSet.contains("loadsgf"));
+
+	}
+
+	@Test
+	public void testLoadSgf() throws Exception {
+		final Path file = writeSgf("(;SZ[9]KM[6.5]HA[2]AB[cc][gg];W[ee];B[cg];W[gc])");
+		when(engine.resizeBoard(9)).thenReturn(true);
+		when(engine.addMove(any(Move.class), any(Player.class))).thenReturn(true);
 
+		assertEquals("= black\n\n", runCommand("loadsgf " + file + " 2\n"));
+
+		final InOrder inOrder = inOrder(engine);
+		inOrder.verify(engine).resizeBoard(9);
+		inOrder.verify(engine).newGame();
+		inOrder.verify(engine).setKomi(6.5f);
+		inOrder.verify(engine).setPosition(any(), any());
+		inOrder.verify(engine).addMove(Move.valueOf("c7"), Player.BLACK);
+		inOrder.verify(engine).addMove(Move.valueOf("g3"), Player.BLACK);
+		inOrder.verify(engine).addMove(Move.valueOf("e5"), Player.WHITE);
+		verify(engine, times(3)).addMove(any(Move.class), any(Player.class));
+	}
+
+	@Test
+	public void testLoadSgfBadMoveNumber() throws Exception {
+		assertEquals("? syntax error in command: loadsgf x.sgf 0\nError was: Move number must be positive!\n\n",
+				runCommand("loadsgf x.sgf 0\n"));
+	}
+
+	@Test
+	public void testLoadSgfBadSize() throws Exception {
+		final Path file = writeSgf("(;SZ[13];B[aa])");
+		when(engine.resizeBoard(13)).thenReturn(false);
+		assertEquals("? cannot load file\n\n", runCommand("loadsgf " + file + "\n"));
+		verify(engine, never()).newGame();
+	}
+
+	@Test
+	public void testLoadSgfIllegalMove() throws Exception {
+		final Path file = writeSgf("(;SZ[9];B[aa];W[aa])");
+		when(engine.resizeBoard(9)).thenReturn(true);
+		when(engine.addMove(Move.valueOf("a9"), Player.BLACK)).thenReturn(true);
+		assertEquals("? illegal move\n\n", runCommand("loadsgf " + file + "\n"));
+	}
+
+	@Test
+	public void testLoadSgfIllegalMoveLeavesEmptyBoard() throws Exception {
+		final Path file = writeSgf("(;SZ[9];B[aa];W[aa])");
+		when(engine.canAnalyze()).thenReturn(true);
+		when(engine.resizeBoard(9)).thenReturn(true);
+		when(engine.addMove(any(), any())).thenReturn(true);
+		when(engine.addMove(Move.valueOf("a9"), Player.WHITE)).thenReturn(false);
+		when(engine.undo()).thenReturn(true);
+		assertEquals("=\n\n? illegal move\n\n? cannot undo\n\n=\n",
+				runCommand("play b d4\nloadsgf " + file + "\nundo\nlz-analyze\n"));
+		verify(engine, times(2)).newGame();
+		verify(engine).analyze(eq(Player.BLACK), any());
+	}
+
+	@Test
+	public void testLoadSgfKeepsSetupStonesOnUndo() throws Exception {
+		final Path file = writeSgf("(;SZ[9]AB[cc][gg];W[ee])");
+		when(engine.canAnalyze()).thenReturn(true);
+		when(engine.resizeBoard(9)).thenReturn(true);
+		when(engine.addMove(any(), any())).thenReturn(true);
+		when(engine.undo()).thenReturn(true);
+		assertEquals("= black\n\n=\n\n? cannot undo\n\n? board not empty\n\n=\n",
+				runCommand("loadsgf " + file + "\nundo\nundo\nfixed_handicap 2\nlz-analyze\n"));
+		verify(engine).undo();
+		verify(engine).analyze(eq(Player.WHITE), any());
+	}
+
+	@Test
+	public void testLoadSgfMissingFile() throws Exception {
+		assertEquals("? cannot load file\n\n", runCommand("loadsgf " + folder.getRoot() + "/missing.sgf\n"));
+		verify(engine).canScore();
+		verify(engine).canAnalyze();
+		verifyNoMoreInteractions(engine);
+	}
+
+	@Test
+	public void testLoadSgfOutsideDirectory() throws Exception {
+		final Path file = writeSgf("(;SZ[9])");
+		final Path directory = folder.newFolder().toPath();
+		final StringWriter output = new StringWriter();
+		try (BufferedReader br = new BufferedReader(new StringReader("loadsgf ../" + file.getFileName() + "\n"));
+				BufferedWriter bw = new BufferedWriter(output)) {
+			final GoTextProtocol cut = new GoTextProtocol(br, bw, engine);
+			cut.setSgfDirectory(directory);
+			cut.call();
+		}
+		assertEquals("? cannot load file\n\n", output.toString());
+		verify(engine, never()).resizeBoard(anyInt());
+	}
+
+	@Test
+	public void testLoadSgfSetPosition() throws Exception {
+		final Path file = writeSgf("(;SZ[9]PL[W];B[ee];W[])");
+		when(engine.resizeBoard(9)).thenReturn(true);
+		when(engine.setPosition(any(), any())).thenReturn(true);
+
+		assertEquals("= black\n\n", runCommand("loadsgf " + file + "\n"));
+
+		verify(engine).setPosition(Arrays.asList(Move.valueOf("e5"), Move.PASS),
+				Arrays.asList(Player.BLACK, Player.WHITE));
+		verify(engine, never()).addMove(any(Move.class), any(Player.class));
+	}
+
+	@Test
+	public void testLzAnalyze() throws Exception {
+		final AnalysisCandidate first = new AnalysisCandidate(Move.valueOf("d4"), 10, 0.55, 0.1234,
+				Arrays.asList(Move.valueOf("d4"), Move.valueOf("q16")));
+		final AnalysisCandidate second = new AnalysisCandidate(Move.valueOf("q16"), 2, 0.5, 0.01,
+				Collections.emptyList());
+		assertEquals("=\ninfo move d4 visits 10 winrate 5500 prior 1234 order 0 pv d4 q16 "
+				+ "info move q16 visits 2 winrate 5000 prior 100 order 1 pv\n\n= abc\n\n",
+				runAnalysis("lz-analyze b 1\n", first, second));
+		verify(engine).analyze(eq(Player.BLACK), any());
+		verify(engine).stopAnalysis();
 	}
 
 	@Test
@@ -269,8 +628,7 @@ public class GoTextProtocolTest {
 	public void testPipeThrows() throws Exception {
 		@SuppressWarnings("resource")
 		final Writer w = mock(Writer.class);
-		when(w.append(any())).thenThrow(IOException.class);
-		when(w.append(anyChar())).thenThrow(IOException.class);
+		doThrow(IOException.class).when(w).write(any(char[].class), anyInt(), anyInt());
 
 		try (StringReader stringReader = new StringReader("komi 3.2\n");
 				final BufferedReader br = new BufferedReader(stringReader);) {
@@ -278,10 +636,30 @@ public class GoTextProtocolTest {
 			cut.call();
 		}
 		// Don't write anything to the pipe after the exception.
-		verify(w).append("=");
+		verify(w).write(any(char[].class), eq(0), eq(3));
 		verifyNoMoreInteractions(w);
 	}
 
+	@Test
+	public void testPlaceFreeHandicap() throws Exception {
+		when(engine.resizeBoard(5)).thenReturn(true);
+		when(engine.setHandicap(any())).thenReturn(true);
+		when(engine.canAnalyze()).thenReturn(true);
+		assertEquals("=\n\n= b2 d2 c3\n\n=\n", runCommand("boardsize 5\nplace_free_handicap 3\nlz-analyze\n"));
+		verify(engine).analyze(eq(Player.WHITE), any());
+	}
+
+	@Test
+	public void testPlaceFreeHandicapIllegal() throws Exception {
+		assertEquals("? illegal move\n\n", runCommand("place_free_handicap 2\n"));
+	}
+
+	@Test
+	public void testPlaceFreeHandicapInvalidNumber() throws Exception {
+		assertEquals("? invalid number of stones\n\n? invalid number of stones\n\n",
+				runCommand("place_free_handicap 1\nplace_free_handicap 361\n"));
+	}
+
 	@Test
 	public void testPlay() throws Exception, SyntaxErrorException {
 		when(engine.addMove(Move.valueOf("r10"), Player.BLACK)).thenReturn(true);
@@ -295,6 +673,7 @@ public class GoTextProtocolTest {
 				"? syntax error in command: play b somewhere\nError was: Invalid move: somewhere, expected integer after first character!\n\n",
 				runCommand("play b somewhere\n"));
 		verify(engine).canScore();
+		verify(engine).canAnalyze();
 		verifyNoMoreInteractions(engine);
 
 	}
@@ -304,6 +683,7 @@ public class GoTextProtocolTest {
 		assertEquals("? syntax error in command: play bl r10\nError was: Unknown player: bl!\n\n",
 				runCommand("play bl r10\n"));
 		verify(engine).canScore();
+		verify(engine).canAnalyze();
 		verifyNoMoreInteractions(engine);
 
 	}
@@ -320,10 +700,236 @@ public class GoTextProtocolTest {
 		assertEquals("? syntax error in command: play black\nError was: Invalid number of arguments!\n\n",
 				runCommand("play black\n"));
 		verify(engine).canScore();
+		verify(engine).canAnalyze();
 		verifyNoMoreInteractions(engine);
 
 	}
 
+	@Test
+	public void testPondering() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch stopped = new CountDownLatch(1);
+		when(engine.nextMove(eq(Player.BLACK), any())).thenReturn(Move.valueOf("d4"));
+		when(engine.addMove(any(), any())).thenReturn(true);
+		doAnswer(aInvocation -> {
+			started.countDown();
+			stopped.await();
+			return null;
+		}).when(engine).startPondering(Player.WHITE);
+		doAnswer(aInvocation -> {
+			stopped.countDown();
+			return null;
+		}).when(engine).stopPondering();
+
+		// Only deliver the opponent's move once the engine is pondering.
+		final Reader input = new Reader() {
+			private final String[] lines = { "genmove b\n", "play w q16\n" };
+			private int next;
+
+			@Override
+			public void close() {
+				/* No-op */
+			}
+
+			@Override
+			public int read(char[] aBuffer, int aOffset, int aLength) throws IOException {
+				if (next == lines.length) {
+					return -1;
+				}
+				if (next == 1) {
+					try {
+						started.await();
+					} catch (final InterruptedException e) {
+						throw new IOException(e);
+					}
+				}
+				final String line = lines[next++];
+				line.getChars(0, line.length(), aBuffer, aOffset);
+				return line.length();
+			}
+		};
+
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try (BufferedReader br = new BufferedReader(input); StringWriter sw = new StringWriter()) {
+			final GoTextProtocol cut = new GoTextProtocol(br, sw, engine);
+			cut.setPonderingExecutor(executor);
+			cut.call();
+			assertEquals("= d4\n\n=\n\n", sw.toString());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		final InOrder inOrder = inOrder(engine);
+		inOrder.verify(engine).nextMove(eq(Player.BLACK), any());
+		inOrder.verify(engine).startPondering(Player.WHITE);
+		inOrder.verify(engine).stopPondering();
+		inOrder.verify(engine).addMove(Move.valueOf("q16"), Player.WHITE);
+	}
+
+	@Test
+	public void testPonderingQueuedBehindLaterGenmove() throws Exception {
+		when(engine.nextMove(any(), any())).thenReturn(Move.valueOf("d4"), Move.valueOf("q16"));
+		when(engine.getName()).thenReturn("abc");
+
+		// Runs tasks only when told to, like a busy shared executor.
+		final List<Runnable> queued = new ArrayList<>();
+		final ExecutorService executor = new AbstractExecutorService() {
+			@Override
+			public boolean awaitTermination(long aTimeout, TimeUnit aUnit) {
+				return true;
+			}
+
+			@Override
+			public void execute(Runnable aCommand) {
+				queued.add(aCommand);
+			}
+
+			@Override
+			public boolean isShutdown() {
+				return false;
+			}
+
+			@Override
+			public boolean isTerminated() {
+				return false;
+			}
+
+			@Override
+			public void shutdown() {
+				/* No-op */
+			}
+
+			@Override
+			public List<Runnable> shutdownNow() {
+				return queued;
+			}
+		};
+
+		// Both tasks only get to run after the second genmove.
+		final Reader input = new Reader() {
+			private final String[] lines = { "genmove b\n", "genmove w\n", "name\n" };
+			private int next;
+
+			@Override
+			public void close() {
+				/* No-op */
+			}
+
+			@Override
+			public int read(char[] aBuffer, int aOffset, int aLength) {
+				if (next == lines.length) {
+					return -1;
+				}
+				if (next == 2) {
+					for (final Runnable task : queued) {
+						task.run();
+					}
+				}
+				final String line = lines[next++];
+				line.getChars(0, line.length(), aBuffer, aOffset);
+				return line.length();
+			}
+		};
+
+		try (BufferedReader br = new BufferedReader(input); StringWriter sw = new StringWriter()) {
+			final GoTextProtocol cut = new GoTextProtocol(br, sw, engine);
+			cut.setPonderingExecutor(executor);
+			cut.call();
+			assertEquals("= d4\n\n= q16\n\n= abc\n\n", sw.toString());
+		}
+
+		verify(engine, never()).startPondering(Player.WHITE);
+		final InOrder inOrder = inOrder(engine);
+		inOrder.verify(engine).startPondering(Player.BLACK);
+		inOrder.verify(engine).stopPondering();
+		inOrder.verify(engine).getName();
+	}
+
+	@Test
+	public void testPonderingStoppedOnFailure() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch stopped = new CountDownLatch(1);
+		when(engine.nextMove(eq(Player.BLACK), any())).thenReturn(Move.valueOf("d4"));
+		doAnswer(aInvocation -> {
+			started.countDown();
+			stopped.await();
+			return null;
+		}).when(engine).startPondering(Player.WHITE);
+		doAnswer(aInvocation -> {
+			stopped.countDown();
+			return null;
+		}).when(engine).stopPondering();
+
+		// Fails reading the next command once the engine is pondering.
+		final Reader input = new Reader() {
+			private boolean sent;
+
+			@Override
+			public void close() {
+				/* No-op */
+			}
+
+			@Override
+			public int read(char[] aBuffer, int aOffset, int aLength) throws IOException {
+				if (!sent) {
+					sent = true;
+					final String line = "genmove b\n";
+					line.getChars(0, line.length(), aBuffer, aOffset);
+					return line.length();
+				}
+				try {
+					started.await();
+				} catch (final InterruptedException e) {
+					throw new IOException(e);
+				}
+				throw new IllegalStateException("Boom");
+			}
+		};
+
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try (BufferedReader br = new BufferedReader(input); StringWriter sw = new StringWriter()) {
+			final GoTextProtocol cut = new GoTextProtocol(br, sw, engine);
+			cut.setPonderingExecutor(executor);
+			cut.call();
+			fail("Expected exception");
+		} catch (final IllegalStateException e) {
+			assertEquals("Boom", e.getMessage());
+		} finally {
+			executor.shutdownNow();
+		}
+		verify(engine).stopPondering();
+	}
+
+	@Test
+	public void testPonderingCancelledBeforeStart() throws Exception {
+		when(engine.nextMove(eq(Player.BLACK), any())).thenReturn(Move.PASS);
+		when(engine.getName()).thenReturn("abc");
+		final CountDownLatch busy = new CountDownLatch(1);
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		executor.execute(() -> {
+			try {
+				busy.await();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+
+		try (StringReader stringReader = new StringReader("genmove b\nname\n");
+				final BufferedReader br = new BufferedReader(stringReader);
+				StringWriter sw = new StringWriter()) {
+			final GoTextProtocol cut = new GoTextProtocol(br, sw, engine);
+			cut.setPonderingExecutor(executor);
+			cut.call();
+			assertEquals("= pass\n\n= abc\n\n", sw.toString());
+		} finally {
+			busy.countDown();
+			executor.shutdown();
+			executor.awaitTermination(1, TimeUnit.SECONDS);
+		}
+		verify(engine, never()).startPondering(any());
+		verify(engine, never()).stopPondering();
+	}
+
 	@Test
 	public void testProtocolVersion() throws Exception {
 		assertEquals("= 2\n\n", runCommand("protocol_version\n"));
@@ -338,6 +944,114 @@ public class GoTextProtocolTest {
 		assertEquals("=32\n\n", runCommand("32 quit\n"));
 	}
 
+	@Test
+	public void testKgsTimeSettings() throws Exception {
+		assertEquals("=\n\n", runCommand("kgs-time_settings none\n"));
+		assertEquals("=\n\n", runCommand("kgs-time_settings absolute 600\n"));
+		assertEquals("=\n\n", runCommand("kgs-time_settings byoyomi 600 30 5\n"));
+		assertEquals("=\n\n", runCommand("kgs-time_settings canadian 600 300 25\n"));
+		assertEquals("? syntax error in command: kgs-time_settings hourglass 3\nError was: Unknown time system: hourglass!\n\n",
+				runCommand("kgs-time_settings hourglass 3\n"));
+		assertEquals(
+				"? syntax error in command: kgs-time_settings absolute -3\nError was: Time settings must not be negative!\n\n",
+				runCommand("kgs-time_settings absolute -3\n"));
+	}
+
+	@Test
+	public void testTimeLeft() throws Exception {
+		assertEquals("=\n\n", runCommand("time_left white 30.5 3\n"));
+		assertEquals("? syntax error in command: time_left white 30\nError was: Invalid number of arguments!\n\n",
+				runCommand("time_left white 30\n"));
+		assertEquals("? syntax error in command: time_left white x 0\nError was: Not a float: x!\n\n",
+				runCommand("time_left white x 0\n"));
+	}
+
+	@Test
+	public void testSetFreeHandicap() throws Exception {
+		when(engine.setHandicap(any())).thenReturn(true);
+		assertEquals("=\n\n? cannot undo\n\n", runCommand("set_free_handicap a1 t19 k10\nundo\n"));
+		verify(engine).setHandicap(Arrays.asList(Move.valueOf("A1"), Move.valueOf("T19"), Move.valueOf("K10")));
+	}
+
+	@Test
+	public void testSetFreeHandicapBadVertexList() throws Exception {
+		assertEquals("? bad vertex list\n\n? bad vertex list\n\n? bad vertex list\n\n? bad vertex list\n\n",
+				runCommand("set_free_handicap a1\nset_free_handicap a1 a1\nset_free_handicap a1 pass\n"
+						+ "set_free_handicap a1 a20\n"));
+		verify(engine, never()).setHandicap(any());
+	}
+
+	@Test
+	public void testStatistics() throws Exception {
+		when(engine.getName()).thenReturn("abc");
+		final String output = runCommand("name\n1 name\nbad\ngonector-stats\ngonector-stats\n");
+		final String[] responses = output.split("\n\n");
+		assertEquals(5, responses.length);
+		assertTrue(responses[3], responses[3].startsWith("= name count=2 engine_p50_us="));
+		assertTrue(responses[4], responses[4].startsWith("= gonector-stats count=1 "));
+		assertTrue(responses[4], responses[4].contains("\nname count=2 "));
+	}
+
+	@Test
+	public void testStatisticsDisabled() throws Exception {
+		final StringWriter writer = new StringWriter();
+		final GoTextProtocol cut = new GoTextProtocol(new BufferedReader(new StringReader("protocol_version\ngonector-stats\n")),
+				writer, engine);
+		cut.setStatistics(null);
+		cut.call();
+		assertEquals("= 2\n\n=\n\n", writer.toString());
+		assertEquals(null, cut.getStatistics());
+	}
+
+	@Test
+	public void testStatisticsEngineTime() throws Exception {
+		when(engine.nextMove(eq(Player.BLACK), any())).thenAnswer(invocation -> {
+			Thread.sleep(20);
+			return Move.PASS;
+		});
+		final CommandStatistics statistics = new CommandStatistics();
+		final GoTextProtocol cut = new GoTextProtocol(new BufferedReader(new StringReader("genmove b\n")),
+				new StringWriter(), engine);
+		cut.setStatistics(statistics);
+		cut.call();
+
+		assertEquals(statistics, cut.getStatistics());
+		final LatencyHistogram engineTime = statistics.getEngineLatency("genmove");
+		final LatencyHistogram overhead = statistics.getOverheadLatency("genmove");
+		assertEquals(1, engineTime.getCount());
+		assertEquals(1, overhead.getCount());
+		assertTrue(engineTime.getMax(TimeUnit.MILLISECONDS) >= 20);
+		assertTrue(overhead.getMax(TimeUnit.NANOSECONDS) < engineTime.getMax(TimeUnit.NANOSECONDS));
+	}
+
+	@Test
+	public void testStatisticsExcludeStoppingAnalysis() throws Exception {
+		when(engine.canAnalyze()).thenReturn(true);
+		when(engine.getName()).thenReturn("abc");
+		doAnswer(invocation -> {
+			Thread.sleep(50);
+			return null;
+		}).when(engine).stopAnalysis();
+		final CommandStatistics statistics = new CommandStatistics();
+		final GoTextProtocol cut = new GoTextProtocol(new BufferedReader(new StringReader("lz-analyze\nname\n")),
+				new StringWriter(), engine);
+		cut.setStatistics(statistics);
+		cut.call();
+
+		final LatencyHistogram overhead = statistics.getOverheadLatency("name");
+		assertEquals(1, overhead.getCount());
+		assertTrue(overhead.getMax(TimeUnit.MILLISECONDS) < 50);
+	}
+
+	@Test
+	public void testTimeSettings() throws Exception {
+		assertEquals("=\n\n", runCommand("time_settings 300 30 10\n"));
+		assertEquals("? syntax error in command: time_settings 300 30 -1\nError was: Time settings must not be negative!\n\n",
+				runCommand("time_settings 300 30 -1\n"));
+		assertEquals("? syntax error in command: time_settings 300\nError was: Invalid number of arguments!\n\n",
+				runCommand("time_settings 300\n"));
+	}
+
 	@Test
 	public void testUnknownCommand() throws Exception {
 		when(engine.getName()).thenReturn("abc");
@@ -345,6 +1059,52 @@ public class GoTextProtocolTest {
 		assertEquals("? unknown command\n\n", runCommand("bad_command\n"));
 	}
 
+	@Test
+	public void testUndo() throws Exception {
+		when(engine.addMove(any(Move.class), any(Player.class))).thenReturn(true);
+		when(engine.undo()).thenReturn(true);
+
+		assertEquals("=\n\n=\n\n=\n\n=\n\n? cannot undo\n\n",
+				runCommand("play b d4\nplay w q16\nundo\nundo\nundo\n"));
+		verify(engine, times(2)).undo();
+	}
+
+	@Test
+	public void testUndoAfterClearBoard() throws Exception {
+		when(engine.addMove(any(Move.class), any(Player.class))).thenReturn(true);
+		when(engine.undo()).thenReturn(true);
+
+		assertEquals("=\n\n=\n\n? cannot undo\n\n", runCommand("play b d4\nclear_board\nundo\n"));
+		verify(engine, never()).undo();
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testUndoAfterCopiedResign() throws Exception {
+		when(engine.nextMove(eq(Player.BLACK), any())).thenReturn(new Move(-1, 0));
+		when(engine.undo()).thenReturn(true);
+
+		assertEquals("= resign\n\n? cannot undo\n\n", runCommand("genmove b\nundo\n"));
+		verify(engine, never()).undo();
+	}
+
+	@Test
+	public void testUndoRestoresPlayerToMove() throws Exception {
+		when(engine.canAnalyze()).thenReturn(true);
+		when(engine.addMove(any(), any())).thenReturn(true);
+		when(engine.undo()).thenReturn(true);
+		assertEquals("=\n\n=\n\n=\n\n=\n", runCommand("play w d4\nplay b q16\nundo\nlz-analyze\n"));
+		verify(engine).analyze(eq(Player.BLACK), any());
+	}
+
+	@Test
+	public void testUndoUnsupported() throws Exception {
+		when(engine.addMove(any(Move.class), any(Player.class))).thenReturn(true);
+
+		assertEquals("=\n\n? cannot undo\n\n", runCommand("play b d4\nundo\n"));
+		verify(engine).undo();
+	}
+
 	@Test
 	public void testVersion() throws Exception {
 		when(engine.getVersion()).thenReturn("123");
@@ -352,14 +1112,76 @@ public class GoTextProtocolTest {
 		assertEquals("=1 123\n\n", runCommand("1 version\n"));
 	}
 
-	private String runCommand(String aCommand) throws Exception {
+	/**
+	 * Runs an analysis command with an engine that publishes the candidates
+	 * once, then sends the <code>name</code> command as soon as the
+	 * candidates have been written.
+	 */
+	private String runAnalysis(String aCommand, AnalysisCandidate... aCandidates) throws Exception {
+		final CountDownLatch stopped = new CountDownLatch(1);
+		when(engine.canAnalyze()).thenReturn(true);
+		when(engine.getName()).thenReturn("abc");
+		doAnswer(aInvocation -> {
+			aInvocation.getArgument(1, AnalysisSink.class).publish(Arrays.asList(aCandidates));
+			stopped.await();
+			return null;
+		}).when(engine).analyze(any(), any());
+		doAnswer(aInvocation -> {
+			stopped.countDown();
+			return null;
+		}).when(engine).stopAnalysis();
+
+		final StringWriter output = new StringWriter();
+		final Reader input = new Reader() {
+			private final String[] lines = { aCommand, "name\n" };
+			private int next;
+
+			@Override
+			public void close() {
+				/* No-op */
+			}
+
+			@Override
+			public int read(char[] aBuffer, int aOffset, int aLength) throws IOException {
+				if (next == lines.length) {
+					return -1;
+				}
+				if (next == 1) {
+					final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+					while (!output.toString().contains("info") && System.nanoTime() < deadline) {
+						Thread.yield();
+					}
+				}
+				final String line = lines[next++];
+				line.getChars(0, line.length(), aBuffer, aOffset);
+				return line.length();
+			}
+		};
+		try (BufferedReader br = new BufferedReader(input)) {
+			new GoTextProtocol(br, output, engine).call();
+		}
+		return output.toString();
+	}
+
+	private String runCommand(CommandRegistry aRegistry, String aCommand) throws Exception {
 		try (StringReader stringReader = new StringReader(aCommand);
 				final BufferedReader br = new BufferedReader(stringReader);
 				StringWriter stringWriter = new StringWriter();
 				final BufferedWriter bw = new BufferedWriter(stringWriter);) {
 			final GoTextProtocol cut = new GoTextProtocol(br, bw, engine);
+			cut.setCommandRegistry(aRegistry);
 			cut.call();
 			return stringWriter.toString();
 		}
 	}
+
+	private String runCommand(String aCommand) throws Exception {
+		return runCommand(CommandRegistry.STANDARD, aCommand);
+	}
+
+	private Path writeSgf(String aContents) throws IOException {
+		final Path file = folder.newFile().toPath();
+		Files.write(file, aContents.getBytes(StandardCharsets.US_ASCII));
+		return file;
+	}
 }
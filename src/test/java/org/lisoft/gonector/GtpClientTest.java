@@ -0,0 +1,242 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.PipedReader;
+import java.io.PipedWriter;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Test suite for {@link GtpClient}.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class GtpClientTest {
+	/**
+	 * Connects a client to a {@link GoTextProtocol} running on its own thread
+	 * in this JVM.
+	 */
+	static GtpClient connect(GoEngine aEngine) throws IOException {
+		final Pipe commands = Pipe.open();
+		final Pipe responses = Pipe.open();
+		final Thread thread = new Thread(() -> {
+			try {
+				new GoTextProtocol(commands.source(), responses.sink(), aEngine).call();
+			} catch (final Exception e) {
+				throw new IllegalStateException(e);
+			} finally {
+				try {
+					responses.sink().close();
+					commands.source().close();
+				} catch (final IOException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		}, "test-engine");
+		thread.setDaemon(true);
+		thread.start();
+		return new GtpClient(Channels.newReader(responses.source(), StandardCharsets.UTF_8.newDecoder(), -1),
+				Channels.newWriter(commands.sink(), StandardCharsets.UTF_8.newEncoder(), -1));
+	}
+
+	private GtpClient cut;
+	private final GoEngine engine = mock(GoEngine.class);
+
+	@After
+	public void tearDown() {
+		if (null != cut) {
+			cut.close();
+		}
+	}
+
+	@Test
+	public void testClose() throws Exception {
+		cut = connect(engine);
+		assertTrue(cut.isAlive());
+		cut.close();
+		assertFalse(cut.isAlive());
+		try {
+			cut.execute("name");
+			fail("Expected exception");
+		} catch (final IOException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testCloseReleasesEngineOutput() throws Exception {
+		final AtomicBoolean outputClosed = new AtomicBoolean();
+		final PipedReader engineOutput = new PipedReader(new PipedWriter()) {
+			@Override
+			public void close() throws IOException {
+				outputClosed.set(true);
+				super.close();
+			}
+		};
+		// The engine never answers, so the reader thread stays blocked.
+		cut = new GtpClient(engineOutput, new StringWriter());
+		cut.close();
+		assertTrue(outputClosed.get());
+	}
+
+	@Test
+	public void testEngineDies() throws Exception {
+		final PipedWriter engineOutput = new PipedWriter();
+		cut = new GtpClient(new PipedReader(engineOutput), new StringWriter());
+		final CompletableFuture<String> response = cut.send("name");
+		engineOutput.close();
+		try {
+			response.get();
+			fail("Expected exception");
+		} catch (final ExecutionException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+		assertFalse(cut.isAlive());
+	}
+
+	@Test
+	public void testExecute() throws Exception {
+		when(engine.getName()).thenReturn("Test Engine");
+		cut = connect(engine);
+		assertEquals("Test Engine", cut.execute("name"));
+		assertEquals("2", cut.execute("protocol_version"));
+	}
+
+	@Test
+	public void testFailure() throws Exception {
+		cut = connect(engine);
+		try {
+			cut.play(Player.BLACK, Move.valueOf("d4"));
+			fail("Expected exception");
+		} catch (final CommandFailedException e) {
+			assertEquals("illegal move", e.getMessage());
+		}
+		assertTrue(cut.isAlive());
+	}
+
+	@Test
+	public void testFinalScore() throws Exception {
+		when(engine.canScore()).thenReturn(true);
+		when(engine.getScore()).thenReturn(new Score(Player.WHITE, 3.5));
+		cut = connect(engine);
+		final Score score = cut.finalScore();
+		assertSame(Player.WHITE, score.getWinner());
+		assertEquals(3.5, score.getMargin(), 0.0);
+	}
+
+	@Test
+	public void testGenmove() throws Exception {
+		when(engine.nextMove(eq(Player.WHITE), any())).thenReturn(Move.valueOf("q16"));
+		cut = connect(engine);
+		assertSame(Move.valueOf("q16"), cut.genmove(Player.WHITE));
+	}
+
+	@Test
+	public void testIdMismatch() throws Exception {
+		final PipedWriter engineOutput = new PipedWriter();
+		cut = new GtpClient(new PipedReader(engineOutput), new StringWriter());
+		final CompletableFuture<String> response = cut.send("name");
+		engineOutput.write("=7 foo\n\n");
+		engineOutput.flush();
+		try {
+			response.get();
+			fail("Expected exception");
+		} catch (final ExecutionException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+		engineOutput.close();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidCommand() throws Exception {
+		cut = connect(engine);
+		cut.send("name\nquit");
+	}
+
+	@Test
+	public void testListCommands() throws Exception {
+		cut = connect(engine);
+		final List<String> commands = cut.listCommands();
+		assertEquals("protocol_version", commands.get(0));
+		assertTrue(commands.contains("genmove"));
+		assertTrue(cut.knownCommand("genmove"));
+		assertFalse(cut.knownCommand("final_score"));
+	}
+
+	@Test
+	public void testMultiLineWithoutId() throws Exception {
+		final PipedWriter engineOutput = new PipedWriter();
+		final StringWriter commands = new StringWriter();
+		cut = new GtpClient(new PipedReader(engineOutput), commands);
+		final CompletableFuture<String> response = cut.send("list_commands");
+		engineOutput.write("= name\nversion\n\n");
+		engineOutput.flush();
+		assertEquals("name\nversion", response.get());
+		assertEquals("1 list_commands\n", commands.toString());
+		engineOutput.close();
+	}
+
+	@Test
+	public void testPipelined() throws Exception {
+		when(engine.addMove(any(), any())).thenReturn(true);
+		cut = connect(engine);
+		final List<CompletableFuture<String>> responses = new ArrayList<>();
+		for (int i = 0; i < 100; ++i) {
+			responses.add(cut.send("play b " + Move.valueOf(i % 19, i / 19)));
+			responses.add(cut.send("protocol_version"));
+		}
+		for (final CompletableFuture<String> response : responses) {
+			response.get();
+		}
+		verify(engine, times(100)).addMove(any(), eq(Player.BLACK));
+		verify(engine).addMove(Move.valueOf(4, 5), Player.BLACK);
+	}
+
+	@Test(expected = IOException.class)
+	public void testStartMissingProgram() throws Exception {
+		GtpClient.start(Arrays.asList("/nonexistent/gtp-engine"));
+	}
+}
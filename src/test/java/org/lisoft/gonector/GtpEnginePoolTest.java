@@ -0,0 +1,179 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Test suite for {@link GtpEnginePool}.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class GtpEnginePoolTest {
+	private final AtomicBoolean failStarts = new AtomicBoolean();
+	private final AtomicInteger started = new AtomicInteger();
+	private final GtpEnginePool cut = new GtpEnginePool(() -> {
+		if (failStarts.get()) {
+			throw new IOException("Couldn't start");
+		}
+		started.incrementAndGet();
+		final GoEngine engine = mock(GoEngine.class);
+		when(engine.getName()).thenReturn("pooled");
+		when(engine.resizeBoard(9)).thenReturn(true);
+		when(engine.addMove(any(), any())).thenReturn(true);
+		when(engine.nextMove(any(), any())).thenReturn(Move.PASS);
+		return GtpClientTest.connect(engine);
+	}, 2);
+
+	@After
+	public void tearDown() {
+		cut.close();
+	}
+
+	@Test
+	public void testCheckHealth() throws Exception {
+		cut.warmUp(2);
+		final GtpClient client = cut.acquire();
+		cut.release(client);
+		client.close();
+
+		assertEquals(1, cut.checkHealth());
+		assertEquals(2, cut.getIdleCount());
+		assertEquals(3, started.get());
+	}
+
+	@Test
+	public void testCheckHealthReplacementFails() throws Exception {
+		cut.warmUp(2);
+		final GtpClient first = cut.acquire();
+		final GtpClient second = cut.acquire();
+		cut.release(first);
+		cut.release(second);
+		first.close();
+		failStarts.set(true);
+
+		try {
+			cut.checkHealth();
+			fail("Expected exception");
+		} catch (final IOException e) {
+			// Expected
+		}
+		assertEquals(1, cut.getIdleCount());
+		assertSame(second, cut.acquire());
+	}
+
+	@Test
+	public void testClose() throws Exception {
+		final GtpClient leased = cut.acquire();
+		cut.warmUp(1);
+		final GtpClient idle = cut.acquire();
+		cut.release(idle);
+
+		cut.close();
+
+		assertFalse(idle.isAlive());
+		assertTrue(leased.isAlive());
+		cut.release(leased);
+		assertFalse(leased.isAlive());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testClosedPool() throws Exception {
+		cut.close();
+		cut.acquire();
+	}
+
+	@Test
+	public void testLeaseIsReused() throws Exception {
+		final RemoteGoEngine engine = cut.lease();
+		assertEquals("pooled", engine.getName());
+		final GtpClient client = engine.getClient();
+		engine.close();
+
+		assertEquals(1, cut.getIdleCount());
+		assertSame(client, cut.acquire());
+		assertEquals(1, started.get());
+	}
+
+	@Test
+	public void testLeaseWaitsForRelease() throws Exception {
+		final GtpClient first = cut.acquire();
+		cut.acquire();
+		final AtomicReference<GtpClient> third = new AtomicReference<>();
+		final CountDownLatch acquired = new CountDownLatch(1);
+		final Thread thread = new Thread(() -> {
+			try {
+				third.set(cut.acquire());
+				acquired.countDown();
+			} catch (final Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		thread.start();
+
+		assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+		cut.release(first);
+		assertTrue(acquired.await(10, TimeUnit.SECONDS));
+		assertSame(first, third.get());
+		assertEquals(2, started.get());
+	}
+
+	@Test
+	public void testMatchRunner() throws Exception {
+		final MatchRunner runner = new MatchRunner(cut.supplier(), cut.supplier(), 9, 7.5f);
+		runner.setMaxMoves(4);
+		final MatchResult result = runner.run(4, 1);
+		assertEquals(4, result.getGames());
+		assertEquals(2, result.getDraws() + result.getFirstWins());
+		assertEquals(0, result.getFirstForfeits() + result.getSecondForfeits());
+		assertEquals(2, cut.getIdleCount());
+		assertEquals(2, started.get());
+	}
+
+	@Test
+	public void testUnhealthyEngineIsReplaced() throws Exception {
+		final GtpClient first = cut.acquire();
+		cut.release(first);
+		first.close();
+		final GtpClient second = cut.acquire();
+		assertNotSame(first, second);
+		assertTrue(second.isAlive());
+		assertEquals(2, started.get());
+	}
+}
@@ -0,0 +1,219 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Test suite for {@link GtpServer}.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class GtpServerTest {
+	private InetSocketAddress address;
+	private final List<GoEngine> engines = new CopyOnWriteArrayList<>();
+	private final ExecutorService executor = Executors.newSingleThreadExecutor();
+	private GtpServer cut;
+	private Consumer<GoEngine> engineSetup = aEngine -> {
+		// Nothing by default.
+	};
+	private Future<Void> serverFuture;
+
+	@After
+	public void tearDown() throws Exception {
+		if (null != cut) {
+			cut.close();
+		}
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testAnalysisIsNotIdle() throws Exception {
+		final CountDownLatch stopped = new CountDownLatch(1);
+		engineSetup = aEngine -> {
+			when(aEngine.canAnalyze()).thenReturn(true);
+			doAnswer(aInvocation -> {
+				stopped.await();
+				return null;
+			}).when(aEngine).analyze(any(), any());
+			doAnswer(aInvocation -> {
+				stopped.countDown();
+				return null;
+			}).when(aEngine).stopAnalysis();
+		};
+		final SocketChannel client = start(2, 100, TimeUnit.MILLISECONDS);
+		try {
+			send(client, "lz-analyze\n");
+			Thread.sleep(400);
+			send(client, "name\n");
+			final StringBuilder received = new StringBuilder();
+			while (!received.toString().endsWith("= engine\n\n")) {
+				final String chunk = receive(client);
+				assertFalse("Session was closed", chunk.isEmpty());
+				received.append(chunk);
+			}
+			assertEquals("=\n\n= engine\n\n", received.toString());
+		} finally {
+			client.close();
+		}
+	}
+
+	@Test
+	public void testIdleTimeout() throws Exception {
+		final SocketChannel client = start(2, 100, TimeUnit.MILLISECONDS);
+		try {
+			final ByteBuffer buffer = ByteBuffer.allocate(16);
+			// Blocks until the server closes the connection.
+			assertEquals(-1, client.read(buffer));
+		} finally {
+			client.close();
+		}
+	}
+
+	@Test
+	public void testMaxSessions() throws Exception {
+		final SocketChannel first = start(1, 0, TimeUnit.SECONDS);
+		try (SocketChannel second = connect()) {
+			assertEquals("= 2\n\n", request(first, "protocol_version\n"));
+
+			// The second connection is queued until the first one quits.
+			send(second, "name\n");
+			assertEquals("=\n\n", request(first, "quit\n"));
+			assertEquals("= engine\n\n", receive(second));
+		} finally {
+			first.close();
+		}
+	}
+
+	@Test
+	public void testSessionsAreIndependent() throws Exception {
+		final SocketChannel first = start(4, 0, TimeUnit.SECONDS);
+		try (SocketChannel second = connect()) {
+			assertEquals("=1 engine\n\n", request(second, "1 name\n"));
+			assertEquals("=2 engine\n\n", request(first, "2 name\n"));
+			assertEquals(2, cut.getActiveSessions());
+		} finally {
+			first.close();
+		}
+	}
+
+	@Test
+	public void testSessionEndClosesEngine() throws Exception {
+		final SocketChannel client = start(4, 0, TimeUnit.SECONDS);
+		try {
+			assertEquals("=\n\n", request(client, "quit\n"));
+			assertTrue(cut.shutdown(1, TimeUnit.SECONDS));
+			assertEquals(1, engines.size());
+			verify((AutoCloseable) engines.get(0)).close();
+		} finally {
+			client.close();
+		}
+	}
+
+	@Test
+	public void testShutdown() throws Exception {
+		final SocketChannel client = start(4, 0, TimeUnit.SECONDS);
+		try {
+			assertEquals("= 2\n\n", request(client, "protocol_version\n"));
+			assertFalse(cut.shutdown(50, TimeUnit.MILLISECONDS));
+			serverFuture.get(1, TimeUnit.SECONDS);
+			assertEquals(-1, client.read(ByteBuffer.allocate(16)));
+		} finally {
+			client.close();
+		}
+	}
+
+	@Test
+	public void testShutdownGraceful() throws Exception {
+		final SocketChannel client = start(4, 0, TimeUnit.SECONDS);
+		try {
+			assertEquals("=\n\n", request(client, "quit\n"));
+			assertTrue(cut.shutdown(1, TimeUnit.SECONDS));
+		} finally {
+			client.close();
+		}
+	}
+
+	private SocketChannel connect() throws IOException {
+		return SocketChannel.open(address);
+	}
+
+	private String receive(SocketChannel aChannel) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(256);
+		do {
+			if (aChannel.read(buffer) < 0) {
+				break;
+			}
+		} while (!new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII).endsWith("\n\n"));
+		return new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII);
+	}
+
+	private String request(SocketChannel aChannel, String aCommand) throws IOException {
+		send(aChannel, aCommand);
+		return receive(aChannel);
+	}
+
+	private void send(SocketChannel aChannel, String aCommand) throws IOException {
+		aChannel.write(StandardCharsets.US_ASCII.encode(aCommand));
+	}
+
+	private SocketChannel start(int aMaxSessions, long aIdleTimeout, TimeUnit aUnit) throws IOException {
+		final ServerSocketChannel serverChannel = GtpServer
+				.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		address = (InetSocketAddress) serverChannel.getLocalAddress();
+		cut = new GtpServer(serverChannel, () -> {
+			final GoEngine engine = mock(GoEngine.class, withSettings().extraInterfaces(AutoCloseable.class));
+			when(engine.getName()).thenReturn("engine");
+			engineSetup.accept(engine);
+			engines.add(engine);
+			return engine;
+		}, aMaxSessions, aIdleTimeout, aUnit);
+		serverFuture = executor.submit(cut);
+		return connect();
+	}
+}
@@ -0,0 +1,122 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Test suite for {@link Handicap}.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class HandicapTest {
+	@Test
+	public void testFixed19() throws Exception {
+		assertEquals("[d4, q16]", Handicap.getFixedPlacement(19, 2).toString());
+		assertEquals("[d4, q16, d16]", Handicap.getFixedPlacement(19, 3).toString());
+		assertEquals("[d4, q16, d16, q4, k10]", Handicap.getFixedPlacement(19, 5).toString());
+		assertEquals("[d4, q16, d16, q4, d10, q10]", Handicap.getFixedPlacement(19, 6).toString());
+		assertEquals("[d4, q16, d16, q4, d10, q10, k10]", Handicap.getFixedPlacement(19, 7).toString());
+		assertEquals("[d4, q16, d16, q4, d10, q10, k4, k16, k10]", Handicap.getFixedPlacement(19, 9).toString());
+	}
+
+	@Test
+	public void testFixedIsPrecomputed() {
+		assertSame(Handicap.getFixedPlacement(19, 4), Handicap.getFixedPlacement(19, 4));
+	}
+
+	@Test
+	public void testFixedSmallBoards() throws Exception {
+		assertEquals("[c3, g7, c7, g3, e5]", Handicap.getFixedPlacement(9, 5).toString());
+		assertEquals("[c3, e5, c5, e3]", Handicap.getFixedPlacement(7, 4).toString());
+		assertEquals(0, Handicap.getMaxFixedStones(6));
+		assertEquals(4, Handicap.getMaxFixedStones(7));
+		assertEquals(4, Handicap.getMaxFixedStones(18));
+		assertEquals(9, Handicap.getMaxFixedStones(25));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFixedTooFew() {
+		Handicap.getFixedPlacement(19, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFixedTooMany() {
+		Handicap.getFixedPlacement(18, 5);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testFixedUnmodifiable() {
+		Handicap.getFixedPlacement(19, 4).clear();
+	}
+
+	@Test
+	public void testFreeAllSizes() {
+		for (int size = Move.MIN_BOARD_SIZE; size <= Move.MAX_BOARD_SIZE; ++size) {
+			for (int stones = 2; stones < size * size; ++stones) {
+				final List<Move> placement = Handicap.getFreePlacement(size, stones);
+				assertEquals(stones, placement.size());
+				final Set<Move> unique = new HashSet<>(placement);
+				assertEquals(stones, unique.size());
+				final Board board = new Board(size);
+				for (final Move move : placement) {
+					assertTrue(board.isOnBoard(move));
+					assertTrue(board.play(move, Player.BLACK));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testFreeNotAdjacent() {
+		final List<Move> placement = Handicap.getFreePlacement(19, 100);
+		for (final Move a : placement) {
+			for (final Move b : placement) {
+				assertFalse(a + " " + b, Math.abs(a.x - b.x) + Math.abs(a.y - b.y) == 1);
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFreeTooMany() {
+		Handicap.getFreePlacement(9, 81);
+	}
+
+	@Test
+	public void testFreeUsesFixed() {
+		assertSame(Handicap.getFixedPlacement(19, 9), Handicap.getFreePlacement(19, 9));
+		assertEquals(Handicap.getFixedPlacement(19, 9), Handicap.getFreePlacement(19, 12).subList(0, 9));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedSize() {
+		Handicap.getFixedPlacement(26, 2);
+	}
+}
@@ -0,0 +1,120 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Test suite for {@link LatencyHistogram}.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class LatencyHistogramTest {
+	private final LatencyHistogram cut = new LatencyHistogram();
+
+	@Test
+	public void testConcurrentRecording() throws Exception {
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for (int i = 0; i < 4; ++i) {
+				executor.submit(() -> {
+					for (int j = 0; j < 100000; ++j) {
+						cut.record(j);
+					}
+				});
+			}
+		} finally {
+			executor.shutdown();
+			assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+		}
+		assertEquals(400000, cut.getCount());
+		assertEquals(99999, cut.getMax(TimeUnit.NANOSECONDS));
+	}
+
+	@Test
+	public void testEmpty() {
+		assertEquals(0, cut.getCount());
+		assertEquals(0, cut.getMax(TimeUnit.NANOSECONDS));
+		assertEquals(0, cut.getMean(TimeUnit.NANOSECONDS));
+		assertEquals(0, cut.getValueAtQuantile(0.99, TimeUnit.NANOSECONDS));
+	}
+
+	@Test
+	public void testExactForSmallValues() {
+		for (int i = 1; i <= 60; ++i) {
+			cut.record(i);
+		}
+		assertEquals(30, cut.getValueAtQuantile(0.5, TimeUnit.NANOSECONDS));
+		assertEquals(1, cut.getValueAtQuantile(0, TimeUnit.NANOSECONDS));
+		assertEquals(60, cut.getValueAtQuantile(1, TimeUnit.NANOSECONDS));
+		assertEquals(30, cut.getMean(TimeUnit.NANOSECONDS));
+	}
+
+	@Test
+	public void testHugeAndNegativeValues() {
+		cut.record(-5);
+		cut.record(Long.MAX_VALUE / 2);
+		assertEquals(2, cut.getCount());
+		assertEquals(0, cut.getValueAtQuantile(0.5, TimeUnit.NANOSECONDS));
+		assertEquals(Long.MAX_VALUE / 2, cut.getMax(TimeUnit.NANOSECONDS));
+		assertTrue(cut.getValueAtQuantile(1, TimeUnit.NANOSECONDS) >= 1L << 39);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalQuantile() {
+		cut.getValueAtQuantile(-0.1, TimeUnit.NANOSECONDS);
+	}
+
+	@Test
+	public void testRelativeError() {
+		final Random rng = new Random(2);
+		final long[] values = new long[10000];
+		for (int i = 0; i < values.length; ++i) {
+			// Log-uniform between 1 us and 10 s
+			values[i] = (long) Math.pow(10, 3 + 7 * rng.nextDouble());
+			cut.record(values[i]);
+		}
+		Arrays.sort(values);
+		for (final double q : new double[] { 0.01, 0.1, 0.5, 0.9, 0.99, 0.999 }) {
+			final long exact = values[(int) Math.ceil(q * values.length) - 1];
+			final long estimate = cut.getValueAtQuantile(q, TimeUnit.NANOSECONDS);
+			assertTrue(q + ": " + estimate + " < " + exact, estimate >= exact);
+			assertTrue(q + ": " + estimate + " > " + exact, estimate <= exact * 1.032);
+		}
+	}
+
+	@Test
+	public void testReset() {
+		cut.record(1000);
+		cut.reset();
+		assertEquals(0, cut.getCount());
+		assertEquals(0, cut.getMax(TimeUnit.NANOSECONDS));
+	}
+}
@@ -0,0 +1,68 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Test suite for {@link MatchResult}.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class MatchResultTest {
+	private final MatchResult cut = new MatchResult(10, 6, 3, 1, 0, new long[] { 5000, 1000, 3000, 2000, 4000 },
+			new long[0], TimeUnit.SECONDS.toNanos(2));
+
+	@Test
+	public void testCounts() {
+		assertEquals(10, cut.getGames());
+		assertEquals(1, cut.getDraws());
+		assertEquals(0.65, cut.getFirstWinRate(), 1e-9);
+		assertEquals(0.35, cut.getSecondWinRate(), 1e-9);
+		assertEquals(5.0, cut.getGamesPerSecond(), 1e-9);
+		assertEquals(2000, cut.getElapsed(TimeUnit.MILLISECONDS));
+		assertEquals(1, cut.getFirstForfeits());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalQuantile() {
+		cut.getFirstMoveLatency(1.5, TimeUnit.NANOSECONDS);
+	}
+
+	@Test
+	public void testLatencyQuantiles() {
+		assertEquals(1000, cut.getFirstMoveLatency(0, TimeUnit.NANOSECONDS));
+		assertEquals(3000, cut.getFirstMoveLatency(0.5, TimeUnit.NANOSECONDS));
+		assertEquals(5000, cut.getFirstMoveLatency(0.99, TimeUnit.NANOSECONDS));
+		assertEquals(5, cut.getFirstMoveLatency(1, TimeUnit.MICROSECONDS));
+		assertEquals(0, cut.getSecondMoveLatency(0.5, TimeUnit.NANOSECONDS));
+	}
+
+	@Test
+	public void testToString() {
+		assertTrue(cut.toString(), cut.toString().startsWith("10 games in 2.0 s (5.0 games/s)"));
+	}
+}
@@ -0,0 +1,303 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+/**
+ * Test suite for {@link MatchRunner}.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class MatchRunnerTest {
+	/**
+	 * An engine that plays random legal moves using a {@link Board}, or the
+	 * move chosen by a strategy.
+	 */
+	private static class TestEngine implements GoEngine {
+		Board board;
+		final Random rng = new Random(1);
+		final Function<TestEngine, Move> strategy;
+
+		TestEngine(Function<TestEngine, Move> aStrategy) {
+			strategy = aStrategy;
+		}
+
+		@Override
+		public boolean addMove(Move aMove, Player aPlayer) {
+			return board.play(aMove, aPlayer);
+		}
+
+		@Override
+		public String getName() {
+			return "test";
+		}
+
+		@Override
+		public String getVersion() {
+			return "1";
+		}
+
+		@Override
+		public void newGame() {
+			board.clear();
+		}
+
+		@Override
+		public Move nextMove(Player aPlayer) {
+			Move move = strategy.apply(this);
+			if (move == null) {
+				move = Move.PASS;
+				for (int i = 0; i < 10; ++i) {
+					final Move candidate = Move.valueOf(rng.nextInt(board.getSize()), rng.nextInt(board.getSize()));
+					if (board.isLegal(candidate, aPlayer)) {
+						move = candidate;
+						break;
+					}
+				}
+			}
+			board.play(move, aPlayer);
+			return move;
+		}
+
+		@Override
+		public boolean resizeBoard(int aSize) {
+			board = new Board(aSize);
+			return true;
+		}
+
+		@Override
+		public void setKomi(float aKomi) {
+			// Ignored
+		}
+	}
+
+	@Test
+	public void testAlwaysPass() throws Exception {
+		final MatchRunner cut = new MatchRunner(() -> new TestEngine(e -> Move.PASS),
+				() -> new TestEngine(e -> Move.PASS), 9, 7.5f);
+		final MatchResult result = cut.run(4, 2);
+
+		// White wins on komi, colours alternate.
+		assertEquals(4, result.getGames());
+		assertEquals(2, result.getFirstWins());
+		assertEquals(2, result.getSecondWins());
+		assertEquals(0, result.getDraws());
+		assertEquals(0.5, result.getFirstWinRate(), 0.0);
+		assertEquals(4, result.getFirstMoves());
+		assertEquals(4, result.getSecondMoves());
+	}
+
+	@Test
+	public void testClosesEngines() throws Exception {
+		final AtomicInteger closed = new AtomicInteger();
+		final class ClosingEngine extends TestEngine implements AutoCloseable {
+			ClosingEngine() {
+				super(e -> Move.PASS);
+			}
+
+			@Override
+			public void close() {
+				closed.incrementAndGet();
+			}
+		}
+		final MatchRunner cut = new MatchRunner(ClosingEngine::new, () -> new TestEngine(e -> Move.PASS), 9, 0);
+		cut.run(3, 1);
+		assertEquals(3, closed.get());
+	}
+
+	@Test
+	public void testClosesFirstEngineWhenSecondFails() throws Exception {
+		final AtomicInteger closed = new AtomicInteger();
+		final class ClosingEngine extends TestEngine implements AutoCloseable {
+			ClosingEngine() {
+				super(e -> Move.PASS);
+			}
+
+			@Override
+			public void close() {
+				closed.incrementAndGet();
+			}
+		}
+		final MatchRunner cut = new MatchRunner(ClosingEngine::new, () -> {
+			throw new IllegalStateException("No engine");
+		}, 9, 0);
+		try {
+			cut.run(1, 1);
+			fail("Expected exception");
+		} catch (final ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		assertEquals(1, closed.get());
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testCopiedSpecialMoves() throws Exception {
+		final MatchRunner cut = new MatchRunner(() -> new TestEngine(e -> new Move(-1, 0)),
+				() -> new TestEngine(e -> new Move(-2, 0)), 9, 0);
+		final MatchResult result = cut.run(2, 1);
+		assertEquals(2, result.getSecondWins());
+		assertEquals(0, result.getFirstForfeits());
+
+		final MatchRunner passing = new MatchRunner(() -> new TestEngine(e -> new Move(-2, 0)),
+				() -> new TestEngine(e -> new Move(-2, 0)), 9, 0);
+		assertEquals(2, passing.run(2, 1).getDraws());
+	}
+
+	@Test
+	public void testDraw() throws Exception {
+		final MatchRunner cut = new MatchRunner(() -> new TestEngine(e -> Move.PASS),
+				() -> new TestEngine(e -> Move.PASS), 9, 0);
+		final MatchResult result = cut.run(3, 1);
+		assertEquals(3, result.getDraws());
+		assertEquals(0.5, result.getSecondWinRate(), 0.0);
+	}
+
+	@Test
+	public void testEngineException() throws Exception {
+		final MatchRunner cut = new MatchRunner(() -> new TestEngine(e -> {
+			throw new IllegalStateException("Boom");
+		}), () -> new TestEngine(e -> Move.PASS), 9, 0);
+		try {
+			cut.run(2, 2);
+			fail("Expected exception");
+		} catch (final ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+	}
+
+	@Test
+	public void testIllegalMoveForfeits() throws Exception {
+		final MatchRunner cut = new MatchRunner(() -> new TestEngine(e -> Move.valueOf(0, 0)),
+				() -> new TestEngine(e -> null), 9, 0);
+		final MatchResult result = cut.run(2, 1);
+		assertEquals(2, result.getSecondWins());
+		assertEquals(2, result.getFirstForfeits());
+		assertEquals(0, result.getSecondForfeits());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalSize() {
+		new MatchRunner(() -> null, () -> null, 1, 0);
+	}
+
+	@Test
+	public void testMaxMoves() throws Exception {
+		final MatchRunner cut = new MatchRunner(() -> new TestEngine(e -> null), () -> new TestEngine(e -> null), 9,
+				0.5f);
+		cut.setMaxMoves(5);
+		final MatchResult result = cut.run(2, 1);
+		assertEquals(10, result.getFirstMoves() + result.getSecondMoves());
+	}
+
+	@Test
+	public void testMoveTime() throws Exception {
+		final MatchRunner cut = new MatchRunner(() -> new TestEngine(e -> null) {
+			@Override
+			public Move nextMove(Player aPlayer, Deadline aDeadline) {
+				assertTrue(aDeadline.isLimited());
+				return super.nextMove(aPlayer, aDeadline);
+			}
+		}, () -> new TestEngine(e -> null), 9, 0.5f);
+		cut.setMoveTime(1, TimeUnit.SECONDS);
+		cut.setMaxMoves(10);
+		cut.run(1, 1);
+	}
+
+	@Test
+	public void testNullScoreFallsBackToAreaScoring() throws Exception {
+		final Supplier<GoEngine> factory = () -> new TestEngine(e -> Move.PASS) {
+			@Override
+			public boolean canScore() {
+				return true;
+			}
+
+			@Override
+			public Score getScore() {
+				return null;
+			}
+		};
+		final MatchRunner cut = new MatchRunner(factory, factory, 9, 7.5f);
+		final MatchResult result = cut.run(2, 1);
+
+		// White wins on komi.
+		assertEquals(1, result.getFirstWins());
+		assertEquals(1, result.getSecondWins());
+		assertEquals(0, result.getFirstForfeits() + result.getSecondForfeits());
+	}
+
+	@Test
+	public void testRandomGames() throws Exception {
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			final MatchRunner cut = new MatchRunner(() -> new TestEngine(e -> null), () -> new TestEngine(e -> null),
+					9, 6.5f);
+			final MatchResult result = cut.run(20, executor);
+			assertEquals(20, result.getGames());
+			assertEquals(20, result.getFirstWins() + result.getSecondWins() + result.getDraws());
+			assertEquals(0, result.getFirstForfeits() + result.getSecondForfeits());
+			assertTrue(result.getGamesPerSecond() > 0);
+			assertTrue(result.getFirstMoveLatency(0.5, TimeUnit.NANOSECONDS) <= result
+					.getFirstMoveLatency(0.99, TimeUnit.NANOSECONDS));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testRejectedMoveForfeits() throws Exception {
+		final MatchRunner cut = new MatchRunner(() -> new TestEngine(e -> null) {
+			@Override
+			public boolean addMove(Move aMove, Player aPlayer) {
+				return false;
+			}
+		}, () -> new TestEngine(e -> null), 9, 0);
+		final MatchResult result = cut.run(2, 1);
+		assertEquals(2, result.getSecondWins());
+		assertEquals(2, result.getFirstForfeits());
+	}
+
+	@Test
+	public void testResign() throws Exception {
+		final MatchRunner cut = new MatchRunner(() -> new TestEngine(e -> Move.RESIGN),
+				() -> new TestEngine(e -> Move.PASS), 9, 0);
+		final MatchResult result = cut.run(2, 1);
+		assertEquals(2, result.getSecondWins());
+		assertEquals(0, result.getFirstForfeits());
+		// Resigning as white happens after black's first move.
+		assertEquals(1, result.getSecondMoves());
+		assertEquals(2, result.getFirstMoves());
+	}
+}
@@ -0,0 +1,102 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test suite for {@link MoveList}.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class MoveListTest {
+	private final MoveList cut = new MoveList(2);
+
+	@Test
+	public void testAddGet() throws Exception {
+		assertTrue(cut.isEmpty());
+		cut.add(Move.valueOf("c3"));
+		cut.add(Move.PASS_CODE);
+		cut.add(7);
+		assertEquals(3, cut.size());
+		assertSame(Move.valueOf("c3"), cut.getMove(0));
+		assertSame(Move.PASS, cut.getMove(1));
+		assertEquals(7, cut.get(2));
+		assertTrue(cut.contains(7));
+		assertFalse(cut.contains(8));
+		assertEquals("[c3, pass, h1]", cut.toString());
+	}
+
+	@Test
+	public void testClear() {
+		cut.add(1);
+		cut.clear();
+		assertTrue(cut.isEmpty());
+		assertEquals("[]", cut.toString());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetOutOfRange() {
+		cut.add(1);
+		cut.clear();
+		cut.get(0);
+	}
+
+	@Test
+	public void testRemoveAt() {
+		cut.add(1);
+		cut.add(2);
+		cut.add(3);
+		assertEquals(1, cut.removeAt(0));
+		assertArrayEquals(new int[] { 3, 2 }, cut.toArray());
+		assertEquals(2, cut.removeAt(1));
+		assertArrayEquals(new int[] { 3 }, cut.toArray());
+	}
+
+	@Test
+	public void testShuffle() {
+		for (int i = 0; i < 100; ++i) {
+			cut.add(i);
+		}
+		cut.shuffle(new Random(0));
+		final int[] codes = cut.toArray();
+		assertFalse(Arrays.equals(codes, sequence(100)));
+		Arrays.sort(codes);
+		assertArrayEquals(sequence(100), codes);
+	}
+
+	private int[] sequence(int aLength) {
+		final int[] ans = new int[aLength];
+		for (int i = 0; i < aLength; ++i) {
+			ans[i] = i;
+		}
+		return ans;
+	}
+}
@@ -22,6 +22,7 @@ package org.lisoft.gonector;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
 
 import java.util.HashSet;
@@ -48,13 +49,60 @@ public class MoveTest {
 		assertNotEquals(Move.valueOf("a10"), "a10");
 	}
 
+	@Test
+	public void testCodes() {
+		for (int code = 0; code < Move.CODES; ++code) {
+			final Move move = Move.fromCode(code);
+			assertEquals(code, move.toCode());
+			assertEquals(code, move.hashCode());
+			if (code < Move.PASS_CODE) {
+				assertEquals(move.x, Move.decodeX(code));
+				assertEquals(move.y, Move.decodeY(code));
+				assertEquals(code, Move.encode(move.x, move.y));
+			}
+		}
+		assertSame(Move.PASS, Move.fromCode(Move.PASS_CODE));
+		assertSame(Move.RESIGN, Move.fromCode(Move.RESIGN_CODE));
+		assertEquals(Move.MAX_BOARD_SIZE + 2, Move.valueOf(2, 1).toCode());
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testDeprecatedConstructor() throws Exception {
+		final Move move = new Move(17, 9);
+		assertEquals(Move.valueOf("s10"), move);
+		assertNotSame(Move.valueOf("s10"), move);
+		assertEquals("s10", move.toString());
+		assertEquals(Move.valueOf("s10").toCode(), move.toCode());
+		assertEquals(Move.PASS, new Move(-2, 0));
+		assertEquals("pass", new Move(-2, 0).toString());
+		assertEquals(Move.RESIGN, new Move(-1, 0));
+		assertEquals("resign", new Move(-1, 0).toString());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	@SuppressWarnings({ "deprecation", "unused" })
+	public void testDeprecatedConstructorOutOfRange() {
+		new Move(Move.MAX_BOARD_SIZE, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFromCodeInvalid() {
+		Move.fromCode(Move.CODES);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFromCodeNegative() {
+		Move.fromCode(-1);
+	}
+
 	@Test
 	public void testHashCode() {
 		// Hash codes should be collision free for this simple class.
 		final Set<Integer> hashCodes = new HashSet<>();
 		for (int y = 0; y < Move.MAX_BOARD_SIZE; ++y) {
 			for (int x = 0; x < Move.MAX_BOARD_SIZE; ++x) {
-				final Integer hashCode = Integer.valueOf(new Move(x, y).hashCode());
+				final Integer hashCode = Integer.valueOf(Move.valueOf(x, y).hashCode());
 				assertFalse(hashCodes.contains(hashCode));
 				hashCodes.add(hashCode);
 			}
@@ -71,7 +119,7 @@ public class MoveTest {
 
 	@Test
 	public void testToString() throws Exception {
-		assertEquals("r11", new Move(16, 10).toString());
+		assertEquals("r11", Move.valueOf(16, 10).toString());
 	}
 
 	@Test
@@ -84,6 +132,33 @@ public class MoveTest {
 		assertEquals("resign", Move.RESIGN.toString());
 	}
 
+	@Test
+	public void testValueOfCoordinates() throws Exception {
+		assertSame(Move.valueOf("r11"), Move.valueOf(16, 10));
+		assertSame(Move.valueOf("A1"), Move.valueOf(0, 0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testValueOfCoordinatesNegative() {
+		Move.valueOf(-1, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testValueOfCoordinatesTooLarge() {
+		Move.valueOf(0, Move.MAX_BOARD_SIZE);
+	}
+
+	@Test
+	public void testValueOfInterned() throws Exception {
+		for (int y = 0; y < Move.MAX_BOARD_SIZE; ++y) {
+			for (int x = 0; x < Move.MAX_BOARD_SIZE; ++x) {
+				final Move move = Move.valueOf(x, y);
+				assertSame(move, Move.valueOf(move.toString()));
+				assertSame(move, Move.valueOf(move.toString().toUpperCase()));
+			}
+		}
+	}
+
 	@Test
 	public void testValueOfLowerCase() throws Exception {
 		final Move value = Move.valueOf("r11");
@@ -91,6 +166,18 @@ public class MoveTest {
 		assertEquals(10, value.y);
 	}
 
+	@Test
+	public void testValueOfCharSequence() throws Exception {
+		assertEquals(Move.valueOf("r11"), Move.valueOf(new StringBuilder("R11")));
+		assertSame(Move.PASS, Move.valueOf(new StringBuilder("PaSs")));
+		assertSame(Move.RESIGN, Move.valueOf(new StringBuilder("resign")));
+	}
+
+	@Test(expected = SyntaxErrorException.class)
+	public void testValueOfColumnOnly() throws Exception {
+		Move.valueOf("a");
+	}
+
 	@Test
 	public void testValueOfLowerLeft() throws Exception {
 		final Move value = Move.valueOf("a1");
@@ -115,6 +202,11 @@ public class MoveTest {
 		Move.valueOf("A" + Integer.toString(Move.MAX_BOARD_SIZE + 1));
 	}
 
+	@Test(expected = SyntaxErrorException.class)
+	public void testValueOfOverflowY() throws Exception {
+		Move.valueOf("a99999999999");
+	}
+
 	@Test(expected = SyntaxErrorException.class)
 	public void testValueOfTooSmallY() throws Exception {
 		Move.valueOf("A0");
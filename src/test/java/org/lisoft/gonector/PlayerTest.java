@@ -53,6 +53,12 @@ public class PlayerTest {
 		assertEquals(Player.WHITE, Player.fromString("wHiTE"));
 	}
 
+	@Test
+	public void testFromStringCharSequence() throws SyntaxErrorException {
+		assertEquals(Player.BLACK, Player.fromString(new StringBuilder("bLaCk")));
+		assertEquals(Player.WHITE, Player.fromString(new StringBuilder("W")));
+	}
+
 	@Test(expected = SyntaxErrorException.class)
 	public void testFromStringEmptyString() throws SyntaxErrorException {
 		Player.fromString("");
@@ -63,6 +69,12 @@ public class PlayerTest {
 		Player.fromString(null);
 	}
 
+	@Test
+	public void testOpponent() {
+		assertEquals(Player.WHITE, Player.BLACK.opponent());
+		assertEquals(Player.BLACK, Player.WHITE.opponent());
+	}
+
 	@Test
 	public void testToShortString() {
 		assertEquals("W", Player.WHITE.toShortString());
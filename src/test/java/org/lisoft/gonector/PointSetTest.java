@@ -0,0 +1,110 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test suite for {@link PointSet}.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class PointSetTest {
+	private final PointSet cut = new PointSet();
+
+	@Test
+	public void testAddRemove() throws Exception {
+		assertTrue(cut.isEmpty());
+		assertTrue(cut.add(Move.valueOf("a1")));
+		assertFalse(cut.add(0));
+		assertTrue(cut.add(Move.RESIGN));
+		assertTrue(cut.contains(Move.RESIGN_CODE));
+		assertFalse(cut.contains(Move.PASS));
+		assertEquals(2, cut.size());
+		assertEquals("[a1, resign]", cut.toString());
+		assertTrue(cut.remove(Move.valueOf("a1")));
+		assertFalse(cut.remove(0));
+		assertEquals(1, cut.size());
+		cut.clear();
+		assertTrue(cut.isEmpty());
+	}
+
+	@Test
+	public void testBulkOperations() {
+		final PointSet other = new PointSet();
+		cut.add(1);
+		cut.add(100);
+		other.add(100);
+		other.add(600);
+
+		final PointSet union = new PointSet();
+		union.addAll(cut);
+		union.addAll(other);
+		assertEquals("[b1, a5, a25]", union.toString());
+
+		final PointSet intersection = new PointSet();
+		intersection.addAll(cut);
+		intersection.retainAll(other);
+		assertEquals("[a5]", intersection.toString());
+
+		cut.removeAll(other);
+		assertEquals("[b1]", cut.toString());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidCode() {
+		cut.add(Move.CODES);
+	}
+
+	@Test
+	public void testMatchesBitSet() {
+		final Random rng = new Random(5);
+		final BitSet reference = new BitSet();
+		for (int i = 0; i < 10000; ++i) {
+			final int code = rng.nextInt(Move.CODES);
+			if (rng.nextBoolean()) {
+				assertEquals(!reference.get(code), cut.add(code));
+				reference.set(code);
+			} else {
+				assertEquals(reference.get(code), cut.remove(code));
+				reference.clear(code);
+			}
+			final int from = rng.nextInt(Move.CODES + 100);
+			assertEquals(reference.nextSetBit(from), cut.next(from));
+			assertEquals(reference.cardinality(), cut.size());
+		}
+	}
+
+	@Test
+	public void testNextEmpty() {
+		assertEquals(-1, cut.next(0));
+		cut.add(Move.RESIGN_CODE);
+		assertEquals(Move.RESIGN_CODE, cut.next(0));
+		assertEquals(-1, cut.next(Move.RESIGN_CODE + 1));
+	}
+}
@@ -0,0 +1,120 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test suite for {@link PositionHistory}.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class PositionHistoryTest {
+	private final PositionHistory cut = new PositionHistory();
+
+	@Test
+	public void testAddContains() {
+		assertFalse(cut.contains(42));
+		assertTrue(cut.add(42));
+		assertTrue(cut.contains(42));
+		assertFalse(cut.add(42));
+		assertEquals(2, cut.size());
+		assertEquals(42, cut.get(1));
+	}
+
+	@Test
+	public void testClear() {
+		cut.add(1);
+		cut.add(0);
+		cut.clear();
+		assertEquals(0, cut.size());
+		assertFalse(cut.contains(1));
+		assertFalse(cut.contains(0));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetOutOfRange() {
+		cut.add(1);
+		cut.get(1);
+	}
+
+	@Test
+	public void testMatchesReference() {
+		final Random rng = new Random(3);
+		final List<Long> reference = new ArrayList<>();
+		for (int i = 0; i < 100000; ++i) {
+			if (rng.nextInt(10) == 0) {
+				final int size = rng.nextInt(reference.size() + 1);
+				cut.rollback(size);
+				reference.subList(size, reference.size()).clear();
+			} else {
+				// Small range so there are both repetitions and collisions in
+				// the probe sequences.
+				final long hash = rng.nextInt(3000) * 0x100000001L;
+				assertEquals(!reference.contains(hash), cut.add(hash));
+				reference.add(hash);
+			}
+			final long probe = rng.nextInt(3000) * 0x100000001L;
+			assertEquals(reference.contains(probe), cut.contains(probe));
+			assertEquals(reference.size(), cut.size());
+		}
+	}
+
+	@Test
+	public void testRollback() {
+		cut.add(1);
+		cut.add(2);
+		cut.add(1);
+		cut.rollback(2);
+		assertTrue(cut.contains(1));
+		cut.rollback(1);
+		assertTrue(cut.contains(1));
+		assertFalse(cut.contains(2));
+		cut.rollback(0);
+		assertFalse(cut.contains(1));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testRollbackOutOfRange() {
+		cut.add(1);
+		cut.rollback(2);
+	}
+
+	@Test
+	public void testZero() {
+		assertFalse(cut.contains(0));
+		assertTrue(cut.add(0));
+		assertFalse(cut.add(0));
+		assertTrue(cut.contains(0));
+		cut.rollback(1);
+		assertTrue(cut.contains(0));
+		cut.rollback(0);
+		assertFalse(cut.contains(0));
+	}
+}
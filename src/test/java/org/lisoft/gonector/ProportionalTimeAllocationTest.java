@@ -0,0 +1,80 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Test suite for {@link ProportionalTimeAllocation}.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class ProportionalTimeAllocationTest {
+	private final GameClock clock = new GameClock();
+	private final ProportionalTimeAllocation cut = new ProportionalTimeAllocation(10, 1);
+
+	@Test
+	public void testAbsolute() {
+		clock.reset(TimeSettings.absolute(100));
+		assertEquals(TimeUnit.SECONDS.toNanos(9), cut.allocate(clock, Player.BLACK));
+	}
+
+	@Test
+	public void testByoYomi() {
+		clock.reset(TimeSettings.byoYomi(0, 30, 3));
+		assertEquals(TimeUnit.SECONDS.toNanos(29), cut.allocate(clock, Player.BLACK));
+	}
+
+	@Test
+	public void testCanadianByoYomi() {
+		clock.reset(TimeSettings.canadian(100, 60, 10));
+		clock.setTimeLeft(Player.WHITE, 40, 4);
+		assertEquals(TimeUnit.SECONDS.toNanos(9), cut.allocate(clock, Player.WHITE));
+	}
+
+	@Test
+	public void testCanadianMainTime() {
+		clock.reset(TimeSettings.canadian(100, 60, 10));
+		// 100 / 10 + 6 / 2 - 1
+		assertEquals(TimeUnit.SECONDS.toNanos(12), cut.allocate(clock, Player.WHITE));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidMovesToGo() {
+		new ProportionalTimeAllocation(0, 1);
+	}
+
+	@Test
+	public void testNone() {
+		assertEquals(Long.MAX_VALUE, cut.allocate(clock, Player.BLACK));
+	}
+
+	@Test
+	public void testOutOfTime() {
+		clock.reset(TimeSettings.absolute(100));
+		clock.setTimeLeft(Player.BLACK, 0.5, 0);
+		assertEquals(0, cut.allocate(clock, Player.BLACK));
+	}
+}
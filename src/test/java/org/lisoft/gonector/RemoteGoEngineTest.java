@@ -0,0 +1,155 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Test suite for {@link RemoteGoEngine}.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class RemoteGoEngineTest {
+	private final GtpClient client = mock(GtpClient.class);
+	private final RemoteGoEngine cut = new RemoteGoEngine(client);
+
+	@Test
+	public void testAddMove() throws Exception {
+		assertTrue(cut.addMove(Move.valueOf("d4"), Player.BLACK));
+		verify(client).play(Player.BLACK, Move.valueOf("d4"));
+	}
+
+	@Test
+	public void testAddMoveRejected() throws Exception {
+		doThrow(new CommandFailedException("illegal move")).when(client).play(Player.WHITE,
+				Move.PASS);
+		assertFalse(cut.addMove(Move.PASS, Player.WHITE));
+	}
+
+	@Test(expected = UncheckedIOException.class)
+	public void testBrokenConnection() throws Exception {
+		when(client.execute("clear_board")).thenThrow(new IOException("Broken pipe"));
+		cut.newGame();
+	}
+
+	@Test
+	public void testCanScoreIsCached() throws Exception {
+		when(client.knownCommand("final_score")).thenReturn(true);
+		assertTrue(cut.canScore());
+		assertTrue(cut.canScore());
+		verify(client, times(1)).knownCommand("final_score");
+	}
+
+	@Test
+	public void testClose() {
+		cut.close();
+		verify(client).close();
+	}
+
+	@Test
+	public void testCloseTwice() {
+		cut.close();
+		cut.close();
+		verify(client, times(1)).close();
+	}
+
+	@Test
+	public void testCommands() throws Exception {
+		when(client.execute("boardsize 13")).thenReturn("");
+		when(client.execute("boardsize 4")).thenThrow(new CommandFailedException("unacceptable size"));
+		when(client.execute("undo")).thenThrow(new CommandFailedException("cannot undo"));
+
+		assertTrue(cut.resizeBoard(13));
+		assertFalse(cut.resizeBoard(4));
+		cut.setKomi(6.5f);
+		assertTrue(cut.setHandicap(Arrays.asList(Move.valueOf("d4"), Move.valueOf("q16"))));
+		assertFalse(cut.undo());
+
+		verify(client).execute("komi 6.5");
+		verify(client).execute("set_free_handicap d4 q16");
+	}
+
+	@Test
+	public void testIdentity() throws Exception {
+		when(client.execute("name")).thenReturn("GNU Go");
+		when(client.execute("version")).thenReturn("3.8");
+		assertEquals("GNU Go", cut.getName());
+		assertEquals("GNU Go", cut.getName());
+		assertEquals("3.8", cut.getVersion());
+		verify(client, times(1)).execute("name");
+	}
+
+	@Test
+	public void testNextMove() throws Exception {
+		when(client.genmove(Player.BLACK)).thenReturn(Move.valueOf("c3"));
+		assertSame(Move.valueOf("c3"), cut.nextMove(Player.BLACK, Deadline.NONE));
+		verify(client, never()).execute(startsWith("time_"));
+	}
+
+	@Test
+	public void testNextMoveDeadline() throws Exception {
+		when(client.genmove(Player.WHITE)).thenReturn(Move.valueOf("c3"));
+		final long time = TimeUnit.MILLISECONDS.toNanos(10500);
+		assertSame(Move.valueOf("c3"), cut.nextMove(Player.WHITE, Deadline.after(time)));
+		assertSame(Move.valueOf("c3"), cut.nextMove(Player.WHITE, Deadline.after(time)));
+		verify(client, times(1)).execute("time_settings 0 10 1");
+		verify(client, times(2)).execute("time_left W 10 1");
+	}
+
+	@Test
+	public void testNextMoveDeadlineExpired() throws Exception {
+		when(client.genmove(Player.BLACK)).thenReturn(Move.PASS);
+		when(client.execute(startsWith("time_"))).thenThrow(new CommandFailedException("unknown command"));
+		assertSame(Move.PASS, cut.nextMove(Player.BLACK, Deadline.after(0)));
+		verify(client).execute("time_settings 0 1 1");
+		verify(client).execute("time_left B 1 1");
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testNextMoveFails() throws Exception {
+		when(client.genmove(Player.BLACK)).thenThrow(new CommandFailedException("no"));
+		cut.nextMove(Player.BLACK);
+	}
+
+	@Test
+	public void testScore() throws Exception {
+		final Score score = new Score(Player.BLACK, 1.5);
+		when(client.finalScore()).thenReturn(score);
+		assertSame(score, cut.getScore());
+	}
+}
@@ -1,6 +1,8 @@
 package org.lisoft.gonector;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import java.util.Locale;
 
@@ -29,6 +31,14 @@ public class ScoreTest {
 		Locale.setDefault(oldLocale);
 	}
 
+	@Test
+	public void testGetters() {
+		final Score cut = new Score(Player.WHITE, 2.5);
+		assertSame(Player.WHITE, cut.getWinner());
+		assertEquals(2.5, cut.getMargin(), 0.0);
+		assertNull(Score.DRAW.getWinner());
+	}
+
 	@SuppressWarnings("unused")
 	@Test(expected = IllegalArgumentException.class)
 	public void testNegativeScore() {
@@ -41,4 +51,18 @@ public class ScoreTest {
 		assertEquals("B+91", (new Score(Player.BLACK, 91)).toString());
 		assertEquals("0", Score.DRAW.toString());
 	}
+
+	@Test
+	public void testValueOf() throws Exception {
+		final Score cut = Score.valueOf("W+2.5");
+		assertSame(Player.WHITE, cut.getWinner());
+		assertEquals(2.5, cut.getMargin(), 0.0);
+		assertEquals("B+91", Score.valueOf("b+91").toString());
+		assertSame(Score.DRAW, Score.valueOf("0"));
+	}
+
+	@Test(expected = SyntaxErrorException.class)
+	public void testValueOfInvalid() throws Exception {
+		Score.valueOf("B+R");
+	}
 }
@@ -0,0 +1,81 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Test suite for the {@link SgfGame} class.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class SgfGameTest {
+	@Test
+	public void testEntriesBefore() throws Exception {
+		final SgfGame game = read("(;AB[aa][bb];B[cc];AW[dd];W[ee])");
+		assertEquals(2, game.getEntriesBefore(1));
+		assertEquals(4, game.getEntriesBefore(2));
+		assertEquals(5, game.getEntriesBefore(3));
+		assertEquals(5, game.getEntriesBefore(100));
+	}
+
+	@Test
+	public void testEntryAndMoveCount() throws Exception {
+		final SgfGame game = read("(;AB[aa][bb];B[cc];AW[dd];W[ee])");
+		assertEquals(5, game.getEntryCount());
+		assertEquals(2, game.getMoveCount());
+	}
+
+	@Test
+	public void testPlayerToPlayAfterMove() throws Exception {
+		final SgfGame game = read("(;PL[B];B[aa];AB[bb])");
+		assertSame(Player.BLACK, game.getPlayerToPlay(0));
+		assertSame(Player.WHITE, game.getPlayerToPlay(1));
+		assertSame(Player.WHITE, game.getPlayerToPlay(2));
+	}
+
+	@Test
+	public void testPlayerToPlayEmpty() throws Exception {
+		assertSame(Player.BLACK, read("(;SZ[9])").getPlayerToPlay(0));
+	}
+
+	@Test
+	public void testPlayerToPlayHandicap() throws Exception {
+		final SgfGame game = read("(;HA[2]AB[dd][pp])");
+		assertSame(Player.BLACK, game.getPlayerToPlay(0));
+		assertSame(Player.WHITE, game.getPlayerToPlay(2));
+	}
+
+	@Test
+	public void testPlayerToPlayMixedSetup() throws Exception {
+		assertSame(Player.BLACK, read("(;AB[dd]AW[pp])").getPlayerToPlay(2));
+	}
+
+	private SgfGame read(String aSgf) throws SyntaxErrorException {
+		return SgfReader.read(ByteBuffer.wrap(aSgf.getBytes(StandardCharsets.US_ASCII)));
+	}
+}
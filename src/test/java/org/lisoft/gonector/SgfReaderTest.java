@@ -0,0 +1,195 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test suite for the {@link SgfReader} class.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class SgfReaderTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testChannelAcrossBuffers() throws Exception {
+		final StringBuilder sgf = new StringBuilder("(;SZ[9]C[");
+		for (int i = 0; i < 20000; ++i) {
+			sgf.append('x');
+		}
+		sgf.append("];B[ee])");
+		final byte[] bytes = sgf.toString().getBytes(StandardCharsets.US_ASCII);
+
+		final SgfGame game = SgfReader.read(Channels.newChannel(new ByteArrayInputStream(bytes)));
+
+		assertEquals(1, game.getEntryCount());
+		assertSame(Move.valueOf("e5"), game.getMove(0));
+	}
+
+	@Test
+	public void testCompressedPointList() throws Exception {
+		final SgfGame game = read("(;SZ[9]AB[aa:bb]AW[cc])");
+		assertEquals(5, game.getEntryCount());
+		assertEquals(0, game.getMoveCount());
+		assertSame(Move.valueOf("a9"), game.getMove(0));
+		assertSame(Move.valueOf("b9"), game.getMove(1));
+		assertSame(Move.valueOf("a8"), game.getMove(2));
+		assertSame(Move.valueOf("b8"), game.getMove(3));
+		assertSame(Player.WHITE, game.getPlayer(4));
+		assertTrue(game.isSetup(4));
+	}
+
+	@Test
+	public void testDefaults() throws Exception {
+		final SgfGame game = read("(;GM[1])");
+		assertEquals(19, game.getBoardSize());
+		assertEquals(0.0f, game.getKomi(), 0.0f);
+		assertEquals(0, game.getEntryCount());
+	}
+
+	@Test
+	public void testEscapedBrackets() throws Exception {
+		final SgfGame game = read("(;SZ[9]C[a \\] b \\\\];B[ee]C[\\]])");
+		assertEquals(1, game.getEntryCount());
+		assertSame(Move.valueOf("e5"), game.getMove(0));
+	}
+
+	@Test
+	public void testFile() throws Exception {
+		final Path file = folder.newFile("game.sgf").toPath();
+		Files.write(file, "(;FF[4]SZ[19]KM[7.5];B[pd];W[dp])".getBytes(StandardCharsets.US_ASCII));
+
+		final SgfGame game = SgfReader.read(file);
+
+		assertEquals(7.5f, game.getKomi(), 0.0f);
+		assertEquals(2, game.getMoveCount());
+		assertSame(Move.valueOf("q16"), game.getMove(0));
+		assertSame(Player.BLACK, game.getPlayer(0));
+		assertSame(Move.valueOf("d4"), game.getMove(1));
+		assertSame(Player.WHITE, game.getPlayer(1));
+	}
+
+	@Test
+	public void testHeaderAndWhitespace() throws Exception {
+		final SgfGame game = read("From: someone\r\n\r\n ( ;\nSZ [9]\tKM[ 5 ]\n; B\n[ee]\n)");
+		assertEquals(9, game.getBoardSize());
+		assertEquals(5.0f, game.getKomi(), 0.0f);
+		assertSame(Move.valueOf("e5"), game.getMove(0));
+	}
+
+	@Test
+	public void testLowerCaseIdentifiers() throws Exception {
+		final SgfGame game = read("(;SiZe[9];Black[ee])");
+		assertEquals(9, game.getBoardSize());
+		assertSame(Move.valueOf("e5"), game.getMove(0));
+		assertSame(Player.BLACK, game.getPlayer(0));
+	}
+
+	@Test
+	public void testOnlyFirstGame() throws Exception {
+		final SgfGame game = read("(;SZ[9];B[ee])(;SZ[13];B[aa];W[bb])");
+		assertEquals(9, game.getBoardSize());
+		assertEquals(1, game.getEntryCount());
+	}
+
+	@Test
+	public void testPass() throws Exception {
+		final SgfGame game = read("(;SZ[9];B[];W[tt])");
+		assertSame(Move.PASS, game.getMove(0));
+		assertSame(Move.PASS, game.getMove(1));
+	}
+
+	@Test
+	public void testPlayerToPlay() throws Exception {
+		assertSame(Player.WHITE, read("(;SZ[9]PL[W])").getPlayerToPlay(0));
+		assertSame(Player.WHITE, read("(;SZ[9]PL[white])").getPlayerToPlay(0));
+	}
+
+	@Test
+	public void testTruncated() throws Exception {
+		final SgfGame game = read("(;SZ[9];B[ee];W[cc]");
+		assertEquals(2, game.getMoveCount());
+	}
+
+	@Test
+	public void testVariationsSkipped() throws Exception {
+		final SgfGame game = read("(;SZ[9];B[ee](;W[cc];B[gg])(;W[gg]))");
+		assertEquals(3, game.getMoveCount());
+		assertSame(Move.valueOf("c7"), game.getMove(1));
+		assertSame(Move.valueOf("g3"), game.getMove(2));
+		assertFalse(game.isSetup(2));
+	}
+
+	@Test(expected = SyntaxErrorException.class)
+	public void testErrorBadSize() throws Exception {
+		read("(;SZ[99])");
+	}
+
+	@Test(expected = SyntaxErrorException.class)
+	public void testErrorNoGame() throws Exception {
+		read("SZ[9]");
+	}
+
+	@Test(expected = SyntaxErrorException.class)
+	public void testErrorNonSquare() throws Exception {
+		read("(;SZ[9:13])");
+	}
+
+	@Test(expected = SyntaxErrorException.class)
+	public void testErrorOutsideBoard() throws Exception {
+		read("(;SZ[9];B[jj])");
+	}
+
+	@Test(expected = SyntaxErrorException.class)
+	public void testErrorPropertyWithoutValue() throws Exception {
+		read("(;SZ;B[aa])");
+	}
+
+	@Test(expected = SyntaxErrorException.class)
+	public void testErrorSizeAfterMoves() throws Exception {
+		read("(;B[aa];SZ[9])");
+	}
+
+	@Test(expected = SyntaxErrorException.class)
+	public void testErrorUnterminatedValue() throws Exception {
+		read("(;SZ[9];C[abc");
+	}
+
+	private SgfGame read(String aSgf) throws SyntaxErrorException {
+		return SgfReader.read(ByteBuffer.wrap(aSgf.getBytes(StandardCharsets.US_ASCII)));
+	}
+}
@@ -0,0 +1,258 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+/**
+ * Test suite for {@link SharedEngineSession}.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class SharedEngineSessionTest {
+	/**
+	 * Scores by area, so that each game can be checked through the protocol.
+	 */
+	private static final class AreaScoringEngine implements SharedGoEngine {
+		@Override
+		public boolean canScore() {
+			return true;
+		}
+
+		@Override
+		public String getName() {
+			return "area";
+		}
+
+		@Override
+		public Score getScore(GameContext aGame) {
+			return aGame.getBoard().getAreaScore(aGame.getKomi());
+		}
+
+		@Override
+		public String getVersion() {
+			return "1";
+		}
+
+		@Override
+		public Move nextMove(GameContext aGame, Player aPlayer, Deadline aDeadline) {
+			return Move.PASS;
+		}
+	}
+
+	private final SharedGoEngine engine = mock(SharedGoEngine.class);
+	private final SharedEngineSession cut = new SharedEngineSession(engine);
+
+	@Test
+	public void testAddMove() throws Exception {
+		assertTrue(cut.addMove(Move.valueOf("a1"), Player.BLACK));
+		assertFalse(cut.addMove(Move.valueOf("a1"), Player.WHITE));
+		assertSame(Player.BLACK, cut.getContext().getBoard().getStone(Move.valueOf("a1")));
+	}
+
+	@Test
+	public void testAnalyzeStop() throws Exception {
+		final AtomicBoolean stopped = new AtomicBoolean();
+		doAnswer(aInvocation -> {
+			stopped.set(cut.getContext().isStopRequested());
+			return null;
+		}).when(engine).analyze(any(), any(), any());
+
+		cut.stopAnalysis();
+		cut.analyze(Player.BLACK, aCandidates -> {
+			// Unused
+		});
+
+		assertTrue(stopped.get());
+		assertFalse(cut.getContext().isStopRequested());
+	}
+
+	@Test
+	public void testAnalyzeStopWhileRunning() throws Exception {
+		final AtomicBoolean stopped = new AtomicBoolean();
+		doAnswer(aInvocation -> {
+			cut.stopAnalysis();
+			stopped.set(cut.getContext().isStopRequested());
+			return null;
+		}).when(engine).analyze(any(), any(), any());
+
+		cut.analyze(Player.BLACK, aCandidates -> {
+			// Unused
+		});
+
+		assertTrue(stopped.get());
+		assertFalse(cut.getContext().isStopRequested());
+	}
+
+	@Test
+	public void testDelegates() throws Exception {
+		when(engine.getName()).thenReturn("shared");
+		when(engine.getVersion()).thenReturn("2");
+		when(engine.canScore()).thenReturn(true);
+		when(engine.getScore(cut.getContext())).thenReturn(Score.DRAW);
+
+		assertEquals("shared", cut.getName());
+		assertEquals("2", cut.getVersion());
+		assertTrue(cut.canScore());
+		assertFalse(cut.canAnalyze());
+		assertSame(Score.DRAW, cut.getScore());
+	}
+
+	@Test
+	public void testNewGame() throws Exception {
+		cut.addMove(Move.valueOf("c3"), Player.BLACK);
+		cut.getContext().setAttachment("tree");
+		cut.newGame();
+
+		assertEquals(0, cut.getContext().getBoard().getMoveCount());
+		assertNull(cut.getContext().getAttachment());
+	}
+
+	@Test
+	public void testNextMove() throws Exception {
+		final Deadline deadline = Deadline.after(1000000000L);
+		when(engine.nextMove(cut.getContext(), Player.WHITE, deadline)).thenReturn(Move.valueOf("d4"));
+
+		assertSame(Move.valueOf("d4"), cut.nextMove(Player.WHITE, deadline));
+		assertSame(Player.WHITE, cut.getContext().getBoard().getStone(Move.valueOf("d4")));
+		assertTrue(cut.undo());
+		assertNull(cut.getContext().getBoard().getStone(Move.valueOf("d4")));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testNextMoveIllegal() throws Exception {
+		cut.addMove(Move.valueOf("d4"), Player.BLACK);
+		when(engine.nextMove(any(), any(), any())).thenReturn(Move.valueOf("d4"));
+		cut.nextMove(Player.WHITE);
+	}
+
+	@Test
+	public void testNextMoveResign() throws Exception {
+		cut.addMove(Move.valueOf("d4"), Player.BLACK);
+		when(engine.nextMove(any(), any(), any())).thenReturn(Move.RESIGN);
+
+		assertSame(Move.RESIGN, cut.nextMove(Player.WHITE));
+		assertEquals(1, cut.getContext().getBoard().getMoveCount());
+		assertTrue(cut.undo());
+		assertNull(cut.getContext().getBoard().getStone(Move.valueOf("d4")));
+	}
+
+	@Test
+	public void testResizeBoard() throws Exception {
+		when(engine.isBoardSizeSupported(9)).thenReturn(true);
+		cut.getContext().setAttachment("tree");
+
+		assertFalse(cut.resizeBoard(13));
+		assertFalse(cut.resizeBoard(Move.MAX_BOARD_SIZE + 1));
+		assertEquals(19, cut.getContext().getBoard().getSize());
+		assertTrue(cut.resizeBoard(9));
+		assertEquals(9, cut.getContext().getBoard().getSize());
+		assertNull(cut.getContext().getAttachment());
+	}
+
+	@Test
+	public void testSessionsAreIndependent() throws Exception {
+		final SharedGoEngine shared = new AreaScoringEngine();
+		try (GtpClient black = GtpClientTest.connect(shared.newSession());
+				GtpClient white = GtpClientTest.connect(shared.newSession())) {
+			for (final GtpClient client : Arrays.asList(black, white)) {
+				client.execute("boardsize 9");
+				client.execute("clear_board");
+				client.execute("komi 0");
+			}
+			black.play(Player.BLACK, Move.valueOf("e5"));
+			white.play(Player.WHITE, Move.valueOf("e5"));
+
+			assertEquals("B+81", black.execute("final_score"));
+			assertEquals("W+81", white.execute("final_score"));
+		}
+	}
+
+	@Test
+	public void testSetHandicap() throws Exception {
+		assertTrue(cut.setHandicap(Arrays.asList(Move.valueOf("d4"), Move.valueOf("q16"))));
+		assertSame(Player.BLACK, cut.getContext().getBoard().getStone(Move.valueOf("q16")));
+	}
+
+	@Test
+	public void testSetHandicapRejected() throws Exception {
+		cut.addMove(Move.valueOf("q16"), Player.WHITE);
+
+		assertFalse(cut.setHandicap(Arrays.asList(Move.valueOf("d4"), Move.valueOf("q16"))));
+		assertNull(cut.getContext().getBoard().getStone(Move.valueOf("d4")));
+		assertEquals(1, cut.getContext().getBoard().getMoveCount());
+	}
+
+	@Test
+	public void testSetKomi() throws Exception {
+		cut.setKomi(6.5f);
+		assertEquals(6.5f, cut.getContext().getKomi(), 0.0f);
+	}
+
+	@Test
+	public void testStopAfterPonderingReturned() throws Exception {
+		// As GoTextProtocol does for genmove followed by lz-analyze when the
+		// engine doesn't ponder: the stop arrives after ponder has returned.
+		final AtomicBoolean stopped = new AtomicBoolean();
+		doAnswer(aInvocation -> {
+			stopped.set(cut.getContext().isStopRequested());
+			return null;
+		}).when(engine).analyze(any(), any(), any());
+		doAnswer(aInvocation -> {
+			stopped.set(cut.getContext().isStopRequested());
+			return null;
+		}).when(engine).ponder(any(), any());
+
+		cut.startPondering(Player.WHITE);
+		cut.stopPondering();
+		cut.analyze(Player.WHITE, aCandidates -> {
+			// Unused
+		});
+		assertFalse(stopped.get());
+		cut.stopAnalysis();
+
+		cut.startPondering(Player.BLACK);
+		assertFalse(stopped.get());
+		cut.stopPondering();
+		cut.analyze(Player.BLACK, aCandidates -> {
+			// Unused
+		});
+		assertFalse(stopped.get());
+	}
+
+	@Test
+	public void testUndoEmpty() throws Exception {
+		assertFalse(cut.undo());
+	}
+}
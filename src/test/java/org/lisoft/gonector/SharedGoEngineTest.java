@@ -0,0 +1,84 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Test suite for the default methods of {@link SharedGoEngine}.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class SharedGoEngineTest {
+	private final SharedGoEngine cut = new SharedGoEngine() {
+		@Override
+		public String getName() {
+			return "test";
+		}
+
+		@Override
+		public String getVersion() {
+			return "1";
+		}
+
+		@Override
+		public Move nextMove(GameContext aGame, Player aPlayer, Deadline aDeadline) {
+			return Move.PASS;
+		}
+	};
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testDefaultAnalyze() throws Exception {
+		cut.analyze(new GameContext(9), Player.BLACK, aCandidates -> {
+			// Unused
+		});
+	}
+
+	@Test
+	public void testDefaultCapabilities() throws Exception {
+		assertFalse(cut.canAnalyze());
+		assertFalse(cut.canScore());
+		assertTrue(cut.isBoardSizeSupported(7));
+	}
+
+	@Test
+	public void testDefaultPonder() throws Exception {
+		cut.ponder(new GameContext(9), Player.WHITE);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testDefaultScore() throws Exception {
+		cut.getScore(new GameContext(9));
+	}
+
+	@Test
+	public void testNewSession() throws Exception {
+		final GoEngine session = cut.newSession();
+		assertTrue(session instanceof SharedEngineSession);
+		assertEquals("test", session.getName());
+		assertTrue(session.resizeBoard(9));
+		assertEquals(Move.PASS, session.nextMove(Player.BLACK));
+	}
+}
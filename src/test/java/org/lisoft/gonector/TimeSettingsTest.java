@@ -0,0 +1,50 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * Test suite for {@link TimeSettings}.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class TimeSettingsTest {
+	@Test
+	public void testFromGtp() {
+		assertSame(TimeSettings.NONE, TimeSettings.fromGtp(0, 1, 0));
+		assertEquals(TimeSettings.Type.ABSOLUTE, TimeSettings.fromGtp(300, 0, 0).getType());
+
+		final TimeSettings canadian = TimeSettings.fromGtp(300, 60, 25);
+		assertEquals(TimeSettings.Type.CANADIAN, canadian.getType());
+		assertEquals(300, canadian.getMainTime(), 0);
+		assertEquals(60, canadian.getPeriodTime(), 0);
+		assertEquals(25, canadian.getPeriodCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegative() {
+		TimeSettings.byoYomi(10, -1, 5);
+	}
+}
@@ -0,0 +1,70 @@
+/* @formatter:off
+ * Gonector - A Java implementation of the Go Text Protocol version 2.
+ * Copyright (C) 2016 Emily Björk
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+// @formatter:on
+package org.lisoft.gonector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Test suite for {@link Zobrist}.
+ *
+ * @author Emily Björk
+ */
+@SuppressWarnings("javadoc")
+public class ZobristTest {
+	@Test
+	public void testKeysAreDistinct() {
+		final Set<Long> keys = new HashSet<>();
+		for (int y = 0; y < Move.MAX_BOARD_SIZE; ++y) {
+			for (int x = 0; x < Move.MAX_BOARD_SIZE; ++x) {
+				for (final Player player : Player.values()) {
+					keys.add(Zobrist.key(Move.valueOf(x, y), player));
+				}
+			}
+		}
+		keys.add(Zobrist.WHITE_TO_MOVE);
+		assertEquals(Board.POINTS * 2 + 1, keys.size());
+	}
+
+	@Test
+	public void testKeysAreStable() throws Exception {
+		// The keys must not change between releases, they may be persisted.
+		assertEquals(Zobrist.key(Move.valueOf("a1"), Player.BLACK), Zobrist.key(0, 0));
+		assertEquals(0x909ded0f5601f823L, Zobrist.key(Move.valueOf("a1"), Player.BLACK));
+	}
+
+	@Test
+	public void testPassHasNoKey() {
+		assertEquals(0, Zobrist.key(Move.PASS, Player.BLACK));
+		assertEquals(0, Zobrist.key(Move.RESIGN, Player.WHITE));
+	}
+
+	@Test
+	public void testSituational() {
+		assertEquals(17, Zobrist.situational(17, Player.BLACK));
+		assertNotEquals(17, Zobrist.situational(17, Player.WHITE));
+		assertEquals(17 ^ Zobrist.WHITE_TO_MOVE, Zobrist.situational(17, Player.WHITE));
+	}
+}